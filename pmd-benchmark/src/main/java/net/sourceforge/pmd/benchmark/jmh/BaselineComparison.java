@@ -0,0 +1,143 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Compares benchmark scores with the scores of a baseline run, and finds the
+ * benchmarks which got slower by more than a threshold.
+ *
+ * <p>Scores are identified by a key made of the benchmark name, its parameters
+ * and the benchmark mode, eg {@code ParserBenchmark.parse[language=java,units=10]@avgt}.
+ * For the throughput mode ({@code @thrpt}) a higher score is better, for the
+ * other modes (times) a lower score is better. Benchmarks which are only in the
+ * baseline or only in the current run are not compared.
+ *
+ * <p>Baselines are stored as properties files, mapping keys to scores.
+ */
+public final class BaselineComparison {
+
+    private static final String THROUGHPUT_SUFFIX = "@thrpt";
+
+    private final Map<String, Double> baseline;
+    private final double maxRegression;
+
+    /**
+     * @param baseline      The scores of the baseline
+     * @param maxRegression The maximum accepted regression, as a fraction of the
+     *                      baseline score, eg 0.1 for 10%
+     */
+    public BaselineComparison(Map<String, Double> baseline, double maxRegression) {
+        if (maxRegression < 0) {
+            throw new IllegalArgumentException("Negative maximum regression: " + maxRegression);
+        }
+        this.baseline = new TreeMap<>(baseline);
+        this.maxRegression = maxRegression;
+    }
+
+    /**
+     * Returns the benchmarks whose score regressed by more than the maximum
+     * regression, sorted by key.
+     */
+    public List<Regression> findRegressions(Map<String, Double> current) {
+        final List<Regression> regressions = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : new TreeMap<>(current).entrySet()) {
+            final Double base = baseline.get(entry.getKey());
+            if (base == null || base <= 0) {
+                continue;
+            }
+            final Regression regression = new Regression(entry.getKey(), base, entry.getValue());
+            if (regression.getRegression() > maxRegression) {
+                regressions.add(regression);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Loads a baseline written by {@link #save(Map, Path)}.
+     */
+    public static Map<String, Double> load(Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        final Map<String, Double> scores = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                scores.put(key, Double.valueOf(properties.getProperty(key)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid score for " + key + " in " + file, e);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Saves scores as a baseline for later runs.
+     */
+    public static void save(Map<String, Double> scores, Path file) throws IOException {
+        final Properties properties = new Properties();
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            properties.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "PMD benchmark baseline");
+        }
+    }
+
+    /**
+     * A benchmark which is slower than in the baseline.
+     */
+    public static final class Regression {
+        private final String key;
+        private final double baselineScore;
+        private final double score;
+
+        Regression(String key, double baselineScore, double score) {
+            this.key = key;
+            this.baselineScore = baselineScore;
+            this.score = score;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public double getBaselineScore() {
+            return baselineScore;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * Returns how much worse the score is, as a fraction of the baseline
+         * score. Negative values are improvements.
+         */
+        public double getRegression() {
+            final double change = (score - baselineScore) / baselineScore;
+            return key.endsWith(THROUGHPUT_SUFFIX) ? -change : change;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %.3f -> %.3f (%+.1f%%)", key, baselineScore, score,
+                    getRegression() * 100);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.cli.PMDCommandLineInterface;
+
+/**
+ * Runs the benchmarks, and optionally compares the results with a baseline.
+ *
+ * <pre>
+ * java -jar benchmarks.jar [--save-baseline &lt;file&gt;] [--baseline &lt;file&gt; [--max-regression &lt;percent&gt;]] [JMH options]
+ * </pre>
+ *
+ * <p>All other arguments are passed to JMH, eg a regular expression selecting
+ * the benchmarks, or {@code -p units=100} to override a parameter. With
+ * {@code --baseline}, the status code is {@link #REGRESSION_FOUND} if a benchmark
+ * is slower than in the baseline by more than the maximum regression (10% by default).
+ */
+public final class BenchmarkMain {
+
+    /** No error, and no regression compared to the baseline if any. */
+    public static final int OK = 0;
+    /** A benchmark is slower than in the baseline by more than the maximum regression. */
+    public static final int REGRESSION_FOUND = 1;
+    /** The arguments are invalid. */
+    public static final int USAGE_ERROR = 2;
+
+    private static final Logger LOG = Logger.getLogger(BenchmarkMain.class.getName());
+
+    private static final String USAGE = "Usage: java -jar benchmarks.jar [--save-baseline <file>]"
+            + " [--baseline <file> [--max-regression <percent>]] [JMH options]";
+
+    private static final String BENCHMARK_PACKAGE = BenchmarkMain.class.getPackage().getName() + ".";
+    private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10;
+
+    private BenchmarkMain() {
+        // main class
+    }
+
+    /**
+     * Entry to run the benchmarks from the command line. Note that this
+     * will invoke {@link System#exit(int)}, unless disabled like for PMD with
+     * {@link PMDCommandLineInterface#NO_EXIT_AFTER_RUN}.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException, RunnerException {
+        PMDCommandLineInterface.setStatusCodeOrExit(run(args));
+    }
+
+    /**
+     * Runs the benchmarks, and compares the results with the baseline if
+     * one is given. This does not terminate the VM.
+     *
+     * @param args command line arguments
+     *
+     * @return The status code, one of {@link #OK}, {@link #REGRESSION_FOUND} or {@link #USAGE_ERROR}
+     */
+    public static int run(String... args) throws IOException, RunnerException {
+        Path baseline = null;
+        Path saveBaseline = null;
+        double maxRegressionPercent = DEFAULT_MAX_REGRESSION_PERCENT;
+        final List<String> jmhArgs = new ArrayList<>();
+
+        try {
+            int i = 0;
+            while (i < args.length) {
+                final String arg = args[i++];
+                switch (arg) {
+                case "--baseline":
+                    baseline = Paths.get(requireValue(args, i++));
+                    break;
+                case "--save-baseline":
+                    saveBaseline = Paths.get(requireValue(args, i++));
+                    break;
+                case "--max-regression":
+                    maxRegressionPercent = Double.parseDouble(requireValue(args, i++));
+                    break;
+                default:
+                    jmhArgs.add(arg);
+                    break;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            LOG.severe(e.getMessage() + PMD.EOL + USAGE);
+            return USAGE_ERROR;
+        }
+
+        final CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        } catch (CommandLineOptionException e) {
+            LOG.severe("Error parsing JMH options: " + e.getMessage());
+            return USAGE_ERROR;
+        }
+
+        if (options.shouldHelp()) {
+            LOG.info(USAGE);
+            options.showHelp();
+            return OK;
+        }
+        final Runner runner = new Runner(options);
+        if (options.shouldList()) {
+            runner.list();
+            return OK;
+        }
+
+        final Map<String, Double> scores = scores(runner.run());
+        if (saveBaseline != null) {
+            BaselineComparison.save(scores, saveBaseline);
+            LOG.info("Saved the baseline to " + saveBaseline);
+        }
+        if (baseline != null) {
+            final BaselineComparison comparison = new BaselineComparison(BaselineComparison.load(baseline),
+                    maxRegressionPercent / 100);
+            final List<BaselineComparison.Regression> regressions = comparison.findRegressions(scores);
+            if (!regressions.isEmpty()) {
+                final StringBuilder message = new StringBuilder("Benchmarks slower than the baseline ")
+                        .append(baseline).append(" by more than ").append(maxRegressionPercent).append("%:");
+                for (BaselineComparison.Regression regression : regressions) {
+                    message.append(PMD.EOL).append("  ").append(regression);
+                }
+                LOG.severe(message.toString());
+                return REGRESSION_FOUND;
+            }
+            LOG.info("No regression compared to the baseline " + baseline);
+        }
+        return OK;
+    }
+
+    /**
+     * Returns the primary score of each benchmark, by key as described in
+     * {@link BaselineComparison}.
+     */
+    static Map<String, Double> scores(Collection<RunResult> results) {
+        final Map<String, Double> scores = new TreeMap<>();
+        for (RunResult result : results) {
+            final BenchmarkParams params = result.getParams();
+            final StringBuilder key = new StringBuilder(params.getBenchmark().replace(BENCHMARK_PACKAGE, ""));
+            if (!params.getParamsKeys().isEmpty()) {
+                key.append('[');
+                for (String param : params.getParamsKeys()) {
+                    key.append(param).append('=').append(params.getParam(param)).append(',');
+                }
+                key.setCharAt(key.length() - 1, ']');
+            }
+            key.append('@').append(params.getMode().shortLabel());
+            scores.put(key.toString(), result.getPrimaryResult().getScore());
+        }
+        return scores;
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
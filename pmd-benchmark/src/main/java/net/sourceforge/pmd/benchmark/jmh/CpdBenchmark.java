@@ -0,0 +1,75 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.cpd.LanguageFactory;
+import net.sourceforge.pmd.cpd.Match;
+import net.sourceforge.pmd.cpd.MatchAlgorithm;
+import net.sourceforge.pmd.cpd.SourceCode;
+import net.sourceforge.pmd.cpd.TokenEntry;
+import net.sourceforge.pmd.cpd.Tokens;
+
+/**
+ * Measures {@link MatchAlgorithm#findMatches()} on already tokenized sources.
+ * Every unit of the synthetic corpus is a duplicate of the others, so the
+ * algorithm has plenty of matches to collect.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CpdBenchmark {
+
+    @Param({"java", "ecmascript"})
+    public String language;
+
+    @Param({"10", "100"})
+    public int units;
+
+    @Param("100")
+    public int minimumTileSize;
+
+    private Map<String, SourceCode> sourceCode;
+    private Tokens tokens;
+
+    @Setup
+    public void setUp() throws IOException {
+        final String fileName = SyntheticCorpus.fileName(language);
+        final SourceCode source = new SourceCode(
+                new SourceCode.StringCodeLoader(SyntheticCorpus.generate(language, units), fileName));
+
+        TokenEntry.clearImages();
+        tokens = new Tokens();
+        LanguageFactory.createLanguage(language).getTokenizer().tokenize(source, tokens);
+        sourceCode = Collections.singletonMap(fileName, source);
+    }
+
+    @Benchmark
+    public Iterator<Match> findMatches() {
+        final MatchAlgorithm matchAlgorithm = new MatchAlgorithm(sourceCode, tokens, minimumTileSize);
+        matchAlgorithm.findMatches();
+        return matchAlgorithm.matches();
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.Parser;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Measures the parsers of the languages, from source text to AST.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"java", "ecmascript", "xml"})
+    public String language;
+
+    @Param({"10", "100"})
+    public int units;
+
+    private Parser parser;
+    private String fileName;
+    private String source;
+
+    @Setup
+    public void setUp() {
+        final LanguageVersion version = SyntheticCorpus.getLanguage(language).getDefaultVersion();
+        parser = PMD.parserFor(version, new PMDConfiguration());
+        fileName = SyntheticCorpus.fileName(language);
+        source = SyntheticCorpus.generate(language, units);
+    }
+
+    @Benchmark
+    public Node parse() {
+        return parser.parse(fileName, new StringReader(source));
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleSetLoader;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.renderers.Renderer;
+import net.sourceforge.pmd.renderers.RendererFactory;
+
+/**
+ * Measures rendering the report of the synthetic corpus with each major
+ * report format. The output is discarded, only its length is kept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RendererBenchmark {
+
+    @Param({"xml", "text", "html", "csv", "json", "sarif", "codeclimate"})
+    public String format;
+
+    @Param("rulesets/java/quickstart.xml")
+    public String ruleset;
+
+    @Param("100")
+    public int units;
+
+    private Report report;
+
+    @Setup
+    public void setUp() {
+        final RuleSets ruleSets = new RuleSets(new RuleSetLoader().warnDeprecated(false).loadFromResources(ruleset));
+        final String source = SyntheticCorpus.generate("java", units);
+        report = SyntheticCorpus.analyze(new PMDConfiguration(), SyntheticCorpus.getLanguage("java").getDefaultVersion(),
+                source, ruleSets);
+    }
+
+    @Benchmark
+    public long render() throws IOException {
+        try (CountingWriter writer = new CountingWriter()) {
+            final Renderer renderer = RendererFactory.createRenderer(format, new Properties());
+            renderer.setWriter(writer);
+            renderer.start();
+            renderer.renderFileReport(report);
+            renderer.end();
+            renderer.flush();
+            return writer.length;
+        }
+    }
+
+    private static final class CountingWriter extends Writer {
+        private long length;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            length += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            length += len;
+        }
+
+        @Override
+        public void flush() {
+            // nothing to do
+        }
+
+        @Override
+        public void close() {
+            // nothing to do
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleChain;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSetLoader;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Measures applying the rules to an already parsed and analyzed AST: the
+ * rule chain on its own, and all rules like {@link RuleSets#apply(List, RuleContext, Language)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleChainBenchmark {
+
+    @Param("rulesets/java/quickstart.xml")
+    public String ruleset;
+
+    @Param({"10", "100"})
+    public int units;
+
+    private LanguageVersion version;
+    private RuleSets ruleSets;
+    private RuleChain ruleChain;
+    private List<Node> nodes;
+
+    @Setup
+    public void setUp() {
+        version = SyntheticCorpus.getLanguage("java").getDefaultVersion();
+        final List<RuleSet> loaded = new RuleSetLoader().warnDeprecated(false).loadFromResources(ruleset);
+        ruleSets = new RuleSets(loaded);
+        ruleChain = new RuleChain();
+        for (RuleSet ruleSet : loaded) {
+            ruleChain.add(ruleSet);
+        }
+
+        final PMDConfiguration configuration = new PMDConfiguration();
+        final String source = SyntheticCorpus.generate("java", units);
+        nodes = Collections.singletonList(SyntheticCorpus.parse(configuration, version, source, ruleSets));
+    }
+
+    @Benchmark
+    public Report applyRuleChain() {
+        final RuleContext ctx = SyntheticCorpus.newContext(version);
+        ruleChain.apply(nodes, ctx, version.getLanguage());
+        return ctx.getReport();
+    }
+
+    @Benchmark
+    public Report applyAllRules() {
+        final RuleContext ctx = SyntheticCorpus.newContext(version);
+        ruleSets.start(ctx);
+        ruleSets.apply(nodes, ctx, version.getLanguage());
+        ruleSets.end(ctx);
+        return ctx.getReport();
+    }
+}
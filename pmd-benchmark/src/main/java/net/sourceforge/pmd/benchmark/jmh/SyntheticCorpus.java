@@ -0,0 +1,178 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PMDException;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.SourceCodeProcessor;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.LanguageVersionHandler;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * The sources the benchmarks run on. They are generated from the templates
+ * bundled in the {@code corpus} resource directory, so that every run analyzes
+ * exactly the same code.
+ *
+ * <p>A template consists of a header, a unit enclosed in {@code @@repeat} and
+ * {@code @@end} lines, and a footer. The unit is repeated as many times as
+ * requested, with {@code __N__} replaced by the index of the copy. Since the
+ * copies only differ by their index, the corpus also contains a predictable
+ * amount of duplicated code for CPD.
+ */
+public final class SyntheticCorpus {
+
+    private static final String REPEAT = "@@repeat";
+    private static final String END = "@@end";
+    private static final String INDEX = "__N__";
+
+    private SyntheticCorpus() {
+        // utility class
+    }
+
+    /**
+     * Generates a source file.
+     *
+     * @param languageTerseName The terse name of the language, eg "java"
+     * @param units             The number of copies of the repeated unit of the template
+     */
+    public static String generate(String languageTerseName, int units) {
+        final List<String> lines = readTemplate(languageTerseName);
+        final int repeat = lines.indexOf(REPEAT);
+        final int end = lines.indexOf(END);
+        if (repeat < 0 || end < repeat) {
+            throw new IllegalStateException("No " + REPEAT + " block in the template for " + languageTerseName);
+        }
+
+        final StringBuilder result = new StringBuilder();
+        appendLines(result, lines.subList(0, repeat));
+        final StringBuilder unit = new StringBuilder();
+        appendLines(unit, lines.subList(repeat + 1, end));
+        for (int i = 0; i < units; i++) {
+            result.append(unit.toString().replace(INDEX, String.valueOf(i)));
+        }
+        appendLines(result, lines.subList(end + 1, lines.size()));
+        return result.toString();
+    }
+
+    /**
+     * Returns the file name of a generated source file, with the first
+     * extension of the language.
+     */
+    public static String fileName(String languageTerseName) {
+        final Language language = getLanguage(languageTerseName);
+        return "Sample." + language.getExtensions().get(0);
+    }
+
+    /**
+     * Returns the language with the given terse name.
+     */
+    public static Language getLanguage(String languageTerseName) {
+        final Language language = LanguageRegistry.findLanguageByTerseName(languageTerseName);
+        if (language == null) {
+            throw new IllegalArgumentException("Unknown language " + languageTerseName);
+        }
+        return language;
+    }
+
+    /**
+     * Parses the source, and runs the same processing stages on the AST as
+     * {@link SourceCodeProcessor} would before applying the rules.
+     *
+     * @param configuration The configuration
+     * @param version       The language version to parse with
+     * @param source        The source code
+     * @param ruleSets      The rules which are going to be applied, they determine
+     *                      whether data flow analysis, type resolution and multifile
+     *                      analysis are needed
+     */
+    @SuppressWarnings("deprecation")
+    public static Node parse(PMDConfiguration configuration, LanguageVersion version, String source, RuleSets ruleSets) {
+        final LanguageVersionHandler handler = version.getLanguageVersionHandler();
+        final Language language = version.getLanguage();
+        final Node root = PMD.parserFor(version, configuration).parse(fileName(language.getTerseName()), new StringReader(source));
+
+        handler.getQualifiedNameResolutionFacade(configuration.getClassLoader()).start(root);
+        handler.getSymbolFacade(configuration.getClassLoader()).start(root);
+        if (ruleSets.usesDFA(language)) {
+            handler.getDataFlowFacade().start(root);
+        }
+        if (ruleSets.usesTypeResolution(language)) {
+            handler.getTypeResolutionFacade(configuration.getClassLoader()).start(root);
+        }
+        if (ruleSets.usesMultifile(language)) {
+            handler.getMultifileFacade().start(root);
+        }
+        return root;
+    }
+
+    /**
+     * Creates a rule context for a source file of the given language version,
+     * with an empty report.
+     */
+    public static RuleContext newContext(LanguageVersion version) {
+        final RuleContext ctx = new RuleContext();
+        ctx.setReport(new Report());
+        ctx.setLanguageVersion(version);
+        ctx.setSourceCodeFile(new File(fileName(version.getLanguage().getTerseName())));
+        ctx.setIgnoreExceptions(false);
+        return ctx;
+    }
+
+    /**
+     * Analyzes the source like PMD does, and returns the report.
+     */
+    public static Report analyze(PMDConfiguration configuration, LanguageVersion version, String source, RuleSets ruleSets) {
+        final RuleContext ctx = newContext(version);
+        try {
+            new SourceCodeProcessor(configuration).processSourceCode(new StringReader(source), ruleSets, ctx);
+        } catch (PMDException e) {
+            throw new IllegalStateException("Cannot analyze the synthetic corpus", e);
+        }
+        return ctx.getReport();
+    }
+
+    private static List<String> readTemplate(String languageTerseName) {
+        final String resource = "corpus/" + languageTerseName + ".txt";
+        @SuppressWarnings("PMD.CloseResource") // closed with the reader
+        final InputStream stream = SyntheticCorpus.class.getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IllegalArgumentException("No corpus for language " + languageTerseName);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            final List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendLines(StringBuilder builder, List<String> lines) {
+        for (String line : lines) {
+            builder.append(line).append('\n');
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
+import net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+
+/**
+ * Measures {@link SaxonXPathRuleQuery#evaluate(Node, RuleContext)} on the root
+ * of a Java AST. The Saxon tree wrapping the AST is cached on the AST, so the
+ * first evaluation on a file also builds the tree: {@link #evaluate(Ast)}
+ * measures the evaluation alone, {@link #evaluateOnNewAst(NewAst)} includes
+ * building the tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XPathBenchmark {
+
+    private static final Map<String, String> QUERIES = new HashMap<>();
+
+    static {
+        // shapes of expressions used by the XPath rules of pmd-java
+        QUERIES.put("path", "//CatchStatement[not(Block/BlockStatement)]");
+        QUERIES.put("descendantAxis", "//IfStatement[count(.//ReturnStatement) > 1]");
+        QUERIES.put("attribute", "//PrimaryPrefix/Name[starts-with(@Image, 'words.')]");
+        QUERIES.put("union", "//SwitchStatement[not(SwitchLabel[@Default = true()])] | //WhileStatement[ancestor::TryStatement]");
+    }
+
+    @Param({"path", "descendantAxis", "attribute", "union"})
+    public String query;
+
+    @Param({"10", "100"})
+    public int units;
+
+    private SaxonXPathRuleQuery xpathQuery;
+
+    @Setup
+    public void setUp() {
+        xpathQuery = new SaxonXPathRuleQuery();
+        xpathQuery.setXPath(QUERIES.get(query));
+        xpathQuery.setVersion(XPathRuleQuery.XPATH_2_0);
+        xpathQuery.setProperties(Collections.<PropertyDescriptor<?>, Object>emptyMap());
+    }
+
+    @Benchmark
+    public List<Node> evaluate(Ast ast) {
+        return xpathQuery.evaluate(ast.root, ast.ctx);
+    }
+
+    @Benchmark
+    public List<Node> evaluateOnNewAst(NewAst ast) {
+        return xpathQuery.evaluate(ast.root, ast.ctx);
+    }
+
+    /**
+     * An AST parsed once, shared by all invocations.
+     */
+    @State(Scope.Thread)
+    public static class Ast {
+        Node root;
+        RuleContext ctx;
+
+        @Setup
+        public void setUp(XPathBenchmark benchmark) {
+            parse(this, benchmark.units);
+        }
+    }
+
+    /**
+     * An AST parsed again before each invocation, which has no Saxon tree yet.
+     */
+    @State(Scope.Thread)
+    public static class NewAst {
+        Node root;
+        RuleContext ctx;
+
+        @Setup(Level.Invocation)
+        public void setUp(XPathBenchmark benchmark) {
+            final Ast ast = new Ast();
+            parse(ast, benchmark.units);
+            root = ast.root;
+            ctx = ast.ctx;
+        }
+    }
+
+    private static void parse(Ast ast, int units) {
+        final LanguageVersion version = SyntheticCorpus.getLanguage("java").getDefaultVersion();
+        final String source = SyntheticCorpus.generate("java", units);
+        ast.root = SyntheticCorpus.parse(new PMDConfiguration(), version, source, new RuleSets());
+        ast.ctx = SyntheticCorpus.newContext(version);
+    }
+}
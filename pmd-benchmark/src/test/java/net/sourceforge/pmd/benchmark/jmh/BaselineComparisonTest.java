@@ -0,0 +1,74 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BaselineComparisonTest {
+
+    private static final String PARSE = "ParserBenchmark.parse[language=java,units=10]@avgt";
+    private static final String RENDER = "RendererBenchmark.render[format=xml]@avgt";
+    private static final String THROUGHPUT = "ParserBenchmark.parse[language=xml,units=10]@thrpt";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSlowerTimeIsRegression() {
+        final BaselineComparison comparison = new BaselineComparison(scores(PARSE, 10.0, RENDER, 10.0), 0.1);
+
+        final List<BaselineComparison.Regression> regressions = comparison.findRegressions(scores(PARSE, 10.5, RENDER, 12.0));
+
+        assertEquals(1, regressions.size());
+        assertEquals(RENDER, regressions.get(0).getKey());
+        assertEquals(0.2, regressions.get(0).getRegression(), 1e-9);
+    }
+
+    @Test
+    public void testLowerThroughputIsRegression() {
+        final BaselineComparison comparison = new BaselineComparison(scores(THROUGHPUT, 100.0, PARSE, 10.0), 0.1);
+
+        final List<BaselineComparison.Regression> regressions = comparison.findRegressions(scores(THROUGHPUT, 80.0, PARSE, 5.0));
+
+        assertEquals(1, regressions.size());
+        assertEquals(THROUGHPUT, regressions.get(0).getKey());
+    }
+
+    @Test
+    public void testBenchmarksNotInBaselineAreIgnored() {
+        final BaselineComparison comparison = new BaselineComparison(scores(PARSE, 10.0), 0.1);
+
+        assertTrue(comparison.findRegressions(scores(RENDER, 100.0)).isEmpty());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        final Path file = folder.newFile("baseline.properties").toPath();
+        final Map<String, Double> scores = scores(PARSE, 1.25, THROUGHPUT, 1234.5);
+
+        BaselineComparison.save(scores, file);
+
+        assertEquals(scores, BaselineComparison.load(file));
+    }
+
+    private static Map<String, Double> scores(Object... keysAndScores) {
+        final Map<String, Double> scores = new HashMap<>();
+        for (int i = 0; i < keysAndScores.length; i += 2) {
+            scores.put((String) keysAndScores[i], (Double) keysAndScores[i + 1]);
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark.jmh;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BenchmarkMainTest {
+
+    @Test
+    public void testMissingOptionValueIsUsageError() throws Exception {
+        assertEquals(BenchmarkMain.USAGE_ERROR, BenchmarkMain.run("--baseline"));
+    }
+
+    @Test
+    public void testInvalidJmhOptionIsUsageError() throws Exception {
+        assertEquals(BenchmarkMain.USAGE_ERROR, BenchmarkMain.run("-f", "notANumber"));
+    }
+
+    @Test
+    public void testHelpIsOk() throws Exception {
+        assertEquals(BenchmarkMain.OK, BenchmarkMain.run("-h"));
+    }
+}
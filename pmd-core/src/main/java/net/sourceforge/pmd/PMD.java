@@ -248,13 +248,14 @@ public class PMD {
                 return pmd.getReporter().numErrors() > 0 ? -1 : 0;
             }
             try {
-                Report report = pmd.performAnalysisAndCollectReport();
+                // the violations are only counted, they are streamed to the renderers
+                Report report = pmd.performAnalysis(false);
 
                 if (!report.getProcessingErrors().isEmpty()) {
                     printErrorDetected(report.getProcessingErrors().size());
                 }
 
-                return report.getViolations().size();
+                return pmd.getViolationCount();
             } catch (Exception e) {
                 pmd.getReporter().errorEx("Exception during processing", e);
                 printErrorDetected(1);
@@ -16,6 +16,7 @@ import java.util.Properties;
 import org.apache.commons.lang3.StringUtils;
 
 import net.sourceforge.pmd.cache.AnalysisCache;
+import net.sourceforge.pmd.cache.DirectoryAnalysisCache;
 import net.sourceforge.pmd.cache.FileAnalysisCache;
 import net.sourceforge.pmd.cache.NoopAnalysisCache;
 import net.sourceforge.pmd.cli.PmdParametersParseResult;
@@ -40,6 +41,8 @@ import net.sourceforge.pmd.util.ClasspathClassLoader;
  * defaults to {@link PMD#SUPPRESS_MARKER}. {@link #getSuppressMarker()}</li>
  * <li>The number of threads to create when invoking on multiple files, defaults
  * one thread per available processor. {@link #getThreads()}</li>
+ * <li>Whether types are resolved lazily, the first time a rule asks for the type
+ * of a node, disabled by default. {@link #isLazyTypeResolution()}</li>
  * <li>A ClassLoader to use when loading classes during Rule processing (e.g.
  * during type resolution), defaults to ClassLoader of the Configuration class.
  * {@link #getClassLoader()}</li>
@@ -96,6 +99,7 @@ public class PMDConfiguration extends AbstractConfiguration {
     // General behavior options
     private String suppressMarker = DEFAULT_SUPPRESS_MARKER;
     private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean lazyTypeResolution = false;
     private ClassLoader classLoader = getClass().getClassLoader();
     private LanguageVersionDiscoverer languageVersionDiscoverer = new LanguageVersionDiscoverer();
     private LanguageVersion forceLanguageVersion;
@@ -121,6 +125,7 @@ public class PMDConfiguration extends AbstractConfiguration {
     private boolean benchmark;
     private AnalysisCache analysisCache = new NoopAnalysisCache();
     private boolean ignoreIncrementalAnalysis;
+    private String metricStoreLocation;
 
     /**
      * Get the suppress marker. This is the source level marker used to indicate
@@ -161,6 +166,29 @@ public class PMDConfiguration extends AbstractConfiguration {
         this.threads = threads;
     }
 
+    /**
+     * Returns whether types are resolved lazily. See {@link #setLazyTypeResolution(boolean)}.
+     *
+     * @return {@code true} if type resolution is lazy
+     */
+    public boolean isLazyTypeResolution() {
+        return lazyTypeResolution;
+    }
+
+    /**
+     * Sets whether types are resolved lazily. In lazy mode, the types of a
+     * file are resolved the first time a rule asks for the type of one of its
+     * nodes, instead of before the rules are applied. Files on which the rules
+     * never ask for a type skip type resolution entirely. This only makes a
+     * difference for languages supporting it.
+     *
+     * @param lazyTypeResolution
+     *            Whether to resolve types lazily.
+     */
+    public void setLazyTypeResolution(boolean lazyTypeResolution) {
+        this.lazyTypeResolution = lazyTypeResolution;
+    }
+
     /**
      * Get the ClassLoader being used by PMD when processing Rules.
      *
@@ -769,14 +797,27 @@ public class PMDConfiguration extends AbstractConfiguration {
 
     /**
      * Sets the location of the analysis cache to be used. This will automatically configure
-     * and appropriate AnalysisCache implementation.
+     * and appropriate AnalysisCache implementation. If the location is an existing
+     * directory, or ends with a path separator, a content-addressed cache stored in that
+     * directory is used, which can be shared between checkouts and concurrent runs.
+     * Otherwise the location is used as a single cache file.
      *
      * @param cacheLocation The location of the analysis cache to be used.
      */
     public void setAnalysisCacheLocation(final String cacheLocation) {
-        setAnalysisCache(cacheLocation == null
-                                 ? new NoopAnalysisCache()
-                                 : new FileAnalysisCache(new File(cacheLocation)));
+        if (cacheLocation == null) {
+            setAnalysisCache(new NoopAnalysisCache());
+        } else if (isDirectoryLocation(cacheLocation)) {
+            setAnalysisCache(new DirectoryAnalysisCache(new File(cacheLocation), DirectoryAnalysisCache.DEFAULT_MAX_SIZE,
+                                                        languageVersionDiscoverer));
+        } else {
+            setAnalysisCache(new FileAnalysisCache(new File(cacheLocation)));
+        }
+    }
+
+    private static boolean isDirectoryLocation(final String cacheLocation) {
+        return cacheLocation.endsWith("/") || cacheLocation.endsWith(File.separator)
+                || new File(cacheLocation).isDirectory();
     }
 
 
@@ -802,4 +843,29 @@ public class PMDConfiguration extends AbstractConfiguration {
     public boolean isIgnoreIncrementalAnalysis() {
         return ignoreIncrementalAnalysis;
     }
+
+    /**
+     * Returns the location of the file storing the metrics results between
+     * runs, or null if they are not stored. They are not stored either when
+     * incremental analysis is explicitly disabled.
+     *
+     * @return The location of the metric store, or null
+     *
+     * @see #setMetricStoreLocation(String)
+     */
+    public String getMetricStoreLocation() {
+        return isIgnoreIncrementalAnalysis() ? null : metricStoreLocation;
+    }
+
+    /**
+     * Sets the location of the file storing the metrics results between
+     * runs. The metrics of the classes and operations of unchanged files
+     * are then read from the store rather than computed again. Setting a
+     * value of {@code null} disables the store.
+     *
+     * @param metricStoreLocation The location of the metric store
+     */
+    public void setMetricStoreLocation(final String metricStoreLocation) {
+        this.metricStoreLocation = metricStoreLocation;
+    }
 }
@@ -73,6 +73,7 @@ public final class PmdAnalysis implements AutoCloseable {
     private final SimpleMessageReporter reporter = new SimpleMessageReporter(Logger.getLogger("net.sourceforge.pmd"));
 
     private boolean closed;
+    private int violationCount;
 
     /**
      * Constructs a new instance. The files paths (input files, filelist,
@@ -218,7 +219,8 @@ public final class PmdAnalysis implements AutoCloseable {
      * not throw, errors are instead accumulated into a {@link MessageReporter}.
      */
     public void performAnalysis() {
-        performAnalysisAndCollectReport();
+        // the report isn't returned, so the violations needn't be kept in memory
+        performAnalysis(false);
     }
 
     /**
@@ -230,11 +232,20 @@ public final class PmdAnalysis implements AutoCloseable {
      */
     // TODO PMD 7 @DeprecatedUntil700
     public Report performAnalysisAndCollectReport() {
+        return performAnalysis(true);
+    }
+
+    /**
+     * Runs PMD and returns its report. If the violations are not retained,
+     * they are only rendered, and the report only contains the errors. Their
+     * number is still available through {@link #getViolationCount()}.
+     */
+    Report performAnalysis(boolean retainViolations) {
         try (FileCollector files = collector) {
             files.filterLanguages(getApplicableLanguages());
             List<DataSource> dataSources = FileCollectionUtil.collectorToDataSource(files);
             startRenderers();
-            Report report = performAnalysisImpl(dataSources);
+            Report report = performAnalysisImpl(dataSources, retainViolations);
             finishRenderers();
             return report;
         }
@@ -242,6 +253,10 @@ public final class PmdAnalysis implements AutoCloseable {
 
 
     Report performAnalysisImpl(List<DataSource> sortedFiles) {
+        return performAnalysisImpl(sortedFiles, true);
+    }
+
+    private Report performAnalysisImpl(List<DataSource> sortedFiles, boolean retainViolations) {
         try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.FILE_PROCESSING)) {
             PMD.encourageToUseIncrementalAnalysis(configuration);
             Report report = new Report();
@@ -249,12 +264,23 @@ public final class PmdAnalysis implements AutoCloseable {
 
             RuleContext ctx = new RuleContext();
             ctx.setReport(report);
-            newFileProcessor(configuration).processFiles(new RuleSets(ruleSets), sortedFiles, ctx, renderers);
+            AbstractPMDProcessor processor = newFileProcessor(configuration);
+            processor.setRetainViolations(retainViolations);
+            processor.processFiles(new RuleSets(ruleSets), sortedFiles, ctx, renderers);
+            violationCount = processor.getViolationCount();
             configuration.getAnalysisCache().persist();
             return report;
         }
     }
 
+    /**
+     * Returns the number of violations found by the last analysis, even
+     * if they were not retained in its report.
+     */
+    int getViolationCount() {
+        return violationCount;
+    }
+
     private void startRenderers() {
         try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.REPORTING)) {
             for (Renderer renderer : renderers) {
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -28,6 +29,8 @@ import net.sourceforge.pmd.cache.ChecksumAware;
 import net.sourceforge.pmd.lang.Language;
 import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.AnalysisPass;
+import net.sourceforge.pmd.lang.rule.FusedRuleTraversal;
 import net.sourceforge.pmd.lang.rule.RuleReference;
 import net.sourceforge.pmd.lang.rule.XPathRule;
 import net.sourceforge.pmd.util.filter.Filter;
@@ -661,9 +664,18 @@ public class RuleSet implements ChecksumAware {
     @Deprecated
     @InternalApi
     public void apply(List<? extends Node> acuList, RuleContext ctx) {
+        apply(acuList, ctx, true);
+    }
+
+    /**
+     * Executes the rules in this ruleset against each of the given nodes,
+     * optionally skipping the rules which are applied by a {@link FusedRuleTraversal}.
+     */
+    /* package */ void apply(List<? extends Node> acuList, RuleContext ctx, boolean includeFusable) {
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.RULE)) {
             for (Rule rule : rules) {
-                if (!rule.isRuleChain() && applies(rule, ctx.getLanguageVersion())) {
+                if (!rule.isRuleChain() && (includeFusable || !FusedRuleTraversal.isFusable(rule))
+                        && applies(rule, ctx.getLanguageVersion())) {
 
                     try (TimedOperation rto = TimeTracker.startOperation(TimedOperationCategory.RULE, rule.getName())) {
                         ctx.setCurrentRule(rule);
@@ -796,6 +808,28 @@ public class RuleSet implements ChecksumAware {
         return includePatterns;
     }
 
+    /**
+     * Returns the analysis passes needed by the rules of this ruleset which
+     * apply to the given language version.
+     *
+     * @param languageVersion The language version of a file
+     *
+     * @see AnalysisPass#requiredBy(Rule)
+     * @deprecated This is internal API, removed in PMD 7. You should
+     * not use a ruleset directly.
+     */
+    @Deprecated
+    @InternalApi
+    public Set<AnalysisPass> getRequiredAnalysisPasses(LanguageVersion languageVersion) {
+        final Set<AnalysisPass> passes = EnumSet.noneOf(AnalysisPass.class);
+        for (Rule rule : rules) {
+            if (applies(rule, languageVersion)) {
+                passes.addAll(AnalysisPass.requiredBy(rule));
+            }
+        }
+        return passes;
+    }
+
     /**
      * Does any Rule for the given Language use the DFA layer?
      *
@@ -7,14 +7,19 @@ package net.sourceforge.pmd;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.AnalysisPass;
+import net.sourceforge.pmd.lang.rule.FusedRuleTraversal;
 
 /**
  * Grouping of Rules per Language in a RuleSet.
@@ -36,6 +41,11 @@ public class RuleSets {
      */
     private RuleChain ruleChain = new RuleChain();
 
+    /**
+     * Shared traversal for the rules which support it, created on first use.
+     */
+    private FusedRuleTraversal fusedTraversal;
+
     /**
      * Public constructor.
      */
@@ -84,6 +94,7 @@ public class RuleSets {
     public void addRuleSet(RuleSet ruleSet) {
         ruleSets.add(ruleSet);
         ruleChain.add(ruleSet);
+        fusedTraversal = null;
     }
 
     /**
@@ -158,9 +169,15 @@ public class RuleSets {
      */
     public void apply(List<Node> acuList, RuleContext ctx, Language language) {
         ruleChain.apply(acuList, ctx, language);
+
+        if (fusedTraversal == null) {
+            fusedTraversal = new FusedRuleTraversal(ruleSets);
+        }
+        fusedTraversal.apply(acuList, ctx);
+
         for (RuleSet ruleSet : ruleSets) {
             if (ruleSet.applies(ctx.getSourceCodeFile())) {
-                ruleSet.apply(acuList, ctx);
+                ruleSet.apply(acuList, ctx, false);
             }
         }
     }
@@ -174,6 +191,28 @@ public class RuleSets {
         }
     }
 
+    /**
+     * Returns the analysis passes needed by the rules which will be applied
+     * to the given file, i.e. the rules of the rulesets applying to the file
+     * which apply to its language version. The passes needed by the other
+     * rules, such as the type resolution of an XPath rule whose ruleset
+     * excludes the file, are skipped.
+     *
+     * @param file            The file, may be null
+     * @param languageVersion The language version of the file
+     *
+     * @see AnalysisPass#requiredBy(Rule)
+     */
+    public Set<AnalysisPass> getRequiredAnalysisPasses(File file, LanguageVersion languageVersion) {
+        final Set<AnalysisPass> passes = EnumSet.noneOf(AnalysisPass.class);
+        for (RuleSet ruleSet : ruleSets) {
+            if (ruleSet.applies(file)) {
+                passes.addAll(ruleSet.getRequiredAnalysisPasses(languageVersion));
+            }
+        }
+        return passes;
+    }
+
     /**
      * Check if the rules that apply to a source of the given language use DFA.
      *
@@ -275,6 +314,30 @@ public class RuleSets {
         }
     }
 
+    /**
+     * Retrieves a checksum of the file inclusion and exclusion patterns of
+     * the rulesets being used. Unlike {@link #getChecksum()}, this doesn't
+     * change when rules are added, removed or configured differently.
+     *
+     * @return The checksum of the file patterns of this ruleset collection.
+     */
+    public long getFilePatternsChecksum() {
+        long checksum = 1;
+        for (final RuleSet ruleSet : ruleSets) {
+            checksum = checksum * 31 + patternsChecksum(ruleSet.getFileInclusions());
+            checksum = checksum * 31 + patternsChecksum(ruleSet.getFileExclusions());
+        }
+        return checksum;
+    }
+
+    private static long patternsChecksum(List<Pattern> patterns) {
+        long checksum = 1;
+        for (final Pattern pattern : patterns) {
+            checksum = checksum * 31 + pattern.pattern().hashCode();
+        }
+        return checksum;
+    }
+
     /**
      * Retrieves a checksum of the rulesets being used. Any change to any rule
      * of any ruleset should trigger a checksum change.
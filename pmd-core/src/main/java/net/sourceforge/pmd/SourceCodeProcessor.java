@@ -4,12 +4,19 @@
 
 package net.sourceforge.pmd;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,6 +24,9 @@ import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.cache.AnalysisCache;
+import net.sourceforge.pmd.cache.AnalysisResult;
+import net.sourceforge.pmd.cache.internal.IncrementalAnalysisCache;
 import net.sourceforge.pmd.lang.AbstractParser;
 import net.sourceforge.pmd.lang.Language;
 import net.sourceforge.pmd.lang.LanguageVersion;
@@ -25,7 +35,11 @@ import net.sourceforge.pmd.lang.Parser;
 import net.sourceforge.pmd.lang.VisitorStarter;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.ParseException;
+import net.sourceforge.pmd.lang.ast.xpath.internal.XPathFunctionMemo;
+import net.sourceforge.pmd.lang.metrics.internal.MetricStore;
+import net.sourceforge.pmd.lang.rule.AnalysisPass;
 import net.sourceforge.pmd.lang.xpath.Initializer;
+import net.sourceforge.pmd.util.IOUtil;
 
 /**
  * Source code processor is internal.
@@ -38,8 +52,105 @@ public class SourceCodeProcessor {
 
     private final PMDConfiguration configuration;
 
+    /**
+     * Set once the multifile data of all files has been gathered, the rules then only read it.
+     * It's only set before the rules pass is submitted to the workers, which publishes it.
+     */
+    private boolean projectIndexed;
+
+    /**
+     * The stale rules of each rulesets this processor was called with, null if there are none.
+     * Which rules are stale doesn't change during the analysis, so the stale rules, and the rule chain
+     * built for them, are shared by all files. The rulesets of each thread are a separate copy.
+     */
+    private final Map<RuleSets, RuleSets> changedRulesCache =
+        Collections.synchronizedMap(new IdentityHashMap<RuleSets, RuleSets>());
+
+    /** The store of the metrics results of the previous runs, null if there is none. */
+    private final MetricStore metricStore;
+
     public SourceCodeProcessor(PMDConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * Creates a processor which reuses the metrics results held by the
+     * given store.
+     *
+     * @param configuration The configuration
+     * @param metricStore   The metric store of the current analysis, may be null
+     */
+    public SourceCodeProcessor(PMDConfiguration configuration, MetricStore metricStore) {
         this.configuration = configuration;
+        this.metricStore = metricStore;
+    }
+
+    /**
+     * Gathers the multifile data of a file ahead of the rules. The file is
+     * parsed, its qualified names and symbols are resolved, then the
+     * multifile facade of its language adds its classes, fields and
+     * operations to the project index. Files of languages without multifile
+     * rules are skipped. Several files may be indexed concurrently.
+     *
+     * <p>Once all files are indexed, {@link #projectIndexed()} must be called,
+     * so that the rules see the complete index.
+     *
+     * @param sourceCode The InputStream to index.
+     * @param ruleSets   The rules that will be applied to the file.
+     * @param ctx        The context of the file.
+     *
+     * @throws PMDException if the file could not be read or parsed
+     */
+    public void indexSourceCode(InputStream sourceCode, RuleSets ruleSets, RuleContext ctx) throws PMDException {
+        determineLanguage(ctx);
+        final LanguageVersion languageVersion = ctx.getLanguageVersion();
+        if (languageVersion == null || !ruleSets.applies(ctx.getSourceCodeFile())
+            || !ruleSets.usesMultifile(languageVersion.getLanguage())) {
+            return;
+        }
+
+        final LanguageVersionHandler handler = languageVersion.getLanguageVersionHandler();
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.MULTIFILE_INDEXING);
+             Reader reader = new InputStreamReader(sourceCode, configuration.getSourceEncoding())) {
+            Node rootNode = AbstractParser.doParse(PMD.parserFor(languageVersion, configuration),
+                                                   String.valueOf(ctx.getSourceCodeFile()), reader);
+            handler.getQualifiedNameResolutionFacade(configuration.getClassLoader()).start(rootNode);
+            handler.getSymbolFacade(configuration.getClassLoader()).start(rootNode);
+            handler.getMultifileFacade().start(rootNode);
+        } catch (ParseException pe) {
+            throw new PMDException("Error while parsing " + ctx.getSourceCodeFile(), pe);
+        } catch (IOException e) {
+            throw new PMDException("IO exception: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns whether the cached results of the file can be reused without
+     * reading it, for all the given rules. Such a file needs neither be
+     * indexed nor analysed. This only compares the metadata of the file
+     * with the analysis cache.
+     *
+     * @param sourceFile The file
+     * @param ruleSets   The rules that will be applied to the file
+     */
+    public boolean isUpToDate(File sourceFile, RuleSets ruleSets) {
+        if (!ruleSets.applies(sourceFile)) {
+            return true;
+        }
+        final AnalysisCache cache = configuration.getAnalysisCache();
+        return cache instanceof IncrementalAnalysisCache
+            && ((IncrementalAnalysisCache) cache).isMetadataUpToDate(sourceFile) && getChangedRules(ruleSets) == null;
+    }
+
+    /**
+     * Marks the end of the indexing pass. The multifile facades are not run
+     * by {@link #processSourceCode(InputStream, RuleSets, RuleContext)}
+     * anymore, the rules get read-only access to the index.
+     *
+     * @see #indexSourceCode(InputStream, RuleSets, RuleContext)
+     */
+    public void projectIndexed() {
+        projectIndexed = true;
     }
 
     /**
@@ -58,8 +169,29 @@ public class SourceCodeProcessor {
      * @see #processSourceCode(Reader, RuleSets, RuleContext)
      */
     public void processSourceCode(InputStream sourceCode, RuleSets ruleSets, RuleContext ctx) throws PMDException {
-        try (Reader streamReader = new InputStreamReader(sourceCode, configuration.getSourceEncoding())) {
-            processSourceCode(streamReader, ruleSets, ctx);
+        final AnalysisCache cache = configuration.getAnalysisCache();
+        final File sourceFile = ctx.getSourceCodeFile();
+        try {
+            if (!ruleSets.applies(sourceFile) || !(cache instanceof IncrementalAnalysisCache)) {
+                // without a cache, there's no need to buffer the file or compute its checksum
+                try (Reader streamReader = new InputStreamReader(sourceCode, configuration.getSourceEncoding())) {
+                    processSourceCode(streamReader, ruleSets, ctx, null);
+                }
+            } else if (((IncrementalAnalysisCache) cache).isMetadataUpToDate(sourceFile)) {
+                // the file is not read at all, unless some rules changed
+                try (Reader streamReader = new InputStreamReader(sourceCode, configuration.getSourceEncoding())) {
+                    processSourceCode(streamReader, ruleSets, ctx, Boolean.TRUE);
+                }
+            } else {
+                // read the file once, both for the checksum and for the parser
+                final byte[] contents = IOUtil.toByteArray(sourceCode);
+                final boolean upToDate = ((IncrementalAnalysisCache) cache).isUpToDate(sourceFile,
+                        AnalysisResult.computeChecksum(contents));
+                try (Reader streamReader = new InputStreamReader(new ByteArrayInputStream(contents),
+                                                                 configuration.getSourceEncoding())) {
+                    processSourceCode(streamReader, ruleSets, ctx, upToDate);
+                }
+            }
         } catch (IOException e) {
             throw new PMDException("IO exception: " + e.getMessage(), e);
         }
@@ -87,6 +219,14 @@ public class SourceCodeProcessor {
      *             not be parsed, or other error is encountered.
      */
     public void processSourceCode(Reader sourceCode, RuleSets ruleSets, RuleContext ctx) throws PMDException {
+        processSourceCode(sourceCode, ruleSets, ctx, null);
+    }
+
+    /**
+     * @param upToDate Whether the cached results of the file are up to date, null if the cache wasn't checked yet
+     */
+    private void processSourceCode(Reader sourceCode, RuleSets ruleSets, RuleContext ctx,
+                                   Boolean upToDate) throws PMDException {
         determineLanguage(ctx);
 
         // make sure custom XPath functions are initialized
@@ -94,11 +234,22 @@ public class SourceCodeProcessor {
 
         // Coarse check to see if any RuleSet applies to file, will need to do a finer RuleSet specific check later
         if (ruleSets.applies(ctx.getSourceCodeFile())) {
-            if (isCacheUpToDate(ctx)) {
-                reportCachedRuleViolations(ctx);
-            } else {
-                processSourceCodeWithoutCache(sourceCode, ruleSets, ctx);
+            processSourceCodeWithCache(sourceCode, ruleSets, ctx, upToDate != null ? upToDate : isCacheUpToDate(ctx));
+        }
+    }
+
+    private void processSourceCodeWithCache(Reader sourceCode, RuleSets ruleSets, RuleContext ctx,
+                                            boolean upToDate) throws PMDException {
+        if (upToDate) {
+            reportCachedRuleViolations(ctx);
+
+            // rules added or changed since the cache was built still need to run
+            final RuleSets changedRules = getChangedRules(ruleSets);
+            if (changedRules != null) {
+                processSourceCodeWithoutCache(sourceCode, changedRules, ctx);
             }
+        } else {
+            processSourceCodeWithoutCache(sourceCode, ruleSets, ctx);
         }
     }
 
@@ -112,6 +263,40 @@ public class SourceCodeProcessor {
         }
     }
 
+    /**
+     * Returns the rules whose cached results can't be reused, or null if there are none.
+     */
+    private RuleSets getChangedRules(final RuleSets ruleSets) {
+        if (changedRulesCache.containsKey(ruleSets)) {
+            return changedRulesCache.get(ruleSets);
+        }
+        final RuleSets changedRules = computeChangedRules(ruleSets);
+        changedRulesCache.put(ruleSets, changedRules);
+        return changedRules;
+    }
+
+    private RuleSets computeChangedRules(final RuleSets ruleSets) {
+        final AnalysisCache cache = configuration.getAnalysisCache();
+        if (!(cache instanceof IncrementalAnalysisCache)) {
+            // other caches are invalidated as a whole when the rulesets change
+            return null;
+        }
+        final List<RuleSet> changedRuleSets = new ArrayList<>();
+        for (final RuleSet ruleSet : ruleSets.getAllRuleSets()) {
+            final List<Rule> changedRules = new ArrayList<>();
+            for (final Rule rule : ruleSet.getRules()) {
+                if (!((IncrementalAnalysisCache) cache).isUpToDate(rule)) {
+                    changedRules.add(rule);
+                }
+            }
+            if (!changedRules.isEmpty()) {
+                changedRuleSets.add(RuleSet.create(ruleSet.getName(), ruleSet.getDescription(), ruleSet.getFileName(),
+                        ruleSet.getFileExclusions(), ruleSet.getFileInclusions(), changedRules));
+            }
+        }
+        return changedRuleSets.isEmpty() ? null : new RuleSets(changedRuleSets);
+    }
+
     private void processSourceCodeWithoutCache(final Reader sourceCode, final RuleSets ruleSets, final RuleContext ctx) throws PMDException {
         try {
             ruleSets.start(ctx);
@@ -160,53 +345,87 @@ public class SourceCodeProcessor {
     // return parserOptions;
     // }
 
-    private void usesDFA(LanguageVersion languageVersion, Node rootNode, RuleSets ruleSets, Language language) {
-        if (ruleSets.usesDFA(language)) {
-            try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.DFA)) {
-                VisitorStarter dataFlowFacade = languageVersion.getLanguageVersionHandler().getDataFlowFacade();
-                dataFlowFacade.start(rootNode);
-            }
+    private void runDFA(Node rootNode, LanguageVersionHandler languageVersionHandler) {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.DFA)) {
+            VisitorStarter dataFlowFacade = languageVersionHandler.getDataFlowFacade();
+            dataFlowFacade.start(rootNode);
         }
     }
 
-    private void usesTypeResolution(LanguageVersion languageVersion, Node rootNode, RuleSets ruleSets,
-            Language language) {
-
-        if (ruleSets.usesTypeResolution(language)) {
-            try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.TYPE_RESOLUTION)) {
-                languageVersion.getLanguageVersionHandler().getTypeResolutionFacade(configuration.getClassLoader())
-                        .start(rootNode);
-            }
+    private void resolveTypes(Node rootNode, LanguageVersionHandler languageVersionHandler) {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.TYPE_RESOLUTION)) {
+            languageVersionHandler
+                    .getTypeResolutionFacade(configuration.getClassLoader(), configuration.isLazyTypeResolution())
+                    .start(rootNode);
         }
     }
 
+    private void runMultifile(Node rootNode, LanguageVersionHandler languageVersionHandler) {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.MULTIFILE_ANALYSIS)) {
+            languageVersionHandler.getMultifileFacade().start(rootNode);
+        }
+    }
 
-    private void usesMultifile(Node rootNode, LanguageVersionHandler languageVersionHandler, RuleSets ruleSets,
-                               Language language) {
-
-        if (ruleSets.usesMultifile(language)) {
-            try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.MULTIFILE_ANALYSIS)) {
-                languageVersionHandler.getMultifileFacade().start(rootNode);
+    /**
+     * Runs the analysis passes needed by the rules which will be applied to
+     * the file. The passes no rule needs are counted in the timing report.
+     */
+    private void runAnalysisPasses(Node rootNode, LanguageVersionHandler languageVersionHandler,
+                                   Set<AnalysisPass> passes) {
+        for (AnalysisPass pass : AnalysisPass.values()) {
+            if (!passes.contains(pass)) {
+                if (pass != AnalysisPass.MULTIFILE || !projectIndexed) {
+                    TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_PASS_SKIP, pass.displayName()).close(1);
+                }
+                continue;
+            }
+            switch (pass) {
+            case QUALIFIED_NAMES:
+                resolveQualifiedNames(rootNode, languageVersionHandler);
+                break;
+            case SYMBOL_TABLE:
+                symbolFacade(rootNode, languageVersionHandler);
+                break;
+            case DFA:
+                runDFA(rootNode, languageVersionHandler);
+                break;
+            case TYPE_RESOLUTION:
+                resolveTypes(rootNode, languageVersionHandler);
+                break;
+            case MULTIFILE:
+                // the index was completed before the rules run
+                if (!projectIndexed) {
+                    runMultifile(rootNode, languageVersionHandler);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown analysis pass " + pass);
             }
         }
     }
 
-
-    private void processSource(Reader sourceCode, RuleSets ruleSets, RuleContext ctx) {
+    private void processSource(Reader sourceCode, RuleSets ruleSets, RuleContext ctx) throws IOException {
         LanguageVersion languageVersion = ctx.getLanguageVersion();
         LanguageVersionHandler languageVersionHandler = languageVersion.getLanguageVersionHandler();
         Parser parser = PMD.parserFor(languageVersion, configuration);
 
-        Node rootNode = parse(ctx, sourceCode, parser);
-        resolveQualifiedNames(rootNode, languageVersionHandler);
-        symbolFacade(rootNode, languageVersionHandler);
+        Node rootNode;
+        if (metricStore != null) {
+            // the stored metrics are keyed by the source of the file
+            String source = IOUtil.readToString(sourceCode);
+            rootNode = parse(ctx, new StringReader(source), parser);
+            metricStore.attach(rootNode, source);
+        } else {
+            rootNode = parse(ctx, sourceCode, parser);
+        }
+        // only the rules which apply to this file and language version matter
+        runAnalysisPasses(rootNode, languageVersionHandler,
+                          ruleSets.getRequiredAnalysisPasses(ctx.getSourceCodeFile(), languageVersion));
         Language language = languageVersion.getLanguage();
-        usesDFA(languageVersion, rootNode, ruleSets, language);
-        usesTypeResolution(languageVersion, rootNode, ruleSets, language);
-        usesMultifile(rootNode, languageVersionHandler, ruleSets, language);
 
         List<Node> acus = Collections.singletonList(rootNode);
         ruleSets.apply(acus, ctx, language);
+        XPathFunctionMemo.recordStatistics(rootNode);
     }
 
     private void determineLanguage(RuleContext ctx) {
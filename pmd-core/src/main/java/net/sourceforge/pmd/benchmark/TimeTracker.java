@@ -130,10 +130,56 @@ public final class TimeTracker {
             return NOOP_TIMED_OPERATION;
         }
 
-        TIMER_ENTRIES.get().add(new TimerEntry(category, label));
+        TIMER_ENTRIES.get().add(new TimerEntry(category, label, true));
         return new TimedOperationImpl();
     }
 
+    /**
+     * Starts tracking a part of an operation, which is interleaved with other
+     * operations, eg a rule applied on some nodes of a traversal shared with
+     * other rules. The time of the parts is accumulated like the time of any
+     * operation, but parts are not counted as calls. The operation is counted
+     * once with {@link #countOperation(TimedOperationCategory, String)}.
+     *
+     * @param category The category under which to track the operation.
+     * @param label A label to be added to the category. Allows to differentiate measures within a single category.
+     * @return The current timed operation being tracked.
+     */
+    public static TimedOperation startOperationPart(final TimedOperationCategory category, final String label) {
+        if (!trackTime) {
+            return NOOP_TIMED_OPERATION;
+        }
+
+        TIMER_ENTRIES.get().add(new TimerEntry(category, label, false));
+        return new TimedOperationImpl();
+    }
+
+    /**
+     * Counts a call of an operation whose time was tracked in parts.
+     *
+     * @param category The category under which the operation is tracked.
+     * @param label The label of the operation.
+     *
+     * @see #startOperationPart(TimedOperationCategory, String)
+     */
+    public static void countOperation(final TimedOperationCategory category, final String label) {
+        if (!trackTime) {
+            return;
+        }
+
+        getResult(new TimedOperationKey(category, label)).callCount.getAndIncrement();
+    }
+
+    private static TimedResult getResult(final TimedOperationKey operation) {
+        // Compute if absent
+        TimedResult result = ACCUMULATED_RESULTS.get(operation);
+        if (result == null) {
+            ACCUMULATED_RESULTS.putIfAbsent(operation, new TimedResult());
+            result = ACCUMULATED_RESULTS.get(operation);
+        }
+        return result;
+    }
+
     /**
      * Finishes tracking an operation.
      * @param extraDataCounter An optional additional data counter to track along the measurements.
@@ -147,13 +193,7 @@ public final class TimeTracker {
 
         final Queue<TimerEntry> queue = TIMER_ENTRIES.get();
         final TimerEntry timerEntry = queue.remove();
-
-        // Compute if absent
-        TimedResult result = ACCUMULATED_RESULTS.get(timerEntry.operation);
-        if (result == null) {
-            ACCUMULATED_RESULTS.putIfAbsent(timerEntry.operation, new TimedResult());
-            result = ACCUMULATED_RESULTS.get(timerEntry.operation);
-        }
+        final TimedResult result = getResult(timerEntry.operation);
 
         // Update counters and let next element on the stack ignore the time we spent
         final long delta = result.accumulate(timerEntry, extraDataCounter);
@@ -168,11 +208,13 @@ public final class TimeTracker {
     private static class TimerEntry {
         /* package */ final TimedOperationKey operation;
         /* package */ final long start;
+        /* package */ final boolean counted;
         /* package */ long inNestedOperationsNanos = 0;
 
-        /* package */ TimerEntry(final TimedOperationCategory category, final String label) {
+        /* package */ TimerEntry(final TimedOperationCategory category, final String label, final boolean counted) {
             this.operation = new TimedOperationKey(category, label);
             this.start = System.nanoTime();
+            this.counted = counted;
         }
 
         @Override
@@ -201,7 +243,9 @@ public final class TimeTracker {
 
             totalTimeNanos.getAndAdd(delta);
             selfTimeNanos.getAndAdd(delta - timerEntry.inNestedOperationsNanos);
-            callCount.getAndIncrement();
+            if (timerEntry.counted) {
+                callCount.getAndIncrement();
+            }
             extraDataCounter.getAndAdd(extraData);
 
             return delta;
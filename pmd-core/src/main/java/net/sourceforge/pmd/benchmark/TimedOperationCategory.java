@@ -26,7 +26,13 @@ public enum TimedOperationCategory {
     REPORTING,
     FILE_PROCESSING,
     ANALYSIS_CACHE,
-    UNACCOUNTED;
+    UNACCOUNTED,
+    FILE_SCHEDULING,
+    XPATH_RULE_SKIP,
+    CLASS_LOADER,
+    MULTIFILE_INDEXING,
+    ANALYSIS_PASS_SKIP,
+    XPATH_FUNCTION;
 
     public String displayName() {
         final String[] parts = name().toLowerCase(Locale.getDefault()).split("_");
@@ -17,7 +17,10 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
@@ -32,6 +35,7 @@ import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.cache.internal.ClasspathFingerprinter;
+import net.sourceforge.pmd.cache.internal.IncrementalAnalysisCache;
 import net.sourceforge.pmd.stat.Metric;
 import net.sourceforge.pmd.util.IOUtil;
 
@@ -42,7 +46,7 @@ import net.sourceforge.pmd.util.IOUtil;
  */
 @Deprecated
 @InternalApi
-public abstract class AbstractAnalysisCache implements AnalysisCache {
+public abstract class AbstractAnalysisCache implements IncrementalAnalysisCache {
 
     protected static final Logger LOG = Logger.getLogger(AbstractAnalysisCache.class.getName());
     protected static final ClasspathFingerprinter FINGERPRINTER = new ClasspathFingerprinter();
@@ -53,6 +57,14 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
     protected long rulesetChecksum;
     protected long auxClassPathChecksum;
     protected long executionClassPathChecksum;
+    protected long filePatternsChecksum;
+
+    /** Fingerprints of the rules the cached results were computed with, keyed by rule key. */
+    protected final Map<String, Long> ruleFingerprints = new HashMap<>();
+
+    /** Keys of the rules whose cached results can't be reused, because they were added or changed. */
+    private Set<String> changedRules = Collections.emptySet();
+    private boolean rulesetsChanged;
 
     /**
      * Creates a new empty cache
@@ -65,9 +77,37 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
 
     @Override
     public boolean isUpToDate(final File sourceFile) {
+        return isMetadataUpToDate(sourceFile) || isUpToDate(sourceFile, new AnalysisResult(sourceFile));
+    }
+
+    @Override
+    public boolean isUpToDate(final File sourceFile, final long checksum) {
+        return isUpToDate(sourceFile, new AnalysisResult(sourceFile, checksum));
+    }
+
+    @Override
+    public boolean isMetadataUpToDate(final File sourceFile) {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "metadata check")) {
+            final AnalysisResult analysisResult = fileResultsCache.get(sourceFile.getPath());
+            if (analysisResult == null) {
+                return false;
+            }
+
+            // Same size, modification time and file key, assume the contents didn't change either
+            final AnalysisResult updatedResult = new AnalysisResult(sourceFile, analysisResult.getFileChecksum());
+            if (!analysisResult.hasSameMetadata(updatedResult)) {
+                return false;
+            }
+
+            updatedResultsCache.put(sourceFile.getPath(), updatedResult);
+            LOG.fine("Incremental Analysis cache HIT - file metadata unchanged");
+            return true;
+        }
+    }
+
+    private boolean isUpToDate(final File sourceFile, final AnalysisResult updatedResult) {
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "up-to-date check")) {
             // There is a new file being analyzed, prepare entry in updated cache
-            final AnalysisResult updatedResult = new AnalysisResult(sourceFile);
             updatedResultsCache.put(sourceFile.getPath(), updatedResult);
 
             // Now check the old cache
@@ -99,7 +139,39 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
             return Collections.emptyList();
         }
 
-        return analysisResult.getViolations();
+        if (!rulesetsChanged) {
+            return analysisResult.getViolations();
+        }
+
+        // drop the violations of rules that were removed or changed, the latter are run again
+        final List<RuleViolation> violations = new ArrayList<>();
+        for (final RuleViolation violation : analysisResult.getViolations()) {
+            final Rule rule = violation.getRule();
+            if (rule != null && isUpToDate(rule)) {
+                violations.add(violation);
+            }
+        }
+        return violations;
+    }
+
+    @Override
+    public boolean isUpToDate(final Rule rule) {
+        return isRuleUpToDate(CachedRuleMapper.getRuleKey(rule));
+    }
+
+    /**
+     * Returns true if the cached results of the rule with the given key can be reused.
+     */
+    protected boolean isRuleUpToDate(final String ruleKey) {
+        return changedRules.isEmpty() || !changedRules.contains(ruleKey);
+    }
+
+    /**
+     * Returns true if some rules were added or changed since the cache was written,
+     * while the results of the other rules are still valid.
+     */
+    protected boolean hasChangedRules() {
+        return rulesetsChanged;
     }
 
     @Override
@@ -119,10 +191,23 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
     public void checkValidity(final RuleSets ruleSets, final ClassLoader auxclassPathClassLoader) {
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "validity check")) {
             boolean cacheIsValid = cacheExists();
+            ruleMapper.initialize(ruleSets);
+            changedRules = Collections.emptySet();
+            rulesetsChanged = false;
 
             if (cacheIsValid && ruleSets.getChecksum() != rulesetChecksum) {
-                LOG.info("Analysis cache invalidated, rulesets changed.");
-                cacheIsValid = false;
+                // Only the results of added or changed rules need to be computed again
+                final Set<String> currentChangedRules = ruleMapper.getChangedRules(ruleFingerprints);
+                if (ruleSets.getFilePatternsChecksum() != filePatternsChecksum
+                        || currentChangedRules.size() == ruleMapper.getRuleFingerprints().size()) {
+                    LOG.info("Analysis cache invalidated, rulesets changed.");
+                    cacheIsValid = false;
+                } else {
+                    LOG.info("Analysis cache partially invalidated, " + currentChangedRules.size()
+                            + " rules added or changed.");
+                    changedRules = currentChangedRules;
+                    rulesetsChanged = true;
+                }
             }
 
             final long currentAuxClassPathChecksum;
@@ -155,13 +240,15 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
             if (!cacheIsValid) {
                 // Clear the cache
                 fileResultsCache.clear();
+                changedRules = Collections.emptySet();
+                rulesetsChanged = false;
             }
 
             // Update the local checksums
             rulesetChecksum = ruleSets.getChecksum();
             auxClassPathChecksum = currentAuxClassPathChecksum;
             executionClassPathChecksum = currentExecutionClassPathChecksum;
-            ruleMapper.initialize(ruleSets);
+            filePatternsChecksum = ruleSets.getFilePatternsChecksum();
         }
     }
 
@@ -4,48 +4,105 @@
 
 package net.sourceforge.pmd.cache;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.Adler32;
-import java.util.zip.CheckedInputStream;
+import java.util.zip.CRC32;
 
 import net.sourceforge.pmd.RuleViolation;
 import net.sourceforge.pmd.annotation.InternalApi;
-import net.sourceforge.pmd.util.IOUtil;
 
 /**
  * The result of a single file analysis.
- * Includes a checksum of the file and the complete list of violations detected.
+ * Includes a checksum of the file, its metadata (size, modification time
+ * and file key) at the time it was analyzed, and the complete list of violations detected.
  * @deprecated This is internal API, will be hidden with 7.0.0
  */
 @Deprecated
 @InternalApi
 public class AnalysisResult {
 
+    private static final long UNKNOWN = -1;
+
+    /**
+     * Files modified less than this many milliseconds before their metadata is read may still be
+     * modified again without their modification time changing, depending on the resolution of
+     * the file system. Their metadata is not trusted, the checksum is always compared instead.
+     */
+    private static final long RACY_MODIFICATION_WINDOW = 2000;
+
     private final long fileChecksum;
+    private final long fileSize;
+    private final long lastModified;
+    private final String fileKey;
     private final List<RuleViolation> violations;
 
     public AnalysisResult(final long fileChecksum, final List<RuleViolation> violations) {
+        this(fileChecksum, UNKNOWN, UNKNOWN, "", violations);
+    }
+
+    public AnalysisResult(final long fileChecksum, final long fileSize, final long lastModified,
+                          final String fileKey, final List<RuleViolation> violations) {
         this.fileChecksum = fileChecksum;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
         this.violations = violations;
     }
 
     public AnalysisResult(final File sourceFile) {
-        this(computeFileChecksum(sourceFile), new ArrayList<RuleViolation>());
+        this(sourceFile, computeFileChecksum(sourceFile));
+    }
+
+    /**
+     * Creates an empty result for the given file with an already known checksum.
+     * Only the metadata of the file is read.
+     */
+    /* package */ AnalysisResult(final File sourceFile, final long fileChecksum) {
+        this(fileChecksum, readAttributes(sourceFile));
+    }
+
+    private AnalysisResult(final long fileChecksum, final BasicFileAttributes attributes) {
+        this(fileChecksum,
+             attributes == null ? UNKNOWN : attributes.size(),
+             attributes == null ? UNKNOWN : trustedModificationTime(attributes.lastModifiedTime().toMillis()),
+             attributes == null || attributes.fileKey() == null ? "" : attributes.fileKey().toString(),
+             new ArrayList<RuleViolation>());
+    }
+
+    private static long trustedModificationTime(final long lastModified) {
+        if (lastModified > System.currentTimeMillis() - RACY_MODIFICATION_WINDOW) {
+            // recently modified, or modified in the future according to our clock
+            return UNKNOWN;
+        }
+        return lastModified;
     }
 
-    private static long computeFileChecksum(final File sourceFile) {
-        try (
-            CheckedInputStream stream = new CheckedInputStream(
-                new BufferedInputStream(Files.newInputStream(sourceFile.toPath())), new Adler32());
-        ) {
-            // Just read it, the CheckedInputStream will update the checksum on it's own
-            IOUtil.skipFully(stream, sourceFile.length());
-            return stream.getChecksum().getValue();
+    private static BasicFileAttributes readAttributes(final File sourceFile) {
+        try {
+            return Files.readAttributes(sourceFile.toPath(), BasicFileAttributes.class);
+        } catch (final IOException ignored) {
+            // the metadata is unknown, the checksum has to be used
+            return null;
+        }
+    }
+
+    /* package */ static long computeFileChecksum(final File sourceFile) {
+        try (InputStream stream = Files.newInputStream(sourceFile.toPath())) {
+            final Adler32 adler32 = new Adler32();
+            final CRC32 crc32 = new CRC32();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                adler32.update(buffer, 0, read);
+                crc32.update(buffer, 0, read);
+            }
+            return combine(crc32, adler32);
         } catch (final IOException ignored) {
             // We don't really care, if it's unreadable
             // the analysis will fail and report the error on it's own since the checksum won't match
@@ -57,10 +114,57 @@ public class AnalysisResult {
         return System.currentTimeMillis();
     }
 
+    /**
+     * Computes the checksum of the given file contents. This is the same
+     * checksum {@link #AnalysisResult(File)} computes by reading the file.
+     * It's made of a CRC32 and an Adler32 of the contents, 64 bits in total,
+     * so that it can also be used to address cache entries by contents.
+     *
+     * @param contents The complete contents of a file
+     * @return The checksum
+     */
+    public static long computeChecksum(final byte[] contents) {
+        final Adler32 adler32 = new Adler32();
+        adler32.update(contents, 0, contents.length);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(contents, 0, contents.length);
+        return combine(crc32, adler32);
+    }
+
+    private static long combine(final CRC32 crc32, final Adler32 adler32) {
+        return crc32.getValue() << 32 | adler32.getValue();
+    }
+
+    /**
+     * Returns true if the given result was computed on a file with the
+     * same size, modification time and file key as this one. In that case
+     * the file is assumed not to have changed, without comparing checksums.
+     * Files modified just before their metadata was read never have the same metadata.
+     */
+    /* package */ boolean hasSameMetadata(final AnalysisResult other) {
+        return fileSize != UNKNOWN
+                && lastModified != UNKNOWN
+                && fileSize == other.fileSize
+                && lastModified == other.lastModified
+                && fileKey.equals(other.fileKey);
+    }
+
     public long getFileChecksum() {
         return fileChecksum;
     }
 
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
     public List<RuleViolation> getViolations() {
         return violations;
     }
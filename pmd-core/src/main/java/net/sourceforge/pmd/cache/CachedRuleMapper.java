@@ -4,15 +4,24 @@
 
 package net.sourceforge.pmd.cache;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import net.sourceforge.pmd.Rule;
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
 
 /**
  * A mapper from rule class names to rule instances for cached rules.
+ * Also computes a fingerprint of the configuration of each rule, which allows
+ * to tell which rules changed between two analyses.
  *
  * @deprecated This is internal API, will be hidden with 7.0.0
  */
@@ -20,7 +29,11 @@ import net.sourceforge.pmd.annotation.InternalApi;
 @InternalApi
 public class CachedRuleMapper {
 
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
     private final Map<String, Rule> cachedRulesInstances = new HashMap<>();
+    private final Map<String, Long> ruleFingerprints = new HashMap<>();
 
     /**
      * Finds a rule instance for the given rule class name, name and target language
@@ -38,12 +51,74 @@ public class CachedRuleMapper {
      * @param rs The rulesets from which to retrieve rules.
      */
     public void initialize(final RuleSets rs) {
+        ruleFingerprints.clear();
         for (final Rule r : rs.getAllRules()) {
-            cachedRulesInstances.put(getRuleKey(r.getRuleClass(), r.getName(), r.getLanguage().getTerseName()), r);
+            final String key = getRuleKey(r);
+            cachedRulesInstances.put(key, r);
+            ruleFingerprints.put(key, computeFingerprint(r));
+        }
+    }
+
+    /**
+     * Returns the fingerprints of the rules the mapper was initialized with, keyed by rule key.
+     */
+    public Map<String, Long> getRuleFingerprints() {
+        return Collections.unmodifiableMap(ruleFingerprints);
+    }
+
+    /**
+     * Returns the keys of the rules that are not part of the given fingerprints,
+     * or whose fingerprint changed. Cached results of these rules can't be reused.
+     *
+     * @param previousFingerprints The fingerprints of the rules the cache was built with
+     */
+    public Set<String> getChangedRules(final Map<String, Long> previousFingerprints) {
+        final Set<String> changed = new HashSet<>();
+        for (final Map.Entry<String, Long> entry : ruleFingerprints.entrySet()) {
+            if (!entry.getValue().equals(previousFingerprints.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
         }
+        return changed;
+    }
+
+    /* package */ static String getRuleKey(final Rule rule) {
+        return getRuleKey(rule.getRuleClass(), rule.getName(), rule.getLanguage().getTerseName());
     }
 
-    private String getRuleKey(final String className, final String ruleName, final String languageName) {
+    private static String getRuleKey(final String className, final String ruleName, final String languageName) {
         return className + "$$" + ruleName + "$$" + languageName;
     }
+
+    /**
+     * Computes a fingerprint of everything that may change the violations reported by a rule:
+     * its identity, priority, message, language versions and property values.
+     */
+    /* package */ static long computeFingerprint(final Rule rule) {
+        final StringBuilder sb = new StringBuilder(getRuleKey(rule))
+            .append('|').append(rule.getPriority())
+            .append('|').append(rule.getMessage())
+            .append('|').append(versionName(rule.getMinimumLanguageVersion()))
+            .append('|').append(versionName(rule.getMaximumLanguageVersion()));
+
+        // sort by name, so that the order in which properties are defined doesn't matter
+        final Map<String, String> properties = new TreeMap<>();
+        for (final PropertyDescriptor<?> descriptor : rule.getPropertyDescriptors()) {
+            properties.put(descriptor.name(), String.valueOf(rule.getProperty(descriptor)));
+        }
+        for (final Map.Entry<String, String> property : properties.entrySet()) {
+            sb.append('|').append(property.getKey()).append('=').append(property.getValue());
+        }
+
+        long hash = FNV_OFFSET_BASIS;
+        for (final byte b : sb.toString().getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static String versionName(final LanguageVersion version) {
+        return version == null ? "" : version.getTerseName();
+    }
 }
@@ -0,0 +1,661 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.LanguageVersionDiscoverer;
+
+/**
+ * An analysis cache backed by a directory, which can be shared between
+ * checkouts of the same sources at different paths, CI shards, and PMD
+ * processes running concurrently.
+ *
+ * <p>Entries are content-addressed: each analyzed file is stored under a key
+ * made of the checksum and size of its contents, its language version, the
+ * fingerprints of the rules of the rulesets whose include/exclude patterns match
+ * its path, and a fingerprint of the PMD version and classpath. A file analyzed
+ * in one checkout is a hit for the same file in any other checkout, and CI shards
+ * or branches running different rulesets keep separate entries. Since the key
+ * doesn't depend on the path of the file, checking a file always needs its
+ * contents.
+ *
+ * <p>The fingerprints of the rules of the last run are also kept in a manifest.
+ * When some rules were added or changed since, a file without an entry for the
+ * current rules falls back to the entry of the previous rules, and only the
+ * changed rules are run again, like in {@link FileAnalysisCache}. Each entry
+ * records the fingerprint of the rules it holds the results of, and is only
+ * used if the unchanged rules still have these fingerprints.
+ *
+ * <p>Entries are written to a temporary file and atomically moved in place, so
+ * that concurrent writers never expose partial entries. An index file records
+ * the size and last use of each entry, the least recently used entries are
+ * deleted when the entries grow larger than the maximum size.
+ *
+ * @deprecated This is internal API, will be hidden with 7.0.0
+ */
+@Deprecated
+@InternalApi
+public class DirectoryAnalysisCache extends AbstractAnalysisCache {
+
+    /** Default maximum size of the cache directory, in bytes. */
+    public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+    private static final int FORMAT_VERSION = 2;
+    private static final String ENTRY_SUFFIX = ".pmdcache";
+    private static final String MANIFEST_FILE = "rules";
+    private static final String INDEX_FILE = "index";
+    private static final String TEMP_DIRECTORY = "tmp";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Temporary files older than this were left over by a process that died, in milliseconds. */
+    private static final long STALE_TEMP_FILE_AGE = 60L * 60 * 1000;
+
+    /** The index is compacted once it holds this many times more records than entries. */
+    private static final int INDEX_COMPACTION_RATIO = 2;
+
+    /** File locks are held by the whole JVM, caches of the same JVM must update the index in turn. */
+    private static final Object INDEX_LOCK = new Object();
+
+    private final File cacheDirectory;
+    private final long maxSize;
+    private final LanguageVersionDiscoverer languageVersionDiscoverer;
+
+    /** Entry keys of the files checked in this run, keyed by file path. */
+    private final Map<String, String> entryKeys = new ConcurrentHashMap<>();
+
+    /** Paths of the files whose entry already exists or was written, these need not be written again. */
+    private final Set<String> hits = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** Violations of the files whose entry was found, keyed by file path. */
+    private final Map<String, List<RuleViolation>> cachedViolations = new ConcurrentHashMap<>();
+
+    /** Sizes of the entries read or written in this run, keyed by entry key. */
+    private final Map<String, Long> usedEntries = new ConcurrentHashMap<>();
+
+    private RuleSets ruleSets = new RuleSets();
+    /** Fingerprint of the rules of each ruleset, in the order of the rulesets. */
+    private List<String> ruleSetFingerprints = Collections.emptyList();
+    /** Same, with the fingerprints of the previous run, when some rules changed since. */
+    private List<String> previousRuleSetFingerprints = Collections.emptyList();
+    private boolean manifestLoaded;
+    private String fingerprint = "";
+
+    /**
+     * Creates a new cache backed by the given directory, with the default maximum size.
+     * @param cacheDirectory The directory in which to store the analysis cache
+     */
+    public DirectoryAnalysisCache(final File cacheDirectory) {
+        this(cacheDirectory, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new cache backed by the given directory, which determines language
+     * versions from file extensions only.
+     * @param cacheDirectory The directory in which to store the analysis cache
+     * @param maxSize The size in bytes above which the least recently used entries are evicted
+     */
+    public DirectoryAnalysisCache(final File cacheDirectory, final long maxSize) {
+        this(cacheDirectory, maxSize, new LanguageVersionDiscoverer());
+    }
+
+    /**
+     * Creates a new cache backed by the given directory.
+     * @param cacheDirectory The directory in which to store the analysis cache
+     * @param maxSize The size in bytes above which the least recently used entries are evicted
+     * @param languageVersionDiscoverer Determines the language version files are analyzed with
+     */
+    public DirectoryAnalysisCache(final File cacheDirectory, final long maxSize,
+                                  final LanguageVersionDiscoverer languageVersionDiscoverer) {
+        super();
+        this.cacheDirectory = cacheDirectory;
+        this.maxSize = maxSize;
+        this.languageVersionDiscoverer = languageVersionDiscoverer;
+    }
+
+    @Override
+    public void checkValidity(final RuleSets ruleSets, final ClassLoader auxclassPathClassLoader) {
+        // the fingerprints of the previous run tell which rules changed
+        loadManifest();
+        super.checkValidity(ruleSets, auxclassPathClassLoader);
+        this.ruleSets = ruleSets;
+
+        // the auxclasspath only matters if some rule uses it
+        boolean usesAuxClasspath = false;
+        for (final Rule r : ruleSets.getAllRules()) {
+            if (r.isDfa() || r.isTypeResolution()) {
+                usesAuxClasspath = true;
+                break;
+            }
+        }
+
+        fingerprint = pmdVersion
+                + '-' + Long.toHexString(usesAuxClasspath ? auxClassPathChecksum : 0L)
+                + '-' + Long.toHexString(executionClassPathChecksum);
+        ruleSetFingerprints = fingerprintRuleSets(ruleSets, ruleMapper.getRuleFingerprints());
+        previousRuleSetFingerprints = hasChangedRules()
+                ? fingerprintRuleSets(ruleSets, ruleFingerprints)
+                : Collections.<String>emptyList();
+    }
+
+    /**
+     * Computes the fingerprint of the rules of each ruleset, from the given
+     * fingerprints of the rules.
+     */
+    private static List<String> fingerprintRuleSets(final RuleSets ruleSets, final Map<String, Long> fingerprints) {
+        final List<String> result = new ArrayList<>();
+        for (final RuleSet ruleSet : ruleSets.getAllRuleSets()) {
+            // sorted, so that the order of the rules in the ruleset doesn't matter
+            final Map<String, Long> ruleFingerprints = new TreeMap<>();
+            for (final Rule rule : ruleSet.getRules()) {
+                final String ruleKey = CachedRuleMapper.getRuleKey(rule);
+                ruleFingerprints.put(ruleKey, fingerprints.get(ruleKey));
+            }
+
+            final StringBuilder sb = new StringBuilder();
+            for (final Map.Entry<String, Long> rule : ruleFingerprints.entrySet()) {
+                sb.append(rule.getKey()).append('=')
+                  .append(rule.getValue() == null ? "-" : Long.toHexString(rule.getValue())).append(';');
+            }
+            result.add(sha256(sb.toString()));
+        }
+        return result;
+    }
+
+    private void loadManifest() {
+        final Path manifest = cacheDirectory.toPath().resolve(MANIFEST_FILE);
+        if (!Files.isRegularFile(manifest)) {
+            return;
+        }
+
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+            if (stream.readInt() != FORMAT_VERSION || !PMDVersion.VERSION.equals(stream.readUTF())) {
+                LOG.info("Analysis cache manifest ignored, cache format or PMD version changed.");
+                return;
+            }
+
+            rulesetChecksum = stream.readLong();
+            auxClassPathChecksum = stream.readLong();
+            executionClassPathChecksum = stream.readLong();
+            filePatternsChecksum = stream.readLong();
+            final int countRules = stream.readInt();
+            for (int i = 0; i < countRules; i++) {
+                ruleFingerprints.put(stream.readUTF(), stream.readLong());
+            }
+            manifestLoaded = true;
+        } catch (final IOException e) {
+            // written concurrently or corrupted, it only serves to reuse the results of unchanged rules
+            ruleFingerprints.clear();
+            rulesetChecksum = 0;
+            auxClassPathChecksum = 0;
+            executionClassPathChecksum = 0;
+            filePatternsChecksum = 0;
+            LOG.warning("Could not load analysis cache manifest. " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isUpToDate(final File sourceFile) {
+        return isUpToDate(sourceFile, AnalysisResult.computeFileChecksum(sourceFile));
+    }
+
+    @Override
+    public boolean isUpToDate(final File sourceFile, final long checksum) {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "up-to-date check")) {
+            final String path = sourceFile.getPath();
+
+            // There is a new file being analyzed, prepare entry in updated cache
+            updatedResultsCache.put(path, new AnalysisResult(checksum, new ArrayList<RuleViolation>()));
+            hits.remove(path);
+            cachedViolations.remove(path);
+
+            final String key = computeEntryKey(sourceFile, checksum, ruleSetFingerprints);
+            entryKeys.put(path, key);
+
+            List<RuleViolation> violations = readEntry(key, path);
+            if (violations == null && hasChangedRules()) {
+                // the entry of the previous rules holds the results of the unchanged rules,
+                // the results of all rules are then written under the key of the current rules
+                violations = readEntry(computeEntryKey(sourceFile, checksum, previousRuleSetFingerprints), path);
+            }
+            if (violations == null) {
+                LOG.fine("Incremental Analysis cache MISS - no entry for contents");
+                return false;
+            }
+
+            cachedViolations.put(path, violations);
+            if (!hasChangedRules()) {
+                // otherwise the entry is written again, with the results of the changed rules
+                hits.add(path);
+            }
+            LOG.fine("Incremental Analysis cache HIT");
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isMetadataUpToDate(final File sourceFile) {
+        // entries don't depend on the location of the file, so neither on its metadata
+        return false;
+    }
+
+    @Override
+    public List<RuleViolation> getCachedViolations(final File sourceFile) {
+        final List<RuleViolation> violations = cachedViolations.get(sourceFile.getPath());
+        return violations == null ? Collections.<RuleViolation>emptyList() : violations;
+    }
+
+    @Override
+    public void analysisFailed(final File sourceFile) {
+        super.analysisFailed(sourceFile);
+        entryKeys.remove(sourceFile.getPath());
+        hits.remove(sourceFile.getPath());
+        cachedViolations.remove(sourceFile.getPath());
+    }
+
+    @Override
+    public void persist() {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "persist")) {
+            if (cacheDirectory.isFile()) {
+                LOG.severe("Cannot persist the cache, the given path points to a file.");
+                return;
+            }
+
+            boolean written = false;
+            for (final Map.Entry<String, AnalysisResult> resultEntry : updatedResultsCache.entrySet()) {
+                final String key = entryKeys.get(resultEntry.getKey());
+                if (key != null && !hits.contains(resultEntry.getKey())) {
+                    try {
+                        usedEntries.put(key, writeEntry(key, resultEntry.getValue().getViolations()));
+                        hits.add(resultEntry.getKey());
+                        written = true;
+                    } catch (final IOException e) {
+                        LOG.severe("Could not persist analysis cache entry to directory. " + e.getMessage());
+                    }
+                }
+            }
+
+            try {
+                writeManifest();
+            } catch (final IOException e) {
+                LOG.severe("Could not persist analysis cache manifest to directory. " + e.getMessage());
+            }
+
+            if (!usedEntries.isEmpty()) {
+                try {
+                    updateIndex(written);
+                } catch (final IOException e) {
+                    LOG.warning("Could not update the analysis cache index. " + e.getMessage());
+                }
+            }
+            cachedViolations.clear();
+        }
+    }
+
+    @Override
+    protected boolean cacheExists() {
+        return manifestLoaded;
+    }
+
+    /**
+     * Computes the key of the entry of a file. Besides its contents, the key covers
+     * everything that determines which rules are applied to the file, and how.
+     *
+     * @param ruleSetFingerprints The fingerprint of the rules of each ruleset
+     */
+    private String computeEntryKey(final File sourceFile, final long checksum, final List<String> ruleSetFingerprints) {
+        final LanguageVersion languageVersion = languageVersionDiscoverer.getDefaultLanguageVersionForFile(sourceFile);
+        final StringBuilder key = new StringBuilder();
+        key.append(Long.toHexString(checksum)).append('-').append(Long.toHexString(sourceFile.length()))
+           .append('-').append(fingerprint)
+           .append('-').append(languageVersion == null ? "" : languageVersion.getTerseName())
+           .append('-');
+        // rulesets may include or exclude the file depending on its path
+        final RuleSet[] allRuleSets = ruleSets.getAllRuleSets();
+        for (int i = 0; i < allRuleSets.length; i++) {
+            key.append(allRuleSets[i].applies(sourceFile) ? ruleSetFingerprints.get(i) : "-").append(',');
+        }
+        return sha256(key.toString());
+    }
+
+    private static String sha256(final String text) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return toHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    }
+
+    /**
+     * Reads the violations of an entry, or returns null if there is no entry
+     * or it was written with a different version of some unchanged rule.
+     */
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull") // null means there is no usable entry
+    private List<RuleViolation> readEntry(final String key, final String path) {
+        final Path entry = getEntryPath(key);
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (stream.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            final int countRules = stream.readInt();
+            final Map<String, Long> entryFingerprints = new HashMap<>();
+            for (int i = 0; i < countRules; i++) {
+                entryFingerprints.put(stream.readUTF(), stream.readLong());
+            }
+            for (final Map.Entry<String, Long> rule : ruleMapper.getRuleFingerprints().entrySet()) {
+                if (isRuleUpToDate(rule.getKey()) && !rule.getValue().equals(entryFingerprints.get(rule.getKey()))) {
+                    return null;
+                }
+            }
+
+            final int countViolations = stream.readInt();
+            final List<RuleViolation> violations = new ArrayList<>(countViolations);
+            for (int i = 0; i < countViolations; i++) {
+                // the violations are reported on the file being analyzed, wherever it was cached from
+                final RuleViolation violation = CachedRuleViolation.loadFromStream(stream, path, ruleMapper);
+                // drop the violations of rules that were removed or changed, the latter are run again
+                if (violation.getRule() != null && isUpToDate(violation.getRule())) {
+                    violations.add(violation);
+                }
+            }
+
+            usedEntries.put(key, Files.size(entry));
+            return violations;
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            // the entry may have been evicted by another process in the meantime
+            LOG.warning("Could not load analysis cache entry for " + path + ". " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes an entry, and returns its size.
+     */
+    private long writeEntry(final String key, final List<RuleViolation> violations) throws IOException {
+        final Path entry = getEntryPath(key);
+        Files.createDirectories(entry.getParent());
+
+        final Path tempFile = createTempFile(key.substring(0, 8));
+        try {
+            try (DataOutputStream stream = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                stream.writeInt(FORMAT_VERSION);
+                writeRuleFingerprints(stream);
+                stream.writeInt(violations.size());
+                for (final RuleViolation rv : violations) {
+                    CachedRuleViolation.storeToStream(stream, rv);
+                }
+            }
+
+            final long size = Files.size(tempFile);
+            // other processes may write the same entry concurrently, they all have the same contents
+            moveInPlace(tempFile, entry);
+            return size;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        final Path tempFile = createTempFile(MANIFEST_FILE);
+        try {
+            try (DataOutputStream stream = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                stream.writeInt(FORMAT_VERSION);
+                stream.writeUTF(pmdVersion);
+                stream.writeLong(rulesetChecksum);
+                stream.writeLong(auxClassPathChecksum);
+                stream.writeLong(executionClassPathChecksum);
+                stream.writeLong(filePatternsChecksum);
+                writeRuleFingerprints(stream);
+            }
+            moveInPlace(tempFile, cacheDirectory.toPath().resolve(MANIFEST_FILE));
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void writeRuleFingerprints(final DataOutputStream stream) throws IOException {
+        final Map<String, Long> fingerprints = ruleMapper.getRuleFingerprints();
+        stream.writeInt(fingerprints.size());
+        for (final Map.Entry<String, Long> fingerprint : fingerprints.entrySet()) {
+            stream.writeUTF(fingerprint.getKey());
+            stream.writeLong(fingerprint.getValue());
+        }
+    }
+
+    private Path createTempFile(final String prefix) throws IOException {
+        // temporary files are kept apart, so that leftovers can be found without listing the entries
+        final Path directory = cacheDirectory.toPath().resolve(TEMP_DIRECTORY);
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, prefix, ".tmp");
+    }
+
+    private static void moveInPlace(final Path tempFile, final Path target) throws IOException {
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Records the entries used in this run in the index, and deletes the least recently used
+     * entries if the cache grew larger than its maximum size. The index is an append-only list
+     * of lines {@code <key> <size> <last use>}, a later line for a key overrides earlier ones.
+     *
+     * @param entriesWritten Whether new entries were written, otherwise the cache didn't grow
+     */
+    private void updateIndex(final boolean entriesWritten) throws IOException {
+        final long now = System.currentTimeMillis();
+        synchronized (INDEX_LOCK) {
+            try (FileChannel channel = FileChannel.open(cacheDirectory.toPath().resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+
+                final byte[] contents = new byte[(int) channel.size()];
+                final ByteBuffer buffer = ByteBuffer.wrap(contents);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // read it all
+                }
+
+                final Map<String, IndexRecord> records = new LinkedHashMap<>();
+                final int countLines = readIndex(new String(contents, StandardCharsets.UTF_8), records);
+
+                final StringBuilder newLines = new StringBuilder();
+                if (contents.length > 0 && contents[contents.length - 1] != '\n') {
+                    // terminate a line left incomplete by a process that died
+                    newLines.append('\n');
+                }
+                for (final Map.Entry<String, Long> used : usedEntries.entrySet()) {
+                    final IndexRecord record = new IndexRecord(used.getKey(), used.getValue(), now);
+                    records.put(record.key, record);
+                    newLines.append(record).append('\n');
+                }
+                usedEntries.clear();
+
+                final boolean evicted = entriesWritten && evict(records);
+                if (evicted || countLines > INDEX_COMPACTION_RATIO * Math.max(1, records.size())) {
+                    final StringBuilder index = new StringBuilder();
+                    for (final IndexRecord record : records.values()) {
+                        index.append(record).append('\n');
+                    }
+                    channel.truncate(0);
+                    write(channel, 0, index.toString());
+                } else {
+                    write(channel, channel.size(), newLines.toString());
+                }
+
+                deleteStaleTempFiles(now);
+            }
+        }
+    }
+
+    /**
+     * Parses the index, and returns the number of lines it has.
+     */
+    private static int readIndex(final String index, final Map<String, IndexRecord> records) {
+        if (index.isEmpty()) {
+            return 0;
+        }
+
+        int countLines = 0;
+        for (final String line : index.split("\n")) {
+            countLines++;
+            final String[] fields = line.split(" ");
+            if (fields.length == 3) {
+                try {
+                    records.put(fields[0], new IndexRecord(fields[0], Long.parseLong(fields[1]),
+                                                           Long.parseLong(fields[2])));
+                } catch (final NumberFormatException ignored) {
+                    // incomplete line, dropped when the index is compacted
+                }
+            }
+        }
+        return countLines;
+    }
+
+    private static void write(final FileChannel channel, final long position, final String text) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache is smaller than its maximum size.
+     * Returns true if some entries were removed from the index.
+     */
+    private boolean evict(final Map<String, IndexRecord> records) {
+        long totalSize = 0;
+        for (final IndexRecord record : records.values()) {
+            totalSize += record.size;
+        }
+        if (totalSize <= maxSize) {
+            return false;
+        }
+
+        final List<IndexRecord> leastRecentlyUsed = new ArrayList<>(records.values());
+        Collections.sort(leastRecentlyUsed, new Comparator<IndexRecord>() {
+            @Override
+            public int compare(final IndexRecord o1, final IndexRecord o2) {
+                return Long.compare(o1.lastUsed, o2.lastUsed);
+            }
+        });
+
+        int evicted = 0;
+        for (final IndexRecord record : leastRecentlyUsed) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            try {
+                // an entry already deleted by someone else is gone too
+                Files.deleteIfExists(getEntryPath(record.key));
+                records.remove(record.key);
+                totalSize -= record.size;
+                evicted++;
+            } catch (final IOException e) {
+                LOG.fine("Could not evict analysis cache entry " + record.key + ". " + e.getMessage());
+            }
+        }
+        LOG.info("Evicted " + evicted + " analysis cache entries");
+        return evicted > 0;
+    }
+
+    private void deleteStaleTempFiles(final long now) {
+        final Path directory = cacheDirectory.toPath().resolve(TEMP_DIRECTORY);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> tempFiles = Files.newDirectoryStream(directory)) {
+            for (final Path tempFile : tempFiles) {
+                try {
+                    if (Files.getLastModifiedTime(tempFile).toMillis() < now - STALE_TEMP_FILE_AGE) {
+                        Files.deleteIfExists(tempFile);
+                    }
+                } catch (final IOException e) {
+                    LOG.fine("Could not delete stale analysis cache file " + tempFile + ". " + e.getMessage());
+                }
+            }
+        } catch (final IOException e) {
+            LOG.fine("Could not list stale analysis cache files. " + e.getMessage());
+        }
+    }
+
+    private Path getEntryPath(final String key) {
+        // spread the entries over subdirectories, to keep directories small
+        return cacheDirectory.toPath().resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static final class IndexRecord {
+        private final String key;
+        private final long size;
+        private final long lastUsed;
+
+        IndexRecord(final String key, final long size, final long lastUsed) {
+            this.key = key;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+        @Override
+        public String toString() {
+            return key + ' ' + size + ' ' + lastUsed;
+        }
+    }
+}
@@ -4,17 +4,23 @@
 
 package net.sourceforge.pmd.cache;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
 
 import net.sourceforge.pmd.PMDVersion;
 import net.sourceforge.pmd.RuleSets;
@@ -27,14 +33,44 @@ import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 /**
  * An analysis cache backed by a regular file.
  *
+ * <p>The file starts with a header holding a format version, the PMD version,
+ * the checksums the cache depends on and the fingerprint of each rule, followed by one
+ * record per analyzed file. Each record is prefixed by its length and a CRC32 of its contents.
+ * The file is read in full on load, and every record is validated before the cache is used:
+ * if any record is corrupted, the whole cache is discarded. Only the file name, checksum and
+ * file metadata of each record are decoded to build the index: the violations of a record are
+ * decoded the first time they are requested, which only happens for files that are up to date.
+ *
+ * <p>When persisting, records of changed files are appended to the file.
+ * A newer record for a file overrides older ones. The file is rewritten from
+ * scratch when the header changes, or when it has accumulated too many
+ * outdated records.
+ *
  * @deprecated This is internal API, will be hidden with 7.0.0
  */
 @Deprecated
 @InternalApi
 public class FileAnalysisCache extends AbstractAnalysisCache {
 
+    /** Marks the start of a cache file, to tell it apart from caches written by older PMD versions. */
+    private static final int MAGIC = 0x504d4443; // "PMDC"
+
+    /** Version of the binary layout. Must be incremented whenever the header or record layout changes. */
+    private static final int FORMAT_VERSION = 4;
+
+    /** The file is compacted once it holds this many times more records than files analyzed in this run. */
+    private static final int COMPACTION_RATIO = 2;
+
     private final File cacheFile;
 
+    /** Whether new records can be appended to the existing file, ie it has a valid header and no truncated record. */
+    private boolean appendable;
+    private int persistedRecords;
+    private long persistedRulesetChecksum;
+    private long persistedAuxClassPathChecksum;
+    private long persistedExecutionClassPathChecksum;
+    private long persistedFilePatternsChecksum;
+
     /**
      * Creates a new cache backed by the given file.
      * @param cache The file on which to store analysis cache
@@ -58,41 +94,79 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
     private void loadFromFile(final File cacheFile) {
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "load")) {
             if (cacheExists()) {
-                try (
-                    DataInputStream inputStream = new DataInputStream(
-                        new BufferedInputStream(Files.newInputStream(cacheFile.toPath())));
-                ) {
-                    final String cacheVersion = inputStream.readUTF();
+                if (cacheFile.length() > Integer.MAX_VALUE) {
+                    LOG.warning("Cache file " + cacheFile.getPath() + " is too big, will not be used for current analysis");
+                    return;
+                }
+
+                try {
+                    // Read the file at once rather than mapping it, a mapped file can't be replaced
+                    // on every platform, and the mapping can't be released until it's garbage collected
+                    final byte[] data = Files.readAllBytes(cacheFile.toPath());
+                    final ByteBuffer buffer = ByteBuffer.wrap(data);
+                    if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                        LOG.info("Analysis cache invalidated, cache format changed.");
+                        return;
+                    }
+
+                    final String cacheVersion = readString(buffer);
 
                     if (PMDVersion.VERSION.equals(cacheVersion)) {
                         // Cache seems valid, load the rest
 
                         // Get checksums
-                        rulesetChecksum = inputStream.readLong();
-                        auxClassPathChecksum = inputStream.readLong();
-                        executionClassPathChecksum = inputStream.readLong();
-
-                        // Cached results
-                        while (inputStream.available() > 0) {
-                            final String fileName = inputStream.readUTF();
-                            final long checksum = inputStream.readLong();
-
-                            final int countViolations = inputStream.readInt();
-                            final List<RuleViolation> violations = new ArrayList<>(countViolations);
-                            for (int i = 0; i < countViolations; i++) {
-                                violations.add(CachedRuleViolation.loadFromStream(inputStream, fileName, ruleMapper));
+                        rulesetChecksum = buffer.getLong();
+                        auxClassPathChecksum = buffer.getLong();
+                        executionClassPathChecksum = buffer.getLong();
+                        filePatternsChecksum = buffer.getLong();
+                        persistedRulesetChecksum = rulesetChecksum;
+                        persistedAuxClassPathChecksum = auxClassPathChecksum;
+                        persistedExecutionClassPathChecksum = executionClassPathChecksum;
+                        persistedFilePatternsChecksum = filePatternsChecksum;
+
+                        // Rule fingerprints, to tell which rules changed
+                        final int countRules = buffer.getInt();
+                        for (int i = 0; i < countRules; i++) {
+                            final String ruleKey = readString(buffer);
+                            ruleFingerprints.put(ruleKey, buffer.getLong());
+                        }
+
+                        // Index the cached results, violations are decoded lazily
+                        appendable = true;
+                        while (buffer.hasRemaining()) {
+                            if (buffer.remaining() < 12) {
+                                appendable = false;
+                                break;
+                            }
+                            final int length = buffer.getInt();
+                            final long recordChecksum = buffer.getLong();
+                            if (length < 0 || length > buffer.remaining()) {
+                                // an interrupted append, the previous records are still valid
+                                appendable = false;
+                                break;
                             }
 
-                            fileResultsCache.put(fileName, new AnalysisResult(checksum, violations));
+                            readRecord(data, buffer.position(), length, recordChecksum);
+                            buffer.position(buffer.position() + length);
+                            persistedRecords++;
                         }
 
+                        if (!appendable) {
+                            LOG.warning("Cache file " + cacheFile.getPath() + " is truncated, only complete entries will be used");
+                        }
                         LOG.info("Analysis cache loaded");
                     } else {
                         LOG.info("Analysis cache invalidated, PMD version changed.");
                     }
-                } catch (final EOFException e) {
+                } catch (final BufferUnderflowException | MalformedCacheException e) {
+                    fileResultsCache.clear();
+                    ruleFingerprints.clear();
+                    appendable = false;
                     LOG.warning("Cache file " + cacheFile.getPath() + " is malformed, will not be used for current analysis");
                 } catch (final IOException e) {
+                    fileResultsCache.clear();
+                    ruleFingerprints.clear();
+                    appendable = false;
                     LOG.severe("Could not load analysis cache from file. " + e.getMessage());
                 }
             } else if (cacheFile.isDirectory()) {
@@ -101,6 +175,47 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
         }
     }
 
+    /**
+     * Validates the record stored in the given range of the data, and indexes it.
+     *
+     * @throws MalformedCacheException If the record doesn't match its checksum, or has an invalid layout
+     */
+    private void readRecord(final byte[] data, final int offset, final int length,
+                            final long recordChecksum) throws MalformedCacheException {
+        final CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        if (crc.getValue() != recordChecksum) {
+            throw new MalformedCacheException();
+        }
+
+        // reads past the end of the record fail with a BufferUnderflowException
+        final ByteBuffer record = ByteBuffer.wrap(data, offset, length);
+        final String fileName = readString(record);
+        final long checksum = record.getLong();
+        final long fileSize = record.getLong();
+        final long lastModified = record.getLong();
+        final String fileKey = readString(record);
+        final int violationsStart = record.position();
+
+        // Walk the violations without decoding them, so that decoding can't fail later
+        final int countViolations = record.getInt();
+        if (countViolations < 0) {
+            throw new MalformedCacheException();
+        }
+        for (int i = 0; i < countViolations; i++) {
+            skipUTF(record, 4);
+            record.getLong(); // begin line and column
+            record.getLong(); // end line and column
+            skipUTF(record, 4);
+        }
+        if (record.hasRemaining()) {
+            throw new MalformedCacheException();
+        }
+
+        fileResultsCache.put(fileName, new AnalysisResult(checksum, fileSize, lastModified, fileKey,
+                new LazyViolationList(data, violationsStart, offset + length - violationsStart, fileName, ruleMapper)));
+    }
+
     @Override
     public void persist() {
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "persist")) {
@@ -119,41 +234,172 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                 }
             }
 
+            try {
+                final List<Map.Entry<String, AnalysisResult>> changedResults = getChangedResults();
+                if (canAppend(changedResults.size())) {
+                    appendRecords(changedResults);
+                } else {
+                    rewrite();
+                }
+
+                if (cacheFileShouldBeCreated) {
+                    LOG.info("Analysis cache created");
+                } else {
+                    LOG.info("Analysis cache updated");
+                }
+            } catch (final IOException e) {
+                LOG.severe("Could not persist analysis cache to file. " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the updated results which differ from the ones already stored in the file.
+     */
+    private List<Map.Entry<String, AnalysisResult>> getChangedResults() {
+        final List<Map.Entry<String, AnalysisResult>> changed = new ArrayList<>();
+        for (final Map.Entry<String, AnalysisResult> resultEntry : updatedResultsCache.entrySet()) {
+            final AnalysisResult persisted = fileResultsCache.get(resultEntry.getKey());
+            if (persisted == null || persisted.getFileChecksum() != resultEntry.getValue().getFileChecksum()
+                    || !persisted.hasSameMetadata(resultEntry.getValue())) {
+                changed.add(resultEntry);
+            }
+        }
+        return changed;
+    }
+
+    private boolean canAppend(final int newRecords) {
+        return appendable
+                && persistedRulesetChecksum == rulesetChecksum
+                && persistedAuxClassPathChecksum == auxClassPathChecksum
+                && persistedExecutionClassPathChecksum == executionClassPathChecksum
+                && persistedFilePatternsChecksum == filePatternsChecksum
+                && persistedRecords + newRecords <= COMPACTION_RATIO * Math.max(1, updatedResultsCache.size());
+    }
+
+    private void appendRecords(final List<Map.Entry<String, AnalysisResult>> results) throws IOException {
+        try (
+            DataOutputStream outputStream = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(cacheFile.toPath(), StandardOpenOption.APPEND)))
+        ) {
+            for (final Map.Entry<String, AnalysisResult> resultEntry : results) {
+                writeRecord(outputStream, resultEntry.getKey(), resultEntry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Writes a compacted cache next to the cache file, and moves it over the cache file.
+     */
+    private void rewrite() throws IOException {
+        final Path target = cacheFile.toPath();
+        final Path parent = target.toAbsolutePath().getParent();
+        final Path tempFile = Files.createTempFile(parent, cacheFile.getName(), ".tmp");
+        try {
             try (
                 DataOutputStream outputStream = new DataOutputStream(
-                    new BufferedOutputStream(Files.newOutputStream(cacheFile.toPath())))
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))
             ) {
-                outputStream.writeUTF(pmdVersion);
+                outputStream.writeInt(MAGIC);
+                outputStream.writeInt(FORMAT_VERSION);
+                writeString(outputStream, pmdVersion);
 
                 outputStream.writeLong(rulesetChecksum);
                 outputStream.writeLong(auxClassPathChecksum);
                 outputStream.writeLong(executionClassPathChecksum);
+                outputStream.writeLong(filePatternsChecksum);
 
-                for (final Map.Entry<String, AnalysisResult> resultEntry : updatedResultsCache.entrySet()) {
-                    final List<RuleViolation> violations = resultEntry.getValue().getViolations();
-
-                    outputStream.writeUTF(resultEntry.getKey()); // the full filename
-                    outputStream.writeLong(resultEntry.getValue().getFileChecksum());
-
-                    outputStream.writeInt(violations.size());
-                    for (final RuleViolation rv : violations) {
-                        CachedRuleViolation.storeToStream(outputStream, rv);
-                    }
+                final Map<String, Long> fingerprints = ruleMapper.getRuleFingerprints();
+                outputStream.writeInt(fingerprints.size());
+                for (final Map.Entry<String, Long> fingerprint : fingerprints.entrySet()) {
+                    writeString(outputStream, fingerprint.getKey());
+                    outputStream.writeLong(fingerprint.getValue());
                 }
-                if (cacheFileShouldBeCreated) {
-                    LOG.info("Analysis cache created");
-                } else {
-                    LOG.info("Analysis cache updated");
+
+                for (final Map.Entry<String, AnalysisResult> resultEntry : updatedResultsCache.entrySet()) {
+                    writeRecord(outputStream, resultEntry.getKey(), resultEntry.getValue());
                 }
-            } catch (final IOException e) {
-                LOG.severe("Could not persist analysis cache to file. " + e.getMessage());
             }
+
+            try {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
     }
 
+    private static void writeRecord(final DataOutputStream outputStream, final String fileName,
+                                    final AnalysisResult result) throws IOException {
+        final List<RuleViolation> violations = result.getViolations();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream record = new DataOutputStream(bytes);
+
+        writeString(record, fileName); // the full filename
+        record.writeLong(result.getFileChecksum());
+        record.writeLong(result.getFileSize());
+        record.writeLong(result.getLastModified());
+        writeString(record, result.getFileKey());
+
+        record.writeInt(violations.size());
+        for (final RuleViolation rv : violations) {
+            CachedRuleViolation.storeToStream(record, rv);
+        }
+        record.flush();
+
+        final byte[] contents = bytes.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(contents);
+        outputStream.writeInt(contents.length);
+        outputStream.writeLong(crc.getValue());
+        outputStream.write(contents);
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 encoding.
+     */
+    private static void writeString(final DataOutputStream outputStream, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     */
+    private static String readString(final ByteBuffer buffer) throws MalformedCacheException {
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new MalformedCacheException();
+        }
+        final String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                                          StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    /**
+     * Skips the given number of strings written by {@link DataOutputStream#writeUTF(String)}.
+     */
+    private static void skipUTF(final ByteBuffer buffer, final int count) throws MalformedCacheException {
+        for (int i = 0; i < count; i++) {
+            final int length = buffer.getShort() & 0xFFFF;
+            if (length > buffer.remaining()) {
+                throw new MalformedCacheException();
+            }
+            buffer.position(buffer.position() + length);
+        }
+    }
 
     @Override
     protected boolean cacheExists() {
         return cacheFile.exists() && cacheFile.isFile() && cacheFile.length() > 0;
     }
+
+    /** Thrown when the contents of the cache file are inconsistent. */
+    private static final class MalformedCacheException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
 }
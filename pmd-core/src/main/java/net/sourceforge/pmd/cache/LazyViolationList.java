@@ -0,0 +1,81 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sourceforge.pmd.RuleViolation;
+
+/**
+ * The violations of a cache record, decoded from the contents of the cache
+ * file the first time they are accessed. Most records are never accessed:
+ * only files whose checksum still matches have their violations replayed.
+ * The record must have been validated before, see {@link FileAnalysisCache}.
+ */
+final class LazyViolationList extends AbstractList<RuleViolation> {
+
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    private final String fileName;
+    private final CachedRuleMapper mapper;
+    /** Guarded by this list. */
+    private List<RuleViolation> decoded;
+
+    /**
+     * @param data     The contents of the cache file
+     * @param offset   Start of the encoded violations in the data
+     * @param length   Length in bytes of the encoded violations
+     * @param fileName The file the violations were reported on
+     * @param mapper   The mapper used to obtain rule instances
+     */
+    LazyViolationList(final byte[] data, final int offset, final int length,
+                      final String fileName, final CachedRuleMapper mapper) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.fileName = fileName;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public RuleViolation get(final int index) {
+        return decoded().get(index);
+    }
+
+    @Override
+    public int size() {
+        return decoded().size();
+    }
+
+    private List<RuleViolation> decoded() {
+        synchronized (this) {
+            if (decoded == null) {
+                decoded = decode();
+            }
+            return decoded;
+        }
+    }
+
+    private List<RuleViolation> decode() {
+        try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(data, offset, length))) {
+            final int countViolations = stream.readInt();
+            final List<RuleViolation> violations = new ArrayList<>(countViolations);
+            for (int i = 0; i < countViolations; i++) {
+                violations.add(CachedRuleViolation.loadFromStream(stream, fileName, mapper));
+            }
+            return Collections.unmodifiableList(violations);
+        } catch (final IOException e) {
+            // can't happen, the record's layout and checksum were verified when loading
+            throw new IllegalStateException("Malformed analysis cache record for " + fileName, e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache.internal;
+
+import java.io.File;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.cache.AnalysisCache;
+import net.sourceforge.pmd.cache.AnalysisResult;
+
+/**
+ * An analysis cache which can tell whether a file is up to date without
+ * reading it twice, and which can reuse the results of the rules that didn't
+ * change. These methods are not part of {@link AnalysisCache}, so that
+ * implementations of it outside of PMD keep compiling. Callers check
+ * whether the cache implements this interface, and otherwise fall back to
+ * {@link AnalysisCache#isUpToDate(File)}.
+ */
+public interface IncrementalAnalysisCache extends AnalysisCache {
+
+    /**
+     * Checks if a given file is up to date in the cache, given the checksum of its current
+     * contents. This allows callers which read the file anyway to avoid it being read a
+     * second time. Like {@link #isUpToDate(File)}, each call adds the file to the updated cache.
+     *
+     * @param sourceFile The file to check in the cache
+     * @param checksum The checksum of the contents of the file, as computed by {@link AnalysisResult#computeChecksum(byte[])}
+     * @return True if the cache is a hit, false otherwise
+     */
+    boolean isUpToDate(File sourceFile, long checksum);
+
+    /**
+     * Checks if a given file is up to date in the cache, only comparing its size, modification
+     * time and file key (eg the inode) with the cached ones. This doesn't need to read the file.
+     * If this returns true, the file is added to the updated cache. Otherwise, the result is
+     * inconclusive, and {@link #isUpToDate(File, long)} needs to be called.
+     *
+     * @param sourceFile The file to check in the cache
+     * @return True if the cache is a hit, false if the contents of the file need to be checked
+     */
+    boolean isMetadataUpToDate(File sourceFile);
+
+    /**
+     * Checks if the cached results of the given rule can be reused for files that are
+     * up to date. This is not the case for rules that were added to the rulesets, or
+     * whose configuration changed, since the cache was built. These rules need
+     * to be run again, even on files for which {@link #isUpToDate(File)} returns true.
+     *
+     * @param rule The rule to check in the cache
+     * @return True if the cached violations of the rule are still valid
+     */
+    boolean isUpToDate(Rule rule);
+}
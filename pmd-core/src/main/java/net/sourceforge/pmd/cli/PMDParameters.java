@@ -87,6 +87,10 @@ public class PMDParameters {
             validateWith = PositiveInteger.class)
     private int threads = 1; // see also default in PMDTask (Ant)
 
+    @Parameter(names = { "--lazy-type-resolution", "-lazy-type-resolution" },
+            description = "Resolves the types of a file only when a rule asks for them. Disabled by default.")
+    private boolean lazyTypeResolution = false;
+
     @Parameter(names = { "--benchmark", "-benchmark", "-b" },
             description = "Benchmark mode - output a benchmark report upon completion; default to System.err.")
     private boolean benchmark = false;
@@ -157,12 +161,20 @@ public class PMDParameters {
             description = "Specify the location of the cache file for incremental analysis. "
                     + "This should be the full path to the file, including the desired file name (not just the parent directory). "
                     + "If the file doesn't exist, it will be created on the first run. The file will be overwritten on each run "
-                    + "with the most up-to-date rule violations.")
+                    + "with the most up-to-date rule violations. "
+                    + "If the location is a directory, or ends with a path separator, the cache is instead stored "
+                    + "in that directory keyed by file contents, so that it can be shared between checkouts and concurrent runs.")
     private String cacheLocation = null;
 
     @Parameter(names = { "--no-cache", "-no-cache" }, description = "Explicitly disable incremental analysis. The '-cache' option is ignored if this switch is present in the command line.")
     private boolean noCache = false;
 
+    @Parameter(names = { "--metric-store", "-metricstore" }, arity = 1,
+            description = "Specify the location of the file storing the metrics results between runs. "
+                    + "The metrics of the classes and operations of unchanged files are reused instead of computed again. "
+                    + "The store is ignored if the '-no-cache' switch is present in the command line.")
+    private String metricStoreLocation = null;
+
     // this has to be a public static class, so that JCommander can use it!
     public static class PropertyConverter implements IStringConverter<Properties> {
 
@@ -242,8 +254,10 @@ public class PMDParameters {
         configuration.setStressTest(this.isStress());
         configuration.setSuppressMarker(this.getSuppressmarker());
         configuration.setThreads(this.getThreads());
+        configuration.setLazyTypeResolution(this.isLazyTypeResolution());
         configuration.setFailOnViolation(this.isFailOnViolation());
         configuration.setAnalysisCacheLocation(this.cacheLocation);
+        configuration.setMetricStoreLocation(this.metricStoreLocation);
         configuration.setIgnoreIncrementalAnalysis(this.isIgnoreIncrementalAnalysis());
 
         LanguageVersion forceLangVersion = LanguageRegistry
@@ -301,6 +315,10 @@ public class PMDParameters {
         return threads;
     }
 
+    public boolean isLazyTypeResolution() {
+        return lazyTypeResolution;
+    }
+
     public boolean isBenchmark() {
         return benchmark;
     }
@@ -0,0 +1,75 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.internal.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sourceforge.pmd.annotation.InternalApi;
+
+/**
+ * Bounds the footprint of the caches shared by the analysis threads.
+ *
+ * <p>There are two policies:
+ * <ul>
+ *     <li>{@link #putIfAbsentBounded(ConcurrentMap, Object, Object, int)} empties
+ *     a concurrent map when it is full. It is meant for caches which are read on
+ *     hot paths by all threads, e.g. class loading or the interning of type
+ *     definitions, and whose entries are cheap to compute again. Such caches stay
+ *     lock-free, which matters more there than which entries survive: tracking
+ *     the least recently used entry needs a lock, or bookkeeping on every read.
+ *     <li>{@link #newLruCache(int)} evicts the least recently used entry. It is
+ *     meant for caches whose entries are expensive to compute again, or which hold
+ *     state that accumulates during an analysis, e.g. memoized metrics. Losing
+ *     all of them at once in the middle of an analysis would be unpredictable.
+ * </ul>
+ */
+@InternalApi
+public final class CacheUtil {
+
+    private CacheUtil() {
+        // utility class
+    }
+
+    /**
+     * Adds an entry to a lock-free cache, if it has none for the key yet. The
+     * cache is emptied first if it holds {@code maxSize} entries or more, see
+     * the {@linkplain CacheUtil class documentation} for when to use this.
+     *
+     * @param cache   The cache
+     * @param key     The key
+     * @param value   The value
+     * @param maxSize The maximum number of entries of the cache
+     *
+     * @return The value previously associated with the key, or null if there was none
+     */
+    public static <K, V> V putIfAbsentBounded(ConcurrentMap<K, V> cache, K key, V value, int maxSize) {
+        if (cache.size() >= maxSize) {
+            // other threads may add entries in the meantime, so the bound is approximate
+            cache.clear();
+        }
+        return cache.putIfAbsent(key, value);
+    }
+
+    /**
+     * Returns a new map which evicts its least recently used entry when it
+     * holds more than {@code maxSize} entries. Reads update the order of the
+     * entries, so every access must be synchronized on the map. See the
+     * {@linkplain CacheUtil class documentation} for when to use this.
+     *
+     * @param maxSize The maximum number of entries of the map
+     */
+    public static <K, V> Map<K, V> newLruCache(final int maxSize) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+}
@@ -54,6 +54,11 @@ public abstract class AbstractLanguageVersionHandler implements LanguageVersionH
         return VisitorStarter.DUMMY;
     }
 
+    @Override
+    public VisitorStarter getTypeResolutionFacade(ClassLoader classLoader, boolean lazy) {
+        return getTypeResolutionFacade(classLoader);
+    }
+
     @Deprecated
     @Override
     public VisitorStarter getDumpFacade(final Writer writer, final String prefix, final boolean recurse) {
@@ -66,6 +71,12 @@ public abstract class AbstractLanguageVersionHandler implements LanguageVersionH
     }
 
 
+    @Override
+    public void resetMultifileData() {
+        // no multifile data
+    }
+
+
     @Override
     public VisitorStarter getQualifiedNameResolutionFacade(ClassLoader classLoader) {
         return VisitorStarter.DUMMY;
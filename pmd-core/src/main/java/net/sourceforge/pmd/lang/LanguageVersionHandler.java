@@ -98,6 +98,20 @@ public interface LanguageVersionHandler {
     @Deprecated
     VisitorStarter getTypeResolutionFacade(ClassLoader classLoader);
 
+    /**
+     * Get the TypeResolutionFacade, which may defer the resolution of the
+     * types of a file until they are first needed.
+     *
+     * @param classLoader
+     *            A ClassLoader to use for resolving Types.
+     * @param lazy
+     *            Whether to defer type resolution, if the language supports it.
+     * @return VisitorStarter
+     * @deprecated see note in the class description
+     */
+    @Deprecated
+    VisitorStarter getTypeResolutionFacade(ClassLoader classLoader, boolean lazy);
+
     /**
      * Get the DumpFacade.
      *
@@ -120,6 +134,17 @@ public interface LanguageVersionHandler {
     VisitorStarter getMultifileFacade();
 
 
+    /**
+     * Discards the multifile data gathered by previous runs. Called once
+     * per language, before the files of a run are indexed with the
+     * {@linkplain #getMultifileFacade() multifile facade}.
+     *
+     * @deprecated see note in the class description
+     */
+    @Deprecated
+    void resetMultifileData();
+
+
     /**
      * Gets the visitor that populates the qualified names of the
      * nodes.
@@ -9,6 +9,8 @@ import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import net.sourceforge.pmd.annotation.Experimental;
 import net.sourceforge.pmd.annotation.InternalApi;
@@ -26,11 +28,13 @@ import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttribute;
  * @author daniels
  */
 public class Attribute {
-    private static final Object[] EMPTY_OBJ_ARRAY = new Object[0];
+
+    private static final Logger LOG = Logger.getLogger(Attribute.class.getName());
 
     private final Node parent;
     private final String name;
     private Method method;
+    private AttributeAccessor accessor;
     private List<?> value;
     private String stringValue;
 
@@ -41,6 +45,12 @@ public class Attribute {
         this.method = m;
     }
 
+    /** Creates a new attribute belonging to the given node, read by the given accessor of the method. */
+    Attribute(Node parent, String name, Method m, AttributeAccessor accessor) {
+        this(parent, name, m);
+        this.accessor = accessor;
+    }
+
     /** Creates a new attribute belonging to the given node using its string value. */
     public Attribute(Node parent, String name, String value) {
         this.parent = parent;
@@ -93,16 +103,25 @@ public class Attribute {
             return value.get(0);
         }
 
-        // this lazy loading reduces calls to Method.invoke() by about 90%
+        // this lazy loading reduces calls to the getter by about 90%
+        if (accessor == null) {
+            accessor = AttributeAccessor.forMethod(method);
+        }
         try {
-            value = Collections.singletonList(method.invoke(parent, EMPTY_OBJ_ARRAY));
+            value = Collections.singletonList(accessor.get(parent));
             return value.get(0);
-        } catch (IllegalAccessException | InvocationTargetException iae) {
-            iae.printStackTrace();
+        } catch (IllegalAccessException iae) {
+            LOG.log(Level.WARNING, "Cannot read attribute " + getLoggableName(), iae);
+        } catch (InvocationTargetException ite) {
+            LOG.log(Level.WARNING, "Exception while reading attribute " + getLoggableName(), ite.getCause());
         }
         return null;
     }
 
+    private String getLoggableName() {
+        return parent.getXPathNodeName() + "/@" + name;
+    }
+
     public String getStringValue() {
         if (stringValue != null) {
             return stringValue;
@@ -0,0 +1,101 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast.xpath;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Reads the value of an attribute from a node. Accessors call the getter of
+ * the attribute through a method handle, which avoids the argument array, the
+ * access checks and the argument type checks of {@link Method#invoke(Object, Object...)}
+ * on each call.
+ *
+ * <p>Getters which are not accessible to a public lookup, eg public methods
+ * declared in a package-private class, are still called reflectively, as before.
+ */
+abstract class AttributeAccessor {
+
+    private static final Object[] EMPTY_OBJ_ARRAY = new Object[0];
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** Accessors of the getters not created by {@link AttributeAxisIterator}. */
+    private static final ConcurrentMap<Method, AttributeAccessor> ACCESSOR_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the value of the attribute for the given node.
+     *
+     * @throws InvocationTargetException If the getter throws an exception
+     * @throws IllegalAccessException    If the getter is not accessible
+     */
+    abstract Object get(Node node) throws InvocationTargetException, IllegalAccessException;
+
+    /**
+     * Creates an accessor for the given getter.
+     */
+    static AttributeAccessor create(Method getter) {
+        try {
+            final MethodHandle handle = MethodHandles.publicLookup().unreflect(getter).asType(GETTER_TYPE);
+            return new HandleAccessor(handle);
+        } catch (IllegalAccessException e) {
+            return new ReflectiveAccessor(getter);
+        }
+    }
+
+    /**
+     * Returns a shared accessor for the given getter.
+     */
+    static AttributeAccessor forMethod(Method getter) {
+        AttributeAccessor accessor = ACCESSOR_CACHE.get(getter);
+        if (accessor == null) {
+            accessor = create(getter);
+            final AttributeAccessor previous = ACCESSOR_CACHE.putIfAbsent(getter, accessor);
+            if (previous != null) {
+                accessor = previous;
+            }
+        }
+        return accessor;
+    }
+
+    private static final class HandleAccessor extends AttributeAccessor {
+        /** Of type (Object) -> Object. */
+        private final MethodHandle handle;
+
+        HandleAccessor(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        @SuppressWarnings("PMD.AvoidCatchingThrowable") // invokeExact is declared to throw Throwable
+        Object get(Node node) throws InvocationTargetException {
+            try {
+                return (Object) handle.invokeExact((Object) node);
+            } catch (Throwable t) {
+                // like Method.invoke
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    private static final class ReflectiveAccessor extends AttributeAccessor {
+        private final Method getter;
+
+        ReflectiveAccessor(Method getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        Object get(Node node) throws InvocationTargetException, IllegalAccessException {
+            return getter.invoke(node, EMPTY_OBJ_ARRAY);
+        }
+    }
+}
@@ -137,24 +137,26 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
             return null;
         }
         MethodWrapper m = methodWrappers[position++];
-        return new Attribute(node, m.name, m.method);
+        return new Attribute(node, m.name, m.method, m.accessor);
     }
 
 
     /**
      * Associates an attribute accessor with the XPath-accessible
      * name of the attribute. This is used to avoid recomputing
-     * the name of the attribute for each attribute (it's only done
-     * once and put inside the {@link #METHOD_CACHE}).
+     * the name of the attribute and its accessor for each attribute
+     * (it's only done once and put inside the {@link #METHOD_CACHE}).
      */
     private static class MethodWrapper {
         public Method method;
         public String name;
+        public AttributeAccessor accessor;
 
 
         MethodWrapper(Method m) {
             this.method = m;
             this.name = truncateMethodName(m.getName());
+            this.accessor = AttributeAccessor.create(m);
         }
 
 
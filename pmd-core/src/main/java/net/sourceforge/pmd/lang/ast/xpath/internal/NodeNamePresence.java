@@ -0,0 +1,73 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast.xpath.internal;
+
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * A bitmap of the XPath node names present in a file. Each node name has a
+ * bit, assigned process-wide the first time the name is seen, so that
+ * queries can compute the bits of the node names they require once, and
+ * check them on each file with a few bit tests.
+ *
+ * <p>A bitmap is filled while the AST is indexed, and only read afterwards.
+ */
+public final class NodeNamePresence {
+
+    private static final ConcurrentMap<String, Integer> NAME_TO_BIT = new ConcurrentHashMap<>();
+
+    private final BitSet bits = new BitSet();
+
+    /**
+     * Returns the bit of the given node name.
+     *
+     * @param nodeName An XPath node name
+     */
+    public static int bitOf(String nodeName) {
+        Integer bit = NAME_TO_BIT.get(nodeName);
+        if (bit == null) {
+            synchronized (NAME_TO_BIT) {
+                bit = NAME_TO_BIT.get(nodeName);
+                if (bit == null) {
+                    bit = NAME_TO_BIT.size();
+                    NAME_TO_BIT.put(nodeName, bit);
+                }
+            }
+        }
+        return bit;
+    }
+
+    /**
+     * Records the name of the given node.
+     */
+    public void add(Node node) {
+        bits.set(bitOf(node.getXPathNodeName()));
+    }
+
+    /**
+     * Returns true if a node with the given name was recorded.
+     */
+    public boolean contains(String nodeName) {
+        return bits.get(bitOf(nodeName));
+    }
+
+    /**
+     * Returns true if nodes with all the given names were recorded.
+     *
+     * @param nodeNameBits The bits of the node names, see {@link #bitOf(String)}
+     */
+    public boolean containsAll(int[] nodeNameBits) {
+        for (int bit : nodeNameBits) {
+            if (!bits.get(bit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
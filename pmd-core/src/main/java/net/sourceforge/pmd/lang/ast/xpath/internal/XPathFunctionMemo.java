@@ -0,0 +1,165 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast.xpath.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
+
+/**
+ * Memoizes the results of pure XPath extension functions for the nodes of a
+ * file, so that rules calling the same function on the same node, eg
+ * {@code pmd-java:typeIs('java.util.List')}, share a single computation.
+ *
+ * <p>There is one memo table per file, stored in the user data of the root
+ * node, so it's dropped along with the AST. Results are keyed by node, function
+ * name and argument. Exceptions thrown by a function are not memoized.
+ *
+ * <p>Calls are not timed on their own, their time is part of the time of the
+ * rule evaluating the function. The memo hits and misses of each function are
+ * counted, and recorded once per file in the timing report under the category
+ * {@link TimedOperationCategory#XPATH_FUNCTION}, see {@link #recordStatistics(Node)}.
+ * Like the AST, a memo table is not thread-safe.
+ */
+public final class XPathFunctionMemo {
+
+    private static final SimpleDataKey<XPathFunctionMemo> MEMO_KEY = DataMap.simpleDataKey("pmd.xpathFunctionMemo");
+
+    /** Stands for a null result, to tell it from a missing one. */
+    private static final Object NULL_RESULT = new Object();
+
+    private final Map<Key, Object> results = new HashMap<>();
+    /** Number of hits and misses of each function, in this order. */
+    private final Map<String, int[]> statistics = new HashMap<>();
+
+    private XPathFunctionMemo() {
+
+    }
+
+    /**
+     * Returns the memo table of the file of the given node.
+     */
+    public static XPathFunctionMemo forFile(Node node) {
+        Node root = node;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        XPathFunctionMemo memo = root.getUserMap().get(MEMO_KEY);
+        if (memo == null) {
+            memo = new XPathFunctionMemo();
+            root.getUserMap().set(MEMO_KEY, memo);
+        }
+        return memo;
+    }
+
+    /**
+     * Returns the result of a function for the given node and argument,
+     * computing it only if it was not already computed.
+     *
+     * @param node        The node the function is called on
+     * @param function    The name of the function
+     * @param argument    The argument of the function, eg a list for several arguments
+     * @param computation Computes the result if needed
+     * @param <T>         The type of the result
+     *
+     * @return The result
+     */
+    public <T> T get(Node node, String function, Object argument, Computation<T> computation) {
+        final Key key = new Key(node, function, argument);
+        final Object memoized = results.get(key);
+        int[] counts = statistics.get(function);
+        if (counts == null) {
+            counts = new int[2];
+            statistics.put(function, counts);
+        }
+        if (memoized != null) {
+            counts[0]++;
+            return unmask(memoized);
+        }
+
+        counts[1]++;
+        final T result = computation.compute();
+        results.put(key, result == null ? NULL_RESULT : result);
+        return result;
+    }
+
+    /**
+     * Records the memo hits and misses of each function on the file of the
+     * given root node in the timing report, labeled with the function name.
+     * Does nothing if no function was called on the file. Called once the
+     * rules were applied to the file.
+     *
+     * @param rootNode The root node of the file
+     */
+    public static void recordStatistics(Node rootNode) {
+        final XPathFunctionMemo memo = rootNode.getUserMap().get(MEMO_KEY);
+        if (memo == null) {
+            return;
+        }
+        for (Map.Entry<String, int[]> function : memo.statistics.entrySet()) {
+            TimeTracker.startOperation(TimedOperationCategory.XPATH_FUNCTION, function.getKey() + " (memo hits)")
+                       .close(function.getValue()[0]);
+            TimeTracker.startOperation(TimedOperationCategory.XPATH_FUNCTION, function.getKey() + " (memo misses)")
+                       .close(function.getValue()[1]);
+        }
+        memo.statistics.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unmask(Object memoized) {
+        return memoized == NULL_RESULT ? null : (T) memoized;
+    }
+
+    /**
+     * Computes the result of a function.
+     *
+     * @param <T> The type of the result
+     */
+    public interface Computation<T> {
+
+        T compute();
+    }
+
+    private static final class Key {
+        private final Node node;
+        private final String function;
+        private final Object argument;
+
+        Key(Node node, String function, Object argument) {
+            this.node = node;
+            this.function = function;
+            this.argument = argument;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            // nodes are compared by identity
+            return node == key.node
+                && function.equals(key.function)
+                && Objects.equals(argument, key.argument);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(node);
+            result = 31 * result + function.hashCode();
+            result = 31 * result + Objects.hashCode(argument);
+            return result;
+        }
+    }
+}
@@ -4,14 +4,19 @@
 
 package net.sourceforge.pmd.lang.ast.xpath.saxon;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.xpath.internal.AstNodeOwner;
 import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
+import net.sourceforge.pmd.lang.ast.xpath.internal.NodeNamePresence;
+import net.sourceforge.pmd.lang.ast.xpath.internal.XPathFunctionMemo;
 import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
 
 import net.sf.saxon.om.Axis;
@@ -25,6 +30,14 @@ import net.sf.saxon.type.Type;
 
 /**
  * A Saxon OM Document node for an AST Node.
+ *
+ * <p>The element nodes of the document are created lazily, when the
+ * navigation reaches them. The document numbers the AST nodes in preorder,
+ * and keeps the AST nodes and their element nodes in arrays indexed by
+ * that number. Like the AST, a document is not thread-safe.
+ *
+ * <p>The indexing of the AST also records the node names present in it,
+ * which lets queries skip the files where they can't match anything.
  */
 @Deprecated
 @InternalApi
@@ -36,12 +49,35 @@ public class DocumentNode extends BaseNodeInfo implements DocumentInfo, AstNodeO
     protected final ElementNode rootNode;
 
     /**
-     * Mapping from AST Node to corresponding ElementNode.
+     * Mapping from AST Node to corresponding ElementNode. This is a read-only
+     * view, which creates the element nodes it returns if needed.
+     *
+     * @deprecated Use {@link #getElementNode(Node)}
+     */
+    @Deprecated
+    public final Map<Node, ElementNode> nodeToElementNode = new ElementNodeMap();
+
+    /** The AST nodes, by preorder number. */
+    private final Node[] nodes;
+    /** The element nodes created so far, by preorder number of their AST node. */
+    private final ElementNode[] elements;
+    /** The preorder numbers of the parents of the nodes, -1 for the root. */
+    private final int[] parents;
+    /** The indices of the nodes in their parent. */
+    private final int[] siblingPositions;
+    /**
+     * The preorder numbers of the children of the nodes. The numbers of
+     * the children of the node n start at {@code childrenStart[n]}.
      */
-    public final Map<Node, ElementNode> nodeToElementNode = new HashMap<>();
+    private final int[] childNumbers;
+    private final int[] childrenStart;
+
+    private final NodeNamePresence nodeNamePresence = new NodeNamePresence();
 
     private DeprecatedAttrLogger attrCtx;
 
+    private XPathFunctionMemo functionMemo;
+
     /**
      * Construct a DocumentNode, with the given AST Node serving as the root
      * ElementNode.
@@ -53,7 +89,148 @@ public class DocumentNode extends BaseNodeInfo implements DocumentInfo, AstNodeO
      */
     public DocumentNode(Node node, NamePool namePool) {
         super(Type.DOCUMENT, namePool, "", null);
-        this.rootNode = new ElementNode(this, new IdGenerator(), null, node, -1, namePool);
+        final int size = countNodes(node);
+        this.nodes = new Node[size];
+        this.elements = new ElementNode[size];
+        this.parents = new int[size];
+        this.siblingPositions = new int[size];
+        this.childNumbers = new int[size];
+        this.childrenStart = new int[size];
+        parents[0] = -1;
+        siblingPositions[0] = -1;
+        index(node, 0, new int[] {1});
+        this.rootNode = new ElementNode(this, null, node, 0, -1, namePool);
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            count += countNodes(node.getChild(i));
+        }
+        return count;
+    }
+
+    /**
+     * Numbers the subtree of the given node in preorder.
+     *
+     * @param node       The root of the subtree
+     * @param number     The preorder number of the node
+     * @param childSlots The next free slot of {@link #childNumbers}, in a single element array
+     *
+     * @return The number following the numbers of the subtree
+     */
+    private int index(Node node, int number, int[] childSlots) {
+        nodes[number] = node;
+        nodeNamePresence.add(node);
+
+        final int numChildren = node.getNumChildren();
+        final int start = childSlots[0];
+        childrenStart[number] = start;
+        childSlots[0] += numChildren;
+
+        int next = number + 1;
+        for (int i = 0; i < numChildren; i++) {
+            childNumbers[start + i] = next;
+            parents[next] = number;
+            siblingPositions[next] = i;
+            next = index(node.getChild(i), next, childSlots);
+        }
+        return next;
+    }
+
+    /**
+     * Returns the node names present in the AST of this document.
+     */
+    public NodeNamePresence getNodeNamePresence() {
+        return nodeNamePresence;
+    }
+
+    /**
+     * Returns the preorder number of the given AST node, or -1 if it's not
+     * a node of this document.
+     */
+    int getPreorderNumber(Node node) {
+        final int number = findPreorderNumber(node);
+        if (number >= 0) {
+            return number;
+        }
+        // the parents or indices of the nodes may be inconsistent, like in hand built trees
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == node) { // NOPMD: the AST nodes are compared by identity
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the preorder number of the node from the index in its parent of
+     * the node and of its ancestors.
+     */
+    private int findPreorderNumber(Node node) {
+        if (node.getParent() == null) {
+            return nodes[0] == node ? 0 : -1; // NOPMD: the AST nodes are compared by identity
+        }
+        final int parentNumber = findPreorderNumber(node.getParent());
+        if (parentNumber < 0) {
+            return -1;
+        }
+        final int indexInParent = node.getIndexInParent();
+        if (indexInParent < 0 || indexInParent >= nodes[parentNumber].getNumChildren()) {
+            return -1;
+        }
+        final int number = childNumbers[childrenStart[parentNumber] + indexInParent];
+        return nodes[number] == node ? number : -1; // NOPMD: the AST nodes are compared by identity
+    }
+
+    /**
+     * Returns the element node of the child at the given index of the
+     * given element, creating it if needed.
+     */
+    ElementNode getChildElement(ElementNode parent, int indexInParent) {
+        return getElement(childNumbers[childrenStart[parent.id] + indexInParent]);
+    }
+
+    /**
+     * Returns the element node of the AST node with the given preorder
+     * number, creating it and the element nodes of its ancestors if needed.
+     */
+    private ElementNode getElement(int number) {
+        ElementNode element = elements[number];
+        if (element == null) {
+            final ElementNode parent = getElement(parents[number]);
+            element = new ElementNode(this, parent, nodes[number], number, siblingPositions[number], getNamePool());
+        }
+        return element;
+    }
+
+    void register(ElementNode elementNode) {
+        elements[elementNode.id] = elementNode;
+    }
+
+    /**
+     * Returns the element node for the given AST node, creating it and the
+     * element nodes of its ancestors if needed.
+     *
+     * @param node A node of the AST of this document
+     *
+     * @return The element node, or null if the node is not in this document
+     */
+    public ElementNode getElementNode(Node node) {
+        final int number = getPreorderNumber(node);
+        return number < 0 ? null : getElement(number);
+    }
+
+    /**
+     * Returns the table memoizing the results of XPath functions on the
+     * nodes of this document.
+     */
+    public XPathFunctionMemo getFunctionMemo() {
+        if (functionMemo == null) {
+            // the memo is stored on the AST, several documents may share it
+            functionMemo = XPathFunctionMemo.forFile(rootNode.getUnderlyingNode());
+        }
+        return functionMemo;
     }
 
     @Deprecated
@@ -116,4 +293,61 @@ public class DocumentNode extends BaseNodeInfo implements DocumentInfo, AstNodeO
     public void setAttrCtx(DeprecatedAttrLogger attrCtx) {
         this.attrCtx = attrCtx;
     }
+
+    /**
+     * The view of the element nodes of {@link #nodeToElementNode}.
+     */
+    private final class ElementNodeMap extends AbstractMap<Node, ElementNode> {
+
+        @Override
+        public ElementNode get(Object key) {
+            return key instanceof Node ? getElementNode((Node) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return nodes.length;
+        }
+
+        @Override
+        public Set<Entry<Node, ElementNode>> entrySet() {
+            return new AbstractSet<Entry<Node, ElementNode>>() {
+                @Override
+                public Iterator<Entry<Node, ElementNode>> iterator() {
+                    return new Iterator<Entry<Node, ElementNode>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < nodes.length;
+                        }
+
+                        @Override
+                        public Entry<Node, ElementNode> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final Node node = nodes[next++];
+                            return new SimpleImmutableEntry<>(node, getElementNode(node));
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return nodes.length;
+                }
+            };
+        }
+    }
 }
@@ -4,9 +4,9 @@
 
 package net.sourceforge.pmd.lang.ast.xpath.saxon;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
@@ -20,7 +20,6 @@ import net.sf.saxon.om.DocumentInfo;
 import net.sf.saxon.om.EmptyIterator;
 import net.sf.saxon.om.NamePool;
 import net.sf.saxon.om.Navigator;
-import net.sf.saxon.om.Navigator.BaseEnumeration;
 import net.sf.saxon.om.NodeArrayIterator;
 import net.sf.saxon.om.NodeInfo;
 import net.sf.saxon.om.SequenceIterator;
@@ -36,48 +35,65 @@ import net.sf.saxon.value.Value;
 
 /**
  * A Saxon OM Element type node for an AST Node.
+ *
+ * <p>Element nodes are created lazily, when the navigation reaches them,
+ * and their attribute nodes when they're first asked for. The {@link #id}
+ * of an element is the preorder number of its AST node in its
+ * {@link DocumentNode}, which holds the elements created so far.
  */
 @Deprecated
 @InternalApi
 public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
 
+    private static final NodeInfo[] NO_CHILDREN = new NodeInfo[0];
+    private static final AttributeNode[] NO_ATTRIBUTES = new AttributeNode[0];
+
     protected final DocumentNode document;
     protected final ElementNode parent;
     protected final Node node;
     protected final int id;
     protected final int siblingPosition;
-    protected final NodeInfo[] children;
 
-    private Map<Integer, AttributeNode> attributes;
+    /** The child elements, for the axis iterators, null until they're needed. */
+    private NodeInfo[] children;
+
+    /** The attributes, in the order of the attribute axis. */
+    private AttributeNode[] attributes;
 
+    /**
+     * @deprecated The id generator is not used anymore, ids are preorder
+     *     numbers of the AST nodes
+     */
     @Deprecated
+    @SuppressWarnings("PMD.UnusedFormalParameter") // kept for compatibility
     public ElementNode(DocumentNode document, IdGenerator idGenerator, ElementNode parent, Node node, int siblingPosition) {
-        this(document, idGenerator, parent, node, siblingPosition, SaxonXPathRuleQuery.getNamePool());
+        this(document, parent, node, document.getPreorderNumber(node), siblingPosition, SaxonXPathRuleQuery.getNamePool());
     }
 
+    /**
+     * @deprecated The id generator is not used anymore, ids are preorder
+     *     numbers of the AST nodes
+     */
+    @Deprecated
+    @SuppressWarnings("PMD.UnusedFormalParameter") // kept for compatibility
     public ElementNode(DocumentNode document,
                        IdGenerator idGenerator,
                        ElementNode parent,
                        Node node,
                        int siblingPosition,
                        NamePool namePool) {
+        this(document, parent, node, document.getPreorderNumber(node), siblingPosition, namePool);
+    }
+
+    ElementNode(DocumentNode document, ElementNode parent, Node node, int id, int siblingPosition, NamePool namePool) {
         super(determineType(node), namePool, node.getXPathNodeName(), parent);
 
         this.document = document;
         this.parent = parent;
         this.node = node;
-        this.id = idGenerator.getNextId();
+        this.id = id;
         this.siblingPosition = siblingPosition;
-
-        if (node.getNumChildren() > 0) {
-            this.children = new NodeInfo[node.getNumChildren()];
-            for (int i = 0; i < children.length; i++) {
-                children[i] = new ElementNode(document, idGenerator, this, node.getChild(i), i, namePool);
-            }
-        } else {
-            this.children = null;
-        }
-        document.nodeToElementNode.put(node, this);
+        document.register(this);
     }
 
     private static int determineType(Node node) {
@@ -93,20 +109,49 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
         return Type.ELEMENT;
     }
 
-    private Map<Integer, AttributeNode> getAttributes() {
+    /**
+     * Returns the element of the child at the given index, creates it if needed.
+     */
+    ElementNode getChild(int index) {
+        return document.getChildElement(this, index);
+    }
+
+    private NodeInfo[] getChildren() {
+        if (children == null) {
+            final int numChildren = node.getNumChildren();
+            if (numChildren == 0) {
+                children = NO_CHILDREN;
+            } else {
+                children = new NodeInfo[numChildren];
+                for (int i = 0; i < numChildren; i++) {
+                    children[i] = getChild(i);
+                }
+            }
+        }
+        return children;
+    }
+
+    private AttributeNode[] getAttributes() {
         if (attributes == null) {
-            attributes = new HashMap<>();
+            final List<AttributeNode> attributeList = new ArrayList<>();
             Iterator<Attribute> iter = node.getXPathAttributesIterator();
-            int idx = 0;
             while (iter.hasNext()) {
-                Attribute next = iter.next();
-                AttributeNode attrNode = new AttributeNode(this, next, idx++);
-                attributes.put(attrNode.getFingerprint(), attrNode);
+                attributeList.add(new AttributeNode(this, iter.next(), attributeList.size()));
             }
+            attributes = attributeList.isEmpty() ? NO_ATTRIBUTES : attributeList.toArray(new AttributeNode[0]);
         }
         return attributes;
     }
 
+    private AttributeNode getAttribute(int fingerprint) {
+        for (AttributeNode attribute : getAttributes()) {
+            if (attribute.getFingerprint() == fingerprint) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
     @Override
     public Node getUnderlyingNode() {
         return node;
@@ -129,7 +174,7 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
 
     @Override
     public boolean hasChildNodes() {
-        return children != null;
+        return node.getNumChildren() > 0;
     }
 
     @Override
@@ -174,25 +219,15 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
 
     @Override
     public int compareOrder(NodeInfo other) {
-        int result;
-        if (this.isSameNodeInfo(other)) {
-            result = 0;
-        } else {
-            result = Integer.signum(this.getLineNumber() - other.getLineNumber());
-            if (result == 0) {
-                result = Integer.signum(this.getColumnNumber() - other.getColumnNumber());
-            }
-            if (result == 0) {
-                if (this.getParent().equals(other.getParent())) {
-                    result = Integer.signum(this.getSiblingPosition() - ((ElementNode) other).getSiblingPosition());
-                } else {
-                    // we must not return 0 here, otherwise the node might be removed as duplicate when creating
-                    // a union set. The the nodes are definitively different nodes (isSameNodeInfo == false).
-                    result = 1;
-                }
-            }
+        if (other instanceof ElementNode) {
+            return Integer.signum(this.id - ((ElementNode) other).id);
+        } else if (other instanceof AttributeNode) {
+            // the attributes of an element follow it
+            final ElementNode otherParent = (ElementNode) other.getParent();
+            return this.id == otherParent.id ? -1 : compareOrder(otherParent);
         }
-        return result;
+        // the document node
+        return 1;
     }
 
 
@@ -211,7 +246,7 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
                 } else {
                     int fp = nodeTest.getFingerprint();
                     if (fp != -1) {
-                        return SingleNodeIterator.makeIterator(getAttributes().get(fp));
+                        return SingleNodeIterator.makeIterator(getAttribute(fp));
                     }
                 }
             }
@@ -228,12 +263,17 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
         case Axis.ANCESTOR_OR_SELF:
             return new Navigator.AncestorEnumeration(this, true);
         case Axis.ATTRIBUTE:
-            return new AttributeEnumeration();
+            final AttributeNode[] attributeNodes = getAttributes();
+            if (attributeNodes.length == 0) {
+                return EmptyIterator.getInstance();
+            } else {
+                return new NodeArrayIterator(attributeNodes);
+            }
         case Axis.CHILD:
-            if (children == null) {
+            if (!hasChildNodes()) {
                 return EmptyIterator.getInstance();
             } else {
-                return new NodeArrayIterator(children);
+                return new NodeArrayIterator(getChildren());
             }
         case Axis.DESCENDANT:
             return new Navigator.DescendantEnumeration(this, false, true);
@@ -242,10 +282,11 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
         case Axis.FOLLOWING:
             return new Navigator.FollowingEnumeration(this);
         case Axis.FOLLOWING_SIBLING:
-            if (parent == null || siblingPosition == parent.children.length - 1) {
+            if (parent == null || siblingPosition == parent.node.getNumChildren() - 1) {
                 return EmptyIterator.getInstance();
             } else {
-                return new NodeArrayIterator(parent.children, siblingPosition + 1, parent.children.length);
+                final NodeInfo[] siblings = parent.getChildren();
+                return new NodeArrayIterator(siblings, siblingPosition + 1, siblings.length);
             }
         case Axis.NAMESPACE:
             return super.iterateAxis(axisNumber);
@@ -257,7 +298,7 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
             if (parent == null || siblingPosition == 0) {
                 return EmptyIterator.getInstance();
             } else {
-                return new NodeArrayIterator(parent.children, 0, siblingPosition);
+                return new NodeArrayIterator(parent.getChildren(), 0, siblingPosition);
             }
         case Axis.SELF:
             return SingleNodeIterator.makeIterator(this);
@@ -267,23 +308,4 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
             return super.iterateAxis(axisNumber);
         }
     }
-
-    private class AttributeEnumeration extends BaseEnumeration {
-
-        private final Iterator<AttributeNode> iter = getAttributes().values().iterator();
-
-        @Override
-        public void advance() {
-            if (iter.hasNext()) {
-                current = iter.next();
-            } else {
-                current = null;
-            }
-        }
-
-        @Override
-        public SequenceIterator getAnother() {
-            return new AttributeEnumeration();
-        }
-    }
 }
@@ -9,6 +9,9 @@ import net.sourceforge.pmd.annotation.InternalApi;
 
 /**
  * This class is used to generate unique IDs for nodes.
+ *
+ * @deprecated Not used anymore, the ids of the {@link ElementNode}s are
+ *     the preorder indices of their AST nodes
  */
 @Deprecated
 @InternalApi
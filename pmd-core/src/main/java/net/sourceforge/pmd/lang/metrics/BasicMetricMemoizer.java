@@ -4,13 +4,14 @@
 
 package net.sourceforge.pmd.lang.metrics;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.sourceforge.pmd.lang.ast.Node;
 
 /**
- * Basic implementation of a metric memoizer.
+ * Basic implementation of a metric memoizer. The memoizer is safe to use from
+ * several threads.
  *
  * @param <N> Type of node on which the memoized metric can be computed
  *
@@ -22,7 +23,7 @@ import net.sourceforge.pmd.lang.ast.Node;
 public class BasicMetricMemoizer<N extends Node> implements MetricMemoizer<N> {
 
 
-    private final Map<ParameterizedMetricKey<N>, Double> memo = new HashMap<>();
+    private final ConcurrentMap<ParameterizedMetricKey<N>, Double> memo = new ConcurrentHashMap<>();
 
 
     @Override
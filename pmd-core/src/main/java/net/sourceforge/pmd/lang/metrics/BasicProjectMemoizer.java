@@ -5,8 +5,8 @@
 package net.sourceforge.pmd.lang.metrics;
 
 import java.util.Map;
-import java.util.WeakHashMap;
 
+import net.sourceforge.pmd.internal.util.CacheUtil;
 import net.sourceforge.pmd.lang.ast.QualifiableNode;
 import net.sourceforge.pmd.lang.ast.QualifiedName;
 
@@ -14,7 +14,8 @@ import net.sourceforge.pmd.lang.ast.QualifiedName;
  * Simple implementation of a project memoizer. Memoizers are accessible in constant time, provided the QualifiedName's
  * hashCode is well distributed.
  *
- * <p>This implementation takes care of recollecting irrelevant memoizers by storing them in {@link WeakHashMap}.
+ * <p>This implementation is safe to use from several threads. The memoizers are kept in maps guarded by a lock,
+ * which hold the {@value #MAX_MEMOIZERS} most recently used memoizers, see {@link CacheUtil#newLruCache(int)}.
  *
  * @param <T> Type of type declaration nodes of the language
  * @param <O> Type of operation declaration nodes of the language
@@ -28,39 +29,43 @@ import net.sourceforge.pmd.lang.ast.QualifiedName;
 public abstract class BasicProjectMemoizer<T extends QualifiableNode, O extends QualifiableNode>
     implements ProjectMemoizer<T, O> {
 
-    private Map<QualifiedName, MetricMemoizer<T>> classes = new WeakHashMap<>();
-    private Map<QualifiedName, MetricMemoizer<O>> operations = new WeakHashMap<>();
+    static final int MAX_MEMOIZERS = 8192;
 
-    private final Object classesSynchronizer = new Object();
-    private final Object operationsSynchronizer = new Object();
+    private final Map<QualifiedName, MetricMemoizer<T>> classes = CacheUtil.newLruCache(MAX_MEMOIZERS);
+    private final Map<QualifiedName, MetricMemoizer<O>> operations = CacheUtil.newLruCache(MAX_MEMOIZERS);
 
     /** Clears all memoizers. Used for tests. */
     public void reset() {
-        classes.clear();
-        operations.clear();
+        synchronized (classes) {
+            classes.clear();
+        }
+        synchronized (operations) {
+            operations.clear();
+        }
     }
 
 
     @Override
     public MetricMemoizer<O> getOperationMemoizer(QualifiedName qname) {
-        synchronized (operationsSynchronizer) {
-            if (!operations.containsKey(qname)) {
-                operations.put(qname, new BasicMetricMemoizer<O>());
-            }
-        }
-
-        return operations.get(qname);
+        return getMemoizer(operations, qname);
     }
 
 
     @Override
     public MetricMemoizer<T> getClassMemoizer(QualifiedName qname) {
-        synchronized (classesSynchronizer) {
-            if (!classes.containsKey(qname)) {
-                classes.put(qname, new BasicMetricMemoizer<T>());
+        return getMemoizer(classes, qname);
+    }
+
+
+    private static <N extends QualifiableNode> MetricMemoizer<N> getMemoizer(
+            Map<QualifiedName, MetricMemoizer<N>> memoizers, QualifiedName qname) {
+        synchronized (memoizers) {
+            MetricMemoizer<N> memoizer = memoizers.get(qname);
+            if (memoizer == null) {
+                memoizer = new BasicMetricMemoizer<>();
+                memoizers.put(qname, memoizer);
             }
+            return memoizer;
         }
-
-        return classes.get(qname);
     }
 }
@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Objects;
 
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.metrics.internal.MetricStore;
 
 /**
  * Utilities to use {@link Metric} instances.
@@ -161,8 +162,21 @@ public final class MetricsUtil {
             return prev;
         }
 
+        // results of the previous runs on unchanged files
+        final MetricStore store = MetricStore.forNode(node);
+        if (!forceRecompute && store != null) {
+            Double stored = store.get(node, paramKey);
+            if (stored != null) {
+                node.getUserMap().set(paramKey, stored);
+                return stored;
+            }
+        }
+
         double val = key.getCalculator().computeFor(node, options);
         node.getUserMap().set(paramKey, val);
+        if (store != null) {
+            store.put(node, paramKey, val);
+        }
         return val;
     }
 
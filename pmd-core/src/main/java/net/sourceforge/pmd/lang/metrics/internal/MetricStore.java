@@ -0,0 +1,296 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.metrics.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.cache.internal.ClasspathFingerprinter;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.QualifiableNode;
+import net.sourceforge.pmd.lang.ast.QualifiedName;
+import net.sourceforge.pmd.lang.metrics.MetricOption;
+import net.sourceforge.pmd.lang.metrics.ParameterizedMetricKey;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.DataKey;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
+
+/**
+ * Stores the results of metrics between runs, so that the metrics of the
+ * classes and operations of unchanged files are not computed again. Results
+ * are keyed by the SHA-256 hash of the source of their file, the qualified
+ * name of the node, and the metric with its implementation and options.
+ * Metrics are thus assumed to only depend on the source of the file of the
+ * node, and on the auxclasspath, which some metrics resolve types with. The
+ * results of another PMD version or auxclasspath are discarded.
+ *
+ * <p>The store is enabled with {@link net.sourceforge.pmd.PMDConfiguration#setMetricStoreLocation(String)}.
+ * It is opened for each analysis, and written at its end with only the results
+ * used during that analysis, so that the results of deleted or changed files
+ * are dropped.
+ *
+ * <p>The store is safe to use from several threads.
+ */
+public final class MetricStore {
+
+    private static final Logger LOG = Logger.getLogger(MetricStore.class.getName());
+
+    private static final int MAGIC = 0x504d444d;
+    private static final int VERSION = 3;
+    private static final ClasspathFingerprinter FINGERPRINTER = new ClasspathFingerprinter();
+
+    /** Set on the root node of the files analysed with a store. */
+    private static final SimpleDataKey<MetricStore> STORE = DataMap.simpleDataKey("metrics.store");
+    /** The source of the file, until its hash is needed. */
+    private static final SimpleDataKey<String> SOURCE = DataMap.simpleDataKey("metrics.source");
+    private static final SimpleDataKey<String> SOURCE_HASH = DataMap.simpleDataKey("metrics.sourceHash");
+
+    private final File storeFile;
+    private final long auxclasspathFingerprint;
+    /** Results of the previous analysis. */
+    private final Map<String, Double> previousResults;
+    /** Results used by the current analysis, which are written back. */
+    private final ConcurrentMap<String, Double> results = new ConcurrentHashMap<>();
+
+    private MetricStore(File storeFile, long auxclasspathFingerprint, Map<String, Double> previousResults) {
+        this.storeFile = storeFile;
+        this.auxclasspathFingerprint = auxclasspathFingerprint;
+        this.previousResults = previousResults;
+    }
+
+    /**
+     * Opens the store held by the given file for a new analysis. A store
+     * which can't be read, or was written by another version of PMD or with
+     * another auxclasspath, is started over.
+     *
+     * @param storeFile                 The file of the store
+     * @param auxclasspathClassLoader   The class loader of the auxclasspath
+     */
+    public static MetricStore open(File storeFile, ClassLoader auxclasspathClassLoader) {
+        final long fingerprint = fingerprint(auxclasspathClassLoader);
+        return new MetricStore(storeFile, fingerprint, read(storeFile, fingerprint));
+    }
+
+    private static long fingerprint(ClassLoader auxclasspathClassLoader) {
+        if (auxclasspathClassLoader instanceof URLClassLoader) {
+            // the class loader is still used by the analysis
+            @SuppressWarnings("PMD.CloseResource")
+            final URLClassLoader urlClassLoader = (URLClassLoader) auxclasspathClassLoader;
+            return FINGERPRINTER.fingerprint(urlClassLoader.getURLs());
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the store the file of the given node is analysed with, or null
+     * if there is none.
+     *
+     * @param node A node
+     */
+    public static MetricStore forNode(Node node) {
+        return rootOf(node).getUserMap().get(STORE);
+    }
+
+    /**
+     * Attaches this store to the file of the given root node. The source is
+     * only hashed once a metric is computed on the file, so files without
+     * metrics don't pay for it.
+     *
+     * @param rootNode The root node of a file
+     * @param source   The source of the file
+     */
+    public void attach(Node rootNode, String source) {
+        rootNode.getUserMap().set(STORE, this);
+        rootNode.getUserMap().set(SOURCE, source);
+    }
+
+    /**
+     * Returns the stored result of the metric on the given node, or null if
+     * there is none.
+     *
+     * @param node The node
+     * @param key  The metric with its options
+     */
+    public Double get(Node node, ParameterizedMetricKey<?> key) {
+        final String storeKey = storeKey(node, key);
+        if (storeKey == null) {
+            return null;
+        }
+        Double result = results.get(storeKey);
+        if (result == null) {
+            result = previousResults.get(storeKey);
+            if (result != null) {
+                results.put(storeKey, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores the result of the metric on the given node, if the node has a
+     * qualified name and the source of its file is known.
+     *
+     * @param node   The node
+     * @param key    The metric with its options
+     * @param result The result
+     */
+    public void put(Node node, ParameterizedMetricKey<?> key, double result) {
+        final String storeKey = storeKey(node, key);
+        if (storeKey != null) {
+            results.put(storeKey, result);
+        }
+    }
+
+    /**
+     * Drops the results held in memory, once the analysis is over.
+     */
+    public void clear() {
+        previousResults.clear();
+        results.clear();
+    }
+
+    /**
+     * Writes the results used during the current analysis to the file of
+     * the store.
+     */
+    public void persist() {
+        try {
+            final File directory = storeFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            // write to a temporary file then rename, so that concurrent runs never see a partial store
+            final File tempFile = File.createTempFile(storeFile.getName(), ".tmp", directory);
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeUTF(PMDVersion.VERSION);
+                    out.writeLong(auxclasspathFingerprint);
+                    out.writeInt(results.size());
+                    for (Map.Entry<String, Double> entry : results.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeDouble(entry.getValue());
+                    }
+                }
+                Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not write the metric store " + storeFile, e);
+        }
+    }
+
+    private static Map<String, Double> read(File storeFile, long auxclasspathFingerprint) {
+        if (!storeFile.isFile()) {
+            return new HashMap<>();
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(storeFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !PMDVersion.VERSION.equals(in.readUTF())) {
+                LOG.log(Level.FINE, "Ignoring the metric store {0} of another version", storeFile);
+                return new HashMap<>();
+            }
+            if (in.readLong() != auxclasspathFingerprint) {
+                LOG.log(Level.FINE, "Ignoring the metric store {0} of another auxclasspath", storeFile);
+                return new HashMap<>();
+            }
+            final int size = in.readInt();
+            final Map<String, Double> results = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                results.put(in.readUTF(), in.readDouble());
+            }
+            return results;
+        } catch (EOFException e) {
+            LOG.log(Level.FINE, "Ignoring the truncated metric store {0}", storeFile);
+            return new HashMap<>();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not read the metric store " + storeFile, e);
+            return new HashMap<>();
+        }
+    }
+
+    private static String storeKey(Node node, ParameterizedMetricKey<?> key) {
+        if (!(node instanceof QualifiableNode)) {
+            return null;
+        }
+        final QualifiedName qname = ((QualifiableNode) node).getQualifiedName();
+        if (qname == null) {
+            return null;
+        }
+        final String sourceHash = sourceHash(rootOf(node));
+        if (sourceHash == null) {
+            return null;
+        }
+
+        // the options are sorted, the order of the set differs between runs
+        final List<String> options = new ArrayList<>();
+        for (MetricOption option : key.options.getOptions()) {
+            options.add(option.valueName());
+        }
+        Collections.sort(options);
+        return sourceHash + ' ' + qname + ' ' + key.key.name() + ' '
+            + key.key.getCalculator().getClass().getName() + options;
+    }
+
+    private static Node rootOf(Node node) {
+        Node root = node;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        return root;
+    }
+
+    /** Returns the hash of the source of the file, computing it on first use. */
+    private static String sourceHash(Node root) {
+        final DataMap<DataKey<?, ?>> userMap = root.getUserMap();
+        String sourceHash = userMap.get(SOURCE_HASH);
+        if (sourceHash == null) {
+            final String source = userMap.get(SOURCE);
+            if (source == null) {
+                return null;
+            }
+            // a file is only analysed by a single thread
+            sourceHash = hash(source);
+            userMap.set(SOURCE_HASH, sourceHash);
+            userMap.set(SOURCE, null);
+        }
+        return sourceHash;
+    }
+
+    private static String hash(String source) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    }
+}
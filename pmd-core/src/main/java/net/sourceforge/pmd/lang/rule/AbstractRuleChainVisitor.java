@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.lang.rule;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -43,9 +44,49 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
 
     /**
      * This is a mapping from node names to nodes instances for the current AST.
+     * Shares its lists with the index by node kind, which is the one used to
+     * visit the nodes.
+     *
+     * @deprecated The nodes are indexed by node kind. This field is kept populated
+     *     for subclasses which read it, and will be removed with 7.0.0
      */
+    @Deprecated
     protected Map<String, List<Node>> nodeNameToNodes;
 
+    /** Kind of a node which no rule visits. */
+    private static final int NO_KIND = -1;
+    /** Kind of a node id which has not been looked up yet. */
+    private static final int UNKNOWN_KIND = -2;
+
+    /**
+     * This is a mapping from node names to dense node kinds, for the node names
+     * visited by at least one rule. Built on initialization.
+     */
+    private Map<String, Integer> nodeNameToKind;
+
+    /**
+     * The kind of the nodes with a given id, or {@link #UNKNOWN_KIND}. Only used if
+     * {@link #isNodeNameDeterminedById()}, grows as new ids are seen.
+     */
+    private int[] nodeIdToKind;
+
+    /**
+     * The nodes of the current AST, indexed by node kind.
+     */
+    private List<List<Node>> kindToNodes;
+
+    /**
+     * The rules participating in the RuleChain, grouped by RuleSet, with their
+     * rule references resolved and the node kinds they visit. Built on initialization.
+     */
+    private Map<RuleSet, List<ChainedRule>> ruleSetChainedRules;
+
+    /**
+     * Shares the evaluation of the XPath rules of {@link #ruleSetChainedRules}
+     * which have the same query, null if there's none. Built on initialization.
+     */
+    private XPathRuleChainPlan xpathPlan;
+
     /**
      * @see RuleChainVisitor#add(RuleSet, Rule)
      */
@@ -74,14 +115,15 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
 
         // For each RuleSet, only if this source file applies
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_RULE)) {
-            for (Map.Entry<RuleSet, List<Rule>> entry : ruleSetRules.entrySet()) {
+            for (Map.Entry<RuleSet, List<ChainedRule>> entry : ruleSetChainedRules.entrySet()) {
                 RuleSet ruleSet = entry.getKey();
                 if (!ruleSet.applies(ctx.getSourceCodeFile())) {
                     continue;
                 }
 
                 // For each rule, allow it to visit the nodes it desires
-                for (Rule rule : entry.getValue()) {
+                for (ChainedRule chainedRule : entry.getValue()) {
+                    final Rule rule = chainedRule.rule;
                     int visits = 0;
                     if (!RuleSet.applies(rule, ctx.getLanguageVersion())) {
                         continue;
@@ -89,18 +131,17 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
                     // CPD-OFF
                     try (TimedOperation rcto = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_RULE, rule.getName())) {
                         ctx.setCurrentRule(rule);
-                        final List<String> nodeNames = rule.getRuleChainVisits();
-                        for (int j = 0; j < nodeNames.size(); j++) {
-                            List<Node> ns = nodeNameToNodes.get(nodeNames.get(j));
-                            for (Node node : ns) {
-                                // Visit with underlying Rule, not the RuleReference
-                                Rule actualRule = rule;
-                                while (actualRule instanceof RuleReference) {
-                                    actualRule = ((RuleReference) actualRule).getRule();
+                        if (chainedRule.sharedQuery != null) {
+                            visits = chainedRule.sharedQuery.apply((XPathRule) chainedRule.actualRule, kindToNodes, ctx);
+                        } else {
+                            for (int kind : chainedRule.visitedKinds) {
+                                final List<Node> ns = kindToNodes.get(kind);
+                                for (int j = 0; j < ns.size(); j++) {
+                                    // Visit with underlying Rule, not the RuleReference
+                                    visit(chainedRule.actualRule, ns.get(j), ctx);
                                 }
-                                visit(actualRule, node, ctx);
+                                visits += ns.size();
                             }
-                            visits += ns.size();
                         }
                         rcto.close(visits);
                     } catch (RuntimeException e) {
@@ -120,6 +161,10 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
                     // CPD-ON
                 }
             }
+        } finally {
+            if (xpathPlan != null) {
+                xpathPlan.clear();
+            }
         }
     }
 
@@ -137,12 +182,44 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
      * Index a single node for visitation by rules.
      */
     protected void indexNode(Node node) {
-        List<Node> nodes = nodeNameToNodes.get(node.getXPathNodeName());
-        if (nodes != null) {
-            nodes.add(node);
+        final int kind = nodeIdToKind == null ? getKind(node.getXPathNodeName()) : getKindById(node);
+        if (kind != NO_KIND) {
+            kindToNodes.get(kind).add(node);
         }
     }
 
+    /**
+     * Returns true if the XPath node name of the nodes of this language only
+     * depends on their {@link Node#jjtGetId() id}. Nodes are then indexed by
+     * id instead of by name. False by default.
+     */
+    protected boolean isNodeNameDeterminedById() {
+        return false;
+    }
+
+    private int getKindById(Node node) {
+        final int id = node.jjtGetId();
+        if (id < 0) {
+            return getKind(node.getXPathNodeName());
+        }
+        if (id >= nodeIdToKind.length) {
+            final int oldLength = nodeIdToKind.length;
+            nodeIdToKind = Arrays.copyOf(nodeIdToKind, Math.max(id + 1, 2 * oldLength));
+            Arrays.fill(nodeIdToKind, oldLength, nodeIdToKind.length, UNKNOWN_KIND);
+        }
+        int kind = nodeIdToKind[id];
+        if (kind == UNKNOWN_KIND) {
+            kind = getKind(node.getXPathNodeName());
+            nodeIdToKind[id] = kind;
+        }
+        return kind;
+    }
+
+    private int getKind(String nodeName) {
+        final Integer kind = nodeNameToKind.get(nodeName);
+        return kind == null ? NO_KIND : kind;
+    }
+
     /**
      * Initialize the RuleChainVisitor to be ready to perform visitations. This
      * method should not be called until it is known that all Rules
@@ -152,7 +229,7 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
      * possible to ensure that manipulation of the Rules is no longer occurring.
      */
     protected void initialize() {
-        if (nodeNameToNodes != null) {
+        if (ruleSetChainedRules != null) {
             return;
         }
 
@@ -180,14 +257,35 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
             }
         }
 
-        // Setup the data structure to manage mapping node names to node
+        // Setup the data structure to manage mapping node kinds to node
         // instances. We intend to reuse this data structure between
         // visits to different ASTs.
+        nodeNameToKind = new HashMap<>();
         nodeNameToNodes = new HashMap<>();
+        kindToNodes = new ArrayList<>(visitedNodes.size());
         for (String s : visitedNodes) {
             List<Node> nodes = new ArrayList<>(100);
+            nodeNameToKind.put(s, kindToNodes.size());
             nodeNameToNodes.put(s, nodes);
+            kindToNodes.add(nodes);
+        }
+
+        if (isNodeNameDeterminedById()) {
+            nodeIdToKind = new int[0];
+        }
+
+        // Resolve the rule references and visited node kinds once
+        ruleSetChainedRules = new LinkedHashMap<>();
+        for (Map.Entry<RuleSet, List<Rule>> entry : ruleSetRules.entrySet()) {
+            List<ChainedRule> chainedRules = new ArrayList<>(entry.getValue().size());
+            for (Rule rule : entry.getValue()) {
+                chainedRules.add(new ChainedRule(rule, nodeNameToKind));
+            }
+            ruleSetChainedRules.put(entry.getKey(), chainedRules);
         }
+
+        // Share the evaluation of identical XPath queries
+        xpathPlan = XPathRuleChainPlan.extract(ruleSetChainedRules);
     }
 
     private void logXPathRuleChainUsage(boolean usesRuleChain, Rule rule) {
@@ -212,8 +310,37 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
      * between visiting different ASTs.
      */
     protected void clear() {
-        for (List<Node> l : nodeNameToNodes.values()) {
+        for (List<Node> l : kindToNodes) {
             l.clear();
         }
     }
+
+    /**
+     * A rule participating in the RuleChain.
+     */
+    static final class ChainedRule {
+        /** The rule as it appears in the ruleset, maybe a rule reference. */
+        final Rule rule;
+        /** The rule which visits the nodes. */
+        final Rule actualRule;
+        final int[] visitedKinds;
+        /** The query shared with other rules, if this is an XPath rule which can share it. */
+        XPathRuleChainPlan.SharedQuery sharedQuery;
+
+        ChainedRule(Rule rule, Map<String, Integer> nodeNameToKind) {
+            this.rule = rule;
+
+            Rule actual = rule;
+            while (actual instanceof RuleReference) {
+                actual = ((RuleReference) actual).getRule();
+            }
+            this.actualRule = actual;
+
+            final List<String> nodeNames = rule.getRuleChainVisits();
+            this.visitedKinds = new int[nodeNames.size()];
+            for (int i = 0; i < visitedKinds.length; i++) {
+                visitedKinds[i] = nodeNameToKind.get(nodeNames.get(i));
+            }
+        }
+    }
 }
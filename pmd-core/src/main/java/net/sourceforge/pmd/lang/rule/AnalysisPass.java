@@ -0,0 +1,87 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.annotation.InternalApi;
+
+/**
+ * An optional processing stage run on the AST of a file before the rules are
+ * applied. Only the passes needed by the rules applied to a file are run.
+ *
+ * @see AnalysisPassAwareRule
+ * @deprecated This is internal API, will be removed with 7.0.0
+ */
+@Deprecated
+@InternalApi
+public enum AnalysisPass {
+    QUALIFIED_NAMES("Qualified names"),
+    SYMBOL_TABLE("Symbol table", QUALIFIED_NAMES),
+    DFA("Data flow", SYMBOL_TABLE),
+    TYPE_RESOLUTION("Type resolution", SYMBOL_TABLE),
+    MULTIFILE("Multifile", SYMBOL_TABLE);
+
+    private final String displayName;
+    // not an EnumSet, the enum isn't initialized yet
+    private final AnalysisPass[] prerequisites;
+
+    AnalysisPass(String displayName, AnalysisPass... prerequisites) {
+        this.displayName = displayName;
+        this.prerequisites = prerequisites;
+    }
+
+    /**
+     * Returns the name of this pass in the timing report.
+     */
+    public String displayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns the passes needed by the given rule, including the passes
+     * they depend on. Rules which don't implement {@link AnalysisPassAwareRule}
+     * need the qualified names and the symbol table. In any case, the passes
+     * enabled by {@link Rule#isDfa()}, {@link Rule#isTypeResolution()} and
+     * {@link Rule#isMultifile()} are needed.
+     *
+     * @param rule A rule, maybe a rule reference
+     */
+    public static Set<AnalysisPass> requiredBy(Rule rule) {
+        Rule actualRule = rule;
+        while (actualRule instanceof RuleReference) {
+            actualRule = ((RuleReference) actualRule).getRule();
+        }
+
+        final Set<AnalysisPass> passes = EnumSet.noneOf(AnalysisPass.class);
+        if (actualRule instanceof AnalysisPassAwareRule) {
+            for (AnalysisPass pass : ((AnalysisPassAwareRule) actualRule).getRequiredAnalysisPasses()) {
+                pass.addTo(passes);
+            }
+        } else {
+            SYMBOL_TABLE.addTo(passes);
+        }
+        if (rule.isDfa()) {
+            DFA.addTo(passes);
+        }
+        if (rule.isTypeResolution()) {
+            TYPE_RESOLUTION.addTo(passes);
+        }
+        if (rule.isMultifile()) {
+            MULTIFILE.addTo(passes);
+        }
+        return passes;
+    }
+
+    private void addTo(Set<AnalysisPass> passes) {
+        if (passes.add(this)) {
+            for (AnalysisPass prerequisite : prerequisites) {
+                prerequisite.addTo(passes);
+            }
+        }
+    }
+}
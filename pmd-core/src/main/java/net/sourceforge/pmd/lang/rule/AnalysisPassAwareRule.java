@@ -0,0 +1,31 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import java.util.Set;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.annotation.InternalApi;
+
+/**
+ * A rule which declares the analysis passes it reads the results of. The
+ * passes are skipped on the files none of the applied rules need them for.
+ * Rules which don't implement this interface are assumed to need the
+ * qualified names and the symbol table.
+ *
+ * @see AnalysisPass#requiredBy(Rule)
+ * @deprecated This is internal API, will be removed with 7.0.0
+ */
+@Deprecated
+@InternalApi
+public interface AnalysisPassAwareRule extends Rule {
+
+    /**
+     * Returns the passes this rule needs. The passes they depend on don't
+     * need to be included, nor the passes enabled by {@link #isDfa()},
+     * {@link #isTypeResolution()} and {@link #isMultifile()}.
+     */
+    Set<AnalysisPass> getRequiredAnalysisPasses();
+}
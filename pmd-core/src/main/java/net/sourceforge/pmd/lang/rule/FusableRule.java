@@ -0,0 +1,50 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * A rule which can share a single traversal of the AST with other rules,
+ * see {@link FusedRuleTraversal}.
+ *
+ * <p>A fusable rule must produce the same results when it is applied to the
+ * root nodes, as when it is started on each outermost node it is interested in,
+ * in document order. This is the case for visitor based rules, which only
+ * visit the children of the nodes they don't override a visit method for.
+ *
+ * @deprecated This is internal API, will be removed with 7.0.0
+ */
+@Deprecated
+@InternalApi
+public interface FusableRule extends Rule {
+
+    /**
+     * Returns true if this rule can take part in a fused traversal. Rules
+     * which customize how they are applied to the root nodes should return false.
+     */
+    boolean isFusable();
+
+    /**
+     * Returns true if this rule needs to be started on nodes of the given type.
+     * Answering true for a type the rule doesn't care about is correct, but
+     * leaves less traversal to share.
+     *
+     * @param nodeType The concrete class of a node
+     */
+    boolean isInterestedIn(Class<? extends Node> nodeType);
+
+    /**
+     * Starts this rule on the given node, which is the root of a subtree no
+     * other call to this method covers for the current file.
+     *
+     * @param node A node this rule is interested in
+     * @param ctx  The rule context
+     */
+    void visitFused(Node node, RuleContext ctx);
+}
@@ -0,0 +1,239 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Applies all {@link FusableRule fusable rules} of some rulesets in a single
+ * pre-order traversal of the AST, instead of letting each rule traverse the
+ * whole AST on its own.
+ *
+ * <p>Each rule is started on the outermost nodes it is interested in, and
+ * traverses these subtrees itself. The traversal of the nodes none of the rules
+ * are interested in is shared between all rules.
+ *
+ * <p>The time each rule spends on the nodes it is started on is tracked as
+ * a single call of the rule per file. The number of traversals saved is
+ * tracked as the counter of the {@code "Fused traversal"} measurement of
+ * {@link TimedOperationCategory#RULE}. The time saved is not measured: an
+ * estimate, which assumes each saved traversal would have taken as long as
+ * the shared one, is logged at level FINE.
+ *
+ * <p>Instances are not thread-safe, like the {@link net.sourceforge.pmd.RuleSets}
+ * which own them.
+ *
+ * @deprecated This is internal API, will be removed with 7.0.0
+ */
+@Deprecated
+@InternalApi
+public class FusedRuleTraversal {
+
+    private static final Logger LOG = Logger.getLogger(FusedRuleTraversal.class.getName());
+
+    /** The rules as they appear in their ruleset, maybe rule references. */
+    private final List<Rule> rules = new ArrayList<>();
+    /** The ruleset of each rule, to check if it applies to the current file. */
+    private final List<RuleSet> ruleSets = new ArrayList<>();
+    /** The rules to start on the nodes, with rule references resolved. */
+    private final List<FusableRule> targets = new ArrayList<>();
+
+    /** Indices of the rules interested in each node type, computed on demand. */
+    private final Map<Class<? extends Node>, BitSet> interestByNodeType = new HashMap<>();
+
+    /** Rules which threw an exception on the current file. */
+    private BitSet failed;
+    /** Rules which were started on some node of the current file. */
+    private BitSet dispatched;
+    private long dispatchNanos;
+
+    /**
+     * Creates a traversal for all fusable rules of the given rulesets.
+     *
+     * @param ruleSets The rulesets
+     */
+    public FusedRuleTraversal(List<RuleSet> ruleSets) {
+        for (RuleSet ruleSet : ruleSets) {
+            for (Rule rule : ruleSet.getRules()) {
+                if (isFusable(rule)) {
+                    this.rules.add(rule);
+                    this.ruleSets.add(ruleSet);
+                    this.targets.add((FusableRule) unwrap(rule));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given rule is applied by a fused traversal, rather
+     * than on its own.
+     *
+     * @param rule A rule, maybe a rule reference
+     */
+    public static boolean isFusable(Rule rule) {
+        if (rule.isRuleChain()) {
+            return false;
+        }
+        final Rule actualRule = unwrap(rule);
+        return actualRule instanceof FusableRule && ((FusableRule) actualRule).isFusable();
+    }
+
+    /**
+     * Returns true if there is no rule to apply.
+     */
+    public boolean isEmpty() {
+        return targets.isEmpty();
+    }
+
+    /**
+     * Applies the rules which apply to the current file and language version
+     * on the given root nodes.
+     *
+     * @param nodes The root nodes of the current file
+     * @param ctx   The rule context
+     */
+    public void apply(List<? extends Node> nodes, RuleContext ctx) {
+        final BitSet active = activeRules(ctx);
+        if (active.isEmpty()) {
+            return;
+        }
+
+        final int savedTraversals = active.cardinality() - 1;
+        final long walkNanos;
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.RULE, "Fused traversal")) {
+            failed = new BitSet(targets.size());
+            dispatched = new BitSet(targets.size());
+            dispatchNanos = 0;
+            final long start = System.nanoTime();
+            for (Node node : nodes) {
+                walk(node, active, ctx);
+            }
+            walkNanos = System.nanoTime() - start - dispatchNanos;
+
+            // each rule was timed on every node it was started on, count it once for the file
+            for (int i = dispatched.nextSetBit(0); i >= 0; i = dispatched.nextSetBit(i + 1)) {
+                TimeTracker.countOperation(TimedOperationCategory.RULE, rules.get(i).getName());
+            }
+            to.close(savedTraversals);
+        }
+
+        if (savedTraversals > 0 && LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Fused traversal of " + ctx.getSourceCodeFile() + " saved " + savedTraversals
+                    + " traversals, estimated time saved: " + walkNanos * savedTraversals / 1000 + " us");
+        }
+    }
+
+    private BitSet activeRules(RuleContext ctx) {
+        final BitSet active = new BitSet(targets.size());
+        RuleSet lastRuleSet = null;
+        boolean lastRuleSetApplies = false;
+        for (int i = 0; i < rules.size(); i++) {
+            // rules of a ruleset are contiguous
+            final RuleSet ruleSet = ruleSets.get(i);
+            if (ruleSet != lastRuleSet) { // NOPMD - intentional check for reference equality
+                lastRuleSet = ruleSet;
+                lastRuleSetApplies = ruleSet.applies(ctx.getSourceCodeFile());
+            }
+            if (lastRuleSetApplies && RuleSet.applies(rules.get(i), ctx.getLanguageVersion())) {
+                active.set(i);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Starts the rules interested in the node, and continues with the children
+     * for the rules which are not.
+     *
+     * @param searching The rules which have not been started on an ancestor
+     */
+    private void walk(Node node, BitSet searching, RuleContext ctx) {
+        BitSet remaining = searching;
+
+        final BitSet interested = getInterestedRules(node.getClass());
+        if (interested.intersects(searching)) {
+            remaining = (BitSet) searching.clone();
+            remaining.andNot(interested);
+
+            for (int i = interested.nextSetBit(0); i >= 0; i = interested.nextSetBit(i + 1)) {
+                if (searching.get(i) && !failed.get(i)) {
+                    dispatch(i, node, ctx);
+                }
+            }
+
+            if (remaining.isEmpty()) {
+                return;
+            }
+        }
+
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            walk(node.getChild(i), remaining, ctx);
+        }
+    }
+
+    private void dispatch(int ruleIndex, Node node, RuleContext ctx) {
+        final Rule rule = rules.get(ruleIndex);
+        final long start = System.nanoTime();
+        dispatched.set(ruleIndex);
+        try (TimedOperation rto = TimeTracker.startOperationPart(TimedOperationCategory.RULE, rule.getName())) {
+            ctx.setCurrentRule(rule);
+            targets.get(ruleIndex).visitFused(node, ctx);
+        } catch (RuntimeException e) {
+            if (ctx.isIgnoreExceptions()) {
+                // like a rule traversing on its own, the rule stops at the first exception
+                failed.set(ruleIndex);
+                ctx.getReport().addError(new Report.ProcessingError(e, String.valueOf(ctx.getSourceCodeFile())));
+
+                if (LOG.isLoggable(Level.WARNING)) {
+                    LOG.log(Level.WARNING, "Exception applying rule " + rule.getName() + " on file "
+                            + ctx.getSourceCodeFile() + ", continuing with next rule", e);
+                }
+            } else {
+                throw e;
+            }
+        } finally {
+            ctx.setCurrentRule(null);
+            dispatchNanos += System.nanoTime() - start;
+        }
+    }
+
+    private BitSet getInterestedRules(Class<? extends Node> nodeType) {
+        BitSet interested = interestByNodeType.get(nodeType);
+        if (interested == null) {
+            interested = new BitSet(targets.size());
+            for (int i = 0; i < targets.size(); i++) {
+                if (targets.get(i).isInterestedIn(nodeType)) {
+                    interested.set(i);
+                }
+            }
+            interestByNodeType.put(nodeType, interested);
+        }
+        return interested;
+    }
+
+    private static Rule unwrap(Rule rule) {
+        Rule actualRule = rule;
+        while (actualRule instanceof RuleReference) {
+            actualRule = ((RuleReference) actualRule).getRule();
+        }
+        return actualRule;
+    }
+}
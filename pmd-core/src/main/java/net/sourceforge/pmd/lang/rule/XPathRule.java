@@ -8,16 +8,23 @@ import static net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery.XPATH_1_0;
 import static net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery.XPATH_1_0_COMPATIBILITY;
 import static net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery.XPATH_2_0;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 
 import net.sourceforge.pmd.Rule;
 import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
 import net.sourceforge.pmd.lang.rule.xpath.JaxenXPathRuleQuery;
@@ -25,12 +32,13 @@ import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
 import net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery;
 import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
 import net.sourceforge.pmd.properties.EnumeratedProperty;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.StringProperty;
 
 /**
  * Rule that tries to match an XPath expression against a DOM view of an AST.
  */
-public class XPathRule extends AbstractRule {
+public class XPathRule extends AbstractRule implements AnalysisPassAwareRule {
 
     /**
      * @deprecated Use {@link #XPathRule(XPathVersion, String)}
@@ -73,6 +81,9 @@ public class XPathRule extends AbstractRule {
     // this is shared with rules forked by deepCopy, used by the XPathRuleQuery
     private DeprecatedAttrLogger attrLogger = DeprecatedAttrLogger.create(this);
 
+    /** Whether a subclass customizes how the rule is applied, computed once. */
+    private Boolean customized;
+
     /**
      * Creates a new XPathRule without the corresponding XPath query.
      *
@@ -152,13 +163,50 @@ public class XPathRule extends AbstractRule {
         setProperty(XPathRule.VERSION_DESCRIPTOR, version);
     }
 
+    /**
+     * XPath functions may read the qualified names and the symbol table.
+     * The type resolution needed by {@code typeIs} is enabled by default,
+     * see {@link #isTypeResolution()}.
+     */
+    @Override
+    public Set<AnalysisPass> getRequiredAnalysisPasses() {
+        return EnumSet.of(AnalysisPass.QUALIFIED_NAMES, AnalysisPass.SYMBOL_TABLE);
+    }
+
     @Override
     public void apply(List<? extends Node> nodes, RuleContext ctx) {
+        final SaxonXPathRuleQuery query = getSharedQuery();
         for (Node node : nodes) {
+            if (query != null && cannotMatch(query, node, getName())) {
+                continue;
+            }
             evaluate(node, ctx);
         }
     }
 
+    /**
+     * Returns true if the query can't match any node in the file of the given
+     * node, because the file lacks the node names the query requires. The
+     * checks are recorded in the timing report, the counter is the number of
+     * skipped evaluations.
+     *
+     * @param query The query
+     * @param node  Any node of the file
+     * @param label The label of the check in the timing report
+     */
+    static boolean cannotMatch(SaxonXPathRuleQuery query, Node node, String label) {
+        if (query.getRequiredNodeNames().isEmpty()) {
+            return false;
+        }
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.XPATH_RULE_SKIP, label)) {
+            if (query.mayMatch(node)) {
+                return false;
+            }
+            to.close(1);
+            return true;
+        }
+    }
+
     /**
      * Evaluate the XPath query with the AST node. All matches are reported as violations.
      *
@@ -173,12 +221,67 @@ public class XPathRule extends AbstractRule {
             initXPathRuleQuery();
         }
 
-        List<Node> nodesWithViolation = xpathRuleQuery.evaluate(node, data);
+        addViolations(xpathRuleQuery.evaluate(node, data), data);
+    }
+
+    /**
+     * Reports the nodes matched by the query as violations.
+     */
+    void addViolations(List<Node> nodesWithViolation, RuleContext data) {
         for (Node nodeWithViolation : nodesWithViolation) {
             addViolation(data, nodeWithViolation, nodeWithViolation.getImage());
         }
     }
 
+    /**
+     * Returns the query of this rule if the rule chain may share its
+     * evaluation with other rules which have the same query, see {@link XPathRuleChainPlan}.
+     * This is the case for Saxon queries, unless a subclass customizes how
+     * the rule is applied. Returns null otherwise.
+     */
+    SaxonXPathRuleQuery getSharedQuery() {
+        if (xPathRuleQueryNeedsInitialization()) {
+            initXPathRuleQuery();
+        }
+        if (!(xpathRuleQuery instanceof SaxonXPathRuleQuery) || isCustomized()) {
+            return null;
+        }
+        return (SaxonXPathRuleQuery) xpathRuleQuery;
+    }
+
+    private boolean isCustomized() {
+        if (customized == null) {
+            boolean overrides = false;
+            for (Class<?> c = getClass(); c != XPathRule.class && !overrides; c = c.getSuperclass()) {
+                overrides = declaresMethod(c, "apply", List.class, RuleContext.class)
+                    || declaresMethod(c, "evaluate", Node.class, RuleContext.class);
+            }
+            customized = overrides;
+        }
+        return customized;
+    }
+
+    /**
+     * Returns a key which is equal for two rules whose queries always have
+     * the same results: same expression, same version and same property values.
+     */
+    Object getSharedQueryKey() {
+        final Map<String, String> values = new TreeMap<>();
+        for (Map.Entry<PropertyDescriptor<?>, Object> entry : getPropertiesByPropertyDescriptor().entrySet()) {
+            values.put(entry.getKey().name(), String.valueOf(entry.getValue()));
+        }
+        return Arrays.<Object>asList(getClass(), values);
+    }
+
+    private static boolean declaresMethod(Class<?> c, String name, Class<?>... parameterTypes) {
+        try {
+            c.getDeclaredMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     /**
      * Initializes {@link #xpathRuleQuery} iff {@link #xPathRuleQueryNeedsInitialization()} is true. To select the
      * engine in which the query will be run it looks at the XPath version.
@@ -0,0 +1,167 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.AbstractRuleChainVisitor.ChainedRule;
+import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
+import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery.FileEvaluation;
+
+/**
+ * Shares the evaluation of the XPath rules of a rule chain which have the
+ * same query, i.e. the same expression and the same property values, like
+ * the same rule referenced from several rulesets.
+ *
+ * <p>The rules are still applied one after the other, in the order of the
+ * rule chain. The first rule of a group to be applied to a file evaluates
+ * the query on the indexed nodes, and the other rules of the group report
+ * the same matches without evaluating the query again. The variables of the
+ * query are bound once per file instead of once per node. A query is not
+ * evaluated at all on the files which lack the node names it requires.
+ *
+ * <p>Queries with different expressions are evaluated separately, no parts
+ * of them are shared.
+ *
+ * <p>Like the rule chain which owns it, a plan is not thread-safe.
+ */
+final class XPathRuleChainPlan {
+
+    private final List<SharedQuery> queries;
+
+    private XPathRuleChainPlan(List<SharedQuery> queries) {
+        this.queries = queries;
+    }
+
+    /**
+     * Assigns a shared query to the XPath rules among the given chained
+     * rules whose queries can be shared, and returns a plan which manages
+     * these queries.
+     *
+     * @param ruleSetChainedRules The chained rules, by ruleset
+     *
+     * @return The plan, or null if there's no such rule
+     */
+    static XPathRuleChainPlan extract(Map<RuleSet, List<ChainedRule>> ruleSetChainedRules) {
+        final Map<Object, SharedQuery> queriesByKey = new LinkedHashMap<>();
+        for (List<ChainedRule> chainedRules : ruleSetChainedRules.values()) {
+            for (ChainedRule chainedRule : chainedRules) {
+                if (!(chainedRule.actualRule instanceof XPathRule)) {
+                    continue;
+                }
+                final XPathRule xpathRule = (XPathRule) chainedRule.actualRule;
+                final SaxonXPathRuleQuery query = xpathRule.getSharedQuery();
+                if (query == null) {
+                    continue;
+                }
+
+                final Object key = xpathRule.getSharedQueryKey();
+                SharedQuery sharedQuery = queriesByKey.get(key);
+                if (sharedQuery == null) {
+                    sharedQuery = new SharedQuery(query, chainedRule.visitedKinds);
+                    queriesByKey.put(key, sharedQuery);
+                }
+                chainedRule.sharedQuery = sharedQuery;
+            }
+        }
+
+        if (queriesByKey.isEmpty()) {
+            return null;
+        }
+        return new XPathRuleChainPlan(new ArrayList<>(queriesByKey.values()));
+    }
+
+    /**
+     * Forgets the results of the queries on the previous file, so that
+     * they're evaluated again, and so that the AST isn't retained.
+     */
+    void clear() {
+        for (SharedQuery query : queries) {
+            query.clear();
+        }
+    }
+
+    /**
+     * A query shared by rules, and its results on the current file.
+     */
+    static final class SharedQuery {
+        private final SaxonXPathRuleQuery query;
+        private final int[] visitedKinds;
+
+        private boolean evaluated;
+        private List<Node> matches;
+        private RuntimeException failure;
+
+        SharedQuery(SaxonXPathRuleQuery query, int[] visitedKinds) {
+            this.query = query;
+            this.visitedKinds = visitedKinds;
+        }
+
+        void clear() {
+            evaluated = false;
+            matches = null;
+            failure = null;
+        }
+
+        /**
+         * Reports the matches of the query on the current file for the given
+         * rule, evaluating the query if no other rule did already. If the
+         * evaluation failed, the matches found before the failure are
+         * reported, and the exception is thrown, like if the rule had been
+         * applied on its own.
+         *
+         * @param rule        The rule to report the violations for
+         * @param kindToNodes The nodes of the current file, indexed by node kind
+         * @param ctx         The rule context, whose current rule is the rule
+         *
+         * @return The number of visited nodes
+         */
+        int apply(XPathRule rule, List<List<Node>> kindToNodes, RuleContext ctx) {
+            if (!evaluated) {
+                evaluate(kindToNodes, rule.getName());
+            }
+            rule.addViolations(matches, ctx);
+            if (failure != null) {
+                throw failure;
+            }
+
+            int visits = 0;
+            for (int kind : visitedKinds) {
+                visits += kindToNodes.get(kind).size();
+            }
+            return visits;
+        }
+
+        private void evaluate(List<List<Node>> kindToNodes, String label) {
+            evaluated = true;
+            matches = new ArrayList<>();
+            FileEvaluation evaluation = null;
+            try {
+                for (int kind : visitedKinds) {
+                    final List<Node> nodes = kindToNodes.get(kind);
+                    for (int i = 0; i < nodes.size(); i++) {
+                        final Node node = nodes.get(i);
+                        if (evaluation == null) {
+                            if (XPathRule.cannotMatch(query, node, label)) {
+                                // the query can't match anything in this file
+                                return;
+                            }
+                            evaluation = query.startFileEvaluation(node);
+                        }
+                        matches.addAll(evaluation.evaluate(node));
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.annotation.Experimental;
+import net.sourceforge.pmd.internal.util.CacheUtil;
+import net.sourceforge.pmd.lang.rule.RuleReference;
+import net.sourceforge.pmd.lang.rule.XPathRule;
+import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery.CompiledQuery;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+
+/**
+ * A process-wide cache of the compiled XPath 2.0 expressions of XPath rules.
+ *
+ * <p>Each copy of a ruleset, eg one per analysis thread, has its own XPath
+ * rules and queries. Compiling and analysing the expression of a query for
+ * the rule chain is only done once per expression though, and the result is
+ * shared by all the queries with the same expression, version and properties,
+ * on all threads. The compiled expressions are not modified after their
+ * compilation. Property values are bound when a query is evaluated, so rules
+ * which only differ by their property values share their compiled expression.
+ *
+ * <p>Long-lived embedders, eg IDE plugins or build daemons, can compile the
+ * expressions of their rulesets ahead of time with {@link #warmUp(Collection)}.
+ */
+@Experimental
+public final class CompiledXPathCache {
+
+    private static final Logger LOG = Logger.getLogger(CompiledXPathCache.class.getName());
+
+    /** Bounds the cache, see {@link CacheUtil#putIfAbsentBounded}. */
+    private static final int MAX_SIZE = 4096;
+
+    private static final ConcurrentMap<List<Object>, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private CompiledXPathCache() {
+        // utility class
+    }
+
+    /**
+     * Compiles the XPath 2.0 expressions of the XPath rules of the given
+     * rulesets, if they're not already in the cache. Rules whose expression
+     * is invalid are ignored, they will report the error when they are applied.
+     *
+     * @param ruleSets The rulesets
+     *
+     * @return The number of XPath 2.0 rules whose expression is now compiled
+     */
+    public static int warmUp(Collection<? extends RuleSet> ruleSets) {
+        int compiled = 0;
+        for (RuleSet ruleSet : ruleSets) {
+            for (Rule rule : ruleSet.getRules()) {
+                Rule actual = rule;
+                while (actual instanceof RuleReference) {
+                    actual = ((RuleReference) actual).getRule();
+                }
+                if (actual instanceof XPathRule && warmUp((XPathRule) actual)) {
+                    compiled++;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private static boolean warmUp(XPathRule rule) {
+        final XPathVersion version = rule.getVersion();
+        if (version == null || version == XPathVersion.XPATH_1_0 || rule.dysfunctionReason() != null) {
+            return false;
+        }
+        try {
+            getCompiledQuery(rule.getXPathExpression(), version.getXmlName(),
+                             rule.getPropertiesByPropertyDescriptor().keySet());
+            return true;
+        } catch (RuntimeException e) {
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.log(Level.FINE, "Could not compile the XPath expression of rule " + rule.getName(), e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of compiled expressions in the cache.
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * Removes all the compiled expressions from the cache. Queries which
+     * already use them are not affected.
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    /**
+     * Returns the compiled expression for a query, compiles it if needed.
+     * Concurrent callers asking for the same expression wait for a single
+     * compilation.
+     *
+     * @param xpath       The XPath expression
+     * @param version     The XPath version
+     * @param descriptors The properties of the rule, which are the variables of the expression
+     */
+    static CompiledQuery getCompiledQuery(String xpath, String version, Collection<PropertyDescriptor<?>> descriptors) {
+        final List<String> variableNames = new ArrayList<>(descriptors.size());
+        for (PropertyDescriptor<?> descriptor : descriptors) {
+            if (!"xpath".equals(descriptor.name())) {
+                variableNames.add(descriptor.name());
+            }
+        }
+
+        final List<Object> key = Arrays.<Object>asList(xpath, version, variableNames);
+        Entry entry = CACHE.get(key);
+        if (entry == null) {
+            entry = new Entry(xpath, version, variableNames);
+            final Entry previous = CacheUtil.putIfAbsentBounded(CACHE, key, entry, MAX_SIZE);
+            if (previous != null) {
+                entry = previous;
+            }
+        }
+        return entry.get();
+    }
+
+    private static final class Entry {
+        private final String xpath;
+        private final String version;
+        private final List<String> variableNames;
+        /** Guarded by this entry. */
+        private CompiledQuery compiled;
+
+        Entry(String xpath, String version, List<String> variableNames) {
+            this.xpath = xpath;
+            this.version = version;
+            this.variableNames = variableNames;
+        }
+
+        CompiledQuery get() {
+            // only the rules using this expression wait on its compilation
+            synchronized (this) {
+                if (compiled == null) {
+                    compiled = SaxonXPathRuleQuery.compile(xpath, version, variableNames);
+                }
+                return compiled;
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -19,6 +20,7 @@ import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.xpath.internal.AstNodeOwner;
 import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
+import net.sourceforge.pmd.lang.ast.xpath.internal.NodeNamePresence;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.ElementNode;
 import net.sourceforge.pmd.lang.rule.xpath.internal.RuleChainAnalyzer;
@@ -33,6 +35,8 @@ import net.sf.saxon.om.Item;
 import net.sf.saxon.om.NamePool;
 import net.sf.saxon.om.NamespaceConstant;
 import net.sf.saxon.om.SequenceIterator;
+import net.sf.saxon.om.SingletonIterator;
+import net.sf.saxon.om.UnfailingIterator;
 import net.sf.saxon.om.ValueRepresentation;
 import net.sf.saxon.sxpath.AbstractStaticContext;
 import net.sf.saxon.sxpath.IndependentContext;
@@ -78,7 +82,7 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
     /**
      * Contains for each nodeName a sub expression, used for implementing rule chain.
      */
-    Map<String, List<Expression>> nodeNameToXPaths = new HashMap<>();
+    Map<String, List<Expression>> nodeNameToXPaths = Collections.emptyMap();
 
     /**
      * Representation of an XPath query, created at {@link #initializeXPathExpression()} using {@link #xpath}.
@@ -92,6 +96,9 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
      */
     private List<XPathVariable> xpathVariables;
 
+    /** The compilation of the expression, shared with other queries. */
+    private CompiledQuery compiled;
+
     private final DeprecatedAttrLogger attrCtx;
 
     @Deprecated
@@ -117,30 +124,46 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
             documentNode.setAttrCtx(attrCtx); //
 
             // Map AST Node -> Saxon Node
-            final ElementNode rootElementNode = documentNode.nodeToElementNode.get(node);
+            final ElementNode rootElementNode = documentNode.getElementNode(node);
             assert rootElementNode != null : "Cannot find " + node;
             final XPathDynamicContext xpathDynamicContext = createDynamicContext(rootElementNode);
+            return evaluate(xpathDynamicContext, node);
+        } catch (final XPathException e) {
+            throw new RuntimeException(super.xpath + " had problem: " + e.getMessage(), e);
+        }
+    }
 
-            final List<Node> results = new LinkedList<>();
-            List<Expression> expressions = getXPathExpressionForNodeOrDefault(node.getXPathNodeName());
-            for (Expression expression : expressions) {
-                SequenceIterator iterator = expression.iterate(xpathDynamicContext.getXPathContextObject());
-                Item current = iterator.next();
-                while (current != null) {
-                    if (current instanceof AstNodeOwner) {
-                        results.add(((AstNodeOwner) current).getUnderlyingNode());
-                    } else {
-                        throw new RuntimeException("XPath rule expression returned a non-node (" + current.getClass() + "): " + current);
-                    }
-                    current = iterator.next();
+    /**
+     * Starts evaluating this query on nodes of the AST of the given node, on
+     * behalf of the rule chain. The variables of the query are bound only once
+     * for all the nodes evaluated with the returned object.
+     *
+     * @param node Any node of the AST
+     */
+    @InternalApi
+    public FileEvaluation startFileEvaluation(final Node node) {
+        initializeXPathExpression();
+        return new FileEvaluation(getDocumentNodeForRootNode(node));
+    }
+
+    private List<Node> evaluate(final XPathDynamicContext xpathDynamicContext, final Node node) throws XPathException {
+        final List<Node> results = new LinkedList<>();
+        List<Expression> expressions = getXPathExpressionForNodeOrDefault(node.getXPathNodeName());
+        for (Expression expression : expressions) {
+            SequenceIterator iterator = expression.iterate(xpathDynamicContext.getXPathContextObject());
+            Item current = iterator.next();
+            while (current != null) {
+                if (current instanceof AstNodeOwner) {
+                    results.add(((AstNodeOwner) current).getUnderlyingNode());
+                } else {
+                    throw new RuntimeException("XPath rule expression returned a non-node (" + current.getClass() + "): " + current);
                 }
+                current = iterator.next();
             }
-
-            Collections.sort(results, RuleChainAnalyzer.documentOrderComparator());
-            return results;
-        } catch (final XPathException e) {
-            throw new RuntimeException(super.xpath + " had problem: " + e.getMessage(), e);
         }
+
+        Collections.sort(results, RuleChainAnalyzer.documentOrderComparator());
+        return results;
     }
 
     private List<Expression> getXPathExpressionForNodeOrDefault(String nodeName) {
@@ -223,20 +246,68 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
         return root;
     }
 
-    private void addExpressionForNode(String nodeName, Expression expression) {
-        if (!nodeNameToXPaths.containsKey(nodeName)) {
-            nodeNameToXPaths.put(nodeName, new LinkedList<Expression>());
-        }
-        nodeNameToXPaths.get(nodeName).add(expression);
-    }
-
     /**
      * Initialize the {@link #xpathExpression} and the {@link #xpathVariables}.
+     * The compiled expression is shared with the queries which have the same
+     * expression, see {@link CompiledXPathCache}.
      */
     private void initializeXPathExpression() {
         if (xpathExpression != null) {
             return;
         }
+        final CompiledQuery compiled = CompiledXPathCache.getCompiledQuery(xpath, version, super.properties.keySet());
+        xpathVariables = compiled.xpathVariables;
+        nodeNameToXPaths = compiled.nodeNameToXPaths;
+        super.ruleChainVisits.addAll(compiled.ruleChainVisits);
+        this.compiled = compiled;
+        xpathExpression = compiled.xpathExpression;
+    }
+
+    /**
+     * Returns the node names which must be present in a file for this query
+     * to match any node of it, as alternatives. Empty if any file may match.
+     *
+     * @see RuleChainAnalyzer#requiredNodeNames(Expression, NamePool)
+     */
+    @InternalApi
+    public List<Set<String>> getRequiredNodeNames() {
+        initializeXPathExpression();
+        return compiled.requiredNodeNames;
+    }
+
+    /**
+     * Returns false if this query can't match any node of the AST of the
+     * given node, because the AST doesn't contain nodes the query requires.
+     * The node names present in the AST are recorded when its Saxon tree is
+     * built, so this is cheap if another query was already evaluated on it.
+     *
+     * @param node Any node of the AST
+     */
+    @InternalApi
+    public boolean mayMatch(final Node node) {
+        initializeXPathExpression();
+        if (compiled.requiredNodeNameBits.length == 0) {
+            return true;
+        }
+        final NodeNamePresence presence = getDocumentNodeForRootNode(node).getNodeNamePresence();
+        for (int[] alternative : compiled.requiredNodeNameBits) {
+            if (presence.containsAll(alternative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compiles an expression, and splits it into the sub expressions used by
+     * the rule chain.
+     *
+     * @param xpath         The XPath expression
+     * @param version       The XPath version
+     * @param variableNames The names of the variables of the expression, in
+     *                      the order in which they are declared
+     */
+    static CompiledQuery compile(final String xpath, final String version, final List<String> variableNames) {
         try {
             final XPathEvaluator xpathEvaluator = new XPathEvaluator();
             final XPathStaticContext xpathStaticContext = xpathEvaluator.getStaticContext();
@@ -257,23 +328,25 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
             static context, and reused later to associate an actual value on the dynamic context creation, in
             createDynamicContext(ElementNode).
             */
-            xpathVariables = new ArrayList<>();
-            for (final PropertyDescriptor<?> propertyDescriptor : super.properties.keySet()) {
-                final String name = propertyDescriptor.name();
-                if (!"xpath".equals(name)) {
-                    final XPathVariable xpathVariable = xpathStaticContext.declareVariable(null, name);
-                    xpathVariables.add(xpathVariable);
-                }
+            final List<XPathVariable> xpathVariables = new ArrayList<>();
+            for (final String name : variableNames) {
+                xpathVariables.add(xpathStaticContext.declareVariable(null, name));
             }
 
-            xpathExpression = xpathEvaluator.createExpression(super.xpath);
-            analyzeXPathForRuleChain(xpathEvaluator);
+            final XPathExpression xpathExpression = xpathEvaluator.createExpression(xpath);
+            return new CompiledQuery(xpathExpression, xpathVariables,
+                                     analyzeXPathForRuleChain(xpath, xpathEvaluator, xpathExpression),
+                                     RuleChainAnalyzer.requiredNodeNames(xpathExpression.getInternalExpression(),
+                                                                         getNamePool()));
         } catch (final XPathException e) {
             throw new RuntimeException(e);
         }
     }
-    
-    private void analyzeXPathForRuleChain(final XPathEvaluator xpathEvaluator) {
+
+    private static Map<String, List<Expression>> analyzeXPathForRuleChain(final String xpath,
+                                                                          final XPathEvaluator xpathEvaluator,
+                                                                          final XPathExpression xpathExpression) {
+        final Map<String, List<Expression>> nodeNameToXPaths = new HashMap<>();
         final Expression expr = xpathExpression.getInternalExpression();
 
         boolean useRuleChain = true;
@@ -287,7 +360,7 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
             Expression modified = rca.visit(subexpression);
 
             if (rca.getRootElement() != null) {
-                addExpressionForNode(rca.getRootElement(), modified);
+                addExpressionForNode(nodeNameToXPaths, rca.getRootElement(), modified);
             } else {
                 // couldn't find a root element for the expression, that means, we can't use rule chain at all
                 // even though, it would be possible for part of the expression.
@@ -296,9 +369,7 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
             }
         }
 
-        if (useRuleChain) {
-            super.ruleChainVisits.addAll(nodeNameToXPaths.keySet());
-        } else {
+        if (!useRuleChain) {
             nodeNameToXPaths.clear();
             if (LOG.isLoggable(Level.FINE)) {
                 LOG.log(Level.FINE, "Unable to use RuleChain for XPath: " + xpath);
@@ -306,7 +377,16 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
         }
 
         // always add fallback expression
-        addExpressionForNode(AST_ROOT, xpathExpression.getInternalExpression());
+        addExpressionForNode(nodeNameToXPaths, AST_ROOT, xpathExpression.getInternalExpression());
+        return nodeNameToXPaths;
+    }
+
+    private static void addExpressionForNode(Map<String, List<Expression>> nodeNameToXPaths,
+                                             String nodeName, Expression expression) {
+        if (!nodeNameToXPaths.containsKey(nodeName)) {
+            nodeNameToXPaths.put(nodeName, new LinkedList<Expression>());
+        }
+        nodeNameToXPaths.get(nodeName).add(expression);
     }
 
     /**
@@ -370,4 +450,92 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
     public static NamePool getNamePool() {
         return NAME_POOL;
     }
+
+    /**
+     * The result of the compilation of an expression, shared by all the
+     * queries with this expression. It is not modified after its creation.
+     */
+    static final class CompiledQuery {
+        final XPathExpression xpathExpression;
+        final List<XPathVariable> xpathVariables;
+        final Map<String, List<Expression>> nodeNameToXPaths;
+        /** The node names of the rule chain, empty if the rule chain can't be used. */
+        final List<String> ruleChainVisits;
+        /** The alternative sets of node names a file must contain to match, empty if none is required. */
+        final List<Set<String>> requiredNodeNames;
+        /** The bits of {@link #requiredNodeNames}, see {@link NodeNamePresence#bitOf(String)}. */
+        final int[][] requiredNodeNameBits;
+
+        CompiledQuery(XPathExpression xpathExpression, List<XPathVariable> xpathVariables,
+                      Map<String, List<Expression>> nodeNameToXPaths, List<Set<String>> requiredNodeNames) {
+            this.xpathExpression = xpathExpression;
+            this.xpathVariables = Collections.unmodifiableList(xpathVariables);
+
+            final Map<String, List<Expression>> expressions = new HashMap<>();
+            final List<String> visits = new ArrayList<>();
+            for (Map.Entry<String, List<Expression>> entry : nodeNameToXPaths.entrySet()) {
+                expressions.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+                if (!AST_ROOT.equals(entry.getKey())) {
+                    visits.add(entry.getKey());
+                }
+            }
+            this.nodeNameToXPaths = Collections.unmodifiableMap(expressions);
+            this.ruleChainVisits = Collections.unmodifiableList(visits);
+
+            final List<Set<String>> required = new ArrayList<>(requiredNodeNames.size());
+            this.requiredNodeNameBits = new int[requiredNodeNames.size()][];
+            for (int i = 0; i < requiredNodeNames.size(); i++) {
+                final Set<String> names = requiredNodeNames.get(i);
+                required.add(Collections.unmodifiableSet(names));
+                requiredNodeNameBits[i] = new int[names.size()];
+                int j = 0;
+                for (String name : names) {
+                    requiredNodeNameBits[i][j++] = NodeNamePresence.bitOf(name);
+                }
+            }
+            this.requiredNodeNames = Collections.unmodifiableList(required);
+        }
+    }
+
+    /**
+     * Evaluates a query on many nodes of the same AST, reusing the dynamic
+     * context of the query, where the variables are bound, from one node to
+     * the next. Like the query, this is not thread-safe.
+     *
+     * @see #startFileEvaluation(Node)
+     */
+    @InternalApi
+    public final class FileEvaluation {
+        private final DocumentNode documentNode;
+        private XPathDynamicContext xpathDynamicContext;
+
+        private FileEvaluation(DocumentNode documentNode) {
+            this.documentNode = documentNode;
+        }
+
+        /**
+         * Evaluates the query on the given node, like {@link SaxonXPathRuleQuery#evaluate(Node, RuleContext)}.
+         */
+        public List<Node> evaluate(final Node node) {
+            // the Saxon tree is shared with the other queries
+            documentNode.setAttrCtx(attrCtx);
+            final ElementNode elementNode = documentNode.getElementNode(node);
+            assert elementNode != null : "Cannot find " + node;
+
+            try {
+                if (xpathDynamicContext == null) {
+                    xpathDynamicContext = createDynamicContext(elementNode);
+                } else {
+                    // like XPathDynamicContext#setContextItem, which can't check the
+                    // configuration of our nodes, as they don't know it
+                    final UnfailingIterator contextItem = SingletonIterator.makeIterator(elementNode);
+                    contextItem.next();
+                    xpathDynamicContext.getXPathContextObject().setCurrentIterator(contextItem);
+                }
+                return SaxonXPathRuleQuery.this.evaluate(xpathDynamicContext, node);
+            } catch (final XPathException e) {
+                throw new RuntimeException(xpath + " had problem: " + e.getMessage(), e);
+            }
+        }
+    }
 }
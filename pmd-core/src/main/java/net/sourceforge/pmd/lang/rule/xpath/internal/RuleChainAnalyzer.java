@@ -5,9 +5,13 @@
 package net.sourceforge.pmd.lang.rule.xpath.internal;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import net.sourceforge.pmd.lang.ast.Node;
 
@@ -16,11 +20,16 @@ import net.sf.saxon.expr.AxisExpression;
 import net.sf.saxon.expr.Expression;
 import net.sf.saxon.expr.FilterExpression;
 import net.sf.saxon.expr.LazyExpression;
+import net.sf.saxon.expr.LetExpression;
 import net.sf.saxon.expr.PathExpression;
 import net.sf.saxon.expr.RootExpression;
+import net.sf.saxon.expr.Token;
+import net.sf.saxon.expr.VennExpression;
 import net.sf.saxon.om.Axis;
+import net.sf.saxon.om.NamePool;
 import net.sf.saxon.pattern.CombinedNodeTest;
 import net.sf.saxon.pattern.NameTest;
+import net.sf.saxon.pattern.NodeTest;
 import net.sf.saxon.sort.DocumentSorter;
 import net.sf.saxon.type.Type;
 
@@ -38,6 +47,12 @@ import net.sf.saxon.type.Type;
  * after all (sub)expressions have been executed.
  */
 public class RuleChainAnalyzer extends SaxonExprVisitor {
+
+    /** Expressions with more alternatives than this are considered to have no required node names. */
+    private static final int MAX_ALTERNATIVES = 16;
+
+    private static final List<Set<String>> NO_REQUIREMENT = Collections.singletonList(Collections.<String>emptySet());
+
     private final Configuration configuration;
     private String rootElement;
     private boolean rootElementReplaced;
@@ -146,4 +161,100 @@ public class RuleChainAnalyzer extends SaxonExprVisitor {
         }
     }
 
+    /**
+     * Returns the node names which must be present in an AST for the expression
+     * to select any node of it. The result is a list of alternatives: the
+     * expression can only select nodes if all the names of one of them are
+     * present. E.g. "(//A | //B)/C[D]" results in the alternatives {A, C} and
+     * {B, C}. Only the steps which select the resulting nodes are considered,
+     * not the predicates.
+     *
+     * @param expr     The expression
+     * @param namePool The name pool the expression was compiled with
+     *
+     * @return The alternatives, or an empty list if any tree may match
+     */
+    public static List<Set<String>> requiredNodeNames(Expression expr, NamePool namePool) {
+        final List<Set<String>> alternatives = requiredNodeNamesOf(expr, namePool);
+        return alternatives == NO_REQUIREMENT ? Collections.<Set<String>>emptyList() : alternatives;
+    }
+
+    private static List<Set<String>> requiredNodeNamesOf(Expression expr, NamePool namePool) {
+        if (expr instanceof DocumentSorter) {
+            return requiredNodeNamesOf(((DocumentSorter) expr).getBaseExpression(), namePool);
+        } else if (expr instanceof FilterExpression) {
+            // the filter selects some of the nodes of the base
+            return requiredNodeNamesOf(((FilterExpression) expr).getBaseExpression(), namePool);
+        } else if (expr instanceof LetExpression) {
+            return requiredNodeNamesOf(((LetExpression) expr).getAction(), namePool);
+        } else if (expr instanceof PathExpression) {
+            final PathExpression path = (PathExpression) expr;
+            return allOf(requiredNodeNamesOf(path.getStartExpression(), namePool),
+                         requiredNodeNamesOf(path.getStepExpression(), namePool));
+        } else if (expr instanceof VennExpression) {
+            final VennExpression venn = (VennExpression) expr;
+            final List<Set<String>> first = requiredNodeNamesOf(venn.getOperands()[0], namePool);
+            final List<Set<String>> second = requiredNodeNamesOf(venn.getOperands()[1], namePool);
+            return combine(venn.getOperator(), first, second);
+        } else if (expr instanceof AxisExpression) {
+            return requiredNodeNamesOf(((AxisExpression) expr).getNodeTest(), namePool);
+        }
+        return NO_REQUIREMENT;
+    }
+
+    private static List<Set<String>> requiredNodeNamesOf(NodeTest test, NamePool namePool) {
+        if (test instanceof NameTest && test.getPrimitiveType() == Type.ELEMENT) {
+            final String name = namePool.getClarkName(test.getFingerprint());
+            return Collections.singletonList(Collections.singleton(name));
+        } else if (test instanceof CombinedNodeTest) {
+            // eg a union of steps on the same axis, like (//a | //b), is optimized to a single step
+            final CombinedNodeTest combined = (CombinedNodeTest) test;
+            final NodeTest[] components = combined.getComponentNodeTests();
+            final List<Set<String>> first = requiredNodeNamesOf(components[0], namePool);
+            final List<Set<String>> second = requiredNodeNamesOf(components[1], namePool);
+            return combine(combined.getOperator(), first, second);
+        }
+        return NO_REQUIREMENT;
+    }
+
+    private static List<Set<String>> combine(int operator, List<Set<String>> first, List<Set<String>> second) {
+        switch (operator) {
+        case Token.UNION:
+            return anyOf(first, second);
+        case Token.INTERSECT:
+            return allOf(first, second);
+        default:
+            // except
+            return first;
+        }
+    }
+
+    private static List<Set<String>> allOf(List<Set<String>> first, List<Set<String>> second) {
+        if (first == NO_REQUIREMENT) {
+            return second;
+        } else if (second == NO_REQUIREMENT) {
+            return first;
+        } else if (first.size() * second.size() > MAX_ALTERNATIVES) {
+            return NO_REQUIREMENT;
+        }
+        final List<Set<String>> result = new ArrayList<>(first.size() * second.size());
+        for (Set<String> a : first) {
+            for (Set<String> b : second) {
+                final Set<String> both = new HashSet<>(a);
+                both.addAll(b);
+                result.add(both);
+            }
+        }
+        return result;
+    }
+
+    private static List<Set<String>> anyOf(List<Set<String>> first, List<Set<String>> second) {
+        if (first == NO_REQUIREMENT || second == NO_REQUIREMENT
+                || first.size() + second.size() > MAX_ALTERNATIVES) {
+            return NO_REQUIREMENT;
+        }
+        final List<Set<String>> result = new ArrayList<>(first);
+        result.addAll(second);
+        return result;
+    }
 }
@@ -5,21 +5,44 @@
 package net.sourceforge.pmd.lang.symboltable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Base class for any {@link Scope}. Provides useful default implementations.
+ *
+ * <p>The declarations are stored in flat tables: an array of declarations in
+ * declaration order, the array of their occurrence lists at the same indices,
+ * and the indices of the declarations by image. Looking up a name is a hash
+ * lookup instead of a scan of all the declarations of the scope. The maps
+ * returned by {@link #getDeclarations(Class)} are views over these tables,
+ * built on first use. As before, a declaration equal to one already in the
+ * scope replaces its occurrences; declarations are assumed to be equal only
+ * if they have the same image.
  */
 public abstract class AbstractScope implements Scope {
 
+    private static final int INITIAL_CAPACITY = 4;
+
     private Scope parent;
-    /** Stores the name declaration already sorted by class. */
-    private Map<Class<? extends NameDeclaration>, Map<NameDeclaration, List<NameOccurrence>>> nameDeclarations = new LinkedHashMap<>();
+
+    /** The declarations, in declaration order. */
+    private NameDeclaration[] declarations;
+    /** The occurrences of each declaration, indexed like the declarations. */
+    private List<NameOccurrence>[] occurrences;
+    private int declarationCount;
+    /** The indices of the declarations, by image. */
+    private Map<String, int[]> indicesByImage;
+    /** The views returned by {@link #getDeclarations(Class)}, dropped when a declaration is added. */
+    private Map<Class<? extends NameDeclaration>, Map<NameDeclaration, List<NameOccurrence>>> views;
 
     @Override
     public Scope getParent() {
@@ -33,41 +56,148 @@ public abstract class AbstractScope implements Scope {
 
     @Override
     public Map<NameDeclaration, List<NameOccurrence>> getDeclarations() {
+        // grouped by class, in order of the first declaration of each class
+        Set<Class<? extends NameDeclaration>> classes = new LinkedHashSet<>();
+        for (int i = 0; i < declarationCount; i++) {
+            classes.add(declarations[i].getClass());
+        }
         Map<NameDeclaration, List<NameOccurrence>> result = new LinkedHashMap<>();
-        for (Map<NameDeclaration, List<NameOccurrence>> e : nameDeclarations.values()) {
-            result.putAll(e);
+        for (Class<? extends NameDeclaration> clazz : classes) {
+            result.putAll(getDeclarations(clazz));
         }
         return result;
     }
 
     @Override
     public <T extends NameDeclaration> Map<T, List<NameOccurrence>> getDeclarations(Class<T> clazz) {
-        @SuppressWarnings("unchecked")
-        Map<T, List<NameOccurrence>> result = (Map<T, List<NameOccurrence>>) nameDeclarations.get(clazz);
-        if (result == null) {
-            result = Collections.emptyMap();
+        if (views == null) {
+            views = new HashMap<>();
         }
+        Map<NameDeclaration, List<NameOccurrence>> view = views.get(clazz);
+        if (view == null) {
+            view = new LinkedHashMap<>();
+            for (int i = 0; i < declarationCount; i++) {
+                if (declarations[i].getClass() == clazz) {
+                    view.put(declarations[i], occurrences[i]);
+                }
+            }
+            if (view.isEmpty()) {
+                view = Collections.emptyMap();
+            }
+            views.put(clazz, view);
+        }
+        @SuppressWarnings("unchecked")
+        Map<T, List<NameOccurrence>> result = (Map<T, List<NameOccurrence>>) (Map<?, ?>) view;
         return result;
     }
 
     @Override
     public boolean contains(NameOccurrence occ) {
-        for (NameDeclaration d : getDeclarations().keySet()) {
-            if (d.getImage().equals(occ.getImage())) {
-                return true;
-            }
-        }
-        return false;
+        return indicesByImage != null && indicesByImage.containsKey(occ.getImage());
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void addDeclaration(NameDeclaration declaration) {
-        Map<NameDeclaration, List<NameOccurrence>> declarationsPerClass = nameDeclarations.get(declaration.getClass());
-        if (declarationsPerClass == null) {
-            declarationsPerClass = new LinkedHashMap<>();
-            nameDeclarations.put(declaration.getClass(), declarationsPerClass);
+        views = null;
+        String image = declaration.getImage();
+        int[] indices = getIndices(image);
+        for (int index : indices) {
+            if (declarations[index].getClass() == declaration.getClass() && declaration.equals(declarations[index])) {
+                // the first declaration is kept, with a fresh list of occurrences
+                occurrences[index] = new ArrayList<>();
+                return;
+            }
+        }
+
+        if (declarations == null) {
+            declarations = new NameDeclaration[INITIAL_CAPACITY];
+            occurrences = new List[INITIAL_CAPACITY];
+            indicesByImage = new HashMap<>();
+        } else if (declarationCount == declarations.length) {
+            declarations = Arrays.copyOf(declarations, declarationCount * 2);
+            occurrences = Arrays.copyOf(occurrences, declarationCount * 2);
+        }
+        declarations[declarationCount] = declaration;
+        occurrences[declarationCount] = new ArrayList<>();
+        indices = Arrays.copyOf(indices, indices.length + 1);
+        indices[indices.length - 1] = declarationCount;
+        indicesByImage.put(image, indices);
+        declarationCount++;
+    }
+
+    private int[] getIndices(String image) {
+        int[] indices = indicesByImage == null ? null : indicesByImage.get(image);
+        return indices == null ? new int[0] : indices;
+    }
+
+    /**
+     * Returns the declarations of exactly the given class which have the given
+     * image, in declaration order.
+     *
+     * @param clazz The class of the declarations
+     * @param image The image of the declarations
+     */
+    protected <T extends NameDeclaration> List<T> findDeclarations(Class<T> clazz, String image) {
+        int[] indices = getIndices(image);
+        if (indices.length == 0) {
+            return Collections.emptyList();
         }
-        declarationsPerClass.put(declaration, new ArrayList<NameOccurrence>());
+        List<T> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            if (declarations[index].getClass() == clazz) {
+                result.add(clazz.cast(declarations[index]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first declaration of exactly the given class which has the
+     * given image, or null if there is none.
+     *
+     * @param clazz The class of the declaration
+     * @param image The image of the declaration
+     */
+    protected <T extends NameDeclaration> T findDeclaration(Class<T> clazz, String image) {
+        return findDeclaration(clazz, Collections.singleton(image));
+    }
+
+    /**
+     * Returns the first declaration of exactly the given class whose image
+     * is one of the given images, or null if there is none.
+     *
+     * @param clazz  The class of the declaration
+     * @param images The possible images of the declaration
+     */
+    protected <T extends NameDeclaration> T findDeclaration(Class<T> clazz, Collection<String> images) {
+        int first = declarationCount;
+        for (String image : images) {
+            for (int index : getIndices(image)) {
+                if (index < first && declarations[index].getClass() == clazz) {
+                    first = index;
+                    break;
+                }
+            }
+        }
+        return first < declarationCount ? clazz.cast(declarations[first]) : null;
+    }
+
+    /**
+     * Returns the occurrences of the declaration of exactly the given class
+     * which is equal to the given declaration, or null if there is none.
+     *
+     * @param clazz       The class of the declaration
+     * @param declaration The declaration
+     */
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull") // null means the declaration is not in this scope
+    protected List<NameOccurrence> getOccurrences(Class<? extends NameDeclaration> clazz, NameDeclaration declaration) {
+        for (int index : getIndices(declaration.getImage())) {
+            if (declarations[index].getClass() == clazz && declaration.equals(declarations[index])) {
+                return occurrences[index];
+            }
+        }
+        return null;
     }
 
     @SuppressWarnings("unchecked")
@@ -86,11 +216,9 @@ public abstract class AbstractScope implements Scope {
     @Override
     public Set<NameDeclaration> addNameOccurrence(NameOccurrence occurrence) {
         Set<NameDeclaration> result = new HashSet<>();
-        for (Map.Entry<NameDeclaration, List<NameOccurrence>> e : getDeclarations().entrySet()) {
-            if (e.getKey().getImage().equals(occurrence.getImage())) {
-                result.add(e.getKey());
-                e.getValue().add(occurrence);
-            }
+        for (int index : getIndices(occurrence.getImage())) {
+            result.add(declarations[index]);
+            occurrences[index].add(occurrence);
         }
         return result;
     }
@@ -4,7 +4,9 @@
 
 package net.sourceforge.pmd.lang.xpath;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,6 +17,7 @@ import org.jaxen.SimpleFunctionContext;
 import org.jaxen.XPathFunctionContext;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.internal.util.CacheUtil;
 import net.sourceforge.pmd.lang.ast.xpath.Attribute;
 
 // FIXME Can this function be extended to work on non-AST attributes?
@@ -22,6 +25,13 @@ import net.sourceforge.pmd.lang.ast.xpath.Attribute;
 @Deprecated
 public class MatchesFunction implements Function {
 
+    /** Bounds the cache, see {@link CacheUtil#newLruCache(int)}. */
+    private static final int MAX_CACHED_PATTERNS = 1024;
+
+    // rules call the function with a few constant regexes, compile them once
+    private static final Map<String, Pattern> PATTERNS = Collections.synchronizedMap(
+        CacheUtil.<String, Pattern>newLruCache(MAX_CACHED_PATTERNS));
+
     public static void registerSelfInSimpleContext() {
         // see http://jaxen.org/extensions.html
         ((SimpleFunctionContext) XPathFunctionContext.getInstance()).registerFunction(null, "matches",
@@ -37,7 +47,7 @@ public class MatchesFunction implements Function {
         Attribute attr = (Attribute) attributes.get(0);
 
         for (int i = 1; i < args.size(); i++) {
-            Pattern check = Pattern.compile((String) args.get(i));
+            Pattern check = getPattern((String) args.get(i));
             Matcher matcher = check.matcher(attr.getStringValue());
             if (matcher.find()) {
                 return context.getNodeSet();
@@ -48,7 +58,7 @@ public class MatchesFunction implements Function {
 
     public static boolean matches(String s, String... patterns) {
         for (String pattern : patterns) {
-            Pattern check = Pattern.compile(pattern);
+            Pattern check = getPattern(pattern);
             Matcher matcher = check.matcher(s);
             if (matcher.find()) {
                 return true;
@@ -56,4 +66,16 @@ public class MatchesFunction implements Function {
         }
         return false;
     }
+
+    /**
+     * Returns the compiled pattern for the given regex.
+     */
+    private static Pattern getPattern(String regex) {
+        Pattern pattern = PATTERNS.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            PATTERNS.put(regex, pattern);
+        }
+        return pattern;
+    }
 }
@@ -4,7 +4,10 @@
 
 package net.sourceforge.pmd.processor;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -25,6 +28,9 @@ import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.metrics.internal.MetricStore;
 import net.sourceforge.pmd.renderers.Renderer;
 import net.sourceforge.pmd.util.IOUtil;
 import net.sourceforge.pmd.util.datasource.DataSource;
@@ -42,6 +48,11 @@ public abstract class AbstractPMDProcessor {
 
     protected final PMDConfiguration configuration;
 
+    /** The report all per-file reports are merged into, only touched by the consumer thread. */
+    private Report globalReport;
+    private boolean retainViolations = true;
+    private int violationCount;
+
     public AbstractPMDProcessor(PMDConfiguration configuration) {
         this.configuration = configuration;
     }
@@ -127,24 +138,38 @@ public abstract class AbstractPMDProcessor {
     // the data sources must only be closed after the threads are finished
     // this is done manually without a try-with-resources
     public void processFiles(RuleSets rulesets, List<DataSource> files, RuleContext ctx, List<Renderer> renderers) {
+        MetricStore metricStore = null;
         try {
             reportBrokenRules(ctx.getReport(), rulesets);
 
             // render base report first - general errors
             renderReports(renderers, ctx.getReport());
+            globalReport = ctx.getReport();
 
             configuration.getAnalysisCache().checkValidity(rulesets, configuration.getClassLoader());
-            final SourceCodeProcessor processor = new SourceCodeProcessor(configuration);
+            metricStore = openMetricStore();
+            final SourceCodeProcessor processor = new SourceCodeProcessor(configuration, metricStore);
+            final List<MultifileIndexTask> indexTasks = indexProject(rulesets, files, processor);
 
-            for (final DataSource dataSource : files) {
+            for (int i = 0; i < files.size(); i++) {
+                final DataSource dataSource = files.get(i);
                 // this is the real, canonical and absolute filename (not shortened)
                 String realFileName = dataSource.getNiceFileName(false, null);
 
-                runAnalysis(new PmdRunnable(dataSource, realFileName, renderers, ctx, rulesets, processor));
+                final PmdRunnable runnable = new PmdRunnable(dataSource, realFileName, renderers, ctx, rulesets, processor);
+                if (!indexTasks.isEmpty()) {
+                    // the indexing pass already read the file, the task doesn't hold it anymore
+                    runnable.setContents(indexTasks.get(i).takeContents());
+                }
+                runAnalysis(runnable);
             }
 
             // then add analysis results per file
             collectReports(renderers);
+
+            if (metricStore != null) {
+                metricStore.persist();
+            }
         } catch (RuntimeException e) {
             throw new ContextedRuntimeException(e).addContextValue("filename", String.valueOf(ctx.getSourceCodeFile()));
         } finally {
@@ -153,7 +178,114 @@ public abstract class AbstractPMDProcessor {
             for (DataSource dataSource : files) {
                 IOUtil.closeQuietly(dataSource);
             }
+            if (metricStore != null) {
+                metricStore.clear();
+            }
+        }
+    }
+
+    private MetricStore openMetricStore() {
+        final String location = configuration.getMetricStoreLocation();
+        return location == null ? null : MetricStore.open(new File(location), configuration.getClassLoader());
+    }
+
+    /**
+     * Gathers the multifile data of all files before any rule runs, so that
+     * the rules see the whole project rather than the files processed so far.
+     * Does nothing if no rule uses multifile analysis, or if the analysis
+     * cache can be reused for all files.
+     *
+     * @return The indexing task of each file, which hold the contents of the
+     *     files, or an empty list if the project was not indexed
+     */
+    @SuppressWarnings("PMD.CloseResource") // the data sources are closed by processFiles
+    private List<MultifileIndexTask> indexProject(RuleSets rulesets, List<DataSource> files,
+                                                  SourceCodeProcessor processor) {
+        boolean usesMultifile = false;
+        for (Language language : LanguageRegistry.getLanguages()) {
+            if (rulesets.usesMultifile(language)) {
+                language.getDefaultVersion().getLanguageVersionHandler().resetMultifileData();
+                usesMultifile = true;
+            }
+        }
+        if (!usesMultifile || isProjectUpToDate(rulesets, files, processor)) {
+            return Collections.emptyList();
+        }
+
+        final List<MultifileIndexTask> tasks = new ArrayList<>(files.size());
+        for (final DataSource dataSource : files) {
+            tasks.add(new MultifileIndexTask(dataSource, dataSource.getNiceFileName(false, null), rulesets, processor));
+        }
+        if (runIndexing(new ArrayList<Runnable>(tasks))) {
+            processor.projectIndexed();
+        }
+        return tasks;
+    }
+
+    @SuppressWarnings("PMD.CloseResource") // the data sources are closed by processFiles
+    private static boolean isProjectUpToDate(RuleSets rulesets, List<DataSource> files, SourceCodeProcessor processor) {
+        for (final DataSource dataSource : files) {
+            if (!processor.isUpToDate(new File(dataSource.getNiceFileName(false, null)), rulesets)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the tasks of the multifile indexing pass, and returns once all of
+     * them are done. By default, they run one after the other on the current thread.
+     *
+     * @return Whether all tasks ran, false if the indexing was interrupted
+     */
+    protected boolean runIndexing(List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        return true;
+    }
+
+    /**
+     * Sets whether the violations of each file are merged into the report
+     * of the rule context given to {@link #processFiles(RuleSets, List, RuleContext, List)}.
+     * If not, the violations are only rendered, and can be garbage collected
+     * as soon as their file is done. Only their number is kept, see
+     * {@link #getViolationCount()}. Processing errors are merged in any case.
+     * By default, the violations are merged.
+     *
+     * @param retainViolations Whether to merge the violations into the report
+     */
+    public void setRetainViolations(boolean retainViolations) {
+        this.retainViolations = retainViolations;
+    }
+
+    /**
+     * Returns the number of violations found in the files processed so far,
+     * whether they were merged into the report or not.
+     */
+    public int getViolationCount() {
+        return violationCount;
+    }
+
+    /**
+     * Merges the report of a single file into the global report and renders it.
+     * This is only ever called by one thread at a time (the one collecting
+     * the reports), so analysis workers never wait on each other to publish
+     * their results.
+     */
+    protected void collectReport(List<Renderer> renderers, Report fileReport) {
+        violationCount += fileReport.getViolations().size();
+        if (retainViolations) {
+            globalReport.merge(fileReport);
+        } else {
+            for (Report.ProcessingError error : fileReport.getProcessingErrors()) {
+                globalReport.addError(error);
+            }
+            for (Report.ConfigurationError error : fileReport.getConfigurationErrors()) {
+                globalReport.addConfigError(error);
+            }
         }
+        renderReports(renderers, fileReport);
     }
 
     protected abstract void runAnalysis(PmdRunnable runnable);
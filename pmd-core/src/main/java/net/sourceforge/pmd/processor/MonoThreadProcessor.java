@@ -4,11 +4,9 @@
 
 package net.sourceforge.pmd.processor;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import net.sourceforge.pmd.PMDConfiguration;
-import net.sourceforge.pmd.Report;
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.renderers.Renderer;
 
@@ -20,8 +18,6 @@ import net.sourceforge.pmd.renderers.Renderer;
 @InternalApi
 public final class MonoThreadProcessor extends AbstractPMDProcessor {
 
-    private final List<Report> reports = new ArrayList<>();
-
     public MonoThreadProcessor(PMDConfiguration configuration) {
         super(configuration);
     }
@@ -29,15 +25,12 @@ public final class MonoThreadProcessor extends AbstractPMDProcessor {
     @Override
     protected void runAnalysis(PmdRunnable runnable) {
         // single thread execution, run analysis on same thread
-        reports.add(runnable.call());
+        // and render the report right away instead of keeping it around
+        collectReport(runnable.getRenderers(), runnable.call());
     }
 
     @Override
     protected void collectReports(List<Renderer> renderers) {
-        for (Report r : reports) {
-            super.renderReports(renderers, r);
-        }
-
         // Since this thread may run PMD again, clean up the runnable
         PmdRunnable.reset();
     }
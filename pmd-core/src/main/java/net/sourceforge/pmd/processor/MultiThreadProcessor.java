@@ -5,14 +5,9 @@
 package net.sourceforge.pmd.processor;
 
 import java.util.List;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import net.sourceforge.pmd.PMDConfiguration;
-import net.sourceforge.pmd.Report;
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.renderers.Renderer;
 
@@ -24,44 +19,60 @@ import net.sourceforge.pmd.renderers.Renderer;
 @Deprecated
 @InternalApi
 public class MultiThreadProcessor extends AbstractPMDProcessor {
-    private final ExecutorService executor;
-    private final CompletionService<Report> completionService;
+    private final WorkStealingFileScheduler scheduler;
 
     private long submittedTasks = 0L;
 
     public MultiThreadProcessor(final PMDConfiguration configuration) {
         super(configuration);
 
-        executor = Executors.newFixedThreadPool(configuration.getThreads(), new PmdThreadFactory());
-        completionService = new ExecutorCompletionService<>(executor);
+        scheduler = new WorkStealingFileScheduler(configuration.getThreads());
     }
 
     @Override
     protected void runAnalysis(PmdRunnable runnable) {
-        completionService.submit(runnable);
+        scheduler.schedule(runnable, WorkStealingFileScheduler.estimateSize(runnable.getDataSource()));
         submittedTasks++;
     }
 
+    @Override
+    protected boolean runIndexing(List<Runnable> tasks) {
+        try {
+            scheduler.runAll(tasks);
+            return true;
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (final ExecutionException ee) {
+            // the analysis won't start, release the workers
+            scheduler.shutdown();
+            throw rethrow(ee);
+        }
+    }
+
     @Override
     protected void collectReports(List<Renderer> renderers) {
         try {
             for (int i = 0; i < submittedTasks; i++) {
-                final Report report = completionService.take().get();
-                super.renderReports(renderers, report);
+                collectReport(renderers, scheduler.take());
             }
         } catch (final InterruptedException ie) {
             Thread.currentThread().interrupt();
         } catch (final ExecutionException ee) {
-            final Throwable t = ee.getCause();
-            if (t instanceof RuntimeException) {
-                throw (RuntimeException) t;
-            } else if (t instanceof Error) {
-                throw (Error) t;
-            } else {
-                throw new IllegalStateException("PmdRunnable exception", t);
-            }
+            throw rethrow(ee);
         } finally {
-            executor.shutdownNow();
+            scheduler.shutdown();
+        }
+    }
+
+    private static RuntimeException rethrow(ExecutionException ee) {
+        final Throwable t = ee.getCause();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            throw new IllegalStateException("PmdRunnable exception", t);
         }
     }
 }
@@ -0,0 +1,82 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.processor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.PMDException;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.SourceCodeProcessor;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.util.IOUtil;
+import net.sourceforge.pmd.util.datasource.DataSource;
+
+/**
+ * Adds a file to the project-wide multifile index, before the rules run.
+ * Errors are only logged: the file is processed again by the rules pass,
+ * which reports them.
+ *
+ * <p>The contents of the file are kept for the rules pass, since some data
+ * sources can only be read once. They are released when the rules pass
+ * takes them.
+ *
+ * @see SourceCodeProcessor#indexSourceCode(InputStream, RuleSets, RuleContext)
+ */
+final class MultifileIndexTask implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger(MultifileIndexTask.class.getName());
+
+    private final DataSource dataSource;
+    private final String fileName;
+    private final RuleSets ruleSets;
+    private final SourceCodeProcessor sourceCodeProcessor;
+
+    private byte[] contents;
+
+    MultifileIndexTask(DataSource dataSource, String fileName, RuleSets ruleSets,
+                       SourceCodeProcessor sourceCodeProcessor) {
+        this.dataSource = dataSource;
+        this.fileName = fileName;
+        this.ruleSets = ruleSets;
+        this.sourceCodeProcessor = sourceCodeProcessor;
+    }
+
+    @Override
+    public void run() {
+        TimeTracker.initThread();
+        try {
+            // the rule sets are only queried, they can be shared between threads
+            final RuleContext ctx = new RuleContext();
+            ctx.setSourceCodeFile(new File(fileName));
+
+            try (InputStream stream = dataSource.getInputStream()) {
+                contents = IOUtil.toByteArray(stream);
+                sourceCodeProcessor.indexSourceCode(new ByteArrayInputStream(contents), ruleSets, ctx);
+            } catch (PMDException | IOException | RuntimeException e) {
+                LOG.log(Level.FINE, "Could not index " + fileName, e);
+            }
+        } finally {
+            TimeTracker.finishThread();
+        }
+    }
+
+    /**
+     * Returns the contents read from the data source, and releases them,
+     * so that each file is only held in memory until it is analysed. Returns
+     * null if the source could not be read, or if the contents were already
+     * taken, in which case the rules pass reads the data source again.
+     */
+    byte[] takeContents() {
+        final byte[] result = contents;
+        contents = null;
+        return result;
+    }
+}
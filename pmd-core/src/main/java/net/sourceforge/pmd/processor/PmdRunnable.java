@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.processor;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -41,6 +42,9 @@ public class PmdRunnable implements Callable<Report> {
     private final RuleSets ruleSets;
     private final SourceCodeProcessor sourceCodeProcessor;
 
+    /** The contents of the data source if they were already read, released once analysed. */
+    private byte[] contents;
+
     public PmdRunnable(DataSource dataSource, String fileName, List<Renderer> renderers,
             RuleContext ruleContext, RuleSets ruleSets, SourceCodeProcessor sourceCodeProcessor) {
         this.ruleSets = ruleSets;
@@ -51,6 +55,22 @@ public class PmdRunnable implements Callable<Report> {
         this.sourceCodeProcessor = sourceCodeProcessor;
     }
 
+    /* default */ DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /* default */ List<Renderer> getRenderers() {
+        return renderers;
+    }
+
+    /**
+     * Sets the contents of the data source, when they were read by an
+     * earlier pass, so that the data source is not read again.
+     */
+    /* default */ void setContents(byte[] contents) {
+        this.contents = contents;
+    }
+
     public static void reset() {
         LOCAL_THREAD_CONTEXT.remove();
     }
@@ -64,7 +84,14 @@ public class PmdRunnable implements Callable<Report> {
     @Override
     public Report call() {
         TimeTracker.initThread();
+        try {
+            return analyse();
+        } finally {
+            TimeTracker.finishThread();
+        }
+    }
 
+    private Report analyse() {
         ThreadContext tc = LOCAL_THREAD_CONTEXT.get();
         if (tc == null) {
             tc = new ThreadContext(new RuleSets(ruleSets), new RuleContext(ruleContext));
@@ -80,7 +107,7 @@ public class PmdRunnable implements Callable<Report> {
             r.startFileAnalysis(dataSource);
         }
 
-        try (InputStream stream = new BufferedInputStream(dataSource.getInputStream())) {
+        try (InputStream stream = openContents()) {
             tc.ruleContext.setLanguageVersion(null);
             sourceCodeProcessor.processSourceCode(stream, tc.ruleSets, tc.ruleContext);
         } catch (PMDException pmde) {
@@ -91,14 +118,19 @@ public class PmdRunnable implements Callable<Report> {
             addError(report, re, "RuntimeException during processing of " + fileName);
         }
 
-        TimeTracker.finishThread();
-
-        // merge the sub-report into the global report (thread-safe)
-        ruleContext.getReport().merge(report);
-
+        // the sub-report is merged into the global report by the processor's consumer thread
         return report;
     }
 
+    private InputStream openContents() throws IOException {
+        if (contents == null) {
+            return new BufferedInputStream(dataSource.getInputStream());
+        }
+        final InputStream stream = new ByteArrayInputStream(contents);
+        contents = null;
+        return stream;
+    }
+
     private static class ThreadContext {
         /* default */ final RuleSets ruleSets;
         /* default */ final RuleContext ruleContext;
@@ -0,0 +1,207 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.processor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.util.datasource.DataSource;
+import net.sourceforge.pmd.util.datasource.internal.AbstractDataSource;
+
+/**
+ * Schedules the analysis of files on a work-stealing pool, largest files first.
+ *
+ * <p>Files start being analyzed as soon as they are scheduled. Whenever a
+ * worker is free, it picks the largest file among those not started yet, so
+ * that a single big file scheduled last doesn't keep one worker busy while
+ * all others are idle.
+ *
+ * <p>Finished reports are handed to the consumer through a bounded buffer: once
+ * it is full, workers wait until the consumer catches up, so a slow renderer
+ * doesn't let finished reports pile up in memory.
+ *
+ * <p>Per-worker busy time is tracked under {@link TimedOperationCategory#FILE_SCHEDULING},
+ * so that utilisation can be compared with the wall clock time in the timing report.
+ */
+final class WorkStealingFileScheduler {
+
+    private static final Logger LOG = Logger.getLogger(WorkStealingFileScheduler.class.getName());
+
+    /** Number of finished, not yet consumed reports allowed per worker thread. */
+    private static final int REPORT_BUFFER_PER_THREAD = 4;
+
+    private static final Comparator<ScheduledFile> LARGEST_FIRST = new Comparator<ScheduledFile>() {
+        @Override
+        public int compare(ScheduledFile o1, ScheduledFile o2) {
+            final int bySize = Long.compare(o2.size, o1.size);
+            // files of the same size are run in the order they were scheduled
+            return bySize != 0 ? bySize : Long.compare(o1.sequence, o2.sequence);
+        }
+    };
+
+    private final ForkJoinPool pool;
+    private final CompletionService<Report> completionService;
+    private final Semaphore reportBuffer;
+    private final PriorityBlockingQueue<ScheduledFile> pending = new PriorityBlockingQueue<>(16, LARGEST_FIRST);
+    private final ConcurrentMap<String, AtomicLong> busyNanosPerWorker = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private long scheduledFiles;
+
+    WorkStealingFileScheduler(int threads) {
+        pool = new ForkJoinPool(threads, new PmdWorkerThreadFactory(), null, false);
+        completionService = new ExecutorCompletionService<>(pool);
+        reportBuffer = new Semaphore(threads * REPORT_BUFFER_PER_THREAD);
+    }
+
+    /**
+     * Schedules the analysis of a file. It starts as soon as a worker is
+     * free and no larger file is waiting.
+     *
+     * @param analysis The analysis of the file
+     * @param size     The estimated size of the file, see {@link #estimateSize(DataSource)}
+     */
+    void schedule(Callable<Report> analysis, long size) {
+        pending.add(new ScheduledFile(analysis, size, scheduledFiles++));
+        // each task runs the largest pending file when it starts, not necessarily this one
+        completionService.submit(new NextFileTask());
+    }
+
+    /**
+     * Runs the given tasks on the pool, and waits until all of them are done.
+     * This is used for the passes that must complete before the analysis
+     * starts, e.g. multifile indexing.
+     */
+    void runAll(List<Runnable> tasks) throws InterruptedException, ExecutionException {
+        final List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    /**
+     * Waits for the next finished file and returns its report. Reports are
+     * returned in completion order.
+     */
+    Report take() throws InterruptedException, ExecutionException {
+        final Report report = completionService.take().get();
+        reportBuffer.release();
+        return report;
+    }
+
+    /**
+     * Returns the fraction of the elapsed wall clock time each worker spent
+     * analyzing files, keyed by worker thread name.
+     */
+    Map<String, Double> getWorkerUtilisation() {
+        final long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        final Map<String, Double> result = new ConcurrentHashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : busyNanosPerWorker.entrySet()) {
+            result.put(entry.getKey(), (double) entry.getValue().get() / elapsed);
+        }
+        return result;
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+
+        if (LOG.isLoggable(Level.FINE)) {
+            for (Map.Entry<String, Double> entry : getWorkerUtilisation().entrySet()) {
+                LOG.fine(String.format("%s utilisation: %.1f%%", entry.getKey(), entry.getValue() * 100));
+            }
+        }
+    }
+
+    /**
+     * Estimates the size of a file without reading it, which is the cost
+     * used to order the files. Returns 0 if the size is unknown.
+     */
+    /* default */ static long estimateSize(DataSource dataSource) {
+        return dataSource instanceof AbstractDataSource ? ((AbstractDataSource) dataSource).estimateSize() : 0;
+    }
+
+    private static final class ScheduledFile {
+        private final Callable<Report> analysis;
+        private final long size;
+        private final long sequence;
+
+        ScheduledFile(Callable<Report> analysis, long size, long sequence) {
+            this.analysis = analysis;
+            this.size = size;
+            this.sequence = sequence;
+        }
+    }
+
+    private final class NextFileTask implements Callable<Report> {
+
+        @Override
+        public Report call() throws Exception {
+            // there's one task per scheduled file, so there's always one left
+            final ScheduledFile file = pending.poll();
+            final String worker = Thread.currentThread().getName();
+            final long start = System.nanoTime();
+            final Report report;
+            try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.FILE_SCHEDULING, worker)) {
+                report = file.analysis.call();
+            } finally {
+                AtomicLong busy = busyNanosPerWorker.get(worker);
+                if (busy == null) {
+                    busyNanosPerWorker.putIfAbsent(worker, new AtomicLong());
+                    busy = busyNanosPerWorker.get(worker);
+                }
+                busy.addAndGet(System.nanoTime() - start);
+            }
+
+            try {
+                reportBuffer.acquire();
+            } catch (InterruptedException e) {
+                // the consumer gave up, don't block the worker any longer
+                Thread.currentThread().interrupt();
+            }
+            return report;
+        }
+    }
+
+    private static final class PmdWorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            final ForkJoinWorkerThread thread = new PmdWorkerThread(pool);
+            thread.setName("PmdThread " + counter.incrementAndGet());
+            return thread;
+        }
+    }
+
+    private static final class PmdWorkerThread extends ForkJoinWorkerThread {
+        PmdWorkerThread(ForkJoinPool pool) {
+            super(pool);
+        }
+    }
+}
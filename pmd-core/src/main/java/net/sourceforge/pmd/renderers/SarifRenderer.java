@@ -4,9 +4,14 @@
 
 package net.sourceforge.pmd.renderers;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.Map;
 
 import net.sourceforge.pmd.Report;
 import net.sourceforge.pmd.RuleViolation;
@@ -16,7 +21,17 @@ import net.sourceforge.pmd.util.IOUtil;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Renders the violations as a SARIF log. The log lists the results after the
+ * rules they refer to, which are only known once all files are analysed. So
+ * that the results are not held in memory until then, they are spilled to a
+ * temporary file, one per line, and copied into the log by {@link #end()}.
+ */
 public class SarifRenderer extends AbstractIncrementingRenderer {
     public static final String NAME = "sarif";
     private static final String DEFAULT_DESCRIPTION = "Static Analysis Results Interchange Format (SARIF)";
@@ -26,8 +41,13 @@ public class SarifRenderer extends AbstractIncrementingRenderer {
             .disableHtmlEscaping()
             .setPrettyPrinting()
             .create();
+    private final Gson spillGson = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
 
     private SarifLogBuilder sarifLogBuilder;
+    private Path spillFile;
+    private Writer spillWriter;
 
     public SarifRenderer() {
         super(NAME, DEFAULT_DESCRIPTION);
@@ -41,20 +61,29 @@ public class SarifRenderer extends AbstractIncrementingRenderer {
     @Override
     public void start() throws IOException {
         sarifLogBuilder = SarifLogBuilder.sarifLogBuilder();
+        spillFile = Files.createTempFile("pmd-sarif-results", ".json");
+        spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
     }
 
     @Override
     public void renderFileViolations(Iterator<RuleViolation> violations) throws IOException {
         while (violations.hasNext()) {
             final RuleViolation violation = violations.next();
-            sarifLogBuilder.add(violation);
+            // the compact form escapes line breaks, so each result takes one line
+            spillGson.toJson(sarifLogBuilder.toResult(violation), spillWriter);
+            spillWriter.write('\n');
         }
     }
 
     @Override
     public void end() throws IOException {
-        addErrors();
-        writeLog();
+        try {
+            spillWriter.close();
+            addErrors();
+            writeLog();
+        } finally {
+            Files.deleteIfExists(spillFile);
+        }
     }
 
     private void addErrors() {
@@ -68,9 +97,49 @@ public class SarifRenderer extends AbstractIncrementingRenderer {
     }
 
     private void writeLog() throws IOException {
+        // the built log has no results, they are copied from the spill file into its only run
         final SarifLog sarifLog = sarifLogBuilder.build();
-        final String json = gson.toJson(sarifLog);
-        writer.write(json);
+        final JsonObject log = gson.toJsonTree(sarifLog).getAsJsonObject();
+        // closing it would close the writer, which is done by flush()
+        @SuppressWarnings("PMD.CloseResource")
+        final JsonWriter jsonWriter = gson.newJsonWriter(writer);
+        jsonWriter.beginObject();
+        for (Map.Entry<String, JsonElement> entry : log.entrySet()) {
+            jsonWriter.name(entry.getKey());
+            if ("runs".equals(entry.getKey())) {
+                jsonWriter.beginArray();
+                writeRun(entry.getValue().getAsJsonArray().get(0).getAsJsonObject(), jsonWriter);
+                jsonWriter.endArray();
+            } else {
+                gson.toJson(entry.getValue(), jsonWriter);
+            }
+        }
+        jsonWriter.endObject();
+        jsonWriter.flush();
+    }
+
+    private void writeRun(JsonObject run, JsonWriter jsonWriter) throws IOException {
+        jsonWriter.beginObject();
+        for (Map.Entry<String, JsonElement> entry : run.entrySet()) {
+            jsonWriter.name(entry.getKey());
+            if ("results".equals(entry.getKey())) {
+                writeSpilledResults(jsonWriter);
+            } else {
+                gson.toJson(entry.getValue(), jsonWriter);
+            }
+        }
+        jsonWriter.endObject();
+    }
+
+    private void writeSpilledResults(JsonWriter jsonWriter) throws IOException {
+        jsonWriter.beginArray();
+        try (BufferedReader reader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                gson.toJson(JsonParser.parseString(line), jsonWriter);
+            }
+        }
+        jsonWriter.endArray();
     }
 
     @Override
@@ -42,6 +42,18 @@ public class SarifLogBuilder {
     }
 
     public SarifLogBuilder add(RuleViolation violation) {
+        results.add(toResult(violation));
+
+        return this;
+    }
+
+    /**
+     * Returns the result of the given violation, without adding it to the log.
+     * Its rule is added to the log though, so that the rule index of the result
+     * is that of the built log. This allows callers to keep the results out
+     * of memory, and to write them themselves.
+     */
+    public Result toResult(RuleViolation violation) {
         final ReportingDescriptor ruleDescriptor = getReportingDescriptor(violation);
         int ruleIndex = rules.indexOf(ruleDescriptor);
         if (ruleIndex == -1) {
@@ -50,10 +62,7 @@ public class SarifLogBuilder {
         }
 
         final Location location = getRuleViolationLocation(violation);
-        final Result result = resultFrom(ruleDescriptor, ruleIndex, location);
-        results.add(result);
-
-        return this;
+        return resultFrom(ruleDescriptor, ruleIndex, location);
     }
 
     public SarifLogBuilder addRunTimeError(Report.ProcessingError error) {
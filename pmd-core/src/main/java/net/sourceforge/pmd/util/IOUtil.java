@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.util;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FilterInputStream;
@@ -196,17 +197,14 @@ public final class IOUtil {
     }
 
     public static byte[] toByteArray(InputStream stream) throws IOException {
-        byte[] result = new byte[0];
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
         byte[] buffer = new byte[BUFFER_SIZE];
         int count = stream.read(buffer);
         while (count > -1) {
-            byte[] newResult = new byte[result.length + count];
-            System.arraycopy(result, 0, newResult, 0, result.length);
-            System.arraycopy(buffer, 0, newResult, result.length, count);
-            result = newResult;
+            result.write(buffer, 0, count);
             count = stream.read(buffer);
         }
-        return result;
+        return result.toByteArray();
     }
 
     public static long skipFully(InputStream stream, long n) throws IOException {
@@ -33,6 +33,11 @@ public class FileDataSource extends AbstractDataSource {
         return Files.newInputStream(file.toPath());
     }
 
+    @Override
+    public long estimateSize() {
+        return file.length();
+    }
+
     @Override
     public String getNiceFileName(boolean shortNames, String inputPaths) {
         return glomName(shortNames, inputPaths, file);
@@ -34,6 +34,12 @@ public class ZipDataSource extends AbstractDataSource {
         return zipFile.getInputStream(zipEntry);
     }
 
+    @Override
+    public long estimateSize() {
+        // the size is -1 if the zip doesn't record it
+        return Math.max(0, zipEntry.getSize());
+    }
+
     @Override
     public String getNiceFileName(boolean shortNames, String inputFileName) {
         // FIXME: this could probably be done better
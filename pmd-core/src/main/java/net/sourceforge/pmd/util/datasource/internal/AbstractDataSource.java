@@ -10,6 +10,15 @@ import net.sourceforge.pmd.util.datasource.DataSource;
 
 public abstract class AbstractDataSource implements DataSource {
 
+    /**
+     * Returns the size in bytes of the source file, without reading it,
+     * or 0 if it is unknown. This is only an estimate used to schedule the
+     * analysis of the biggest files first.
+     */
+    public long estimateSize() {
+        return 0;
+    }
+
     @Override
     public void close() throws IOException {
         // empty default implementation
@@ -0,0 +1,302 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.lang.Language;
+
+public class DirectoryAnalysisCacheTest {
+
+    @org.junit.Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File cacheDirectory;
+    private File sourceFile;
+    private File copyInOtherCheckout;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDirectory = tempFolder.newFolder("cache");
+        sourceFile = new File(tempFolder.newFolder("checkout1"), "Source.java");
+        copyInOtherCheckout = new File(tempFolder.newFolder("checkout2"), "Source.java");
+        Files.write(sourceFile.toPath(), "class Source {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(copyInOtherCheckout.toPath(), "class Source {}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEmptyCacheIsNotUpToDate() {
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE);
+        assertFalse("Empty cache believes file is up to date", cache.isUpToDate(sourceFile));
+    }
+
+    @Test
+    public void testSameContentsAtOtherPathIsUpToDate() {
+        final Rule rule = mockRule("Rule");
+        final RuleSets rs = mockRuleSets();
+        when(rs.getAllRules()).thenReturn(new HashSet<>(Arrays.asList(rule)));
+
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        cache.isUpToDate(sourceFile);
+        cache.ruleViolationAdded(mockViolation(sourceFile, rule));
+        cache.persist();
+
+        final DirectoryAnalysisCache otherCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        assertTrue("Cache believes identical file in other checkout is not up to date",
+                otherCache.isUpToDate(copyInOtherCheckout));
+
+        final List<RuleViolation> violations = otherCache.getCachedViolations(copyInOtherCheckout);
+        assertEquals("Cached rule violations count mismatch", 1, violations.size());
+        assertEquals("Cached violation not reported on the analyzed file",
+                copyInOtherCheckout.getPath(), violations.get(0).getFilename());
+    }
+
+    @Test
+    public void testKnownChecksumIsUsed() {
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+
+        final DirectoryAnalysisCache otherCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE);
+        final byte[] contents = "class Source {}".getBytes(StandardCharsets.UTF_8);
+        assertTrue("Cache believes identical file is not up to date with a known checksum",
+                otherCache.isUpToDate(copyInOtherCheckout, AnalysisResult.computeChecksum(contents)));
+    }
+
+    @Test
+    public void testSameContentsInOtherLanguageAreNotUpToDate() throws IOException {
+        final File dummyFile = new File(sourceFile.getParentFile(), "Source.dummy");
+        Files.write(dummyFile.toPath(), "class Source {}".getBytes(StandardCharsets.UTF_8));
+
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+
+        final DirectoryAnalysisCache otherCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE);
+        assertFalse("Cache believes a file of another language with the same contents is up to date",
+                otherCache.isUpToDate(dummyFile));
+    }
+
+    @Test
+    public void testSameContentsWithOtherApplicableRulesetsAreNotUpToDate() {
+        final RuleSet ruleSet = mock(RuleSet.class);
+        when(ruleSet.applies(sourceFile)).thenReturn(true);
+        when(ruleSet.applies(copyInOtherCheckout)).thenReturn(false);
+        final RuleSets rs = mockRuleSets(ruleSet);
+
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+
+        final DirectoryAnalysisCache otherCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        assertFalse("Cache believes a file excluded from a ruleset is up to date",
+                otherCache.isUpToDate(copyInOtherCheckout));
+        assertTrue("Cache believes an unmodified file is not up to date",
+                otherCache.isUpToDate(sourceFile));
+    }
+
+    @Test
+    public void testRuleChangeOnlyInvalidatesChangedRule() {
+        final Rule unchangedRule = mockRule("UnchangedRule");
+        final Rule changedRule = mockRule("ChangedRule");
+        final RuleSets rs = mockRuleSets();
+        when(rs.getAllRules()).thenReturn(new HashSet<>(Arrays.asList(unchangedRule, changedRule)));
+
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+
+        when(rs.getChecksum()).thenReturn(1L);
+        when(changedRule.getMessage()).thenReturn("changed message");
+        final DirectoryAnalysisCache reloadedCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        assertTrue("Cache believes unmodified file is not up to date after one rule changed",
+                reloadedCache.isUpToDate(sourceFile));
+        assertTrue("Cache believes unchanged rule is not up to date",
+                reloadedCache.isUpToDate(unchangedRule));
+        assertFalse("Cache believes changed rule is up to date",
+                reloadedCache.isUpToDate(changedRule));
+    }
+
+    @Test
+    public void testEntryOfOtherRuleVersionIsNotUpToDate() {
+        final Rule rule = mockRule("Rule");
+        final RuleSets rs = mockRuleSets();
+        when(rs.getAllRules()).thenReturn(new HashSet<>(Arrays.asList(rule)));
+
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+
+        // another process with another version of the rule overwrites the manifest
+        final RuleSets otherRs = mockRuleSets();
+        final Rule otherRule = mockRule("Rule");
+        when(otherRule.getMessage()).thenReturn("changed message");
+        when(otherRs.getAllRules()).thenReturn(new HashSet<>(Arrays.asList(otherRule)));
+        when(otherRs.getChecksum()).thenReturn(1L);
+        final DirectoryAnalysisCache otherCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, otherRs);
+        otherCache.isUpToDate(copyInOtherCheckout);
+        otherCache.persist();
+
+        final DirectoryAnalysisCache reloadedCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        assertFalse("Cache believes an entry computed with another version of a rule is up to date",
+                reloadedCache.isUpToDate(sourceFile));
+    }
+
+    @Test
+    public void testOtherRulesetsDontOverwriteEntries() {
+        final Rule rule = mockRule("Rule");
+        final RuleSet ruleSet = mock(RuleSet.class);
+        when(ruleSet.applies(sourceFile)).thenReturn(true);
+        when(ruleSet.getRules()).thenReturn(Arrays.asList(rule));
+        final RuleSets rs = mockRuleSets(ruleSet);
+        when(rs.getAllRules()).thenReturn(new HashSet<>(Arrays.asList(rule)));
+
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+
+        // a CI shard running another version of the ruleset analyzes the same file
+        final Rule otherRule = mockRule("Rule");
+        when(otherRule.getMessage()).thenReturn("changed message");
+        final RuleSet otherRuleSet = mock(RuleSet.class);
+        when(otherRuleSet.applies(sourceFile)).thenReturn(true);
+        when(otherRuleSet.getRules()).thenReturn(Arrays.asList(otherRule));
+        final RuleSets otherRs = mockRuleSets(otherRuleSet);
+        when(otherRs.getAllRules()).thenReturn(new HashSet<>(Arrays.asList(otherRule)));
+        when(otherRs.getChecksum()).thenReturn(1L);
+        final DirectoryAnalysisCache otherCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, otherRs);
+        assertFalse("Cache believes a file analyzed with another version of a rule is up to date",
+                otherCache.isUpToDate(sourceFile));
+        otherCache.persist();
+
+        final DirectoryAnalysisCache reloadedCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE, rs);
+        assertTrue("Cache lost the entry of the first ruleset",
+                reloadedCache.isUpToDate(sourceFile));
+        assertTrue("Cache believes unchanged rule is not up to date",
+                reloadedCache.isUpToDate(rule));
+    }
+
+    @Test
+    public void testStaleTempFilesAreDeleted() throws IOException {
+        final File tempDirectory = new File(cacheDirectory, "tmp");
+        assertTrue(tempDirectory.mkdirs());
+        final File staleFile = new File(tempDirectory, "stale.tmp");
+        assertTrue(staleFile.createNewFile());
+        assertTrue(staleFile.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000));
+        final File recentFile = new File(tempDirectory, "recent.tmp");
+        assertTrue(recentFile.createNewFile());
+
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+
+        assertFalse("Stale temporary file was not deleted", staleFile.exists());
+        assertTrue("Temporary file of a concurrent process was deleted", recentFile.exists());
+    }
+
+    @Test
+    public void testModifiedContentsAreNotUpToDate() throws IOException {
+        final DirectoryAnalysisCache cache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+
+        Files.write(copyInOtherCheckout.toPath(), "class Source { int i; }".getBytes(StandardCharsets.UTF_8));
+
+        final DirectoryAnalysisCache otherCache = newCache(DirectoryAnalysisCache.DEFAULT_MAX_SIZE);
+        assertFalse("Cache believes modified file is up to date", otherCache.isUpToDate(copyInOtherCheckout));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        final File otherSourceFile = tempFolder.newFile("Other.java");
+        Files.write(otherSourceFile.toPath(), "class Other {}".getBytes(StandardCharsets.UTF_8));
+
+        // only room for a single entry without rules nor violations
+        final DirectoryAnalysisCache cache = newCache(12);
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+        ageEntries();
+        cache.isUpToDate(otherSourceFile);
+        cache.persist();
+
+        final DirectoryAnalysisCache reloadedCache = newCache(12);
+        assertTrue("Most recently used entry was evicted", reloadedCache.isUpToDate(otherSourceFile));
+        assertFalse("Least recently used entry was not evicted", reloadedCache.isUpToDate(sourceFile));
+    }
+
+    @Test
+    public void testPersistOnFileShouldntThrow() throws IOException {
+        final DirectoryAnalysisCache cache = new DirectoryAnalysisCache(tempFolder.newFile());
+        cache.checkValidity(mockRuleSets(), mock(ClassLoader.class));
+        cache.isUpToDate(sourceFile);
+        cache.persist();
+    }
+
+    private void ageEntries() throws IOException {
+        // the index holds lines "<key> <size> <last use>"
+        final File index = new File(cacheDirectory, "index");
+        final List<String> agedLines = new ArrayList<>();
+        for (final String line : Files.readAllLines(index.toPath(), StandardCharsets.UTF_8)) {
+            final String[] fields = line.split(" ");
+            agedLines.add(fields[0] + ' ' + fields[1] + ' ' + (Long.parseLong(fields[2]) - 60000));
+        }
+        Files.write(index.toPath(), agedLines, StandardCharsets.UTF_8);
+    }
+
+    private DirectoryAnalysisCache newCache(final long maxSize) {
+        return newCache(maxSize, mockRuleSets());
+    }
+
+    private DirectoryAnalysisCache newCache(final long maxSize, final RuleSets ruleSets) {
+        final DirectoryAnalysisCache cache = new DirectoryAnalysisCache(cacheDirectory, maxSize);
+        cache.checkValidity(ruleSets, mock(ClassLoader.class));
+        return cache;
+    }
+
+    private RuleSets mockRuleSets(final RuleSet... ruleSets) {
+        final RuleSets rs = mock(RuleSets.class);
+        when(rs.getAllRuleSets()).thenReturn(ruleSets);
+        return rs;
+    }
+
+    private Rule mockRule(final String name) {
+        final Rule rule = mock(Rule.class);
+        final Language language = mock(Language.class);
+        when(language.getTerseName()).thenReturn("dummy");
+        when(rule.getLanguage()).thenReturn(language);
+        when(rule.getName()).thenReturn(name);
+        when(rule.getRuleClass()).thenReturn("net.sourceforge.pmd.DummyRule");
+        when(rule.getMessage()).thenReturn("message");
+        return rule;
+    }
+
+    private RuleViolation mockViolation(final File file, final Rule rule) {
+        final RuleViolation rv = mock(RuleViolation.class);
+        when(rv.getFilename()).thenReturn(file.getPath());
+        when(rv.getRule()).thenReturn(rule);
+        return rv;
+    }
+}
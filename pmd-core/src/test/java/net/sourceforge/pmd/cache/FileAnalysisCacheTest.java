@@ -12,6 +12,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -19,28 +20,31 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.junit.Before;
-import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.RestoreSystemProperties;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
+import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.Rule;
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.RuleViolation;
 import net.sourceforge.pmd.lang.Language;
 
 public class FileAnalysisCacheTest {
 
-    @Rule
+    @org.junit.Rule
     public TemporaryFolder tempFolder = new TemporaryFolder();
 
-    @Rule
+    @org.junit.Rule
     public RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
 
     private File unexistingCacheFile;
@@ -102,7 +106,7 @@ public class FileAnalysisCacheTest {
 
         final RuleViolation rv = mock(RuleViolation.class);
         when(rv.getFilename()).thenReturn(sourceFile.getPath());
-        final net.sourceforge.pmd.Rule rule = mock(net.sourceforge.pmd.Rule.class, Mockito.RETURNS_SMART_NULLS);
+        final Rule rule = mock(Rule.class, Mockito.RETURNS_SMART_NULLS);
         when(rule.getLanguage()).thenReturn(mock(Language.class));
         when(rv.getRule()).thenReturn(rule);
 
@@ -162,6 +166,28 @@ public class FileAnalysisCacheTest {
                 reloadedCache.isUpToDate(sourceFile));
     }
 
+    @Test
+    public void testRuleChangeOnlyInvalidatesChangedRule() {
+        final RuleSets rs = mock(RuleSets.class);
+        final ClassLoader cl = mock(ClassLoader.class);
+        final Rule unchangedRule = mockRule("UnchangedRule");
+        final Rule changedRule = mockRule("ChangedRule");
+        when(rs.getAllRules()).thenReturn(new HashSet<>(Arrays.asList(unchangedRule, changedRule)));
+
+        setupCacheWithFiles(newCacheFile, rs, cl, sourceFile);
+
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        when(rs.getChecksum()).thenReturn(1L);
+        when(changedRule.getMessage()).thenReturn("changed message");
+        reloadedCache.checkValidity(rs, cl);
+        assertTrue("Cache believes unmodified file is not up to date after one rule changed",
+                reloadedCache.isUpToDate(sourceFile));
+        assertTrue("Cache believes unchanged rule is not up to date",
+                reloadedCache.isUpToDate(unchangedRule));
+        assertFalse("Cache believes changed rule is up to date",
+                reloadedCache.isUpToDate(changedRule));
+    }
+
     @Test
     public void testAuxClasspathNonExistingAuxclasspathEntriesIgnored() throws MalformedURLException, IOException {
         final RuleSets rs = mock(RuleSets.class);
@@ -207,7 +233,7 @@ public class FileAnalysisCacheTest {
         // Make sure the auxclasspath file is not empty
         Files.write(classpathFile.toPath(), "some text".getBytes());
 
-        final net.sourceforge.pmd.Rule r = mock(net.sourceforge.pmd.Rule.class);
+        final Rule r = mock(Rule.class);
         when(r.isDfa()).thenReturn(true);
         when(r.getLanguage()).thenReturn(mock(Language.class));
         when(rs.getAllRules()).thenReturn(Collections.singleton(r));
@@ -224,7 +250,7 @@ public class FileAnalysisCacheTest {
         final File classpathFile = tempFolder.newFile("foo.class");
         when(cl.getURLs()).thenReturn(new URL[] { classpathFile.toURI().toURL(), });
 
-        final net.sourceforge.pmd.Rule r = mock(net.sourceforge.pmd.Rule.class);
+        final Rule r = mock(Rule.class);
         when(r.isDfa()).thenReturn(true);
         when(r.getLanguage()).thenReturn(mock(Language.class));
         when(rs.getAllRules()).thenReturn(Collections.singleton(r));
@@ -355,6 +381,45 @@ public class FileAnalysisCacheTest {
                 cache.isUpToDate(sourceFile));
     }
 
+    @Test
+    public void testUnchangedMetadataIsUpToDate() throws IOException {
+        sourceFile.setLastModified(System.currentTimeMillis() - 60000);
+        setupCacheWithFiles(newCacheFile, mock(RuleSets.class), mock(ClassLoader.class), sourceFile);
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class));
+        assertTrue("Cache believes a file with unchanged metadata is not up to date",
+                cache.isMetadataUpToDate(sourceFile));
+    }
+
+    @Test
+    public void testRecentlyModifiedFileIsNotUpToDateByMetadata() throws IOException {
+        // the file could still be modified without its modification time changing
+        setupCacheWithFiles(newCacheFile, mock(RuleSets.class), mock(ClassLoader.class), sourceFile);
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class));
+        assertFalse("Cache trusts the metadata of a file modified while it was analyzed",
+                cache.isMetadataUpToDate(sourceFile));
+        assertTrue("Cache believes an unchanged file is not up to date",
+                cache.isUpToDate(sourceFile));
+    }
+
+    @Test
+    public void testTouchedFileIsUpToDateByChecksum() throws IOException {
+        setupCacheWithFiles(newCacheFile, mock(RuleSets.class), mock(ClassLoader.class), sourceFile);
+
+        // Change the modification time, but not the contents
+        sourceFile.setLastModified(sourceFile.lastModified() - 10000);
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class));
+        assertFalse("Cache believes a file with changed metadata is up to date without checking its contents",
+                cache.isMetadataUpToDate(sourceFile));
+        assertTrue("Cache believes a touched, but unchanged file is not up to date",
+                cache.isUpToDate(sourceFile, AnalysisResult.computeChecksum(new byte[0])));
+    }
+
     @Test
     public void testFileIsNotUpToDateWhenEdited() throws IOException {
         setupCacheWithFiles(newCacheFile, mock(RuleSets.class), mock(ClassLoader.class), sourceFile);
@@ -367,6 +432,72 @@ public class FileAnalysisCacheTest {
                 cache.isUpToDate(sourceFile));
     }
 
+    @Test
+    public void testChangedFileIsUpToDateAfterPersist() throws IOException {
+        final RuleSets rs = mock(RuleSets.class);
+        final ClassLoader cl = mock(ClassLoader.class);
+        final File otherSourceFile = tempFolder.newFile("Other.java");
+        setupCacheWithFiles(newCacheFile, rs, cl, sourceFile, otherSourceFile);
+
+        // Edit the file, the new entry is appended to the cache
+        Files.write(sourceFile.toPath(), "some text".getBytes());
+        setupCacheWithFiles(newCacheFile, rs, cl, sourceFile, otherSourceFile);
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(rs, cl);
+        assertTrue("Cache believes a changed and reanalyzed file is not up to date",
+                cache.isUpToDate(sourceFile));
+        assertTrue("Cache believes an unchanged file is not up to date",
+                cache.isUpToDate(otherSourceFile));
+    }
+
+    @Test
+    public void testCacheInOldFormatIsIgnored() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(newCacheFile.toPath()))) {
+            out.writeUTF(PMDVersion.VERSION);
+            out.writeLong(0L);
+        }
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class));
+        assertFalse("Cache in an unknown format was used", cache.isUpToDate(sourceFile));
+    }
+
+    @Test
+    public void testCorruptedRecordDiscardsCache() throws IOException {
+        final RuleSets rs = mock(RuleSets.class);
+        final ClassLoader cl = mock(ClassLoader.class);
+        final File otherSourceFile = tempFolder.newFile("Other.java");
+        setupCacheWithFiles(newCacheFile, rs, cl, sourceFile, otherSourceFile);
+
+        // Flip the last byte, which belongs to the last record
+        final byte[] contents = Files.readAllBytes(newCacheFile.toPath());
+        contents[contents.length - 1] ^= 0xFF;
+        Files.write(newCacheFile.toPath(), contents);
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(rs, cl);
+        assertFalse("Cache with a corrupted record was used", cache.isUpToDate(sourceFile));
+        assertFalse("Cache with a corrupted record was used", cache.isUpToDate(otherSourceFile));
+
+        // the cache is rewritten from scratch
+        cache.persist();
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        reloadedCache.checkValidity(rs, cl);
+        assertTrue("Rewritten cache was not used", reloadedCache.isUpToDate(sourceFile));
+    }
+
+    private Rule mockRule(final String name) {
+        final Rule rule = mock(Rule.class);
+        final Language language = mock(Language.class);
+        when(language.getTerseName()).thenReturn("dummy");
+        when(rule.getLanguage()).thenReturn(language);
+        when(rule.getName()).thenReturn(name);
+        when(rule.getRuleClass()).thenReturn("net.sourceforge.pmd.DummyRule");
+        when(rule.getMessage()).thenReturn("message");
+        return rule;
+    }
+
     private void setupCacheWithFiles(final File cacheFile, final RuleSets ruleSets,
             final ClassLoader classLoader, final File... files) {
         // Setup a cache file with an entry for an empty Source.java with no violations
@@ -0,0 +1,45 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.internal.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.junit.Test;
+
+public class CacheUtilTest {
+
+    @Test
+    public void testLruCacheEvictsLeastRecentlyUsedEntry() {
+        Map<String, Integer> cache = CacheUtil.newLruCache(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.containsKey("a"));
+        assertFalse(cache.containsKey("b"));
+        assertTrue(cache.containsKey("c"));
+    }
+
+    @Test
+    public void testBoundedPutEmptiesFullCache() {
+        ConcurrentMap<String, Integer> cache = new ConcurrentHashMap<>();
+        assertNull(CacheUtil.putIfAbsentBounded(cache, "a", 1, 2));
+        assertEquals(Integer.valueOf(1), CacheUtil.putIfAbsentBounded(cache, "a", 2, 2));
+        assertNull(CacheUtil.putIfAbsentBounded(cache, "b", 2, 2));
+        assertNull(CacheUtil.putIfAbsentBounded(cache, "c", 3, 2));
+
+        assertEquals(1, cache.size());
+        assertEquals(Integer.valueOf(3), cache.get("c"));
+    }
+}
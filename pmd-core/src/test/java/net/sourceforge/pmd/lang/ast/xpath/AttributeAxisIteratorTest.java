@@ -7,6 +7,7 @@ package net.sourceforge.pmd.lang.ast.xpath;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -16,8 +17,10 @@ import java.util.List;
 import java.util.Map;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 
+import net.sourceforge.pmd.junit.JavaUtilLoggingRule;
 import net.sourceforge.pmd.lang.ast.DummyNode;
 import net.sourceforge.pmd.lang.ast.Node;
 
@@ -27,6 +30,9 @@ import net.sourceforge.pmd.lang.ast.Node;
  */
 public class AttributeAxisIteratorTest {
 
+    @Rule
+    public JavaUtilLoggingRule loggingRule = new JavaUtilLoggingRule(Attribute.class.getName()).mute();
+
     /**
      * Test hasNext and next.
      */
@@ -71,6 +77,38 @@ public class AttributeAxisIteratorTest {
         assertFalse(atts.containsKey("NodeList"));
     }
 
+    @Test
+    public void testAttributeValues() {
+        DummyNode dummyNode = new DummyNode(1);
+        dummyNode.testingOnlySetBeginLine(3);
+        dummyNode.setImage("foo");
+
+        Map<String, Attribute> atts = toMap(new AttributeAxisIterator(dummyNode));
+        assertEquals(3, atts.get("BeginLine").getValue());
+        assertEquals("foo", atts.get("Image").getValue());
+    }
+
+    @Test
+    public void testAttributeCreatedWithMethod() throws NoSuchMethodException {
+        DummyNode dummyNode = new DummyNode(1);
+        dummyNode.setImage("foo");
+
+        Attribute attribute = new Attribute(dummyNode, "Image", DummyNode.class.getMethod("getImage"));
+        assertEquals("foo", attribute.getValue());
+        assertEquals("foo", attribute.getStringValue());
+    }
+
+    @Test
+    public void testFailingAccessorHasNullValue() {
+        DummyNodeWithFailingAttribute dummyNode = new DummyNodeWithFailingAttribute(1);
+
+        Map<String, Attribute> atts = toMap(new AttributeAxisIterator(dummyNode));
+        assertNull(atts.get("Failing").getValue());
+        String log = loggingRule.getLog();
+        assertTrue(log.contains("Exception while reading attribute dummyNode/@Failing"));
+        assertTrue(log.contains("Test exception while reading attribute"));
+    }
+
     private Map<String, Attribute> toMap(AttributeAxisIterator it) {
         Map<String, Attribute> atts = new HashMap<>();
         while (it.hasNext()) {
@@ -109,4 +147,15 @@ public class AttributeAxisIteratorTest {
             return Collections.emptyList();
         }
     }
+
+    public static class DummyNodeWithFailingAttribute extends DummyNode {
+
+        public DummyNodeWithFailingAttribute(int id) {
+            super(id);
+        }
+
+        public String getFailing() {
+            throw new IllegalStateException("Test exception while reading attribute");
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast.xpath.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.benchmark.TextTimingReportRenderer;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimingReport;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+import net.sourceforge.pmd.lang.ast.xpath.internal.XPathFunctionMemo.Computation;
+
+public class XPathFunctionMemoTest {
+
+    @Test
+    public void testOneMemoPerFile() {
+        DummyRootNode root = new DummyRootNode("Foo.dummy");
+        DummyNode child = new DummyNode(1, false, "foo");
+        root.jjtAddChild(child, 0);
+        child.setParent(root);
+
+        assertSame(XPathFunctionMemo.forFile(root), XPathFunctionMemo.forFile(child));
+        assertNotSame(XPathFunctionMemo.forFile(root), XPathFunctionMemo.forFile(new DummyRootNode("Bar.dummy")));
+    }
+
+    @Test
+    public void testResultIsComputedOnce() {
+        DummyNode node = new DummyNode(1, false, "foo");
+        XPathFunctionMemo memo = XPathFunctionMemo.forFile(node);
+        CountingComputation computation = new CountingComputation("result");
+
+        assertEquals("result", memo.get(node, "fun", "arg", computation));
+        assertEquals("result", memo.get(node, "fun", "arg", computation));
+        assertEquals(1, computation.count);
+
+        // other arguments, functions or nodes are computed separately
+        memo.get(node, "fun", "other", computation);
+        memo.get(node, "other", "arg", computation);
+        memo.get(new DummyNode(1, false, "foo"), "fun", "arg", computation);
+        assertEquals(4, computation.count);
+    }
+
+    @Test
+    public void testNullResultIsMemoized() {
+        DummyNode node = new DummyNode(1, false, "foo");
+        XPathFunctionMemo memo = XPathFunctionMemo.forFile(node);
+        CountingComputation computation = new CountingComputation(null);
+
+        assertNull(memo.get(node, "fun", null, computation));
+        assertNull(memo.get(node, "fun", null, computation));
+        assertEquals(1, computation.count);
+    }
+
+    @Test
+    public void testExceptionIsNotMemoized() {
+        DummyNode node = new DummyNode(1, false, "foo");
+        XPathFunctionMemo memo = XPathFunctionMemo.forFile(node);
+        Computation<String> failing = new Computation<String>() {
+            @Override
+            public String compute() {
+                throw new IllegalStateException();
+            }
+        };
+
+        try {
+            memo.get(node, "fun", "arg", failing);
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertEquals("result", memo.get(node, "fun", "arg", new CountingComputation("result")));
+    }
+
+    @Test
+    public void testHitsAndMissesAreRecordedPerFile() throws IOException {
+        DummyRootNode root = new DummyRootNode("Foo.dummy");
+        XPathFunctionMemo memo = XPathFunctionMemo.forFile(root);
+        CountingComputation computation = new CountingComputation("result");
+
+        TimeTracker.startGlobalTracking();
+        memo.get(root, "fun", "arg", computation);
+        memo.get(root, "fun", "arg", computation);
+        memo.get(root, "fun", "arg", computation);
+        XPathFunctionMemo.recordStatistics(root);
+        // recorded once
+        XPathFunctionMemo.recordStatistics(root);
+        TimingReport report = TimeTracker.stopGlobalTracking();
+
+        StringWriter writer = new StringWriter();
+        new TextTimingReportRenderer().render(report, writer);
+        String rendered = writer.toString();
+        assertTrue(rendered, rendered.matches("(?s).*fun \\(memo hits\\)[^\\n]* 2\\s*\\n.*"));
+        assertTrue(rendered, rendered.matches("(?s).*fun \\(memo misses\\)[^\\n]* 1\\s*\\n.*"));
+    }
+
+    private static class CountingComputation implements Computation<String> {
+        private final String result;
+        private int count;
+
+        CountingComputation(String result) {
+            this.result = result;
+        }
+
+        @Override
+        public String compute() {
+            count++;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.DummyLanguageModule.DummyRuleChainVisitor;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.Node;
+
+public class AbstractRuleChainVisitorTest {
+
+    private DummyNode root;
+    private DummyNode first;
+    private DummyNode second;
+    private RuleContext ctx;
+
+    @Before
+    public void setUp() {
+        // root
+        //  +- first (foo)
+        //  |   +- second (foo)
+        //  +- bar
+        root = new DummyNode(0, false, "root");
+        first = new DummyNode(1, false, "foo");
+        second = new DummyNode(1, false, "foo");
+        addChild(root, first);
+        addChild(first, second);
+        addChild(root, new DummyNode(2, false, "bar"));
+
+        ctx = new RuleContext();
+        ctx.setReport(new Report());
+        ctx.setLanguageVersion(LanguageRegistry.getLanguage(DummyLanguageModule.NAME).getDefaultVersion());
+        ctx.setSourceCodeFile(new File("Foo.dummy"));
+    }
+
+    @Test
+    public void testNodesAreVisitedInDocumentOrder() {
+        assertVisitsFooNodes(new DummyRuleChainVisitor());
+    }
+
+    @Test
+    public void testNodesAreVisitedInDocumentOrderWhenIndexedById() {
+        assertVisitsFooNodes(new DummyRuleChainVisitor() {
+            @Override
+            protected boolean isNodeNameDeterminedById() {
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void testRuleReferenceVisitsWithReferencedRule() {
+        final RecordingRule rule = new RecordingRule();
+        final RuleReference reference = new RuleReference();
+        reference.setRule(rule);
+
+        final DummyRuleChainVisitor visitor = new DummyRuleChainVisitor();
+        visitor.add(RuleSet.forSingleRule(reference), reference);
+        visitor.visitAll(Collections.<Node>singletonList(root), ctx);
+
+        assertEquals(Arrays.<Node>asList(first, second), rule.visited);
+    }
+
+    private void assertVisitsFooNodes(DummyRuleChainVisitor visitor) {
+        final RecordingRule rule = new RecordingRule();
+        visitor.add(RuleSet.forSingleRule(rule), rule);
+
+        // the second file reuses the index of the first one
+        visitor.visitAll(Collections.<Node>singletonList(root), ctx);
+        visitor.visitAll(Collections.<Node>singletonList(root), ctx);
+
+        assertEquals(Arrays.<Node>asList(first, second, first, second), rule.visited);
+    }
+
+    private static void addChild(DummyNode parent, DummyNode child) {
+        parent.jjtAddChild(child, parent.getNumChildren());
+        child.setParent(parent);
+    }
+
+    private static class RecordingRule extends MockRule {
+        private final List<Node> visited = new ArrayList<>();
+
+        RecordingRule() {
+            super("Recording", "desc", "msg", "rulesetname");
+            addRuleChainVisit("foo");
+        }
+
+        @Override
+        public void apply(List<? extends Node> nodes, RuleContext ctx) {
+            visited.addAll(nodes);
+        }
+    }
+}
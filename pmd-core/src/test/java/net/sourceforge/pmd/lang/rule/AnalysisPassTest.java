@@ -0,0 +1,95 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
+
+public class AnalysisPassTest {
+
+    private static final Language DUMMY = LanguageRegistry.getLanguage(DummyLanguageModule.NAME);
+
+    private static class NoPassRule extends MockRule implements AnalysisPassAwareRule {
+        @Override
+        public Set<AnalysisPass> getRequiredAnalysisPasses() {
+            return Collections.emptySet();
+        }
+    }
+
+    @Test
+    public void testRulesNeedSymbolsByDefault() {
+        assertEquals(EnumSet.of(AnalysisPass.QUALIFIED_NAMES, AnalysisPass.SYMBOL_TABLE),
+                     AnalysisPass.requiredBy(new MockRule()));
+    }
+
+    @Test
+    public void testPrerequisitesAreIncluded() {
+        NoPassRule rule = new NoPassRule();
+        assertTrue(AnalysisPass.requiredBy(rule).isEmpty());
+
+        rule.setDfa(true);
+        assertEquals(EnumSet.of(AnalysisPass.QUALIFIED_NAMES, AnalysisPass.SYMBOL_TABLE, AnalysisPass.DFA),
+                     AnalysisPass.requiredBy(rule));
+    }
+
+    @Test
+    public void testReferencesUseTheirRule() {
+        RuleReference reference = new RuleReference();
+        reference.setRule(new NoPassRule());
+        reference.setTypeResolution(true);
+        assertEquals(EnumSet.of(AnalysisPass.QUALIFIED_NAMES, AnalysisPass.SYMBOL_TABLE, AnalysisPass.TYPE_RESOLUTION),
+                     AnalysisPass.requiredBy(reference));
+    }
+
+    @Test
+    public void testXPathRulesDeclareTheirPasses() {
+        assertEquals(EnumSet.of(AnalysisPass.QUALIFIED_NAMES, AnalysisPass.SYMBOL_TABLE, AnalysisPass.TYPE_RESOLUTION),
+                     AnalysisPass.requiredBy(new XPathRule(XPathVersion.XPATH_2_0, "//dummyNode")));
+    }
+
+    @Test
+    public void testOnlyAppliedRulesAreConsidered() {
+        NoPassRule tooRecent = new NoPassRule();
+        tooRecent.setDfa(true);
+        tooRecent.setMinimumLanguageVersion(DUMMY.getVersion("1.8"));
+        XPathRule excluded = new XPathRule(XPathVersion.XPATH_2_0, "//dummyNode");
+        excluded.setLanguage(DUMMY);
+        NoPassRule multifile = new NoPassRule();
+        multifile.setMultifile(true);
+
+        RuleSets ruleSets = new RuleSets();
+        ruleSets.addRuleSet(ruleSet(Collections.<Pattern>emptyList(), tooRecent, multifile));
+        ruleSets.addRuleSet(ruleSet(Collections.singletonList(Pattern.compile(".*\\.dummy")), excluded));
+
+        // the type resolution of the XPath rule and the DFA are skipped
+        assertEquals(EnumSet.of(AnalysisPass.QUALIFIED_NAMES, AnalysisPass.SYMBOL_TABLE, AnalysisPass.MULTIFILE),
+                     ruleSets.getRequiredAnalysisPasses(new File("Foo.dummy"), DUMMY.getVersion("1.7")));
+        assertEquals(EnumSet.allOf(AnalysisPass.class),
+                     ruleSets.getRequiredAnalysisPasses(new File("Foo.txt"), DUMMY.getVersion("1.8")));
+    }
+
+    private static RuleSet ruleSet(List<Pattern> excludePatterns, Rule... rules) {
+        return RuleSet.create("Test", "Test ruleset", "test.xml", excludePatterns,
+                              Collections.<Pattern>emptyList(), Arrays.asList(rules));
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.Node;
+
+public class FusedRuleTraversalTest {
+
+    private DummyNode root;
+    private DummyNode outer;
+    private DummyNode nested;
+    private DummyNode deep;
+    private RuleContext ctx;
+
+    @Before
+    public void setUp() {
+        // root
+        //  +- outer (interesting)
+        //  |   +- nested (interesting)
+        //  +- plain
+        //      +- deep (interesting)
+        root = new DummyNode(0);
+        outer = new InterestingNode();
+        nested = new InterestingNode();
+        final DummyNode plain = new DummyNode(0);
+        deep = new InterestingNode();
+        addChild(root, outer);
+        addChild(outer, nested);
+        addChild(root, plain);
+        addChild(plain, deep);
+
+        ctx = new RuleContext();
+        ctx.setReport(new Report());
+        ctx.setLanguageVersion(LanguageRegistry.getLanguage(DummyLanguageModule.NAME).getDefaultVersion());
+        ctx.setSourceCodeFile(new File("Foo.dummy"));
+        ctx.setIgnoreExceptions(true);
+    }
+
+    @Test
+    public void testRuleIsStartedOnOutermostInterestingNodes() {
+        final RecordingRule rule = new RecordingRule(InterestingNode.class);
+        traversal(rule).apply(Collections.singletonList(root), ctx);
+
+        assertEquals(Arrays.<Node>asList(outer, deep), rule.visited);
+    }
+
+    @Test
+    public void testRuleInterestedInRootIsStartedOnRootOnly() {
+        final RecordingRule rule = new RecordingRule(DummyNode.class);
+        traversal(rule).apply(Collections.singletonList(root), ctx);
+
+        assertEquals(Collections.<Node>singletonList(root), rule.visited);
+    }
+
+    @Test
+    public void testSeveralRulesShareTraversal() {
+        final RecordingRule interesting = new RecordingRule(InterestingNode.class);
+        final RecordingRule all = new RecordingRule(DummyNode.class);
+        traversal(interesting, all).apply(Collections.singletonList(root), ctx);
+
+        assertEquals(Arrays.<Node>asList(outer, deep), interesting.visited);
+        assertEquals(Collections.<Node>singletonList(root), all.visited);
+    }
+
+    @Test
+    public void testNonFusableRuleIsNotApplied() {
+        final RecordingRule rule = new RecordingRule(InterestingNode.class);
+        rule.fusable = false;
+        final FusedRuleTraversal traversal = traversal(rule);
+
+        assertTrue(traversal.isEmpty());
+        assertFalse(FusedRuleTraversal.isFusable(rule));
+    }
+
+    @Test
+    public void testFailingRuleStopsForTheFile() {
+        final RecordingRule rule = new RecordingRule(InterestingNode.class);
+        rule.fail = true;
+        traversal(rule).apply(Collections.singletonList(root), ctx);
+
+        assertEquals(Collections.<Node>singletonList(outer), rule.visited);
+        assertEquals(1, ctx.getReport().getProcessingErrors().size());
+    }
+
+    private FusedRuleTraversal traversal(RecordingRule... rules) {
+        final List<RuleSet> ruleSets = new ArrayList<>();
+        for (RecordingRule rule : rules) {
+            ruleSets.add(RuleSet.forSingleRule(rule));
+        }
+        return new FusedRuleTraversal(ruleSets);
+    }
+
+    private static void addChild(DummyNode parent, DummyNode child) {
+        parent.jjtAddChild(child, parent.getNumChildren());
+        child.setParent(parent);
+    }
+
+    private static class InterestingNode extends DummyNode {
+    }
+
+    private static class RecordingRule extends MockRule implements FusableRule {
+        private final Class<? extends Node> interestingType;
+        private final List<Node> visited = new ArrayList<>();
+        private boolean fusable = true;
+        private boolean fail;
+
+        RecordingRule(Class<? extends Node> interestingType) {
+            super("Recording" + interestingType.getSimpleName(), "desc", "msg", "rulesetname");
+            this.interestingType = interestingType;
+        }
+
+        @Override
+        public boolean isFusable() {
+            return fusable;
+        }
+
+        @Override
+        public boolean isInterestedIn(Class<? extends Node> nodeType) {
+            return interestingType.isAssignableFrom(nodeType);
+        }
+
+        @Override
+        public void visitFused(Node node, RuleContext ctx) {
+            visited.add(node);
+            if (fail) {
+                throw new IllegalStateException("Test exception while applying rule");
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.ThreadSafeReportListener;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.DummyLanguageModule.DummyRuleChainVisitor;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
+import net.sourceforge.pmd.stat.Metric;
+
+public class XPathRuleChainPlanTest {
+
+    private DummyRootNode root;
+    private RuleContext ctx;
+
+    @Before
+    public void setUp() {
+        root = newTree();
+
+        ctx = new RuleContext();
+        ctx.setReport(new Report());
+        ctx.setLanguageVersion(LanguageRegistry.getLanguage(DummyLanguageModule.NAME).getDefaultVersion());
+        ctx.setSourceCodeFile(new File("Foo.dummy"));
+    }
+
+    @Test
+    public void testSameViolationsAsRuleAlone() {
+        final XPathRule rule = makeRule("Outer", "//foo[not(parent::foo)]");
+
+        final DummyRuleChainVisitor visitor = new DummyRuleChainVisitor();
+        visitor.add(RuleSet.forSingleRule(rule), rule);
+        visitor.visitAll(Collections.<Node>singletonList(root), ctx);
+
+        final RuleContext aloneCtx = new RuleContext(ctx);
+        aloneCtx.setReport(new Report());
+        aloneCtx.setLanguageVersion(ctx.getLanguageVersion());
+        final XPathRule alone = makeRule("Outer", "//foo[not(parent::foo)]");
+        aloneCtx.setCurrentRule(alone);
+        alone.apply(Collections.<Node>singletonList(newTree()), aloneCtx);
+
+        assertEquals(1, ctx.getReport().size());
+        assertEquals(lines(aloneCtx.getReport()), lines(ctx.getReport()));
+    }
+
+    @Test
+    public void testRulesWithSameQueryAllReport() {
+        final XPathRule first = makeRule("First", "//foo");
+        final XPathRule second = makeRule("Second", "//foo");
+        final XPathRule other = makeRule("Other", "//bar");
+        final RuleSet ruleSet = RuleSet.forSingleRule(first);
+
+        final DummyRuleChainVisitor visitor = new DummyRuleChainVisitor();
+        visitor.add(ruleSet, first);
+        visitor.add(ruleSet, second);
+        visitor.add(ruleSet, other);
+        visitor.visitAll(Collections.<Node>singletonList(root), ctx);
+
+        assertEquals(2, countViolations(ctx.getReport(), "First"));
+        assertEquals(2, countViolations(ctx.getReport(), "Second"));
+        assertEquals(1, countViolations(ctx.getReport(), "Other"));
+
+        // the second file evaluates the queries again
+        visitor.visitAll(Collections.<Node>singletonList(newTree()), ctx);
+
+        assertEquals(4, countViolations(ctx.getReport(), "First"));
+        assertEquals(4, countViolations(ctx.getReport(), "Second"));
+        assertEquals(2, countViolations(ctx.getReport(), "Other"));
+    }
+
+    @Test
+    public void testViolationsAreReportedInRuleOrder() {
+        final XPathRule first = makeRule("First", "//foo");
+        final MockRule middle = new MockRule("Middle", "desc", "msg", "rulesetname") {
+            @Override
+            public void apply(List<? extends Node> nodes, RuleContext ctx) {
+                for (Node node : nodes) {
+                    addViolation(ctx, node);
+                }
+            }
+        };
+        middle.addRuleChainVisit("foo");
+        final XPathRule second = makeRule("Second", "//foo");
+        final RuleSet ruleSet = RuleSet.forSingleRule(first);
+
+        final List<String> reported = new ArrayList<>();
+        ctx.getReport().addListener(new ThreadSafeReportListener() {
+            @Override
+            public void ruleViolationAdded(RuleViolation ruleViolation) {
+                reported.add(ruleViolation.getRule().getName());
+            }
+
+            @Override
+            public void metricAdded(Metric metric) {
+                // nothing
+            }
+        });
+
+        final DummyRuleChainVisitor visitor = new DummyRuleChainVisitor();
+        visitor.add(ruleSet, first);
+        visitor.add(ruleSet, middle);
+        visitor.add(ruleSet, second);
+        visitor.visitAll(Collections.<Node>singletonList(root), ctx);
+
+        assertEquals(Arrays.asList("First", "First", "Middle", "Middle", "Second", "Second"), reported);
+    }
+
+    @Test
+    public void testSharedQueryKey() {
+        final XPathRule first = makeRule("First", "//foo");
+        final XPathRule second = makeRule("Second", "//foo");
+        final XPathRule other = makeRule("Other", "//bar");
+
+        assertNotNull(first.getSharedQuery());
+        assertEquals(first.getSharedQueryKey(), second.getSharedQueryKey());
+        assertNotEquals(first.getSharedQueryKey(), other.getSharedQueryKey());
+    }
+
+    @Test
+    public void testCustomizedRuleIsNotShared() {
+        final XPathRule rule = new XPathRule(XPathVersion.XPATH_2_0, "//foo") {
+            @Override
+            public void evaluate(Node node, RuleContext data) {
+                // nothing
+            }
+        };
+        rule.setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+
+        assertNull(rule.getSharedQuery());
+    }
+
+    @Test
+    public void testJaxenRuleIsNotShared() {
+        final XPathRule rule = new XPathRule(XPathVersion.XPATH_1_0, "//foo");
+        rule.setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+
+        assertNull(rule.getSharedQuery());
+    }
+
+    private static XPathRule makeRule(String name, String xpath) {
+        final XPathRule rule = new XPathRule(XPathVersion.XPATH_2_0, xpath);
+        rule.setName(name);
+        rule.setMessage("gotcha");
+        rule.setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        return rule;
+    }
+
+    private static DummyRootNode newTree() {
+        // root
+        //  +- foo (line 1)
+        //  |   +- foo (line 2)
+        //  +- bar (line 3)
+        final DummyRootNode root = new DummyRootNode("Foo.dummy");
+        root.setCoords(1, 1, 3, 10);
+        final DummyNode first = new DummyNode(1, false, "foo");
+        first.setCoords(1, 1, 2, 10);
+        final DummyNode second = new DummyNode(1, false, "foo");
+        second.setCoords(2, 1, 2, 10);
+        final DummyNode bar = new DummyNode(2, false, "bar");
+        bar.setCoords(3, 1, 3, 10);
+        addChild(root, first);
+        addChild(first, second);
+        addChild(root, bar);
+        return root;
+    }
+
+    private static void addChild(DummyNode parent, DummyNode child) {
+        parent.jjtAddChild(child, parent.getNumChildren());
+        child.setParent(parent);
+    }
+
+    private static List<Integer> lines(Report report) {
+        final List<Integer> lines = new ArrayList<>();
+        for (RuleViolation violation : report.getViolations()) {
+            lines.add(violation.getBeginLine());
+        }
+        return lines;
+    }
+
+    private static int countViolations(Report report, String ruleName) {
+        int count = 0;
+        for (RuleViolation violation : report.getViolations()) {
+            if (ruleName.equals(violation.getRule().getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.rule.XPathRule;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+import net.sourceforge.pmd.properties.PropertyFactory;
+
+public class CompiledXPathCacheTest {
+
+    private static final PropertyDescriptor<String> NAME = PropertyFactory.stringProperty("name")
+                                                                          .desc("the name")
+                                                                          .defaultValue("foo")
+                                                                          .build();
+
+    @Before
+    public void setUp() {
+        CompiledXPathCache.clear();
+    }
+
+    @Test
+    public void testQueriesShareCompiledExpression() {
+        SaxonXPathRuleQuery first = createQuery("//dummyNode[@Image = $name]", "foo");
+        SaxonXPathRuleQuery second = createQuery("//dummyNode[@Image = $name]", "bar");
+        SaxonXPathRuleQuery other = createQuery("//dummyNode[@Image != $name]", "foo");
+
+        assertEquals(first.getRuleChainVisits(), second.getRuleChainVisits());
+        other.getRuleChainVisits();
+
+        assertSame(first.xpathExpression, second.xpathExpression);
+        assertNotSame(first.xpathExpression, other.xpathExpression);
+        assertEquals(2, CompiledXPathCache.size());
+    }
+
+    @Test
+    public void testVariablesAreBoundPerQuery() {
+        DummyNode node = new DummyNode(1, false, "dummyNode");
+        node.setImage("bar");
+
+        assertEquals(0, createQuery("//dummyNode[@Image = $name]", "foo").evaluate(node, new RuleContext()).size());
+        assertEquals(1, createQuery("//dummyNode[@Image = $name]", "bar").evaluate(node, new RuleContext()).size());
+    }
+
+    @Test
+    public void testWarmUp() {
+        XPathRule rule = new XPathRule(XPathVersion.XPATH_2_0, "//dummyNode");
+        rule.setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        XPathRule jaxenRule = new XPathRule(XPathVersion.XPATH_1_0, "//dummyNode");
+        jaxenRule.setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+
+        assertEquals(1, CompiledXPathCache.warmUp(Collections.singletonList(RuleSet.forSingleRule(rule))));
+        assertEquals(0, CompiledXPathCache.warmUp(Collections.singletonList(RuleSet.forSingleRule(jaxenRule))));
+        assertEquals(1, CompiledXPathCache.size());
+
+        // the rule uses the compiled expression
+        rule.getRuleChainVisits();
+        assertEquals(1, CompiledXPathCache.size());
+    }
+
+    private static SaxonXPathRuleQuery createQuery(String xpath, String name) {
+        SaxonXPathRuleQuery query = new SaxonXPathRuleQuery();
+        query.setVersion(XPathRuleQuery.XPATH_2_0);
+        Map<PropertyDescriptor<?>, Object> props = new HashMap<>();
+        props.put(NAME, name);
+        query.setProperties(props);
+        query.setXPath(xpath);
+        return query;
+    }
+}
@@ -4,10 +4,13 @@
 
 package net.sourceforge.pmd.lang.rule.xpath;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
@@ -297,4 +300,32 @@ public class SaxonXPathRuleQueryTest {
         assertExpression(expectedSubexpression, query.nodeNameToXPaths.get("WhileStatement").get(0));
         assertExpression(expectedSubexpression, query.nodeNameToXPaths.get("DoStatement").get(0));
     }
+
+    @Test
+    public void testRequiredNodeNames() {
+        List<Set<String>> required = createQuery("(//ForStatement | //WhileStatement)//AssignmentOperator[.//Literal]")
+            .getRequiredNodeNames();
+        Assert.assertEquals(2, required.size());
+        Assert.assertTrue(required.contains(new HashSet<>(Arrays.asList("ForStatement", "AssignmentOperator"))));
+        Assert.assertTrue(required.contains(new HashSet<>(Arrays.asList("WhileStatement", "AssignmentOperator"))));
+
+        Assert.assertEquals(Collections.singletonList(Collections.singleton("foo")),
+                            createQuery("//foo[not(bar)]").getRequiredNodeNames());
+        Assert.assertTrue(createQuery("//*[@Image = 'foo']").getRequiredNodeNames().isEmpty());
+        Assert.assertTrue(createQuery("//foo | //*").getRequiredNodeNames().isEmpty());
+    }
+
+    @Test
+    public void testMayMatch() {
+        DummyNode root = new DummyNode(1, false, "foo");
+        DummyNode child = new DummyNode(2, false, "bar");
+        root.jjtAddChild(child, 0);
+        child.setParent(root);
+
+        Assert.assertTrue(createQuery("//foo/bar").mayMatch(root));
+        Assert.assertTrue(createQuery("//baz | //bar").mayMatch(child));
+        Assert.assertTrue(createQuery("//foo[not(baz)]").mayMatch(root));
+        Assert.assertFalse(createQuery("//foo/baz").mayMatch(root));
+        Assert.assertFalse(createQuery("//baz | //qux").mayMatch(child));
+    }
 }
@@ -11,6 +11,8 @@ import net.sourceforge.pmd.lang.ast.DummyNode;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.ElementNode;
 
+import net.sf.saxon.om.Axis;
+import net.sf.saxon.om.AxisIterator;
 import net.sf.saxon.type.Type;
 
 public class ElementNodeTest {
@@ -26,8 +28,8 @@ public class ElementNodeTest {
         node.jjtAddChild(foo2, 1);
 
         DocumentNode document = new DocumentNode(node);
-        ElementNode elementFoo1 = document.nodeToElementNode.get(foo1);
-        ElementNode elementFoo2 = document.nodeToElementNode.get(foo2);
+        ElementNode elementFoo1 = document.getElementNode(foo1);
+        ElementNode elementFoo2 = document.getElementNode(foo2);
 
         Assert.assertFalse(elementFoo1.isSameNodeInfo(elementFoo2));
         Assert.assertFalse(elementFoo2.isSameNodeInfo(elementFoo1));
@@ -50,8 +52,8 @@ public class ElementNodeTest {
         node.jjtAddChild(foo2, 1);
 
         DocumentNode document = new DocumentNode(node);
-        ElementNode elementFoo1 = document.nodeToElementNode.get(foo1);
-        ElementNode elementFoo2 = document.nodeToElementNode.get(foo2);
+        ElementNode elementFoo1 = document.getElementNode(foo1);
+        ElementNode elementFoo2 = document.getElementNode(foo2);
 
         Assert.assertFalse(elementFoo1.isSameNodeInfo(elementFoo2));
         Assert.assertFalse(elementFoo2.isSameNodeInfo(elementFoo1));
@@ -68,8 +70,8 @@ public class ElementNodeTest {
         node.jjtAddChild(foo2, 1);
 
         DocumentNode document = new DocumentNode(node);
-        ElementNode elementFoo1 = document.nodeToElementNode.get(foo1);
-        ElementNode elementFoo2 = document.nodeToElementNode.get(foo2);
+        ElementNode elementFoo1 = document.getElementNode(foo1);
+        ElementNode elementFoo2 = document.getElementNode(foo2);
 
         Assert.assertEquals(Type.ELEMENT, elementFoo1.getNodeKind());
         Assert.assertEquals(Type.TEXT, elementFoo2.getNodeKind());
@@ -82,8 +84,63 @@ public class ElementNodeTest {
         node.jjtAddChild(foo, 0);
 
         DocumentNode document = new DocumentNode(node);
-        ElementNode elementFoo = document.nodeToElementNode.get(foo);
+        ElementNode elementFoo = document.getElementNode(foo);
 
         Assert.assertEquals(Type.COMMENT, elementFoo.getNodeKind());
     }
+
+    @Test
+    public void testElementNodesAreCreatedOnDemand() {
+        DummyNode node = new DummyNode(1, false, "dummy");
+        DummyNode foo = new DummyNode(2, false, "foo");
+        DummyNode bar = new DummyNode(2, false, "bar");
+        DummyNode baz = new DummyNode(2, false, "baz");
+        node.jjtAddChild(foo, 0);
+        node.jjtAddChild(bar, 1);
+        bar.jjtAddChild(baz, 0);
+
+        DocumentNode document = new DocumentNode(node);
+        ElementNode elementBaz = document.getElementNode(baz);
+
+        Assert.assertSame(baz, elementBaz.getUnderlyingNode());
+        Assert.assertSame(bar, ((ElementNode) elementBaz.getParent()).getUnderlyingNode());
+        Assert.assertSame(elementBaz, document.getElementNode(baz));
+        Assert.assertSame(elementBaz.getParent(), document.getElementNode(bar));
+        // document order
+        Assert.assertTrue(document.getElementNode(foo).compareOrder(elementBaz) < 0);
+        Assert.assertTrue(elementBaz.compareOrder(document.getElementNode(bar)) > 0);
+
+        AxisIterator children = document.getElementNode(node).iterateAxis(Axis.CHILD);
+        Assert.assertSame(document.getElementNode(foo), children.next());
+        Assert.assertSame(document.getElementNode(bar), children.next());
+        Assert.assertNull(children.next());
+    }
+
+    @Test
+    public void testNodeOfOtherTree() {
+        DummyNode node = new DummyNode(1, false, "dummy");
+        node.jjtAddChild(new DummyNode(2, false, "foo"), 0);
+
+        DocumentNode document = new DocumentNode(node);
+
+        Assert.assertNull(document.getElementNode(new DummyNode(2, false, "foo")));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedNodeToElementNodeView() {
+        DummyNode node = new DummyNode(1, false, "dummy");
+        DummyNode foo = new DummyNode(2, false, "foo");
+        DummyNode bar = new DummyNode(2, false, "bar");
+        node.jjtAddChild(foo, 0);
+        foo.jjtAddChild(bar, 0);
+
+        DocumentNode document = new DocumentNode(node);
+
+        Assert.assertEquals(3, document.nodeToElementNode.size());
+        Assert.assertSame(document.getElementNode(bar), document.nodeToElementNode.get(bar));
+        Assert.assertFalse(document.nodeToElementNode.containsKey(new DummyNode(2, false, "foo")));
+        Assert.assertEquals(3, document.nodeToElementNode.entrySet().size());
+        Assert.assertSame(foo, document.nodeToElementNode.keySet().toArray()[1]);
+    }
 }
@@ -0,0 +1,136 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.symboltable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class AbstractScopeTest {
+
+    private static class MyDeclaration implements NameDeclaration {
+        private final String image;
+
+        MyDeclaration(String image) {
+            this.image = image;
+        }
+
+        @Override
+        public ScopedNode getNode() {
+            return null;
+        }
+
+        @Override
+        public String getImage() {
+            return image;
+        }
+
+        @Override
+        public Scope getScope() {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return image;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && o.getClass() == getClass() && ((MyDeclaration) o).image.equals(image);
+        }
+
+        @Override
+        public int hashCode() {
+            return image.hashCode();
+        }
+    }
+
+    private static class OtherDeclaration extends MyDeclaration {
+        OtherDeclaration(String image) {
+            super(image);
+        }
+    }
+
+    private static class MyOccurrence implements NameOccurrence {
+        private final String image;
+
+        MyOccurrence(String image) {
+            this.image = image;
+        }
+
+        @Override
+        public ScopedNode getLocation() {
+            return null;
+        }
+
+        @Override
+        public String getImage() {
+            return image;
+        }
+    }
+
+    private static class MyScope extends AbstractScope {
+    }
+
+    @Test
+    public void testDeclarationsKeepTheirOrder() {
+        MyScope scope = new MyScope();
+        List<MyDeclaration> declarations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            MyDeclaration declaration = new MyDeclaration("v" + i);
+            declarations.add(declaration);
+            scope.addDeclaration(declaration);
+        }
+        assertEquals(declarations, new ArrayList<>(scope.getDeclarations(MyDeclaration.class).keySet()));
+        assertTrue(scope.getDeclarations(OtherDeclaration.class).isEmpty());
+    }
+
+    @Test
+    public void testOccurrencesAreFoundByImage() {
+        MyScope scope = new MyScope();
+        MyDeclaration a = new MyDeclaration("a");
+        OtherDeclaration otherA = new OtherDeclaration("a");
+        scope.addDeclaration(a);
+        scope.addDeclaration(new MyDeclaration("b"));
+        scope.addDeclaration(otherA);
+
+        MyOccurrence occurrence = new MyOccurrence("a");
+        assertTrue(scope.contains(occurrence));
+        assertFalse(scope.contains(new MyOccurrence("c")));
+        assertEquals(2, scope.addNameOccurrence(occurrence).size());
+        assertEquals(Arrays.asList(occurrence), scope.getDeclarations(MyDeclaration.class).get(a));
+        assertEquals(Arrays.asList(occurrence), scope.getDeclarations(OtherDeclaration.class).get(otherA));
+        assertTrue(scope.getDeclarations(MyDeclaration.class).get(new MyDeclaration("b")).isEmpty());
+
+        assertSame(a, scope.findDeclaration(MyDeclaration.class, "a"));
+        assertSame(otherA, scope.findDeclaration(OtherDeclaration.class, Arrays.asList("b", "a")));
+        assertEquals(Arrays.asList(a), scope.findDeclarations(MyDeclaration.class, "a"));
+        assertNull(scope.getOccurrences(OtherDeclaration.class, new MyDeclaration("b")));
+    }
+
+    @Test
+    public void testEqualDeclarationIsReplaced() {
+        MyScope scope = new MyScope();
+        MyDeclaration first = new MyDeclaration("a");
+        scope.addDeclaration(first);
+        scope.addNameOccurrence(new MyOccurrence("a"));
+        scope.addDeclaration(new MyDeclaration("a"));
+
+        Map<MyDeclaration, List<NameOccurrence>> declarations = scope.getDeclarations(MyDeclaration.class);
+        assertEquals(1, declarations.size());
+        assertSame(first, declarations.keySet().iterator().next());
+        assertTrue(declarations.get(first).isEmpty());
+    }
+}
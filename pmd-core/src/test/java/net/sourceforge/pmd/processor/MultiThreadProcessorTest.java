@@ -45,6 +45,7 @@ public class MultiThreadProcessorTest {
         PMDConfiguration configuration = new PMDConfiguration();
         configuration.setRuleSets(ruleset);
         configuration.setThreads(2);
+        NotThreadSafeRule.count.set(0);
         files = new ArrayList<>();
         files.add(new StringDataSource("file1-violation.dummy", "ABC"));
         files.add(new StringDataSource("file2-foo.dummy", "DEF"));
@@ -86,6 +87,24 @@ public class MultiThreadProcessorTest {
         // if the violation is not reported, then the rule instances have been
         // shared between the threads
         Assert.assertEquals("Missing violation", 1, reportListener.violations.get());
+        // the per-file reports are merged into the global report
+        Assert.assertEquals("Violation not merged", 1, ctx.getReport().getViolations().size());
+        Assert.assertEquals(1, processor.getViolationCount());
+    }
+
+    @Test
+    public void testViolationsAreOnlyRenderedIfNotRetained() throws IOException {
+        setUpForTest("rulesets/MultiThreadProcessorTest/basic.xml");
+        final SimpleRenderer renderer = new SimpleRenderer(null, null);
+        renderer.start();
+        processor.setRetainViolations(false);
+        processor.processFiles(ruleSetFactory, files, ctx, Collections.<Renderer>singletonList(renderer));
+        renderer.end();
+
+        Assert.assertEquals("Violation not rendered", 1, renderer.getReport().getViolations().size());
+        Assert.assertEquals("Violation not reported to listeners", 1, reportListener.violations.get());
+        Assert.assertTrue("Violation retained", ctx.getReport().getViolations().isEmpty());
+        Assert.assertEquals(1, processor.getViolationCount());
     }
 
     private static class StringDataSource extends AbstractDataSource {
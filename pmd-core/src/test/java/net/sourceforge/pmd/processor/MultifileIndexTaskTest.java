@@ -0,0 +1,34 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.processor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.SourceCodeProcessor;
+import net.sourceforge.pmd.util.datasource.ReaderDataSource;
+
+public class MultifileIndexTaskTest {
+
+    @Test
+    public void testContentsAreReleasedOnceTaken() {
+        PMDConfiguration configuration = new PMDConfiguration();
+        MultifileIndexTask task = new MultifileIndexTask(new ReaderDataSource(new StringReader("ABC"), "Foo.dummy"),
+                                                         "Foo.dummy", new RuleSets(),
+                                                         new SourceCodeProcessor(configuration));
+        task.run();
+
+        // the reader can't be read again, the rules pass gets the contents from the task
+        assertArrayEquals("ABC".getBytes(StandardCharsets.UTF_8), task.takeContents());
+        assertNull(task.takeContents());
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.util.datasource.FileDataSource;
+import net.sourceforge.pmd.util.datasource.ReaderDataSource;
+import net.sourceforge.pmd.util.datasource.ZipDataSource;
+
+public class WorkStealingFileSchedulerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLargestPendingFilesRunFirst() throws Exception {
+        final WorkStealingFileScheduler scheduler = new WorkStealingFileScheduler(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            // keeps the only worker busy until all the other files are scheduled
+            scheduler.schedule(new Callable<Report>() {
+                @Override
+                public Report call() throws Exception {
+                    started.countDown();
+                    release.await();
+                    order.add("first");
+                    return new Report();
+                }
+            }, 0);
+            started.await();
+
+            scheduler.schedule(analysis("small", order), 10);
+            scheduler.schedule(analysis("large", order), 1000);
+            scheduler.schedule(analysis("medium", order), 100);
+            scheduler.schedule(analysis("medium2", order), 100);
+            release.countDown();
+
+            for (int i = 0; i < 5; i++) {
+                scheduler.take();
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+
+        assertEquals(Arrays.asList("first", "large", "medium", "medium2", "small"), order);
+    }
+
+    @Test
+    public void testAllReportsAreCollected() throws Exception {
+        final WorkStealingFileScheduler scheduler = new WorkStealingFileScheduler(4);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        int reports = 0;
+
+        try {
+            for (int i = 0; i < 50; i++) {
+                scheduler.schedule(analysis("file" + i, order), i);
+            }
+            for (int i = 0; i < 50; i++) {
+                if (scheduler.take() != null) {
+                    reports++;
+                }
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+
+        assertEquals(50, reports);
+        assertEquals(50, order.size());
+    }
+
+    @Test
+    public void testSizeEstimates() throws IOException {
+        final File file = folder.newFile("Foo.java");
+        Files.write(file.toPath(), "class Foo {}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(12, WorkStealingFileScheduler.estimateSize(new FileDataSource(file)));
+
+        final File zip = folder.newFile("sources.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip.toPath()));
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            out.putNextEntry(new ZipEntry("Foo.java"));
+            writer.write("class Foo { int bar; }");
+            writer.flush();
+            out.closeEntry();
+        }
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            assertEquals(22, WorkStealingFileScheduler.estimateSize(
+                    new ZipDataSource(zipFile, zipFile.getEntry("Foo.java"))));
+        }
+
+        assertEquals(0, WorkStealingFileScheduler.estimateSize(new ReaderDataSource(null, "Foo.java")));
+    }
+
+    private static Callable<Report> analysis(final String name, final List<String> order) {
+        return new Callable<Report>() {
+            @Override
+            public Report call() {
+                order.add(name);
+                return new Report();
+            }
+        };
+    }
+}
@@ -6,6 +6,7 @@ package net.sourceforge.pmd.renderers;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
@@ -17,6 +18,9 @@ import org.junit.contrib.java.lang.system.RestoreSystemProperties;
 
 import net.sourceforge.pmd.Report;
 import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.ParametricRuleViolation;
 import net.sourceforge.pmd.util.IOUtil;
 
 public class SarifRendererTest extends AbstractRendererTest {
@@ -98,6 +102,21 @@ public class SarifRendererTest extends AbstractRendererTest {
         assertEquals(filter(readFile("expected-multiple-locations.sarif.json")), filter(actual));
     }
 
+    @Test
+    public void testRendererMultiLineMessages() throws Exception {
+        RuleContext ctx = new RuleContext();
+        ctx.setSourceCodeFile(new File(getSourceCodeFilename()));
+        Report rep = new Report();
+        rep.addRuleViolation(new ParametricRuleViolation<Node>(createFooRule(), ctx, createNode(1, 1, 1, 10), "first\nline"));
+        rep.addRuleViolation(new ParametricRuleViolation<Node>(createFooRule(), ctx, createNode(2, 1, 2, 10), "second\r\nline"));
+        String actual = renderReport(getRenderer(), rep);
+
+        JSONArray results = new JSONObject(actual).getJSONArray("runs").getJSONObject(0).getJSONArray("results");
+        assertEquals(2, results.length());
+        assertEquals("first\nline", results.getJSONObject(0).getJSONObject("message").getString("text"));
+        assertEquals("second\r\nline", results.getJSONObject(1).getJSONObject("message").getString("text"));
+    }
+
     private Report reportThreeViolationsTwoRules() {
         Rule fooRule = createFooRule();
         Rule booRule = createBooRule();
@@ -123,6 +123,19 @@ public abstract class AbstractJavaHandler extends AbstractLanguageVersionHandler
         };
     }
 
+    @Override
+    public VisitorStarter getTypeResolutionFacade(final ClassLoader classLoader, final boolean lazy) {
+        if (!lazy) {
+            return getTypeResolutionFacade(classLoader);
+        }
+        return new VisitorStarter() {
+            @Override
+            public void start(Node rootNode) {
+                new TypeResolutionFacade().initializeLazilyWith(classLoader, (ASTCompilationUnit) rootNode);
+            }
+        };
+    }
+
     @Deprecated
     @Override
     public VisitorStarter getDumpFacade(final Writer writer, final String prefix, final boolean recurse) {
@@ -144,6 +157,11 @@ public abstract class AbstractJavaHandler extends AbstractLanguageVersionHandler
         };
     }
 
+    @Override
+    public void resetMultifileData() {
+        new MultifileVisitorFacade().reset();
+    }
+
 
     @Override
     public VisitorStarter getQualifiedNameResolutionFacade(final ClassLoader classLoader) {
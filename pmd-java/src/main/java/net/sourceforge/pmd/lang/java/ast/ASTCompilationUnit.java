@@ -17,6 +17,8 @@ public class ASTCompilationUnit extends AbstractJavaTypeNode implements RootNode
     private ClassTypeResolver classTypeResolver;
     private List<Comment> comments;
 
+    private Runnable deferredTypeResolution;
+
     @InternalApi
     @Deprecated
     public ASTCompilationUnit(int id) {
@@ -86,4 +88,31 @@ public class ASTCompilationUnit extends AbstractJavaTypeNode implements RootNode
     public void setClassTypeResolver(ClassTypeResolver classTypeResolver) {
         this.classTypeResolver = classTypeResolver;
     }
+
+    /**
+     * Sets the type resolution of this file, to be run the first time the
+     * type of a node is asked for, see {@link #resolveDeferredTypes()}.
+     */
+    @InternalApi
+    @Deprecated
+    public void setDeferredTypeResolution(Runnable typeResolution) {
+        this.deferredTypeResolution = typeResolution;
+    }
+
+    /**
+     * Runs the deferred type resolution of this file, if any. The resolution
+     * runs once, the type resolution itself sees the types resolved so far.
+     * A file is only analysed by a single thread, so this needs no lock.
+     */
+    @InternalApi
+    @Deprecated
+    @Override
+    public void resolveDeferredTypes() {
+        final Runnable typeResolution = deferredTypeResolution;
+        if (typeResolution != null) {
+            // cleared first, the nodes visited by the type resolution don't start it again
+            deferredTypeResolution = null;
+            typeResolution.run();
+        }
+    }
 }
@@ -160,6 +160,15 @@ public class ASTImportDeclaration extends AbstractJavaTypeNode {
      */
     @Deprecated
     public Package getPackage() {
+        // the type resolution only reads the class file of the imported type,
+        // its class is loaded when the package is first asked for
+        resolveDeferredTypes();
+        if (this.pkg == null) {
+            Class<?> type = getType();
+            if (type != null) {
+                this.pkg = type.getPackage();
+            }
+        }
         return this.pkg;
     }
 }
@@ -30,6 +30,7 @@ public abstract class AbstractJavaAccessTypeNode extends AbstractJavaAccessNode
 
     @Override
     public Class<?> getType() {
+        resolveDeferredTypes();
         if (typeDefinition != null) {
             return typeDefinition.getType();
         }
@@ -46,9 +47,19 @@ public abstract class AbstractJavaAccessTypeNode extends AbstractJavaAccessNode
 
     @Override
     public JavaTypeDefinition getTypeDefinition() {
+        resolveDeferredTypes();
         return typeDefinition;
     }
 
+    /**
+     * Resolves the types of the file if type resolution is lazy and hasn't run yet.
+     */
+    private void resolveDeferredTypes() {
+        if (getParent() != null) {
+            getRoot().resolveDeferredTypes();
+        }
+    }
+
     @InternalApi
     @Deprecated
     @Override
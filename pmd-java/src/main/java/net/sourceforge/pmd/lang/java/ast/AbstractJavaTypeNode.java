@@ -33,6 +33,7 @@ public abstract class AbstractJavaTypeNode extends AbstractJavaNode implements T
 
     @Override
     public Class<?> getType() {
+        resolveDeferredTypes();
         return typeDefinition == null ? null : typeDefinition.getType();
     }
 
@@ -45,9 +46,20 @@ public abstract class AbstractJavaTypeNode extends AbstractJavaNode implements T
 
     @Override
     public JavaTypeDefinition getTypeDefinition() {
+        resolveDeferredTypes();
         return typeDefinition;
     }
 
+    /**
+     * Resolves the types of the file if type resolution is lazy and hasn't run yet.
+     * Subclasses call it before returning other data set by the type resolution.
+     */
+    protected void resolveDeferredTypes() {
+        if (getParent() != null) {
+            getRoot().resolveDeferredTypes();
+        }
+    }
+
     @InternalApi
     @Deprecated
     @Override
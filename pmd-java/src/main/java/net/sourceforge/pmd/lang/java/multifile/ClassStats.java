@@ -4,11 +4,11 @@
 
 package net.sourceforge.pmd.lang.java.multifile;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.sourceforge.pmd.lang.java.multifile.signature.JavaFieldSigMask;
 import net.sourceforge.pmd.lang.java.multifile.signature.JavaFieldSignature;
@@ -30,9 +30,9 @@ import net.sourceforge.pmd.lang.java.qname.JavaTypeQualifiedName;
  */
 final class ClassStats implements ClassMirror {
 
-    private Map<JavaOperationSignature, Set<String>> operations = new HashMap<>();
-    private Map<JavaFieldSignature, Set<String>> fields = new HashMap<>();
-    private Map<String, ClassStats> nestedClasses = new HashMap<>();
+    private final ConcurrentMap<JavaOperationSignature, Set<String>> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<JavaFieldSignature, Set<String>> fields = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ClassStats> nestedClasses = new ConcurrentHashMap<>();
 
     // References to the hierarchy
     // TODO:cf useful?
@@ -61,7 +61,7 @@ final class ClassStats implements ClassMirror {
      */
     ClassStats getNestedClassStats(String className, boolean createIfNotFound) {
         if (createIfNotFound && !nestedClasses.containsKey(className)) {
-            nestedClasses.put(className, new ClassStats());
+            nestedClasses.putIfAbsent(className, new ClassStats());
         }
         return nestedClasses.get(className);
     }
@@ -75,7 +75,7 @@ final class ClassStats implements ClassMirror {
      */
     void addOperation(String name, JavaOperationSignature sig) {
         if (!operations.containsKey(sig)) {
-            operations.put(sig, new HashSet<String>());
+            operations.putIfAbsent(sig, newNameSet());
         }
         operations.get(sig).add(name);
     }
@@ -89,12 +89,18 @@ final class ClassStats implements ClassMirror {
      */
     void addField(String name, JavaFieldSignature sig) {
         if (!fields.containsKey(sig)) {
-            fields.put(sig, new HashSet<String>());
+            fields.putIfAbsent(sig, newNameSet());
         }
         fields.get(sig).add(name);
     }
 
 
+    private static Set<String> newNameSet() {
+        // a class may be declared in several files, e.g. in different source folders, which are indexed concurrently
+        return Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    }
+
+
     @Override
     public boolean hasMatchingOpSig(String name, JavaOperationSigMask mask) {
         // Indexing on signatures optimises this type of request
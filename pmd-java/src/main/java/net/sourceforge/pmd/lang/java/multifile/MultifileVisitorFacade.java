@@ -20,4 +20,12 @@ public final class MultifileVisitorFacade extends JavaParserVisitorAdapter {
     }
 
 
+    /**
+     * Discards the data gathered about the project.
+     */
+    public void reset() {
+        PackageStats.INSTANCE.reset();
+    }
+
+
 }
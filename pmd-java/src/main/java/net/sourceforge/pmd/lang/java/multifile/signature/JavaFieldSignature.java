@@ -4,8 +4,8 @@
 
 package net.sourceforge.pmd.lang.java.multifile.signature;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sourceforge.pmd.lang.java.ast.ASTFieldDeclaration;
 
@@ -16,7 +16,7 @@ import net.sourceforge.pmd.lang.java.ast.ASTFieldDeclaration;
  */
 public final class JavaFieldSignature extends JavaSignature<ASTFieldDeclaration> {
 
-    private static final Map<Integer, JavaFieldSignature> POOL = new HashMap<>();
+    private static final Map<Integer, JavaFieldSignature> POOL = new ConcurrentHashMap<>();
 
     public final boolean isStatic;
     public final boolean isFinal;
@@ -4,7 +4,14 @@
 
 package net.sourceforge.pmd.lang.java.rule;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.sourceforge.pmd.RuleContext;
 import net.sourceforge.pmd.annotation.Experimental;
@@ -143,9 +150,20 @@ import net.sourceforge.pmd.lang.java.ast.ASTYieldStatement;
 import net.sourceforge.pmd.lang.java.ast.JavaNode;
 import net.sourceforge.pmd.lang.java.ast.JavaParserVisitor;
 import net.sourceforge.pmd.lang.rule.AbstractRule;
+import net.sourceforge.pmd.lang.rule.AnalysisPass;
+import net.sourceforge.pmd.lang.rule.AnalysisPassAwareRule;
+import net.sourceforge.pmd.lang.rule.FusableRule;
 import net.sourceforge.pmd.lang.rule.ImmutableLanguage;
 
-public abstract class AbstractJavaRule extends AbstractRule implements JavaParserVisitor, ImmutableLanguage {
+public abstract class AbstractJavaRule extends AbstractRule implements JavaParserVisitor, ImmutableLanguage, FusableRule,
+    AnalysisPassAwareRule {
+
+    /**
+     * Parameter types of the visit methods overridden by each rule class,
+     * or {@link #NOT_FUSABLE} if the class customizes how it is applied.
+     */
+    private static final ConcurrentMap<Class<?>, Class<?>[]> VISITED_NODE_TYPES = new ConcurrentHashMap<>();
+    private static final Class<?>[] NOT_FUSABLE = new Class<?>[0];
 
     public AbstractJavaRule() {
         super.setLanguage(LanguageRegistry.getLanguage(JavaLanguageModule.NAME));
@@ -158,6 +176,74 @@ public abstract class AbstractJavaRule extends AbstractRule implements JavaParse
         visitAll(nodes, ctx);
     }
 
+    /**
+     * Java rules read the qualified names and the symbol table. The type
+     * resolution is enabled by default, see {@link #isTypeResolution()}.
+     * Rules which need the results of fewer passes may override this.
+     */
+    @Override
+    public Set<AnalysisPass> getRequiredAnalysisPasses() {
+        return EnumSet.of(AnalysisPass.QUALIFIED_NAMES, AnalysisPass.SYMBOL_TABLE);
+    }
+
+    /**
+     * Returns true, unless this rule overrides {@link #apply(List, RuleContext)}
+     * or {@link #visitAll(List, RuleContext)}. The other nodes are only traversed
+     * by {@link #visit(JavaNode, Object)}, so starting the rule on the outermost
+     * nodes it has a visit method for is the same as starting it on the root.
+     */
+    @Override
+    public boolean isFusable() {
+        return getVisitedNodeTypes() != NOT_FUSABLE;
+    }
+
+    @Override
+    public boolean isInterestedIn(Class<? extends Node> nodeType) {
+        for (Class<?> visitedType : getVisitedNodeTypes()) {
+            if (visitedType.isAssignableFrom(nodeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void visitFused(Node node, RuleContext ctx) {
+        if (node instanceof JavaNode) {
+            ((JavaNode) node).jjtAccept(this, ctx);
+        }
+    }
+
+    private Class<?>[] getVisitedNodeTypes() {
+        Class<?>[] types = VISITED_NODE_TYPES.get(getClass());
+        if (types == null) {
+            types = findVisitedNodeTypes(getClass());
+            VISITED_NODE_TYPES.putIfAbsent(getClass(), types);
+        }
+        return types;
+    }
+
+    private static Class<?>[] findVisitedNodeTypes(Class<?> ruleClass) {
+        final Set<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> c = ruleClass; c != AbstractJavaRule.class; c = c.getSuperclass()) {
+            for (Method m : c.getDeclaredMethods()) {
+                if (m.isBridge() || m.isSynthetic() || Modifier.isStatic(m.getModifiers())) {
+                    continue;
+                }
+                final Class<?>[] params = m.getParameterTypes();
+                if (params.length == 2 && params[0] == List.class && params[1] == RuleContext.class
+                        && ("apply".equals(m.getName()) || "visitAll".equals(m.getName()))) {
+                    return NOT_FUSABLE;
+                }
+                if (params.length == 2 && params[1] == Object.class && "visit".equals(m.getName())
+                        && Node.class.isAssignableFrom(params[0])) {
+                    types.add(params[0]);
+                }
+            }
+        }
+        return types.toArray(new Class<?>[0]);
+    }
+
     protected void visitAll(List<? extends Node> nodes, RuleContext ctx) {
         for (Object element : nodes) {
             if (element instanceof JavaNode) {
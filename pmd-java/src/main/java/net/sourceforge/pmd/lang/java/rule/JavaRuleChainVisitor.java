@@ -9,10 +9,8 @@ import java.util.List;
 import net.sourceforge.pmd.Rule;
 import net.sourceforge.pmd.RuleContext;
 import net.sourceforge.pmd.lang.ast.Node;
-import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
 import net.sourceforge.pmd.lang.java.ast.JavaNode;
 import net.sourceforge.pmd.lang.java.ast.JavaParserVisitor;
-import net.sourceforge.pmd.lang.java.ast.JavaParserVisitorAdapter;
 import net.sourceforge.pmd.lang.rule.AbstractRuleChainVisitor;
 import net.sourceforge.pmd.lang.rule.RuleChainVisitor;
 import net.sourceforge.pmd.lang.rule.XPathRule;
@@ -26,21 +24,26 @@ public class JavaRuleChainVisitor extends AbstractRuleChainVisitor {
 
     @Override
     protected void indexNodes(List<Node> nodes, RuleContext ctx) {
-        JavaParserVisitor javaParserVisitor = new JavaParserVisitorAdapter() {
-            // Perform a visitation of the AST to index nodes which need
-            // visiting by type
-            @Override
-            public Object visit(JavaNode node, Object data) {
-                indexNode(node);
-                return super.visit(node, data);
-            }
-        };
-
+        // Perform a traversal of the AST to index nodes which need
+        // visiting by type
         for (final Node node : nodes) {
-            javaParserVisitor.visit((ASTCompilationUnit) node, ctx);
+            indexNodeRec(node);
+        }
+    }
+
+    private void indexNodeRec(Node node) {
+        indexNode(node);
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            indexNodeRec(node.getChild(i));
         }
     }
 
+    @Override
+    protected boolean isNodeNameDeterminedById() {
+        // see AbstractJavaNode#getXPathNodeName
+        return true;
+    }
+
     @Override
     protected void visit(Rule rule, Node node, RuleContext ctx) {
         // Rule better either be a JavaParserVisitor, or a XPathRule
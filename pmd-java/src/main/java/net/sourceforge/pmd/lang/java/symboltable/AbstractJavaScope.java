@@ -27,7 +27,8 @@ public abstract class AbstractJavaScope extends AbstractScope {
     }
 
     protected void checkForDuplicatedNameDeclaration(NameDeclaration declaration) {
-        if (declaration instanceof VariableNameDeclaration && getDeclarations().keySet().contains(declaration)) {
+        if (declaration instanceof VariableNameDeclaration
+                && getOccurrences(VariableNameDeclaration.class, declaration) != null) {
             throw new RuntimeException(declaration + " is already in the symbol table");
         }
     }
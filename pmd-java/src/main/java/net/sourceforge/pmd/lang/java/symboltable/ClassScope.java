@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.lang.java.symboltable;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -130,7 +131,7 @@ public class ClassScope extends AbstractJavaScope {
         if (!declarations.isEmpty()
                 && (javaOccurrence.isMethodOrConstructorInvocation() || javaOccurrence.isMethodReference())) {
             for (NameDeclaration decl : declarations) {
-                List<NameOccurrence> nameOccurrences = getMethodDeclarations().get(decl);
+                List<NameOccurrence> nameOccurrences = getOccurrences(MethodNameDeclaration.class, decl);
                 if (nameOccurrences == null) {
                     // TODO may be a class name: Foo.this.super();
 
@@ -151,7 +152,7 @@ public class ClassScope extends AbstractJavaScope {
             }
         } else if (!declarations.isEmpty() && !javaOccurrence.isThisOrSuper()) {
             for (NameDeclaration decl : declarations) {
-                List<NameOccurrence> nameOccurrences = getVariableDeclarations().get(decl);
+                List<NameOccurrence> nameOccurrences = getOccurrences(VariableNameDeclaration.class, decl);
                 if (nameOccurrences == null) {
                     // TODO may be a class name
 
@@ -185,11 +186,11 @@ public class ClassScope extends AbstractJavaScope {
             return Collections.<NameDeclaration>singleton(classDeclaration);
         }
 
-        Map<MethodNameDeclaration, List<NameOccurrence>> methodDeclarations = getMethodDeclarations();
+        List<MethodNameDeclaration> methodDeclarations = findDeclarations(MethodNameDeclaration.class, occurrence.getImage());
         Set<NameDeclaration> result = new HashSet<>();
         if (occurrence.isMethodOrConstructorInvocation()) {
             final boolean hasAuxclasspath = getEnclosingScope(SourceFileScope.class).hasAuxclasspath();
-            matchMethodDeclaration(occurrence, methodDeclarations.keySet(), hasAuxclasspath, result);
+            matchMethodDeclaration(occurrence, methodDeclarations, hasAuxclasspath, result);
 
             if (isEnum && "valueOf".equals(occurrence.getImage())) {
                 result.add(createBuiltInMethodDeclaration("valueOf", "String"));
@@ -203,11 +204,7 @@ public class ClassScope extends AbstractJavaScope {
             return result;
         }
         if (occurrence.isMethodReference()) {
-            for (MethodNameDeclaration mnd : methodDeclarations.keySet()) {
-                if (mnd.getImage().equals(occurrence.getImage())) {
-                    result.add(mnd);
-                }
-            }
+            result.addAll(methodDeclarations);
             return result;
         }
 
@@ -219,16 +216,15 @@ public class ClassScope extends AbstractJavaScope {
             }
         }
 
-        Map<VariableNameDeclaration, List<NameOccurrence>> variableDeclarations = getVariableDeclarations();
-        ImageFinderFunction finder = new ImageFinderFunction(images);
-        Applier.apply(finder, variableDeclarations.keySet().iterator());
-        if (finder.getDecl() != null) {
-            result.add(finder.getDecl());
+        VariableNameDeclaration variableDeclaration = findDeclaration(VariableNameDeclaration.class, images);
+        if (variableDeclaration != null) {
+            result.add(variableDeclaration);
         }
 
         // search references to inner classes
         Map<ClassNameDeclaration, List<NameOccurrence>> classDeclarations = getClassDeclarations();
         if (result.isEmpty() && !classDeclarations.isEmpty()) {
+            ImageFinderFunction finder = new ImageFinderFunction(images);
             Applier.apply(finder, classDeclarations.keySet().iterator());
             if (finder.getDecl() != null) {
                 result.add(finder.getDecl());
@@ -244,7 +240,7 @@ public class ClassScope extends AbstractJavaScope {
     }
 
     private void matchMethodDeclaration(JavaNameOccurrence occurrence,
-            Set<MethodNameDeclaration> methodDeclarations, final boolean hasAuxclasspath,
+            Collection<MethodNameDeclaration> methodDeclarations, final boolean hasAuxclasspath,
             Set<NameDeclaration> result) {
         for (MethodNameDeclaration mnd : methodDeclarations) {
             if (mnd.getImage().equals(occurrence.getImage())) {
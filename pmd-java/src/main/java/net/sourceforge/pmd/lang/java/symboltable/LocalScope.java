@@ -30,8 +30,7 @@ public class LocalScope extends AbstractJavaScope {
         Set<NameDeclaration> declarations = findVariableHere(javaOccurrence);
         if (!declarations.isEmpty() && !javaOccurrence.isThisOrSuper()) {
             for (NameDeclaration decl : declarations) {
-                List<NameOccurrence> nameOccurrences = getVariableDeclarations().get(decl);
-                nameOccurrences.add(javaOccurrence);
+                getOccurrences(VariableNameDeclaration.class, decl).add(javaOccurrence);
                 Node n = javaOccurrence.getLocation();
                 if (n instanceof ASTName) {
                     ((ASTName) n).setNameDeclaration(decl);
@@ -57,7 +56,7 @@ public class LocalScope extends AbstractJavaScope {
             return Collections.emptySet();
         }
         DeclarationFinderFunction finder = new DeclarationFinderFunction(occurrence);
-        Applier.apply(finder, getVariableDeclarations().keySet().iterator());
+        Applier.apply(finder, findDeclarations(VariableNameDeclaration.class, occurrence.getImage()).iterator());
         if (finder.getDecl() != null) {
             return Collections.singleton(finder.getDecl());
         }
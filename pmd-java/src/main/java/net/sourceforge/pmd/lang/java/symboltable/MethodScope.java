@@ -38,7 +38,7 @@ public class MethodScope extends AbstractJavaScope {
         Set<NameDeclaration> declarations = findVariableHere(javaOccurrence);
         if (!declarations.isEmpty() && !javaOccurrence.isThisOrSuper()) {
             for (NameDeclaration decl : declarations) {
-                getVariableDeclarations().get(decl).add(javaOccurrence);
+                getOccurrences(VariableNameDeclaration.class, decl).add(javaOccurrence);
                 Node n = javaOccurrence.getLocation();
                 if (n instanceof ASTName) {
                     ((ASTName) n).setNameDeclaration(decl);
@@ -63,7 +63,7 @@ public class MethodScope extends AbstractJavaScope {
             return Collections.emptySet();
         }
         DeclarationFinderFunction finder = new DeclarationFinderFunction(occurrence);
-        Applier.apply(finder, getVariableDeclarations().keySet().iterator());
+        Applier.apply(finder, findDeclarations(VariableNameDeclaration.class, occurrence.getImage()).iterator());
         if (finder.getDecl() != null) {
             return Collections.singleton(finder.getDecl());
         }
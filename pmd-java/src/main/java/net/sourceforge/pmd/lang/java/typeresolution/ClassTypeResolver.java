@@ -104,6 +104,8 @@ import net.sourceforge.pmd.lang.java.ast.JavaParserVisitorAdapter;
 import net.sourceforge.pmd.lang.java.ast.TypeNode;
 import net.sourceforge.pmd.lang.java.symboltable.ClassScope;
 import net.sourceforge.pmd.lang.java.symboltable.VariableNameDeclaration;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbolTable;
 import net.sourceforge.pmd.lang.java.typeresolution.internal.NullableClassLoader;
 import net.sourceforge.pmd.lang.java.typeresolution.typedefinition.JavaTypeDefinition;
 import net.sourceforge.pmd.lang.symboltable.NameOccurrence;
@@ -241,14 +243,20 @@ public class ClassTypeResolver extends JavaParserVisitorAdapter implements Nulla
 
         if (importedType.getType() != null) {
             node.setType(importedType.getType());
+        } else if (!node.isStatic() && !node.isImportOnDemand()) {
+            // most imported types are only used by name: their definition is
+            // read from the class file, and the class is only loaded if the
+            // type or the package of the import is asked for
+            JavaTypeDefinition def = JavaTypeDefinition.forSymbol(resolveSymbol(importedType.getImage()), getSymbolTable());
+            if (def != null) {
+                node.setTypeDefinition(def);
+            } else {
+                populateType(node, importedType.getImage());
+            }
         } else {
             populateType(node, importedType.getImage());
         }
 
-        if (node.getType() != null) {
-            node.setPackage(node.getType().getPackage());
-        }
-
         // no need to visit children, the only child, ASTName, will have no type
         return data;
     }
@@ -1491,12 +1499,11 @@ public class ClassTypeResolver extends JavaParserVisitorAdapter implements Nulla
             // try if the last part defines a inner class
             String qualifiedNameInner = qualifiedName.substring(0, qualifiedName.lastIndexOf('.')) + "$"
                 + qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
-            myType = pmdClassLoader.loadClassOrNull(qualifiedNameInner);
-
+            myType = loadClassIfExists(qualifiedNameInner);
         }
         if (myType == null && qualifiedName != null && !qualifiedName.contains(".")) {
             // try again with java.lang....
-            myType = pmdClassLoader.loadClassOrNull("java.lang." + qualifiedName);
+            myType = loadClassIfExists("java.lang." + qualifiedName);
         }
 
         // try generics
@@ -1543,7 +1550,15 @@ public class ClassTypeResolver extends JavaParserVisitorAdapter implements Nulla
      * Check whether the supplied class name exists.
      */
     public boolean classNameExists(String fullyQualifiedClassName) {
-        return pmdClassLoader.loadClassOrNull(fullyQualifiedClassName) != null;
+        // reading the class file is enough, don't load the class
+        return pmdClassLoader.getSymbolTable().exists(fullyQualifiedClassName);
+    }
+
+    /**
+     * Returns the symbol table of the auxclasspath.
+     */
+    public ClassSymbolTable getSymbolTable() {
+        return pmdClassLoader.getSymbolTable();
     }
 
     @Override
@@ -1555,18 +1570,41 @@ public class ClassTypeResolver extends JavaParserVisitorAdapter implements Nulla
         return loadClassOrNull(fullyQualifiedClassName);
     }
 
+    /**
+     * Returns the symbol of the class with the given canonical name, which
+     * may name a member class, e.g. {@code java.util.Map.Entry}.
+     */
+    private ClassSymbol resolveSymbol(String canonicalName) {
+        ClassSymbolTable symbolTable = getSymbolTable();
+        ClassSymbol symbol = symbolTable.resolve(canonicalName);
+        int lastDot = canonicalName.lastIndexOf('.');
+        if (symbol == null && lastDot > 0) {
+            symbol = symbolTable.resolve(canonicalName.substring(0, lastDot) + "$" + canonicalName.substring(lastDot + 1));
+        }
+        return symbol;
+    }
+
     private Class<?> processOnDemand(String qualifiedName) {
         for (String entry : importedOnDemand) {
             String fullClassName = entry + "." + qualifiedName;
-            Class<?> aClass = pmdClassLoader.loadClassOrNull(fullClassName);
+            Class<?> aClass = loadClassIfExists(fullClassName);
             if (aClass != null) {
                 return aClass;
             }
-
         }
         return null;
     }
 
+    /**
+     * Loads the class with the given name if its class file exists. The
+     * names tried speculatively, like the names in the packages imported on
+     * demand, mostly don't exist: looking them up in the symbol table
+     * doesn't throw and catch a {@link ClassNotFoundException} for each.
+     */
+    private Class<?> loadClassIfExists(String fullyQualifiedClassName) {
+        return classNameExists(fullyQualifiedClassName) ? pmdClassLoader.loadClassOrNull(fullyQualifiedClassName) : null;
+    }
+
     private String getClassName(ASTCompilationUnit node) {
         ASTAnyTypeDeclaration classDecl = node.getFirstDescendantOfType(ASTAnyTypeDeclaration.class);
         if (classDecl == null) {
@@ -12,14 +12,21 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.internal.util.CacheUtil;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.java.ast.ASTArgumentList;
 import net.sourceforge.pmd.lang.java.ast.ASTExpression;
@@ -94,6 +101,20 @@ public final class MethodTypeResolution {
         PRIMITIVE_BOXING_RULES = Collections.unmodifiableMap(boxingRules);
     }
 
+    static final int MAX_CACHED_INFERENCES = 8192;
+
+    /** Marks the invocations for which the method is not applicable. */
+    private static final List<JavaTypeDefinition> NOT_APPLICABLE = Collections.unmodifiableList(new ArrayList<JavaTypeDefinition>());
+
+    /**
+     * Inferred type arguments of generic method invocations, by context, method
+     * and argument types. Only invocations whose types are all interned are
+     * cached, since the other definitions may change while they're compared.
+     * Bounded to {@value #MAX_CACHED_INFERENCES} entries with {@link CacheUtil#putIfAbsentBounded},
+     * and cleared for each new auxclasspath, see {@link #clearInferenceCache()}.
+     */
+    private static final ConcurrentMap<Invocation, List<JavaTypeDefinition>> INFERENCES = new ConcurrentHashMap<>();
+
     public static boolean checkSubtypeability(MethodType method, MethodType subtypeableMethod) {
         List<JavaTypeDefinition> subtypeableParams = subtypeableMethod.getParameterTypes();
         List<JavaTypeDefinition> methodParams = method.getParameterTypes();
@@ -189,6 +210,31 @@ public final class MethodTypeResolution {
     public static MethodType parameterizeInvocation(JavaTypeDefinition context, Method method,
                                                     ASTArgumentList argList) {
 
+        Invocation invocation = Invocation.of(context, method, argList);
+        List<JavaTypeDefinition> resolvedTypeParameters = invocation == null ? null : INFERENCES.get(invocation);
+
+        if (resolvedTypeParameters != null) {
+            try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.TYPE_RESOLUTION, "parameterizeInvocation")) {
+                to.close(1);
+            }
+        } else {
+            resolvedTypeParameters = inferTypeParameters(context, method, argList);
+            if (invocation != null && isCacheable(resolvedTypeParameters)) {
+                CacheUtil.putIfAbsentBounded(INFERENCES, invocation,
+                        resolvedTypeParameters == null ? NOT_APPLICABLE : resolvedTypeParameters, MAX_CACHED_INFERENCES);
+            }
+        }
+
+        // Is the method applicable?
+        if (resolvedTypeParameters == null || resolvedTypeParameters == NOT_APPLICABLE) {
+            return null;
+        }
+
+        return getTypeDefOfMethod(context, method, resolvedTypeParameters);
+    }
+
+    private static List<JavaTypeDefinition> inferTypeParameters(JavaTypeDefinition context, Method method,
+                                                                ASTArgumentList argList) {
         // variables are set up by the call to produceInitialBounds
         List<Variable> variables = new ArrayList<>();
         List<Bound> initialBounds = new ArrayList<>();
@@ -197,12 +243,28 @@ public final class MethodTypeResolution {
         List<JavaTypeDefinition> resolvedTypeParameters = TypeInferenceResolver
                 .inferTypes(produceInitialConstraints(method, argList, variables), initialBounds, variables);
 
-        // Is the method applicable?
-        if (resolvedTypeParameters == null) {
-            return null;
+        return resolvedTypeParameters == null ? null : Collections.unmodifiableList(resolvedTypeParameters);
+    }
+
+    private static boolean isCacheable(List<JavaTypeDefinition> resolvedTypeParameters) {
+        if (resolvedTypeParameters != null) {
+            // the cached types are shared between threads
+            for (JavaTypeDefinition typeParameter : resolvedTypeParameters) {
+                if (typeParameter == null || !typeParameter.isInterned()) {
+                    return false;
+                }
+            }
         }
+        return true;
+    }
 
-        return getTypeDefOfMethod(context, method, resolvedTypeParameters);
+    /**
+     * Empties the cache of inferred type arguments. Called when the
+     * auxclasspath changes, since the cache would otherwise keep the
+     * classes of the previous auxclasspath alive.
+     */
+    public static void clearInferenceCache() {
+        INFERENCES.clear();
     }
 
     public static List<Constraint> produceInitialConstraints(Method method, ASTArgumentList argList,
@@ -757,4 +819,64 @@ public final class MethodTypeResolution {
 
         return result;
     }
+
+    /**
+     * Key of the inference cache. The inferred types only depend on the
+     * context, the method, and the types of the arguments.
+     */
+    private static final class Invocation {
+
+        private final JavaTypeDefinition context;
+        private final Method method;
+        private final JavaTypeDefinition[] argumentTypes;
+        private final int hash;
+
+        private Invocation(JavaTypeDefinition context, Method method, JavaTypeDefinition[] argumentTypes) {
+            this.context = context;
+            this.method = method;
+            this.argumentTypes = argumentTypes;
+            this.hash = 31 * (31 * context.hashCode() + method.hashCode())
+                    + Arrays.hashCode(argumentTypes);
+        }
+
+        /**
+         * Returns the key of the invocation, or null if one of its types
+         * is not interned.
+         */
+        static Invocation of(JavaTypeDefinition context, Method method, ASTArgumentList argList) {
+            if (context == null || !context.isInterned()) {
+                return null;
+            }
+            int argCount = argList == null ? 0 : argList.getNumChildren();
+            JavaTypeDefinition[] argumentTypes = new JavaTypeDefinition[argCount];
+            for (int i = 0; i < argCount; i++) {
+                JavaTypeDefinition argumentType = ((TypeNode) argList.getChild(i)).getTypeDefinition();
+                if (argumentType == null || !argumentType.isInterned()) {
+                    return null;
+                }
+                argumentTypes[i] = argumentType;
+            }
+            return new Invocation(context, method, argumentTypes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Invocation)) {
+                return false;
+            }
+            Invocation other = (Invocation) obj;
+            // interned definitions may be duplicated once the interning table is emptied,
+            // they're compared by equality
+            return hash == other.hash && context.equals(other.context) && method.equals(other.method)
+                    && Arrays.equals(argumentTypes, other.argumentTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
@@ -7,15 +7,24 @@ package net.sourceforge.pmd.lang.java.typeresolution;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.objectweb.asm.ClassReader;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.internal.util.CacheUtil;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbolIndex;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbolTable;
 import net.sourceforge.pmd.lang.java.typeresolution.internal.NullableClassLoader;
+import net.sourceforge.pmd.lang.java.typeresolution.typedefinition.JavaTypeDefinition;
 import net.sourceforge.pmd.lang.java.typeresolution.visitors.PMDASMVisitor;
 
 /*
@@ -34,19 +43,35 @@ import net.sourceforge.pmd.lang.java.typeresolution.visitors.PMDASMVisitor;
  *
  * Note: since git show 46ad3a4700b7a233a177fa77d08110127a85604c the cache is using
  * a concurrent hash map to avoid synchronizing on the class loader instance.
+ *
+ * No method of this class takes a lock anymore: the shared instance is published
+ * through an atomic reference, and the imports of each class are memoized in a
+ * concurrent map. Both caches are bounded with
+ * {@link CacheUtil#putIfAbsentBounded(java.util.concurrent.ConcurrentMap, Object, Object, int)}. Lookups are reported in the timing report under
+ * the class loader category, the counter being the number of cache hits.
  */
 @InternalApi
 @Deprecated
 public final class PMDASMClassLoader extends ClassLoader implements NullableClassLoader {
 
-    private static PMDASMClassLoader cachedPMDASMClassLoader;
-    private static ClassLoader cachedClassLoader;
+    private static final int MAX_DONT_BOTHER = 65536;
+    private static final int MAX_IMPORTED_CLASSES = 4096;
+
+    private static final AtomicReference<PMDASMClassLoader> CACHED_INSTANCE = new AtomicReference<>();
 
     /**
      * Caches the names of the classes that we can't load or that don't exist.
      */
     private final ConcurrentMap<String, Boolean> dontBother = new ConcurrentHashMap<>();
 
+    /**
+     * Caches the imports of the classes, they are the same for all the files
+     * referring to a class.
+     */
+    private final ConcurrentMap<String, Map<String, String>> importedClasses = new ConcurrentHashMap<>();
+
+    private final AtomicReference<ClassSymbolTable> symbolTable = new AtomicReference<>();
+
     static {
         registerAsParallelCapable();
     }
@@ -60,13 +85,24 @@ public final class PMDASMClassLoader extends ClassLoader implements NullableClas
      * allows to reuse the same PMDASMClassLoader across all the compilation
      * units.
      */
-    public static synchronized PMDASMClassLoader getInstance(ClassLoader parent) {
-        if (parent.equals(cachedClassLoader)) {
-            return cachedPMDASMClassLoader;
+    @SuppressWarnings("PMD.SingletonClassReturningNewInstance") // one instance per parent class loader
+    public static PMDASMClassLoader getInstance(ClassLoader parent) {
+        while (true) {
+            PMDASMClassLoader cached = CACHED_INSTANCE.get();
+            if (cached != null && parent.equals(cached.getParent())) {
+                return cached;
+            }
+            PMDASMClassLoader created = new PMDASMClassLoader(parent);
+            if (CACHED_INSTANCE.compareAndSet(cached, created)) {
+                if (cached != null) {
+                    // a new auxclasspath, the shared caches would keep the previous one alive
+                    JavaTypeDefinition.clearInterningTable();
+                    MethodTypeResolution.clearInferenceCache();
+                }
+                return created;
+            }
+            // another thread replaced the instance, it may be for the same parent
         }
-        cachedClassLoader = parent;
-        cachedPMDASMClassLoader = new PMDASMClassLoader(parent);
-        return cachedPMDASMClassLoader;
     }
 
     @Override
@@ -84,18 +120,25 @@ public final class PMDASMClassLoader extends ClassLoader implements NullableClas
      */
     @Override
     public Class<?> loadClassOrNull(String name) {
-        if (dontBother.containsKey(name)) {
-            return null;
-        }
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.CLASS_LOADER, "loadClass")) {
+            if (dontBother.containsKey(name)) {
+                to.close(1);
+                return null;
+            }
 
-        try {
-            return super.loadClass(name);
-        } catch (ClassNotFoundException | LinkageError e) {
-            dontBother.put(name, Boolean.TRUE);
-            return null;
+            try {
+                return super.loadClass(name);
+            } catch (ClassNotFoundException | LinkageError e) {
+                dontBother(name);
+                return null;
+            }
         }
     }
 
+    private void dontBother(String name) {
+        CacheUtil.putIfAbsentBounded(dontBother, name, Boolean.TRUE, MAX_DONT_BOTHER);
+    }
+
     /**
      * Checks if the class loader could resolve a given class name (ie: it
      * doesn't know for sure it will fail). Notice, that the ability to resolve
@@ -110,10 +153,56 @@ public final class PMDASMClassLoader extends ClassLoader implements NullableClas
         return !dontBother.containsKey(name);
     }
 
-    public synchronized Map<String, String> getImportedClasses(String name) throws ClassNotFoundException {
-        if (dontBother.containsKey(name)) {
-            throw new ClassNotFoundException(name);
+    /**
+     * Returns the symbol table reading the class files visible to this
+     * class loader. Looking up a symbol doesn't load the class. The jars
+     * of the auxclasspath are read from their persistent index if indexing
+     * is enabled, see {@link ClassSymbolIndex}.
+     */
+    public ClassSymbolTable getSymbolTable() {
+        ClassSymbolTable table = symbolTable.get();
+        if (table == null) {
+            synchronized (symbolTable) {
+                table = symbolTable.get();
+                if (table == null) {
+                    table = new ClassSymbolTable(this, this, ClassSymbolIndex.forClassLoader(getParent()));
+                    symbolTable.set(table);
+                }
+            }
         }
+        return table;
+    }
+
+    /**
+     * Returns the simple names of the classes referenced by the given class
+     * and its inner classes, mapped to their binary names. The result is
+     * unmodifiable and shared between callers.
+     *
+     * @throws ClassNotFoundException If the class file can't be read
+     */
+    public Map<String, String> getImportedClasses(String name) throws ClassNotFoundException {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.CLASS_LOADER, "getImportedClasses")) {
+            Map<String, String> imports = importedClasses.get(name);
+            if (imports != null) {
+                to.close(1);
+                return imports;
+            }
+            if (dontBother.containsKey(name)) {
+                throw new ClassNotFoundException(name);
+            }
+
+            imports = Collections.unmodifiableMap(readImportedClasses(name));
+            Map<String, String> previous = CacheUtil.putIfAbsentBounded(importedClasses, name, imports, MAX_IMPORTED_CLASSES);
+            if (previous != null) {
+                // another thread read the same class at the same time
+                TimeTracker.startOperation(TimedOperationCategory.CLASS_LOADER, "getImportedClasses (concurrent)").close(1);
+                return previous;
+            }
+            return imports;
+        }
+    }
+
+    private Map<String, String> readImportedClasses(String name) throws ClassNotFoundException {
         try (InputStream classResource = getResourceAsStream(name.replace('.', '/') + ".class")) {
             ClassReader reader = new ClassReader(classResource);
             PMDASMVisitor asmVisitor = new PMDASMVisitor(name);
@@ -134,7 +223,7 @@ public final class PMDASMClassLoader extends ClassLoader implements NullableClas
             }
             return asmVisitor.getPackages();
         } catch (IOException e) {
-            dontBother.put(name, Boolean.TRUE);
+            dontBother(name);
             throw new ClassNotFoundException(name, e);
         }
     }
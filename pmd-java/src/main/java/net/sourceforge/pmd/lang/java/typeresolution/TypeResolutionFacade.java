@@ -5,6 +5,9 @@
 package net.sourceforge.pmd.lang.java.typeresolution;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
 import net.sourceforge.pmd.lang.java.ast.JavaParserVisitorAdapter;
 
@@ -21,4 +24,23 @@ public class TypeResolutionFacade extends JavaParserVisitorAdapter {
         node.jjtAccept(classTypeResolver, null);
     }
 
+    /**
+     * Defers the resolution of the types of the compilation unit until
+     * the type of one of its nodes is first asked for. See
+     * {@link ASTCompilationUnit#setDeferredTypeResolution(Runnable)}.
+     */
+    public void initializeLazilyWith(ClassLoader classLoader, final ASTCompilationUnit node) {
+        final ClassTypeResolver classTypeResolver = new ClassTypeResolver(classLoader);
+        // the resolver is available to rules right away, only the visit is deferred
+        node.setClassTypeResolver(classTypeResolver);
+        node.setDeferredTypeResolution(new Runnable() {
+            @Override
+            public void run() {
+                try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.TYPE_RESOLUTION)) {
+                    node.jjtAccept(classTypeResolver, null);
+                }
+            }
+        });
+    }
+
 }
@@ -0,0 +1,236 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.typeresolution.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.objectweb.asm.Opcodes;
+
+/**
+ * The declaration of a class, as read from its class file, without loading
+ * the class into the JVM. Symbols are immutable and are shared between
+ * threads by a {@link ClassSymbolTable}.
+ *
+ * <p>Class names are binary names, e.g. {@code java.util.Map$Entry}.
+ */
+public final class ClassSymbol {
+
+    private final String binaryName;
+    private final int access;
+    private final String superclassName;
+    private final List<String> interfaceNames;
+    private final List<String> typeParameterNames;
+    private final String enclosingClassName;
+    private final String simpleName;
+    private final List<String> memberClassNames;
+    private final List<FieldSymbol> fields;
+    private final List<MethodSymbol> methods;
+
+    ClassSymbol(String binaryName, int access, String superclassName, List<String> interfaceNames,
+                List<String> typeParameterNames, String enclosingClassName, String simpleName,
+                List<String> memberClassNames, List<FieldSymbol> fields, List<MethodSymbol> methods) {
+        this.binaryName = binaryName;
+        this.access = access;
+        this.superclassName = superclassName;
+        this.interfaceNames = Collections.unmodifiableList(interfaceNames);
+        this.typeParameterNames = Collections.unmodifiableList(typeParameterNames);
+        this.enclosingClassName = enclosingClassName;
+        this.simpleName = simpleName;
+        this.memberClassNames = Collections.unmodifiableList(memberClassNames);
+        this.fields = Collections.unmodifiableList(fields);
+        this.methods = Collections.unmodifiableList(methods);
+    }
+
+    public String getBinaryName() {
+        return binaryName;
+    }
+
+    /**
+     * Returns the simple name of the class, empty for anonymous classes.
+     */
+    public String getSimpleName() {
+        return simpleName;
+    }
+
+    /**
+     * Returns the access flags of the class, see {@link Opcodes}. For
+     * nested classes these are the flags of their declaration, e.g.
+     * {@link Opcodes#ACC_STATIC} is set for static member classes.
+     */
+    public int getAccess() {
+        return access;
+    }
+
+    public boolean isInterface() {
+        return (access & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    public boolean isAnnotation() {
+        return (access & Opcodes.ACC_ANNOTATION) != 0;
+    }
+
+    public boolean isEnum() {
+        return (access & Opcodes.ACC_ENUM) != 0;
+    }
+
+    public boolean isFinal() {
+        return (access & Opcodes.ACC_FINAL) != 0;
+    }
+
+    /**
+     * Returns the binary name of the superclass, null for {@code java.lang.Object}.
+     * Interfaces have {@code java.lang.Object} as superclass.
+     */
+    public String getSuperclassName() {
+        return superclassName;
+    }
+
+    public List<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * Returns the names of the type parameters of the class, in declaration order.
+     */
+    public List<String> getTypeParameterNames() {
+        return typeParameterNames;
+    }
+
+    /**
+     * Returns the binary name of the class in which this class is declared,
+     * null for top-level classes.
+     */
+    public String getEnclosingClassName() {
+        return enclosingClassName;
+    }
+
+    /**
+     * Returns the binary names of the member classes of this class.
+     */
+    public List<String> getMemberClassNames() {
+        return memberClassNames;
+    }
+
+    public List<FieldSymbol> getFields() {
+        return fields;
+    }
+
+    public List<MethodSymbol> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Returns the field with the given name, or null if this class doesn't
+     * declare one.
+     */
+    public FieldSymbol getField(String name) {
+        for (FieldSymbol field : fields) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "ClassSymbol[" + binaryName + "]";
+    }
+
+    /**
+     * A field declared by a class.
+     */
+    public static final class FieldSymbol {
+        private final String name;
+        private final int access;
+        private final String typeName;
+        private final String signature;
+
+        FieldSymbol(String name, int access, String typeName, String signature) {
+            this.name = name;
+            this.access = access;
+            this.typeName = typeName;
+            this.signature = signature;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAccess() {
+            return access;
+        }
+
+        public boolean isStatic() {
+            return (access & Opcodes.ACC_STATIC) != 0;
+        }
+
+        /**
+         * Returns the erased type of the field, e.g. {@code java.util.List}
+         * or {@code int[]}.
+         */
+        public String getTypeName() {
+            return typeName;
+        }
+
+        /**
+         * Returns the generic signature of the field, null if its type is not generic.
+         */
+        public String getSignature() {
+            return signature;
+        }
+    }
+
+    /**
+     * A method or constructor declared by a class.
+     */
+    public static final class MethodSymbol {
+        private final String name;
+        private final int access;
+        private final String descriptor;
+        private final String signature;
+
+        MethodSymbol(String name, int access, String descriptor, String signature) {
+            this.name = name;
+            this.access = access;
+            this.descriptor = descriptor;
+            this.signature = signature;
+        }
+
+        /**
+         * Returns the name of the method, {@code <init>} for constructors.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public int getAccess() {
+            return access;
+        }
+
+        public boolean isStatic() {
+            return (access & Opcodes.ACC_STATIC) != 0;
+        }
+
+        public boolean isVarargs() {
+            return (access & Opcodes.ACC_VARARGS) != 0;
+        }
+
+        /**
+         * Returns the descriptor of the erased method, e.g. {@code (ILjava/lang/String;)V}.
+         */
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * Returns the generic signature of the method, null if it's not generic.
+         */
+        public String getSignature() {
+            return signature;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.typeresolution.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol.FieldSymbol;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol.MethodSymbol;
+import net.sourceforge.pmd.util.ClasspathClassLoader;
+
+/**
+ * A persistent index of the class symbols of a jar of the auxclasspath.
+ * The index is built the first time a jar is seen, and stored in a file
+ * named after the path of the jar and its fingerprint, which is computed from
+ * the size and the modification time of the jar. Later runs read the file
+ * and decode the symbols on demand, instead of opening the jar and parsing
+ * its class files again. When a jar changes, its new index replaces the old
+ * one.
+ *
+ * <p>Indexing is enabled by setting the system property
+ * {@value #INDEX_DIRECTORY_PROPERTY} to the directory holding the index files.
+ * The indices of the auxclasspath are only read, or built, when a class is
+ * first looked up.
+ *
+ * <p>The file starts with a header (magic number, format version, jar
+ * fingerprint, number of classes), followed by the offsets of the class
+ * records sorted by class name, then the records. Lookups are a binary
+ * search over the offsets. Instances are safe to use from several threads.
+ */
+public final class ClassSymbolIndex {
+
+    /** System property naming the directory of the index files. */
+    public static final String INDEX_DIRECTORY_PROPERTY = "net.sourceforge.pmd.auxclasspath.index";
+
+    private static final Logger LOG = Logger.getLogger(ClassSymbolIndex.class.getName());
+
+    private static final int MAGIC = 0x504d4443;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    private static final String SUFFIX = ".idx";
+
+    /** An empty index, which stands for an index that could not be read. */
+    private static final ByteBuffer UNREADABLE = ByteBuffer.allocate(HEADER_SIZE);
+
+    private final File indexDirectory;
+    private final File jar;
+
+    /** The content of the index file, read on the first lookup. */
+    private ByteBuffer buffer;
+
+    private ClassSymbolIndex(File indexDirectory, File jar) {
+        this.indexDirectory = indexDirectory;
+        this.jar = jar;
+    }
+
+    /**
+     * Returns the indices of the jars of the auxclasspath of the given class
+     * loader, in lookup order. Returns an empty list if indexing is not enabled.
+     * The indices are read on their first lookup. Jars that can't be indexed
+     * are skipped and remain visible through the class loader.
+     */
+    public static List<ClassSymbolIndex> forClassLoader(ClassLoader classLoader) {
+        String directory = System.getProperty(INDEX_DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ClassSymbolIndex> indices = new ArrayList<>();
+        // the auxclasspath may have been prepended several times
+        for (ClassLoader loader = classLoader; loader instanceof ClasspathClassLoader; loader = loader.getParent()) {
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                File jar = toJar(url);
+                if (jar != null) {
+                    indices.add(new ClassSymbolIndex(new File(directory), jar));
+                }
+            }
+        }
+        return indices;
+    }
+
+    private static File toJar(URL url) {
+        String file = url.getFile();
+        if (!"file".equals(url.getProtocol()) || !(file.endsWith(".jar") || file.endsWith(".zip"))) {
+            // directories change between runs, they are read through the class loader
+            return null;
+        }
+        try {
+            File jar = new File(url.toURI());
+            return jar.isFile() ? jar : null;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Opens the index of the given jar, building it if the directory doesn't
+     * contain an index for the current contents of the jar.
+     *
+     * @param indexDirectory Directory of the index files
+     * @param jar            A jar file
+     *
+     * @throws IOException If the index can't be read nor written
+     */
+    public static ClassSymbolIndex open(File indexDirectory, File jar) throws IOException {
+        ClassSymbolIndex index = new ClassSymbolIndex(indexDirectory, jar);
+        index.buffer = index.load();
+        return index;
+    }
+
+    private synchronized ByteBuffer getBuffer() {
+        if (buffer == null) {
+            try {
+                buffer = load();
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Could not index the classes of " + jar, e);
+                buffer = UNREADABLE;
+            }
+        }
+        return buffer;
+    }
+
+    private ByteBuffer load() throws IOException {
+        long fingerprint = fingerprint(jar);
+        String prefix = indexFilePrefix(jar);
+        File indexFile = new File(indexDirectory, prefix + Long.toHexString(fingerprint) + SUFFIX);
+        if (indexFile.isFile()) {
+            ByteBuffer content = read(indexFile, fingerprint);
+            if (content != null) {
+                return content;
+            }
+            LOG.log(Level.FINE, "Rebuilding invalid class index {0}", indexFile);
+        }
+        LOG.log(Level.FINE, "Indexing the classes of {0}", jar);
+        write(jar, fingerprint, indexDirectory, indexFile);
+        deleteStaleIndices(prefix, indexFile);
+        ByteBuffer content = read(indexFile, fingerprint);
+        if (content == null) {
+            throw new IOException("Invalid class index " + indexFile);
+        }
+        return content;
+    }
+
+    /**
+     * Fingerprints the jar by its size and modification time, like build
+     * tools do to detect changed files, rather than by its content.
+     */
+    private static long fingerprint(File jar) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(jar.toPath(), BasicFileAttributes.class);
+        return 31 * attributes.size() + attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Returns the start of the name of the index files of the jar, which
+     * tells apart the jars with the same name in different directories.
+     */
+    private static String indexFilePrefix(File jar) {
+        return jar.getName() + "-" + Integer.toHexString(jar.getAbsolutePath().hashCode()) + "-";
+    }
+
+    private static void deleteStaleIndices(final String prefix, File indexFile) {
+        File[] stale = indexFile.getParentFile().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(prefix) && name.endsWith(SUFFIX);
+            }
+        });
+        if (stale == null) {
+            return;
+        }
+        for (File file : stale) {
+            if (!file.equals(indexFile) && !file.delete()) {
+                LOG.log(Level.FINE, "Could not delete the stale class index {0}", file);
+            }
+        }
+    }
+
+    private static ByteBuffer read(File indexFile, long fingerprint) throws IOException {
+        // read on the heap rather than mapped, so that the memory is released with the index
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+        if (content.capacity() < HEADER_SIZE
+            || content.getInt(0) != MAGIC
+            || content.getInt(4) != VERSION
+            || content.getLong(8) != fingerprint) {
+            return null;
+        }
+        return content;
+    }
+
+    /**
+     * Returns the number of classes in the index.
+     */
+    public int size() {
+        return getBuffer().getInt(16);
+    }
+
+    /**
+     * Returns the symbol of the class with the given binary name, or null
+     * if the jar doesn't contain it.
+     */
+    public ClassSymbol get(String binaryName) {
+        // relative reads on a private view, the buffer is shared between threads
+        ByteBuffer view = getBuffer().duplicate();
+        int low = 0;
+        int high = view.getInt(16) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            view.position(view.getInt(HEADER_SIZE + 4 * mid));
+            int cmp = readString(view).compareTo(binaryName);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return readSymbol(view, binaryName);
+            }
+        }
+        return null;
+    }
+
+    private static ClassSymbol readSymbol(ByteBuffer in, String binaryName) {
+        int access = in.getInt();
+        String superclassName = readString(in);
+        List<String> interfaceNames = readStrings(in);
+        List<String> typeParameterNames = readStrings(in);
+        String enclosingClassName = readString(in);
+        String simpleName = readString(in);
+        List<String> memberClassNames = readStrings(in);
+
+        int fieldCount = in.getInt();
+        List<FieldSymbol> fields = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            fields.add(new FieldSymbol(readString(in), in.getInt(), readString(in), readString(in)));
+        }
+        int methodCount = in.getInt();
+        List<MethodSymbol> methods = new ArrayList<>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+            methods.add(new MethodSymbol(readString(in), in.getInt(), readString(in), readString(in)));
+        }
+        return new ClassSymbol(binaryName, access, superclassName, interfaceNames, typeParameterNames,
+                               enclosingClassName, simpleName, memberClassNames, fields, methods);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(ByteBuffer in) {
+        int count = in.getInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    private static void write(File jar, long fingerprint, File indexDirectory, File indexFile) throws IOException {
+        // sorted by name, for the binary search
+        TreeMap<String, ClassSymbol> symbols = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(".class")
+                    || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                try (InputStream classFile = zip.getInputStream(entry)) {
+                    ClassSymbol symbol = ClassSymbolReader.read(classFile);
+                    symbols.put(symbol.getBinaryName(), symbol);
+                } catch (IOException | RuntimeException e) {
+                    LOG.log(Level.FINE, "Skipping unreadable class file " + name + " of " + jar, e);
+                }
+            }
+        }
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(records);
+        int[] offsets = new int[symbols.size()];
+        int recordsStart = HEADER_SIZE + 4 * symbols.size();
+        int i = 0;
+        for (ClassSymbol symbol : symbols.values()) {
+            offsets[i++] = recordsStart + out.size();
+            writeSymbol(out, symbol);
+        }
+        out.flush();
+
+        Files.createDirectories(indexDirectory.toPath());
+        // write to a temporary file then rename, so that concurrent runs never see a partial index
+        File tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexDirectory);
+        try {
+            try (OutputStream file = Files.newOutputStream(tempFile.toPath());
+                 DataOutputStream header = new DataOutputStream(file)) {
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeLong(fingerprint);
+                header.writeInt(offsets.length);
+                for (int offset : offsets) {
+                    header.writeInt(offset);
+                }
+                records.writeTo(header);
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private static void writeSymbol(DataOutputStream out, ClassSymbol symbol) throws IOException {
+        writeString(out, symbol.getBinaryName());
+        out.writeInt(symbol.getAccess());
+        writeString(out, symbol.getSuperclassName());
+        writeStrings(out, symbol.getInterfaceNames());
+        writeStrings(out, symbol.getTypeParameterNames());
+        writeString(out, symbol.getEnclosingClassName());
+        writeString(out, symbol.getSimpleName());
+        writeStrings(out, symbol.getMemberClassNames());
+
+        out.writeInt(symbol.getFields().size());
+        for (FieldSymbol field : symbol.getFields()) {
+            writeString(out, field.getName());
+            out.writeInt(field.getAccess());
+            writeString(out, field.getTypeName());
+            writeString(out, field.getSignature());
+        }
+        out.writeInt(symbol.getMethods().size());
+        for (MethodSymbol method : symbol.getMethods()) {
+            writeString(out, method.getName());
+            out.writeInt(method.getAccess());
+            writeString(out, method.getDescriptor());
+            writeString(out, method.getSignature());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+}
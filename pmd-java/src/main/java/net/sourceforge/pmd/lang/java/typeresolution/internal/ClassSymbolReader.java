@@ -0,0 +1,130 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.typeresolution.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol.FieldSymbol;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol.MethodSymbol;
+
+/**
+ * Builds a {@link ClassSymbol} from a class file. Only the declarations are
+ * read, the code of the methods is skipped.
+ */
+final class ClassSymbolReader extends ClassVisitor {
+
+    private static final int ASM_API = Opcodes.ASM9;
+
+    private String internalName;
+    private String binaryName;
+    private int access;
+    private String superclassName;
+    private final List<String> interfaceNames = new ArrayList<>();
+    private final List<String> typeParameterNames = new ArrayList<>();
+    private String enclosingClassName;
+    private String simpleName;
+    private final List<String> memberClassNames = new ArrayList<>();
+    private final List<FieldSymbol> fields = new ArrayList<>();
+    private final List<MethodSymbol> methods = new ArrayList<>();
+
+    private ClassSymbolReader() {
+        super(ASM_API);
+    }
+
+    /**
+     * Reads the class file in the given stream.
+     *
+     * @throws IOException If the stream can't be read, or is not a class file
+     */
+    static ClassSymbol read(InputStream classFile) throws IOException {
+        final ClassReader reader;
+        try {
+            reader = new ClassReader(classFile);
+        } catch (IllegalArgumentException e) {
+            // unsupported class file version
+            throw new IOException(e);
+        }
+        final ClassSymbolReader visitor = new ClassSymbolReader();
+        reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return visitor.toSymbol();
+    }
+
+    private static String toBinaryName(String internalName) {
+        return internalName == null ? null : internalName.replace('/', '.');
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        this.internalName = name;
+        this.binaryName = toBinaryName(name);
+        this.access = access;
+        this.superclassName = toBinaryName(superName);
+        if (interfaces != null) {
+            for (String itf : interfaces) {
+                interfaceNames.add(toBinaryName(itf));
+            }
+        }
+        if (signature != null) {
+            new SignatureReader(signature).accept(new SignatureVisitor(ASM_API) {
+                @Override
+                public void visitFormalTypeParameter(String typeParameterName) {
+                    typeParameterNames.add(typeParameterName);
+                }
+            });
+        }
+        this.simpleName = binaryName.substring(binaryName.lastIndexOf('.') + 1);
+    }
+
+    @Override
+    public void visitOuterClass(String owner, String name, String descriptor) {
+        // local or anonymous class
+        enclosingClassName = toBinaryName(owner);
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+        if (name.equals(internalName)) {
+            // the attribute describing this class, its flags are those of the source declaration
+            this.access = access | this.access & Opcodes.ACC_SUPER;
+            this.simpleName = innerName == null ? "" : innerName;
+            if (outerName != null) {
+                enclosingClassName = toBinaryName(outerName);
+            }
+        } else if (internalName.equals(outerName)) {
+            memberClassNames.add(toBinaryName(name));
+        }
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        fields.add(new FieldSymbol(name, access, Type.getType(descriptor).getClassName(), signature));
+        return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        if ((access & Opcodes.ACC_SYNTHETIC) == 0) {
+            methods.add(new MethodSymbol(name, access, descriptor, signature));
+        }
+        return null;
+    }
+
+    private ClassSymbol toSymbol() {
+        return new ClassSymbol(binaryName, access, superclassName, interfaceNames, typeParameterNames,
+                               enclosingClassName, simpleName, memberClassNames, fields, methods);
+    }
+}
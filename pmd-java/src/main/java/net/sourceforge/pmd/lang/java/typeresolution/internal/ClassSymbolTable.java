@@ -0,0 +1,128 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.typeresolution.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sourceforge.pmd.internal.util.CacheUtil;
+
+/**
+ * Resolves class names to {@link ClassSymbol}s by reading their class file
+ * from a class loader's resources. Classes are never defined in the JVM,
+ * which avoids running static initializers, linking, and keeping the
+ * classes of the auxclasspath alive in the loader. JDK classes are found
+ * the same way, through the resources of the boot class path. Jars with a
+ * {@link ClassSymbolIndex} are looked up in their index first.
+ *
+ * <p>The table is safe to use from several threads. Symbols, and the names
+ * that could not be resolved, are cached. The cache is bounded to
+ * {@value #MAX_SIZE} entries with {@link CacheUtil#putIfAbsentBounded}.
+ */
+public final class ClassSymbolTable implements NullableClassLoader {
+
+    static final int MAX_SIZE = 16384;
+
+    /** Marks the names that can't be resolved. */
+    private static final ClassSymbol UNRESOLVED = new ClassSymbol("", 0, null,
+            Collections.<String>emptyList(), Collections.<String>emptyList(), null, "",
+            Collections.<String>emptyList(), Collections.<ClassSymbol.FieldSymbol>emptyList(),
+            Collections.<ClassSymbol.MethodSymbol>emptyList());
+
+    private final ClassLoader resources;
+    private final NullableClassLoader classLoader;
+    private final List<ClassSymbolIndex> indices;
+    private final ConcurrentMap<String, ClassSymbol> symbols = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new table.
+     *
+     * @param resources   Class loader providing the class files
+     * @param classLoader Class loader used when a symbol needs to be
+     *                    materialized as a {@link Class}
+     */
+    public ClassSymbolTable(ClassLoader resources, NullableClassLoader classLoader) {
+        this(resources, classLoader, Collections.<ClassSymbolIndex>emptyList());
+    }
+
+    /**
+     * Creates a new table, which looks up the given indices before the
+     * resources of the class loader.
+     *
+     * @param resources   Class loader providing the class files
+     * @param classLoader Class loader used when a symbol needs to be
+     *                    materialized as a {@link Class}
+     * @param indices     Indices of the jars of the auxclasspath, in lookup order
+     */
+    public ClassSymbolTable(ClassLoader resources, NullableClassLoader classLoader, List<ClassSymbolIndex> indices) {
+        this.resources = resources;
+        this.classLoader = classLoader;
+        this.indices = new ArrayList<>(indices);
+    }
+
+    /**
+     * Returns the symbol of the class with the given binary name, e.g.
+     * {@code java.util.Map$Entry}, or null if there is no such class.
+     */
+    public ClassSymbol resolve(String binaryName) {
+        ClassSymbol symbol = symbols.get(binaryName);
+        if (symbol == null) {
+            symbol = read(binaryName);
+            CacheUtil.putIfAbsentBounded(symbols, binaryName, symbol, MAX_SIZE);
+        }
+        return symbol == UNRESOLVED ? null : symbol;
+    }
+
+    /**
+     * Returns true if a class with the given binary name exists.
+     */
+    public boolean exists(String binaryName) {
+        return resolve(binaryName) != null;
+    }
+
+    /**
+     * Loads the class of a symbol, for the parts of the type resolution
+     * that need reflection.
+     */
+    @Override
+    public Class<?> loadClassOrNull(String binaryName) {
+        return classLoader.loadClassOrNull(binaryName);
+    }
+
+    /**
+     * Returns the number of cached entries, including unresolved names.
+     */
+    public int size() {
+        return symbols.size();
+    }
+
+    private ClassSymbol read(String binaryName) {
+        if (binaryName.isEmpty() || binaryName.startsWith("[")) {
+            return UNRESOLVED;
+        }
+        for (ClassSymbolIndex index : indices) {
+            ClassSymbol symbol = index.get(binaryName);
+            if (symbol != null) {
+                return symbol;
+            }
+        }
+        try (InputStream classFile = resources.getResourceAsStream(binaryName.replace('.', '/') + ".class")) {
+            if (classFile == null) {
+                return UNRESOLVED;
+            }
+            ClassSymbol symbol = ClassSymbolReader.read(classFile);
+            // the resource may be found on a case-insensitive file system with the wrong case
+            return binaryName.equals(symbol.getBinaryName()) ? symbol : UNRESOLVED;
+        } catch (IOException | RuntimeException e) {
+            // ASM reports malformed class files with various runtime exceptions
+            return UNRESOLVED;
+        }
+    }
+}
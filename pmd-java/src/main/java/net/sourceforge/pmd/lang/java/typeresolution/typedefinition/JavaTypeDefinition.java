@@ -9,16 +9,52 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.internal.util.CacheUtil;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbolTable;
+
 
 public abstract class JavaTypeDefinition implements TypeDefinition {
 
     private static final JavaTypeDefinition[] NO_GENERICS = {};
 
+    static final int MAX_INTERNED = 8192;
+
+    /**
+     * Definitions of the classes without type parameters. They're immutable,
+     * so one instance per class is shared by all files and threads. The value
+     * is attached to the class, so it doesn't keep its class loader alive.
+     */
+    private static final ClassValue<JavaTypeDefinition> NON_GENERIC_DEFINITIONS = new ClassValue<JavaTypeDefinition>() {
+        @Override
+        protected JavaTypeDefinition computeValue(Class<?> type) {
+            JavaTypeDefinition definition = new JavaTypeDefinitionSimple(type);
+            if (definition.getTypeParameterCount() != 0) {
+                // raw types fill in their type arguments lazily, they're never shared
+                return null;
+            }
+            definition.interned = true;
+            return definition;
+        }
+    };
+
+    /**
+     * Interned parameterized types and wildcards whose components are all
+     * interned. Bounded to {@value #MAX_INTERNED} entries with {@link CacheUtil#putIfAbsentBounded},
+     * and cleared for each new auxclasspath, see {@link #clearInterningTable()}.
+     */
+    private static final ConcurrentMap<JavaTypeDefinition, JavaTypeDefinition> INTERNED = new ConcurrentHashMap<>();
+
 
     private final TypeDefinitionType definitionType;
+    // written before the definition is published by the interning table
+    private boolean interned;
 
     protected JavaTypeDefinition(TypeDefinitionType definitionType) {
         this.definitionType = definitionType;
@@ -43,17 +79,17 @@ public abstract class JavaTypeDefinition implements TypeDefinition {
             // Looking at the implementation of JavaTypeDefinitionUpper, it looks like only the
             // first bound is used, so we could only check for the first array component.
             // But isn't that behaviour weird ? Where are the other bounds useful then ?
-            return ArrayUtils.contains(intersectionTypes, null) ? null : new JavaTypeDefinitionUpper(type, intersectionTypes);
+            return ArrayUtils.contains(intersectionTypes, null) ? null : intern(new JavaTypeDefinitionUpper(type, intersectionTypes));
         case LOWER_WILDCARD:
-            return ArrayUtils.contains(intersectionTypes, null) ? null : new JavaTypeDefinitionLower(intersectionTypes);
+            return ArrayUtils.contains(intersectionTypes, null) ? null : intern(new JavaTypeDefinitionLower(intersectionTypes));
         default:
             throw new IllegalStateException("Unknow type");
         }
     }
 
     public static JavaTypeDefinition forClass(final Class<?> clazz) {
-        return clazz == Object.class ? JavaTypeDefinitionSimple.OBJECT_DEFINITION
-                                     : forClass(clazz, NO_GENERICS); // very common
+        // very common, non-generic classes are interned
+        return forClass(clazz, NO_GENERICS);
 
     }
 
@@ -61,7 +97,72 @@ public abstract class JavaTypeDefinition implements TypeDefinition {
         if (clazz == null) {
             return null;
         }
-        return new JavaTypeDefinitionSimple(clazz, boundGenerics);
+        if (boundGenerics.length == 0) {
+            JavaTypeDefinition definition = NON_GENERIC_DEFINITIONS.get(clazz);
+            return definition != null ? definition : new JavaTypeDefinitionSimple(clazz);
+        }
+        return intern(new JavaTypeDefinitionSimple(clazz, boundGenerics));
+    }
+
+    private static JavaTypeDefinition intern(JavaTypeDefinition definition) {
+        if (!definition.isInternable()) {
+            return definition;
+        }
+        JavaTypeDefinition interned = INTERNED.get(definition);
+        if (interned == null) {
+            definition.interned = true;
+            interned = CacheUtil.putIfAbsentBounded(INTERNED, definition, definition, MAX_INTERNED);
+        }
+        return interned != null ? interned : definition;
+    }
+
+    /**
+     * Returns true if this definition may be shared between threads, i.e.
+     * its state can't change after construction.
+     */
+    /* default */ boolean isInternable() {
+        return false;
+    }
+
+    /**
+     * Returns true if this definition was interned. Interned definitions
+     * are immutable and shared by all files, so they can be used as keys of
+     * caches that outlive a file. They're not necessarily unique: once the
+     * interning table is emptied, equal definitions may be interned again,
+     * so they must still be compared with {@link #equals(Object)}.
+     */
+    @InternalApi
+    public final boolean isInterned() {
+        return interned;
+    }
+
+    /**
+     * Empties the table of interned parameterized types. Called when the
+     * auxclasspath changes, since the table would otherwise keep the
+     * classes of the previous auxclasspath alive.
+     */
+    @InternalApi
+    public static void clearInterningTable() {
+        INTERNED.clear();
+    }
+
+    /**
+     * Returns the raw type definition of a class symbol. The definition
+     * answers structural queries from the class file, and only loads the
+     * class when reflection is needed, e.g. to resolve generic types.
+     *
+     * @param symbol      The symbol, may be null
+     * @param symbolTable The table the symbol was resolved with, used to resolve
+     *                    the supertypes and to load the class
+     *
+     * @return The type definition, or null if the symbol is null
+     */
+    @InternalApi
+    public static JavaTypeDefinition forSymbol(ClassSymbol symbol, ClassSymbolTable symbolTable) {
+        if (symbol == null) {
+            return null;
+        }
+        return new JavaTypeDefinitionSymbolic(symbol, symbolTable);
     }
 
     @Override
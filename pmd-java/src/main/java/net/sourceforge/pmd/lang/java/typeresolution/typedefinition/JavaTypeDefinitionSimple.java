@@ -27,7 +27,6 @@ import java.util.logging.Logger;
 
 /* default */ class JavaTypeDefinitionSimple extends JavaTypeDefinition {
 
-    static final JavaTypeDefinitionSimple OBJECT_DEFINITION = new JavaTypeDefinitionSimple(Object.class);
     private final Class<?> clazz;
     private JavaTypeDefinition[] genericArgs;
     // cached because calling clazz.getTypeParameters().length create a new array every time
@@ -324,6 +323,9 @@ import java.util.logging.Logger;
 
     @Override
     public boolean equals(Object obj) {
+        if (obj instanceof JavaTypeDefinitionSymbolic) {
+            return isSameRawType((JavaTypeDefinitionSymbolic) obj);
+        }
         if (!(obj instanceof JavaTypeDefinitionSimple)) {
             return false;
         }
@@ -359,9 +361,40 @@ import java.util.logging.Logger;
         return true;
     }
 
+    /**
+     * Returns true if this definition has no type arguments, and its class
+     * has the name of the symbol. Symbolic definitions stand for the raw
+     * type, so this is their equality with class-backed definitions.
+     */
+    /* default */ boolean isSameRawType(JavaTypeDefinitionSymbolic symbolic) {
+        return typeArgumentCount == 0 && clazz.getName().equals(symbolic.getBinaryName());
+    }
+
     @Override
     public int hashCode() {
-        return clazz.hashCode();
+        // consistent with equals: raw types are only equal to raw types,
+        // and the class name is hashed like the name of a symbolic definition
+        int result = clazz.getName().hashCode();
+        if (!isRawType()) {
+            for (int i = 0; i < getTypeParameterCount(); ++i) {
+                result = 31 * result + getGenericType(i).hashCode();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    /* default */ boolean isInternable() {
+        // raw types fill in their type arguments lazily
+        if (typeArgumentCount == 0 || typeArgumentCount != getTypeParameterCount()) {
+            return false;
+        }
+        for (JavaTypeDefinition typeArgument : genericArgs) {
+            if (typeArgument == null || !typeArgument.isInterned()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
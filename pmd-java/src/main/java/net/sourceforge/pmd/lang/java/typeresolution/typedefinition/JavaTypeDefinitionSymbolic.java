@@ -0,0 +1,269 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.typeresolution.typedefinition;
+
+import static net.sourceforge.pmd.lang.java.typeresolution.typedefinition.TypeDefinitionType.EXACT;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbolTable;
+
+/**
+ * A raw class type backed by a {@link ClassSymbol}. The structure of the
+ * type (its name, kind, type parameters, enclosing class and supertypes)
+ * is answered from the symbols, without loading the class. The class is
+ * only loaded when a {@link Class} is asked for, or when generic types need
+ * to be resolved, which is delegated to the reflection based definition.
+ *
+ * <p>A symbolic definition is equal to the class-backed definition of the
+ * raw type with the same name, see {@link #equals(Object)}.
+ */
+/* default */ class JavaTypeDefinitionSymbolic extends JavaTypeDefinition {
+
+    private final ClassSymbol symbol;
+    private final ClassSymbolTable symbolTable;
+
+    private final Object lock = new Object();
+    private boolean materialized;
+    private Class<?> clazz;
+    private JavaTypeDefinition reflected;
+
+    JavaTypeDefinitionSymbolic(ClassSymbol symbol, ClassSymbolTable symbolTable) {
+        super(EXACT);
+        this.symbol = symbol;
+        this.symbolTable = symbolTable;
+    }
+
+    ClassSymbol getSymbol() {
+        return symbol;
+    }
+
+    String getBinaryName() {
+        return symbol.getBinaryName();
+    }
+
+    private JavaTypeDefinition forName(String binaryName) {
+        return binaryName == null ? null : forSymbol(symbolTable.resolve(binaryName), symbolTable);
+    }
+
+    /**
+     * Returns the reflection based definition of this type, null if the
+     * class can't be loaded.
+     */
+    private JavaTypeDefinition reflected() {
+        getType();
+        synchronized (lock) {
+            return reflected;
+        }
+    }
+
+    @Override
+    public Class<?> getType() {
+        synchronized (lock) {
+            if (!materialized) {
+                clazz = symbolTable.loadClassOrNull(symbol.getBinaryName());
+                reflected = forClass(clazz);
+                materialized = true;
+            }
+            return clazz;
+        }
+    }
+
+    @Override
+    public JavaTypeDefinition getEnclosingClass() {
+        return forName(symbol.getEnclosingClassName());
+    }
+
+    @Override
+    public boolean isGeneric() {
+        return getTypeParameterCount() != 0;
+    }
+
+    @Override
+    public boolean isRawType() {
+        return isGeneric();
+    }
+
+    @Override
+    public int getTypeParameterCount() {
+        return symbol.getTypeParameterNames().size();
+    }
+
+    @Override
+    public JavaTypeDefinition getGenericType(String parameterName) {
+        JavaTypeDefinition reflected = reflected();
+        return reflected == null ? forClass(Object.class) : reflected.getGenericType(parameterName);
+    }
+
+    @Override
+    public JavaTypeDefinition getGenericType(int index) {
+        JavaTypeDefinition reflected = reflected();
+        return reflected == null ? forClass(Object.class) : reflected.getGenericType(index);
+    }
+
+    @Override
+    public JavaTypeDefinition resolveTypeDefinition(Type type) {
+        return resolveTypeDefinition(type, null, null);
+    }
+
+    @Override
+    public JavaTypeDefinition resolveTypeDefinition(Type type, Method method, List<JavaTypeDefinition> methodTypeArgs) {
+        JavaTypeDefinition reflected = reflected();
+        return reflected == null ? forClass(Object.class) : reflected.resolveTypeDefinition(type, method, methodTypeArgs);
+    }
+
+    @Override
+    public boolean isClassOrInterface() {
+        return !symbol.isEnum() && !symbol.isAnnotation();
+    }
+
+    @Override
+    public boolean isNullType() {
+        return false;
+    }
+
+    @Override
+    public boolean isPrimitive() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSameErasureAs(JavaTypeDefinition def) {
+        if (def instanceof JavaTypeDefinitionSymbolic) {
+            return symbol.getBinaryName().equals(((JavaTypeDefinitionSymbolic) def).symbol.getBinaryName());
+        }
+        Class<?> type = def.getType();
+        return type != null && symbol.getBinaryName().equals(type.getName());
+    }
+
+    @Override
+    public boolean isArrayType() {
+        return false;
+    }
+
+    @Override
+    public JavaTypeDefinition getComponentType() {
+        throw new IllegalStateException(symbol.getBinaryName() + " is not an array type!");
+    }
+
+    @Override
+    public JavaTypeDefinition getElementType() {
+        return this;
+    }
+
+    @Override
+    public JavaTypeDefinition withDimensions(int numDimensions) {
+        if (numDimensions < 0) {
+            throw new IllegalArgumentException("Negative array dimension");
+        }
+        if (numDimensions == 0) {
+            return this;
+        }
+        JavaTypeDefinition reflected = reflected();
+        return reflected == null ? null : reflected.withDimensions(numDimensions);
+    }
+
+    @Override
+    public Set<JavaTypeDefinition> getSuperTypeSet() {
+        return getSuperTypeSet(new HashSet<JavaTypeDefinition>());
+    }
+
+    @Override
+    protected Set<JavaTypeDefinition> getSuperTypeSet(Set<JavaTypeDefinition> destinationSet) {
+        if (!destinationSet.add(this)) {
+            return destinationSet;
+        }
+
+        JavaTypeDefinition superclass = forName(symbol.getSuperclassName());
+        if (superclass != null) {
+            superclass.getSuperTypeSet(destinationSet);
+        }
+        for (String interfaceName : symbol.getInterfaceNames()) {
+            JavaTypeDefinition superInterface = forName(interfaceName);
+            // an unresolved supertype is an incomplete auxclasspath, skip it
+            if (superInterface != null) {
+                superInterface.getSuperTypeSet(destinationSet);
+            }
+        }
+        return destinationSet;
+    }
+
+    @Override
+    public Set<Class<?>> getErasedSuperTypeSet() {
+        JavaTypeDefinition reflected = reflected();
+        return reflected == null ? Collections.<Class<?>>singleton(Object.class) : reflected.getErasedSuperTypeSet();
+    }
+
+    @Override
+    public JavaTypeDefinition getAsSuper(Class<?> superClazz) {
+        String superName = superClazz.getName();
+        for (JavaTypeDefinition superTypeDef : getSuperTypeSet()) {
+            if (superTypeDef instanceof JavaTypeDefinitionSymbolic
+                && superName.equals(((JavaTypeDefinitionSymbolic) superTypeDef).symbol.getBinaryName())) {
+                return superTypeDef;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isIntersectionType() {
+        return false;
+    }
+
+    @Override
+    public JavaTypeDefinition getJavaType(int index) {
+        if (index == 0) {
+            return this;
+        } else {
+            throw new IllegalArgumentException("Not an intersection type!");
+        }
+    }
+
+    @Override
+    public int getJavaTypeCount() {
+        return 1;
+    }
+
+    /**
+     * A symbolic definition stands for the raw type, or the type itself if
+     * it isn't generic. It is equal to another symbolic definition with the
+     * same binary name, and to a class-backed definition of a class with
+     * the same name that has no type arguments. {@link JavaTypeDefinitionSimple}
+     * compares the other way around in the same way, and hashes the class
+     * name, so that both stay consistent without loading the class here.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof JavaTypeDefinitionSymbolic) {
+            return symbol.getBinaryName().equals(((JavaTypeDefinitionSymbolic) obj).symbol.getBinaryName());
+        }
+        return obj instanceof JavaTypeDefinitionSimple && ((JavaTypeDefinitionSimple) obj).isSameRawType(this);
+    }
+
+    @Override
+    public int hashCode() {
+        return symbol.getBinaryName().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return shallowString();
+    }
+
+    @Override
+    protected String shallowString() {
+        return new StringBuilder("JavaTypeDefinition [symbol=").append(symbol.getBinaryName())
+                .append(", definitionType=").append(getDefinitionType())
+                .append(", isGeneric=").append(isGeneric())
+                .append("]\n").toString();
+    }
+}
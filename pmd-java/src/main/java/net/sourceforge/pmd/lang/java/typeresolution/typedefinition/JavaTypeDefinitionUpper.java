@@ -172,6 +172,16 @@ import java.util.Set;
         return result;
     }
 
+    @Override
+    /* default */ boolean isInternable() {
+        for (JavaTypeDefinition typeDef : typeList) {
+            if (!typeDef.isInterned()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public Set<JavaTypeDefinition> getSuperTypeSet() {
         return firstJavaType().getSuperTypeSet();
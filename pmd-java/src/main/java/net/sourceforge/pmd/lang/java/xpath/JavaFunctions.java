@@ -4,14 +4,22 @@
 
 package net.sourceforge.pmd.lang.java.xpath;
 
+import java.util.Arrays;
+
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.xpath.internal.XPathFunctionMemo;
+import net.sourceforge.pmd.lang.ast.xpath.internal.XPathFunctionMemo.Computation;
+import net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.ElementNode;
 
 import net.sf.saxon.expr.XPathContext;
 
 /**
  * Exposes all Java Language specific functions for Saxon use.
+ *
+ * <p>The functions are pure, their results are memoized per node
+ * for the file being analysed, see {@link XPathFunctionMemo}.
  */
 @InternalApi
 @Deprecated
@@ -29,19 +37,51 @@ public final class JavaFunctions {
     @Deprecated
     public static boolean typeof(final XPathContext context, final String nodeTypeName,
             final String fullTypeName, final String shortTypeName) {
-        return TypeOfFunction.typeof((Node) ((ElementNode) context.getContextItem()).getUnderlyingNode(), nodeTypeName,
-                fullTypeName, shortTypeName);
+        final ElementNode elementNode = (ElementNode) context.getContextItem();
+        final Node node = elementNode.getUnderlyingNode();
+        return memo(elementNode).get(node, "pmd-java:typeof", Arrays.asList(nodeTypeName, fullTypeName, shortTypeName),
+            new Computation<Boolean>() {
+                @Override
+                public Boolean compute() {
+                    return TypeOfFunction.typeof(node, nodeTypeName, fullTypeName, shortTypeName);
+                }
+            });
     }
 
     public static double metric(final XPathContext context, final String metricKeyName) {
-        return MetricFunction.getMetric((Node) ((ElementNode) context.getContextItem()).getUnderlyingNode(), metricKeyName);
+        final ElementNode elementNode = (ElementNode) context.getContextItem();
+        final Node node = elementNode.getUnderlyingNode();
+        return memo(elementNode).get(node, "pmd-java:metric", metricKeyName, new Computation<Double>() {
+            @Override
+            public Double compute() {
+                return MetricFunction.getMetric(node, metricKeyName);
+            }
+        });
     }
 
     public static boolean typeIs(final XPathContext context, final String fullTypeName) {
-        return TypeIsFunction.typeIs((Node) ((ElementNode) context.getContextItem()).getUnderlyingNode(), fullTypeName);
+        final ElementNode elementNode = (ElementNode) context.getContextItem();
+        final Node node = elementNode.getUnderlyingNode();
+        return memo(elementNode).get(node, "pmd-java:typeIs", fullTypeName, new Computation<Boolean>() {
+            @Override
+            public Boolean compute() {
+                return TypeIsFunction.typeIs(node, fullTypeName);
+            }
+        });
     }
 
     public static boolean typeIsExactly(final XPathContext context, final String fullTypeName) {
-        return TypeIsExactlyFunction.typeIsExactly((Node) ((ElementNode) context.getContextItem()).getUnderlyingNode(), fullTypeName);
+        final ElementNode elementNode = (ElementNode) context.getContextItem();
+        final Node node = elementNode.getUnderlyingNode();
+        return memo(elementNode).get(node, "pmd-java:typeIsExactly", fullTypeName, new Computation<Boolean>() {
+            @Override
+            public Boolean compute() {
+                return TypeIsExactlyFunction.typeIsExactly(node, fullTypeName);
+            }
+        });
+    }
+
+    private static XPathFunctionMemo memo(ElementNode elementNode) {
+        return ((DocumentNode) elementNode.getDocumentRoot()).getFunctionMemo();
     }
 }
@@ -0,0 +1,124 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.lang.java.ast.ASTAnyTypeDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
+import net.sourceforge.pmd.lang.java.metrics.impl.AbstractJavaClassMetric;
+import net.sourceforge.pmd.lang.java.symboltable.BaseNonParserTest;
+import net.sourceforge.pmd.lang.metrics.MetricKey;
+import net.sourceforge.pmd.lang.metrics.MetricKeyUtil;
+import net.sourceforge.pmd.lang.metrics.MetricOptions;
+import net.sourceforge.pmd.lang.metrics.MetricsUtil;
+import net.sourceforge.pmd.lang.metrics.internal.MetricStore;
+
+public class MetricStoreTest extends BaseNonParserTest {
+
+    private static final String SOURCE = "package foo; class Foo { void bar() {} }";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MetricKey<ASTAnyTypeDeclaration> classMetricKey = MetricKeyUtil.of("Random", new RandomClassMetric());
+    private final ClassLoader classLoader = getClass().getClassLoader();
+
+    @Test
+    public void testNoStoreByDefault() {
+        assertNull(MetricStore.forNode(java.parse(SOURCE)));
+        assertNull(new PMDConfiguration().getMetricStoreLocation());
+    }
+
+    @Test
+    public void testResultsAreReusedForUnchangedSources() {
+        File storeFile = new File(folder.getRoot(), "metrics.bin");
+
+        MetricStore store = MetricStore.open(storeFile, classLoader);
+        double first = computeOn(store, SOURCE);
+        store.persist();
+
+        store = MetricStore.open(storeFile, classLoader);
+        assertEquals(first, computeOn(store, SOURCE), 0);
+        assertNotEquals(first, computeOn(store, SOURCE + " // changed"), 0);
+    }
+
+    @Test
+    public void testUnusedResultsAreDropped() {
+        File storeFile = new File(folder.getRoot(), "metrics.bin");
+
+        MetricStore store = MetricStore.open(storeFile, classLoader);
+        double first = computeOn(store, SOURCE);
+        store.persist();
+
+        // a run which doesn't use the result doesn't write it back
+        MetricStore.open(storeFile, classLoader).persist();
+
+        assertNotEquals(first, computeOn(MetricStore.open(storeFile, classLoader), SOURCE), 0);
+    }
+
+    @Test
+    public void testClearedStoreIsEmpty() {
+        File storeFile = new File(folder.getRoot(), "metrics.bin");
+
+        MetricStore store = MetricStore.open(storeFile, classLoader);
+        double first = computeOn(store, SOURCE);
+        store.persist();
+
+        store = MetricStore.open(storeFile, classLoader);
+        store.clear();
+        assertNotEquals(first, computeOn(store, SOURCE), 0);
+    }
+
+    @Test
+    public void testResultsOfAnotherAuxclasspathAreDiscarded() throws IOException {
+        File storeFile = new File(folder.getRoot(), "metrics.bin");
+        File classFile = folder.newFile("Dep.class");
+        Files.write(classFile.toPath(), new byte[] {1});
+
+        try (URLClassLoader auxclasspath = new URLClassLoader(new URL[] {classFile.toURI().toURL()})) {
+            MetricStore store = MetricStore.open(storeFile, auxclasspath);
+            double first = computeOn(store, SOURCE);
+            store.persist();
+
+            assertEquals(first, computeOn(MetricStore.open(storeFile, auxclasspath), SOURCE), 0);
+
+            // types may resolve differently, e.g. for the class fan out
+            Files.write(classFile.toPath(), new byte[] {2});
+            assertNotEquals(first, computeOn(MetricStore.open(storeFile, auxclasspath), SOURCE), 0);
+        }
+    }
+
+    private double computeOn(MetricStore store, String source) {
+        ASTCompilationUnit acu = java.parse(source);
+        store.attach(acu, source);
+        ASTAnyTypeDeclaration clazz = acu.getFirstDescendantOfType(ASTAnyTypeDeclaration.class);
+        return MetricsUtil.computeMetric(classMetricKey, clazz, MetricOptions.emptyOptions());
+    }
+
+    private static class RandomClassMetric extends AbstractJavaClassMetric {
+
+        private final Random random = new Random();
+
+        @Override
+        public double computeFor(ASTAnyTypeDeclaration node, MetricOptions options) {
+            return random.nextInt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.multifile;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSetFactory;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
+import net.sourceforge.pmd.lang.java.qname.JavaTypeQualifiedName;
+import net.sourceforge.pmd.lang.java.qname.QualifiedNameFactory;
+import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
+import net.sourceforge.pmd.processor.AbstractPMDProcessor;
+import net.sourceforge.pmd.processor.MonoThreadProcessor;
+import net.sourceforge.pmd.processor.MultiThreadProcessor;
+import net.sourceforge.pmd.renderers.Renderer;
+import net.sourceforge.pmd.util.datasource.DataSource;
+import net.sourceforge.pmd.util.datasource.internal.AbstractDataSource;
+
+/**
+ * Tests that the project is indexed before the multifile rules run.
+ */
+public class MultifileIndexingTest {
+
+    private static final String FOO = "package bar; public class Foo { public int x; public void foo() {} }";
+    private static final String BAZ = "package bar; public class Baz { public void baz() {} }";
+
+    private void processFiles(AbstractPMDProcessor processor) {
+        ProjectIndexRule.SEEN_CLASSES.clear();
+        List<DataSource> files = Arrays.<DataSource>asList(new StringDataSource("Foo.java", FOO),
+                                                           new StringDataSource("Baz.java", BAZ));
+        RuleSets ruleSets = new RuleSets(new RuleSetFactory().createSingleRuleRuleSet(new ProjectIndexRule()));
+        processor.processFiles(ruleSets, files, new RuleContext(), Collections.<Renderer>emptyList());
+    }
+
+    private PMDConfiguration configuration(int threads) {
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setIgnoreIncrementalAnalysis(true);
+        configuration.setThreads(threads);
+        return configuration;
+    }
+
+    @Test
+    public void testRulesSeeAllFiles() {
+        processFiles(new MonoThreadProcessor(configuration(0)));
+
+        assertEquals(2, ProjectIndexRule.SEEN_CLASSES.size());
+        assertEquals(2, (int) ProjectIndexRule.SEEN_CLASSES.get("Foo.java"));
+        assertEquals(2, (int) ProjectIndexRule.SEEN_CLASSES.get("Baz.java"));
+    }
+
+    @Test
+    public void testRulesSeeAllFilesMultiThreaded() {
+        processFiles(new MultiThreadProcessor(configuration(2)));
+
+        assertEquals(2, ProjectIndexRule.SEEN_CLASSES.size());
+        assertEquals(2, (int) ProjectIndexRule.SEEN_CLASSES.get("Foo.java"));
+        assertEquals(2, (int) ProjectIndexRule.SEEN_CLASSES.get("Baz.java"));
+    }
+
+    /**
+     * Records the number of classes of the project visible from each file.
+     */
+    public static class ProjectIndexRule extends AbstractJavaRule {
+
+        static final Map<String, Integer> SEEN_CLASSES = new ConcurrentHashMap<>();
+
+        public ProjectIndexRule() {
+            setName("ProjectIndexRule");
+            setMultifile(true);
+        }
+
+        @Override
+        public Object visit(ASTCompilationUnit node, Object data) {
+            int seen = 0;
+            for (String className : Arrays.asList("bar.Foo", "bar.Baz")) {
+                JavaTypeQualifiedName qname = (JavaTypeQualifiedName) QualifiedNameFactory.ofString(className);
+                if (PackageStats.INSTANCE.getClassMirror(qname) != null) {
+                    seen++;
+                }
+            }
+            SEEN_CLASSES.put(((RuleContext) data).getSourceCodeFile().getName(), seen);
+            return data;
+        }
+    }
+
+    private static class StringDataSource extends AbstractDataSource {
+        private final String data;
+        private final String name;
+
+        StringDataSource(String name, String data) {
+            this.name = name;
+            this.data = data;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String getNiceFileName(boolean shortNames, String inputFileName) {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.typeresolution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.lang.LanguageVersionHandler;
+import net.sourceforge.pmd.lang.java.JavaParsingHelper;
+import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
+import net.sourceforge.pmd.lang.java.ast.ASTFieldDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTImportDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTLiteral;
+
+public class LazyTypeResolutionTest {
+
+    private static final String SOURCE = "class Foo { String s = \"a\"; int i = 1; }";
+
+    @Test
+    public void testTypesAreResolvedOnDemand() {
+        ASTCompilationUnit acu = JavaParsingHelper.JUST_PARSE.parse(SOURCE);
+        LanguageVersionHandler handler = JavaParsingHelper.JUST_PARSE.getDefaultHandler();
+        ClassLoader classLoader = getClass().getClassLoader();
+        handler.getQualifiedNameResolutionFacade(classLoader).start(acu);
+        handler.getSymbolFacade(classLoader).start(acu);
+        handler.getTypeResolutionFacade(classLoader, true).start(acu);
+
+        assertNotNull(acu.getClassTypeResolver());
+        assertEquals(String.class, acu.getFirstDescendantOfType(ASTLiteral.class).getType());
+        assertEquals(int.class, acu.findDescendantsOfType(ASTFieldDeclaration.class).get(1).getType());
+    }
+
+    @Test
+    public void testImportedPackageIsResolvedOnDemand() {
+        ASTCompilationUnit acu = JavaParsingHelper.JUST_PARSE.parse("import java.util.List; class Foo { }");
+        LanguageVersionHandler handler = JavaParsingHelper.JUST_PARSE.getDefaultHandler();
+        ClassLoader classLoader = getClass().getClassLoader();
+        handler.getTypeResolutionFacade(classLoader, true).start(acu);
+
+        assertEquals(List.class.getPackage(), acu.getFirstDescendantOfType(ASTImportDeclaration.class).getPackage());
+    }
+
+    @Test
+    public void testDeferredResolutionRunsOnce() {
+        final ASTCompilationUnit acu = JavaParsingHelper.JUST_PARSE.parse(SOURCE);
+        final ASTLiteral literal = acu.getFirstDescendantOfType(ASTLiteral.class);
+        final int[] runs = {0};
+        acu.setDeferredTypeResolution(new Runnable() {
+            @Override
+            public void run() {
+                runs[0]++;
+                // asking for types during the resolution doesn't run it again
+                assertNull(literal.getType());
+                literal.setType(String.class);
+            }
+        });
+
+        assertEquals(0, runs[0]);
+        assertEquals(String.class, literal.getType());
+        assertEquals(String.class, literal.getTypeDefinition().getType());
+        assertEquals(1, runs[0]);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.typeresolution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbolIndex;
+
+public class ClassSymbolIndexTest {
+
+    private static final String OUTER = "net.sourceforge.pmd.typeresolution.ClassWithImportInnerOnDemand";
+    private static final String INNER = OUTER + "$Inner";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File createJar(String... classNames) throws IOException {
+        File jar = tempFolder.newFile("classes.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (String className : classNames) {
+                String entryName = className.replace('.', '/') + ".class";
+                zip.putNextEntry(new ZipEntry(entryName));
+                try (InputStream classFile = getClass().getClassLoader().getResourceAsStream(entryName)) {
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = classFile.read(buffer)) != -1) {
+                        zip.write(buffer, 0, read);
+                    }
+                }
+                zip.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    @Test
+    public void testIndexIsBuiltThenReused() throws IOException {
+        File jar = createJar(OUTER, INNER);
+        File indexDirectory = tempFolder.newFolder("index");
+
+        ClassSymbolIndex index = ClassSymbolIndex.open(indexDirectory, jar);
+        assertEquals(2, index.size());
+        assertEquals(1, indexDirectory.list().length);
+        File indexFile = indexDirectory.listFiles()[0];
+        long lastModified = indexFile.lastModified();
+
+        ClassSymbolIndex reopened = ClassSymbolIndex.open(indexDirectory, jar);
+        assertEquals(2, reopened.size());
+        assertEquals(Arrays.asList(indexFile), Arrays.asList(indexDirectory.listFiles()));
+        assertEquals(lastModified, indexFile.lastModified());
+    }
+
+    @Test
+    public void testSymbolsAreDecoded() throws IOException {
+        ClassSymbolIndex index = ClassSymbolIndex.open(tempFolder.newFolder("index"), createJar(OUTER, INNER));
+
+        ClassSymbol outer = index.get(OUTER);
+        assertNotNull(outer);
+        assertEquals("ClassWithImportInnerOnDemand", outer.getSimpleName());
+        assertEquals("java.lang.Object", outer.getSuperclassName());
+        assertEquals(Arrays.asList(INNER), outer.getMemberClassNames());
+        assertEquals("foo", outer.getMethods().get(1).getName());
+        assertEquals("(Ljava/util/Map;)V", outer.getMethods().get(1).getDescriptor());
+
+        ClassSymbol inner = index.get(INNER);
+        assertNotNull(inner);
+        assertTrue(inner.isInterface());
+        assertEquals("Inner", inner.getSimpleName());
+        assertEquals(OUTER, inner.getEnclosingClassName());
+
+        assertNull(index.get("java.lang.Object"));
+        assertNull(index.get(OUTER + "$Missing"));
+    }
+
+    @Test
+    public void testChangedJarIsReindexed() throws IOException {
+        File indexDirectory = tempFolder.newFolder("index");
+        File jar = createJar(OUTER);
+        assertEquals(1, ClassSymbolIndex.open(indexDirectory, jar).size());
+
+        assertTrue(jar.delete());
+        jar = createJar(OUTER, INNER);
+        assertEquals(2, ClassSymbolIndex.open(indexDirectory, jar).size());
+        // the index of the previous jar was deleted
+        assertEquals(1, indexDirectory.list().length);
+    }
+}
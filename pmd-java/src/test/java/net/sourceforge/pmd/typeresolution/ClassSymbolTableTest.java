@@ -0,0 +1,152 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.typeresolution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sourceforge.pmd.lang.LanguageVersionHandler;
+import net.sourceforge.pmd.lang.java.JavaParsingHelper;
+import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
+import net.sourceforge.pmd.lang.java.ast.ASTImportDeclaration;
+import net.sourceforge.pmd.lang.java.typeresolution.PMDASMClassLoader;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbol;
+import net.sourceforge.pmd.lang.java.typeresolution.internal.ClassSymbolTable;
+import net.sourceforge.pmd.lang.java.typeresolution.typedefinition.JavaTypeDefinition;
+
+public class ClassSymbolTableTest {
+
+    private ClassSymbolTable table;
+
+    @Before
+    public void setUp() {
+        table = PMDASMClassLoader.getInstance(getClass().getClassLoader()).getSymbolTable();
+    }
+
+    @Test
+    public void testTopLevelClass() {
+        ClassSymbol symbol = table.resolve("java.util.ArrayList");
+        assertNotNull(symbol);
+        assertEquals("java.util.ArrayList", symbol.getBinaryName());
+        assertEquals("ArrayList", symbol.getSimpleName());
+        assertEquals("java.util.AbstractList", symbol.getSuperclassName());
+        assertTrue(symbol.getInterfaceNames().contains("java.util.List"));
+        assertEquals(Arrays.asList("E"), symbol.getTypeParameterNames());
+        assertNull(symbol.getEnclosingClassName());
+        assertFalse(symbol.isInterface());
+        assertNotNull(symbol.getField("serialVersionUID"));
+        assertTrue(symbol.getField("serialVersionUID").isStatic());
+        assertSame(symbol, table.resolve("java.util.ArrayList"));
+    }
+
+    @Test
+    public void testMemberClass() {
+        ClassSymbol map = table.resolve("java.util.Map");
+        assertTrue(map.isInterface());
+        assertTrue(map.getMemberClassNames().contains("java.util.Map$Entry"));
+
+        ClassSymbol entry = table.resolve("java.util.Map$Entry");
+        assertNotNull(entry);
+        assertEquals("Entry", entry.getSimpleName());
+        assertEquals("java.util.Map", entry.getEnclosingClassName());
+        assertTrue(entry.isInterface());
+        assertEquals(Arrays.asList("K", "V"), entry.getTypeParameterNames());
+    }
+
+    @Test
+    public void testUnresolved() {
+        assertNull(table.resolve("im.sure.that.this.does.not.Exist"));
+        assertFalse(table.exists("im.sure.that.this.does.not.Exist"));
+        assertFalse(table.exists("java.util.arraylist"));
+        assertTrue(table.exists("java.lang.String"));
+    }
+
+    @Test
+    public void testTypeDefinitionForSymbol() {
+        assertNull(JavaTypeDefinition.forSymbol(null, table));
+
+        JavaTypeDefinition def = JavaTypeDefinition.forSymbol(table.resolve("java.util.ArrayList"), table);
+        assertTrue(def.isExactType());
+        assertTrue(def.isClassOrInterface());
+        assertTrue(def.isGeneric());
+        assertTrue(def.isRawType());
+        assertEquals(1, def.getTypeParameterCount());
+        assertFalse(def.isArrayType());
+        assertTrue(def.hasSameErasureAs(JavaTypeDefinition.forClass(ArrayList.class)));
+
+        assertNotNull(def.getAsSuper(AbstractList.class));
+        assertNotNull(def.getAsSuper(Collection.class));
+        assertNotNull(def.getAsSuper(Object.class));
+        assertNull(def.getAsSuper(Map.class));
+        assertEquals(JavaTypeDefinition.forSymbol(table.resolve("java.util.List"), table), def.getAsSuper(List.class));
+
+        assertSame(ArrayList.class, def.getType());
+    }
+
+    @Test
+    public void testEnclosingClassForSymbol() {
+        JavaTypeDefinition entry = JavaTypeDefinition.forSymbol(table.resolve("java.util.Map$Entry"), table);
+        assertEquals(JavaTypeDefinition.forSymbol(table.resolve("java.util.Map"), table), entry.getEnclosingClass());
+    }
+
+    @Test
+    public void testSymbolicDefinitionEqualsRawClassDefinition() {
+        JavaTypeDefinition symbolic = JavaTypeDefinition.forSymbol(table.resolve("java.util.List"), table);
+        JavaTypeDefinition raw = JavaTypeDefinition.forClass(List.class);
+        JavaTypeDefinition parameterized = JavaTypeDefinition.forClass(List.class, JavaTypeDefinition.forClass(String.class));
+
+        assertEquals(symbolic, raw);
+        assertEquals(raw, symbolic);
+        assertEquals(raw.hashCode(), symbolic.hashCode());
+        assertFalse(symbolic.equals(parameterized));
+        assertFalse(parameterized.equals(symbolic));
+
+        JavaTypeDefinition string = JavaTypeDefinition.forSymbol(table.resolve("java.lang.String"), table);
+        assertEquals(string, JavaTypeDefinition.forClass(String.class));
+        assertEquals(JavaTypeDefinition.forClass(String.class), string);
+    }
+
+    @Test
+    public void testImportedTypeIsNotLoaded() {
+        final Set<String> loaded = new HashSet<>();
+        ClassLoader recording = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                loaded.add(name);
+                return super.loadClass(name, resolve);
+            }
+        };
+
+        ASTCompilationUnit acu = JavaParsingHelper.JUST_PARSE.parse("import java.util.concurrent.ConcurrentSkipListSet; class Foo { }");
+        LanguageVersionHandler handler = JavaParsingHelper.JUST_PARSE.getDefaultHandler();
+        handler.getTypeResolutionFacade(recording).start(acu);
+
+        ASTImportDeclaration importDecl = acu.getFirstDescendantOfType(ASTImportDeclaration.class);
+        assertNotNull(importDecl.getTypeDefinition());
+        assertFalse(loaded.contains("java.util.concurrent.ConcurrentSkipListSet"));
+        assertTrue(importDecl.getTypeDefinition().getAsSuper(Set.class) != null);
+        assertFalse(loaded.contains("java.util.concurrent.ConcurrentSkipListSet"));
+
+        // the class is loaded once it's asked for
+        assertEquals("java.util.concurrent", importDecl.getPackage().getName());
+        assertTrue(loaded.contains("java.util.concurrent.ConcurrentSkipListSet"));
+    }
+}
@@ -6,9 +6,14 @@ package net.sourceforge.pmd.typeresolution;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.Ignore;
@@ -57,6 +62,33 @@ public class PMDASMClassLoaderTest {
                 imports.get("ClassWithImportInnerOnDemand"));
     }
 
+    @Test
+    public void testImportedClassesAreMemoized() throws Exception {
+        String className = "net.sourceforge.pmd.typeresolution.ClassWithImportOnDemand";
+        Map<String, String> imports = cl.getImportedClasses(className);
+        assertSame(imports, cl.getImportedClasses(className));
+    }
+
+    @Test
+    public void testSharedInstance() throws Exception {
+        final ClassLoader parent = new MockedClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Callable<PMDASMClassLoader> getInstance = new Callable<PMDASMClassLoader>() {
+                @Override
+                public PMDASMClassLoader call() {
+                    return PMDASMClassLoader.getInstance(parent);
+                }
+            };
+            Future<PMDASMClassLoader> first = executor.submit(getInstance);
+            Future<PMDASMClassLoader> second = executor.submit(getInstance);
+            assertSame(first.get(), second.get());
+            assertSame(parent, first.get().getParent());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * Unit test for bug 3546093.
      *
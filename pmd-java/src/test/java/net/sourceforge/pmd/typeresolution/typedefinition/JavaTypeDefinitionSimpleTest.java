@@ -5,11 +5,13 @@
 package net.sourceforge.pmd.typeresolution.typedefinition;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import net.sourceforge.pmd.lang.java.typeresolution.typedefinition.JavaTypeDefinition;
+import net.sourceforge.pmd.lang.java.typeresolution.typedefinition.TypeDefinitionType;
 
 public class JavaTypeDefinitionSimpleTest {
 
@@ -63,4 +65,45 @@ public class JavaTypeDefinitionSimpleTest {
         Assert.assertTrue(typeDef.isPrimitive());
         Assert.assertFalse(typeDef.isClassOrInterface());
     }
+
+    @Test
+    public void nonGenericTypesAreInterned() {
+        JavaTypeDefinition typeDef = JavaTypeDefinition.forClass(String.class);
+        Assert.assertTrue(typeDef.isInterned());
+        Assert.assertSame(typeDef, JavaTypeDefinition.forClass(String.class));
+        Assert.assertSame(JavaTypeDefinition.forClass(int[].class), JavaTypeDefinition.forClass(int[].class));
+    }
+
+    @Test
+    public void rawTypesAreNotInterned() {
+        JavaTypeDefinition typeDef = JavaTypeDefinition.forClass(List.class);
+        Assert.assertFalse(typeDef.isInterned());
+        Assert.assertNotSame(typeDef, JavaTypeDefinition.forClass(List.class));
+        Assert.assertFalse(JavaTypeDefinition.forClass(List.class, typeDef).isInterned());
+    }
+
+    @Test
+    public void parameterizedTypesAreInterned() {
+        JavaTypeDefinition listOfString = JavaTypeDefinition.forClass(List.class, JavaTypeDefinition.forClass(String.class));
+        Assert.assertTrue(listOfString.isInterned());
+        Assert.assertSame(listOfString, JavaTypeDefinition.forClass(List.class, JavaTypeDefinition.forClass(String.class)));
+
+        JavaTypeDefinition wildcard = JavaTypeDefinition.forClass(TypeDefinitionType.UPPER_WILDCARD, listOfString);
+        Assert.assertTrue(wildcard.isInterned());
+        Assert.assertSame(wildcard, JavaTypeDefinition.forClass(TypeDefinitionType.UPPER_WILDCARD, listOfString));
+        Assert.assertNotSame(wildcard, JavaTypeDefinition.forClass(TypeDefinitionType.LOWER_WILDCARD, listOfString));
+    }
+
+    @Test
+    public void hashCodeIncludesTypeArguments() {
+        JavaTypeDefinition listOfString = JavaTypeDefinition.forClass(List.class, JavaTypeDefinition.forClass(String.class));
+        JavaTypeDefinition listOfInteger = JavaTypeDefinition.forClass(List.class, JavaTypeDefinition.forClass(Integer.class));
+        Assert.assertNotEquals(listOfString.hashCode(), listOfInteger.hashCode());
+
+        JavaTypeDefinition.clearInterningTable();
+        JavaTypeDefinition reinterned = JavaTypeDefinition.forClass(List.class, JavaTypeDefinition.forClass(String.class));
+        Assert.assertNotSame(listOfString, reinterned);
+        Assert.assertEquals(listOfString, reinterned);
+        Assert.assertEquals(listOfString.hashCode(), reinterned.hashCode());
+    }
 }